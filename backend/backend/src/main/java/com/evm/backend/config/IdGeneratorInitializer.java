@@ -0,0 +1,44 @@
+package com.evm.backend.config;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Đồng bộ bảng id_generator (@TableGenerator, pooled-lo) với dữ liệu đang có
+ * - sales_order trước đây dùng AUTO_INCREMENT: next_val phải lớn hơn MAX(order_id) để không trùng id
+ * - Chỉ tăng, không giảm (chạy lại nhiều lần / nhiều instance vẫn an toàn)
+ * Chạy sau khi Hibernate cập nhật schema và trước khi web server nhận request
+ */
+@Component
+@DependsOn("entityManagerFactory")
+@RequiredArgsConstructor
+@Slf4j
+public class IdGeneratorInitializer implements InitializingBean {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void afterPropertiesSet() {
+        // ddl-auto không phải update/create thì bảng có thể chưa có
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS id_generator (" +
+                "sequence_name VARCHAR(255) NOT NULL PRIMARY KEY, " +
+                "next_val BIGINT)");
+
+        syncWithMaxId("sales_order", "sales_order", "order_id");
+    }
+
+    private void syncWithMaxId(String sequenceName, String table, String idColumn) {
+        jdbcTemplate.update("INSERT INTO id_generator (sequence_name, next_val) " +
+                "SELECT ?, COALESCE(MAX(" + idColumn + "), 0) + 1 FROM " + table + " " +
+                "ON DUPLICATE KEY UPDATE next_val = GREATEST(COALESCE(next_val, 0), VALUES(next_val))",
+                sequenceName);
+
+        Long nextValue = jdbcTemplate.queryForObject(
+                "SELECT next_val FROM id_generator WHERE sequence_name = ?", Long.class, sequenceName);
+        log.info("Id generator {} starts at {}", sequenceName, nextValue);
+    }
+}
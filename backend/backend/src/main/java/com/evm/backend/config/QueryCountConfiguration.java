@@ -0,0 +1,87 @@
+package com.evm.backend.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Báo cáo số câu SQL của mỗi request (chẩn đoán N+1 / so sánh fetch plan)
+ * - StatementInspector của Hibernate đếm mọi câu SQL được chuẩn bị trên thread của request
+ * - Filter (chạy trước security) log: method, URI, status, số câu SQL, thời gian; vượt ngưỡng -> WARN
+ * Chỉ bật khi app.diagnostics.query-count.enabled = true
+ * Không đếm SQL chạy qua JdbcTemplate hoặc trên thread khác (báo cáo fan-out, job nền)
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "app.diagnostics.query-count", name = "enabled", havingValue = "true")
+@Slf4j
+public class QueryCountConfiguration {
+
+    // null = thread hiện tại không nằm trong request đang đo
+    private static final ThreadLocal<int[]> QUERY_COUNT = new ThreadLocal<>();
+
+    @Bean
+    public HibernatePropertiesCustomizer queryCountStatementInspector() {
+        StatementInspector inspector = sql -> {
+            int[] counter = QUERY_COUNT.get();
+            if (counter != null) {
+                counter[0]++;
+            }
+            return sql;
+        };
+        return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, inspector);
+    }
+
+    @Bean
+    public FilterRegistrationBean<QueryCountFilter> queryCountFilter(
+            @Value("${app.diagnostics.query-count.warn-threshold:20}") int warnThreshold) {
+        FilterRegistrationBean<QueryCountFilter> registration =
+                new FilterRegistrationBean<>(new QueryCountFilter(warnThreshold));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+
+    static class QueryCountFilter extends OncePerRequestFilter {
+        private final int warnThreshold;
+
+        QueryCountFilter(int warnThreshold) {
+            this.warnThreshold = warnThreshold;
+        }
+
+        @Override
+        protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                        FilterChain filterChain) throws ServletException, IOException {
+            int[] counter = new int[1];
+            QUERY_COUNT.set(counter);
+            long start = System.currentTimeMillis();
+            try {
+                filterChain.doFilter(request, response);
+            } finally {
+                QUERY_COUNT.remove();
+                long elapsed = System.currentTimeMillis() - start;
+                if (counter[0] > warnThreshold) {
+                    log.warn("{} {} -> {}: {} SQL statements in {} ms (threshold {})",
+                            request.getMethod(), request.getRequestURI(), response.getStatus(),
+                            counter[0], elapsed, warnThreshold);
+                } else {
+                    log.info("{} {} -> {}: {} SQL statements in {} ms",
+                            request.getMethod(), request.getRequestURI(), response.getStatus(),
+                            counter[0], elapsed);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.evm.backend.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Tách truy vấn chỉ đọc (@Transactional(readOnly = true): báo cáo, danh sách) sang replica
+ * - Primary: spring.datasource (+ spring.datasource.hikari)
+ * - Replica: app.datasource.replica, Hikari pool riêng để báo cáo nặng không chiếm connection của ghi đơn hàng
+ * - Định kỳ đo độ trễ replica; trễ quá ngưỡng / mất kết nối / replication dừng thì đọc từ primary
+ * Chỉ bật khi app.datasource.replica.enabled = true (mặc định dùng datasource auto-config của Spring Boot)
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "app.datasource.replica", name = "enabled", havingValue = "true")
+@Slf4j
+public class ReadReplicaConfiguration {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    @Bean
+    public HikariDataSource replicaDataSource(
+            DataSourceProperties properties,
+            @Value("${app.datasource.replica.url}") String url,
+            @Value("${app.datasource.replica.username:${spring.datasource.username}}") String username,
+            @Value("${app.datasource.replica.password:${spring.datasource.password}}") String password,
+            @Value("${app.datasource.replica.maximum-pool-size:10}") int maximumPoolSize,
+            @Value("${app.datasource.replica.connection-timeout-ms:3000}") long connectionTimeoutMs) {
+
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setPoolName("replica");
+        dataSource.setDriverClassName(properties.determineDriverClassName());
+        dataSource.setJdbcUrl(url);
+        dataSource.setUsername(username);
+        dataSource.setPassword(password);
+        dataSource.setMaximumPoolSize(maximumPoolSize);
+        dataSource.setConnectionTimeout(connectionTimeoutMs);
+        dataSource.setReadOnly(true);
+        // Replica chưa sẵn sàng khi khởi động không chặn ứng dụng (đọc từ primary đến khi kiểm tra lại)
+        dataSource.setInitializationFailTimeout(-1);
+        return dataSource;
+    }
+
+    @Bean
+    public ReplicaRoutingDataSource replicaRoutingDataSource(
+            @Qualifier("primaryDataSource") DataSource primaryDataSource,
+            @Qualifier("replicaDataSource") DataSource replicaDataSource) {
+
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(ReplicaRoutingDataSource.PRIMARY, primaryDataSource);
+        targets.put(ReplicaRoutingDataSource.REPLICA, replicaDataSource);
+
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource();
+        routing.setTargetDataSources(targets);
+        routing.setDefaultTargetDataSource(primaryDataSource);
+        return routing;
+    }
+
+    /**
+     * DataSource dùng cho JPA/JDBC: connection thật được lấy ở câu lệnh đầu tiên,
+     * lúc đó transaction đã đánh dấu readOnly nên routing chọn đúng pool
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+    }
+
+    @Bean
+    public ReplicaLagMonitor replicaLagMonitor(
+            ReplicaRoutingDataSource replicaRoutingDataSource,
+            @Qualifier("replicaDataSource") DataSource replicaDataSource,
+            @Value("${app.datasource.replica.max-lag-seconds:30}") long maxLagSeconds) {
+        return new ReplicaLagMonitor(replicaRoutingDataSource, replicaDataSource, maxLagSeconds);
+    }
+
+    /**
+     * Đo Seconds_Behind_Source trên replica (MySQL 8.0.22+, cũ hơn: Seconds_Behind_Master)
+     * Không phải replica (kết quả rỗng, ví dụ instance thay thế khi chạy local) -> coi như trễ 0
+     */
+    static class ReplicaLagMonitor {
+
+        private static final long NOT_REPLICATING = Long.MAX_VALUE;
+
+        private final ReplicaRoutingDataSource routing;
+        private final JdbcTemplate replicaJdbc;
+        private final long maxLagSeconds;
+
+        ReplicaLagMonitor(ReplicaRoutingDataSource routing, DataSource replicaDataSource, long maxLagSeconds) {
+            this.routing = routing;
+            this.maxLagSeconds = maxLagSeconds;
+            this.replicaJdbc = new JdbcTemplate(replicaDataSource);
+            this.replicaJdbc.setQueryTimeout(2);
+        }
+
+        @Scheduled(fixedDelayString = "${app.datasource.replica.lag-check-interval-ms:5000}", initialDelay = 0)
+        public void check() {
+            boolean available;
+            String reason;
+            try {
+                long lagSeconds = readLagSeconds();
+                available = lagSeconds <= maxLagSeconds;
+                reason = lagSeconds == NOT_REPLICATING ? "replication stopped" : "lag " + lagSeconds + "s";
+            } catch (DataAccessException e) {
+                available = false;
+                reason = e.getMostSpecificCause().getMessage();
+            }
+
+            if (available != routing.isReplicaAvailable()) {
+                if (available) {
+                    log.info("Read replica available again ({}), routing read-only transactions to replica", reason);
+                } else {
+                    log.warn("Read replica unavailable ({}), routing read-only transactions to primary", reason);
+                }
+                routing.setReplicaAvailable(available);
+            }
+        }
+
+        private long readLagSeconds() {
+            ResultSetExtractor<Long> sourceLag = rs -> extractLag(rs, "Seconds_Behind_Source");
+            ResultSetExtractor<Long> masterLag = rs -> extractLag(rs, "Seconds_Behind_Master");
+            try {
+                return replicaJdbc.query("SHOW REPLICA STATUS", sourceLag);
+            } catch (DataAccessException e) {
+                return replicaJdbc.query("SHOW SLAVE STATUS", masterLag);
+            }
+        }
+
+        private long extractLag(ResultSet rs, String column) throws SQLException {
+            if (!rs.next()) {
+                return 0L;
+            }
+            long lag = rs.getLong(column);
+            return rs.wasNull() ? NOT_REPLICATING : lag;
+        }
+    }
+}
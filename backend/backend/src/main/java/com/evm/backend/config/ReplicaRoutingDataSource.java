@@ -0,0 +1,61 @@
+package com.evm.backend.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.function.Supplier;
+
+/**
+ * Chọn datasource theo transaction hiện tại
+ * - Transaction readOnly và replica đang khỏe (độ trễ trong ngưỡng) -> REPLICA
+ * - Còn lại (ghi, không có transaction, replica trễ/lỗi, trong onPrimary) -> PRIMARY
+ * Đọc từ replica có thể thiếu các commit gần nhất (tối đa khoảng max-lag-seconds); chỉ dùng cho màn hình danh sách,
+ * chi tiết và báo cáo tính trực tiếp. Đọc phải thấy mọi thứ đã commit thì chạy trong onPrimary:
+ * - nạp lại cấu trúc trong bộ nhớ chỉ nhận thay đổi sau lúc nạp (sales cube, leaderboard)
+ * - tính lại báo cáo cache ngay sau khi dữ liệu đổi (ReportCacheServiceImpl)
+ * Phải bọc trong LazyConnectionDataSourceProxy để connection chỉ được lấy khi cờ readOnly đã có
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    static final String PRIMARY = "PRIMARY";
+    static final String REPLICA = "REPLICA";
+
+    private static final ThreadLocal<Boolean> PRIMARY_PINNED = new ThreadLocal<>();
+
+    private volatile boolean replicaAvailable = true;
+
+    /**
+     * Chạy work với mọi connection lấy trên thread hiện tại từ primary, kể cả trong transaction readOnly
+     * (connection lấy ở câu lệnh đầu tiên, nên transaction phải bắt đầu bên trong work hoặc chưa chạy câu lệnh nào)
+     * Không bật replica thì chỉ chạy work
+     */
+    public static <T> T onPrimary(Supplier<T> work) {
+        Boolean previous = PRIMARY_PINNED.get();
+        PRIMARY_PINNED.set(Boolean.TRUE);
+        try {
+            return work.get();
+        } finally {
+            if (previous == null) {
+                PRIMARY_PINNED.remove();
+            }
+        }
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (PRIMARY_PINNED.get() != null) {
+            return PRIMARY;
+        }
+        boolean readOnly = TransactionSynchronizationManager.isActualTransactionActive()
+                && TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+        return readOnly && replicaAvailable ? REPLICA : PRIMARY;
+    }
+
+    boolean isReplicaAvailable() {
+        return replicaAvailable;
+    }
+
+    void setReplicaAvailable(boolean replicaAvailable) {
+        this.replicaAvailable = replicaAvailable;
+    }
+}
@@ -0,0 +1,168 @@
+package com.evm.backend.config;
+
+import com.evm.backend.repository.SalesDailyRollupRepository;
+import com.evm.backend.repository.SalesMonthlyRollupRepository;
+import com.evm.backend.service.DealerSnapshotService;
+import com.evm.backend.service.LeaderboardService;
+import com.evm.backend.service.SalesCubeService;
+import com.evm.backend.service.SalesRollupService;
+import com.evm.backend.service.StockAlertService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+@EnableScheduling
+@Slf4j
+public class ReportConfiguration {
+
+    /**
+     * Backfill sales_daily_rollup / sales_monthly_rollup lần đầu (bảng trống, dữ liệu đơn hàng đã có sẵn)
+     */
+    @Bean
+    @Order(1)
+    public CommandLineRunner backfillSalesRollup(
+            SalesDailyRollupRepository rollupRepository,
+            SalesMonthlyRollupRepository monthlyRollupRepository,
+            SalesRollupService salesRollupService,
+            @Value("${app.reports.rollup.backfill-on-startup:true}") boolean backfillOnStartup) {
+
+        return args -> {
+            if (!backfillOnStartup
+                    || (rollupRepository.count() > 0 && monthlyRollupRepository.count() > 0)) {
+                return;
+            }
+            long rows = salesRollupService.rebuild();
+            log.info("Sales rollup backfilled on startup: {} rows", rows);
+        };
+    }
+
+    /**
+     * Chốt snapshot các tháng đã đóng trong lúc ứng dụng không chạy (sau khi backfill rollup)
+     */
+    @Bean
+    @Order(2)
+    public CommandLineRunner finalizeDealerSnapshots(DealerSnapshotService dealerSnapshotService) {
+        return args -> dealerSnapshotService.finalizeClosedMonths();
+    }
+
+    /**
+     * Nạp bảng xếp hạng (TODAY/MTD/QTD/YTD) từ rollup khi khởi động
+     */
+    @Bean
+    @Order(3)
+    public CommandLineRunner loadLeaderboards(LeaderboardService leaderboardService) {
+        return args -> leaderboardService.reload();
+    }
+
+    /**
+     * Tính lại cảnh báo tồn kho khi khởi động (dữ liệu inventory có thể bị sửa trực tiếp trong DB)
+     */
+    @Bean
+    @Order(4)
+    public CommandLineRunner rebuildStockAlerts(
+            StockAlertService stockAlertService,
+            @Value("${app.reports.alerts.rebuild-on-startup:true}") boolean rebuildOnStartup) {
+        return args -> {
+            if (rebuildOnStartup) {
+                stockAlertService.rebuild();
+            }
+        };
+    }
+
+    /**
+     * Build sales cube trong bộ nhớ khi khởi động (nếu tắt thì build ở truy vấn đầu tiên)
+     */
+    @Bean
+    @Order(5)
+    public CommandLineRunner buildSalesCube(
+            SalesCubeService salesCubeService,
+            @Value("${app.reports.cube.build-on-startup:true}") boolean buildOnStartup) {
+        return args -> {
+            if (buildOnStartup) {
+                salesCubeService.rebuild();
+            }
+        };
+    }
+
+    /**
+     * Thread pool riêng cho report job, không chiếm thread request của Tomcat
+     * Hàng đợi có giới hạn: đầy thì từ chối job mới
+     */
+    @Bean(name = "reportJobExecutor")
+    public TaskExecutor reportJobExecutor(
+            @Value("${app.reports.jobs.pool-size:2}") int poolSize,
+            @Value("${app.reports.jobs.queue-capacity:20}") int queueCapacity) {
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("report-job-");
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Thread pool cho các truy vấn con chạy song song của báo cáo tổng hợp (dashboard, hiệu suất đại lý)
+     * Kích thước pool nên nhỏ hơn connection pool của datasource
+     */
+    @Bean(name = "reportQueryExecutor")
+    public TaskExecutor reportQueryExecutor(
+            @Value("${app.reports.fanout.pool-size:6}") int poolSize,
+            @Value("${app.reports.fanout.queue-capacity:100}") int queueCapacity) {
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("report-query-");
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Thread pool dựng PDF cho xuất báo giá hàng loạt (ZIP)
+     * Hàng đợi đầy -> thread đang ghi ZIP tự dựng PDF (CallerRunsPolicy): chậm lại thay vì từ chối
+     */
+    @Bean(name = "quotationPdfExecutor")
+    public TaskExecutor quotationPdfExecutor(
+            @Value("${app.quotations.export.pool-size:4}") int poolSize,
+            @Value("${app.quotations.export.queue-capacity:32}") int queueCapacity) {
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("quotation-pdf-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Thread pool chạy báo cáo nặng (cache miss) của ReportGuardService
+     * Số báo cáo đồng thời đã bị semaphore giới hạn; hàng đợi chỉ để đệm lúc thread vừa trả permit
+     */
+    @Bean(name = "reportGuardExecutor")
+    public TaskExecutor reportGuardExecutor(
+            @Value("${app.reports.guard.max-concurrent:3}") int maxConcurrent) {
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(maxConcurrent);
+        executor.setMaxPoolSize(maxConcurrent);
+        executor.setQueueCapacity(maxConcurrent);
+        executor.setThreadNamePrefix("report-guard-");
+        executor.initialize();
+        return executor;
+    }
+}
@@ -2,6 +2,7 @@ package com.evm.backend.controller;
 
 import com.evm.backend.dto.request.PaymentFilterRequest;
 import com.evm.backend.dto.request.PaymentRequest;
+import com.evm.backend.dto.response.CursorPageResponse;
 import com.evm.backend.dto.response.PaymentDetailResponse;
 import com.evm.backend.dto.response.PaymentListResponse;
 import com.evm.backend.service.PaymentService;
@@ -87,6 +88,58 @@ public class PaymentCrudController {
         return ResponseEntity.ok(payments);
     }
 
+    /**
+     * GET: Lấy danh sách payments phân trang keyset (cursor)
+     * Endpoint: GET /api/payments/cursor
+     */
+    // <<< CHỨC NĂNG: LẤY DANH SÁCH THANH TOÁN THEO CURSOR (KHÔNG ĐẾM TỔNG)
+    // <<< ĐẦU API: GET /api/payments/cursor
+    // <<< VAI TRÒ: DEALER_STAFF, BRAND_MANAGER, ADMIN
+    @GetMapping("/cursor")
+    @PreAuthorize("hasAnyRole('DEALER_STAFF', 'BRAND_MANAGER', 'ADMIN')")
+    @Operation(
+            summary = "Lấy danh sách thanh toán theo cursor",
+            description = "Phân trang keyset theo (cột sắp xếp, payment id): truyền nextCursor của trang trước, " +
+                    "giữ nguyên filter và sortBy. Không trả tổng số bản ghi"
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Lấy danh sách thành công"),
+            @ApiResponse(responseCode = "400", description = "Cursor không hợp lệ"),
+            @ApiResponse(responseCode = "401", description = "Chưa đăng nhập"),
+            @ApiResponse(responseCode = "403", description = "Không có quyền truy cập")
+    })
+    public ResponseEntity<CursorPageResponse<PaymentListResponse>> getPaymentsByCursor(
+            @Parameter(description = "Order ID") @RequestParam(required = false) Long orderId,
+            @Parameter(description = "Customer ID") @RequestParam(required = false) Long customerId,
+            @Parameter(description = "Phương thức thanh toán") @RequestParam(required = false) String paymentMethod,
+            @Parameter(description = "Trạng thái") @RequestParam(required = false) String status,
+            @Parameter(description = "Loại thanh toán") @RequestParam(required = false) String paymentType,
+            @Parameter(description = "Từ ngày") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fromDate,
+            @Parameter(description = "Đến ngày") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate toDate,
+            @Parameter(description = "Mã tham chiếu") @RequestParam(required = false) String referenceNumber,
+            @Parameter(description = "Sắp xếp") @RequestParam(required = false) String sortBy,
+            @Parameter(description = "Cursor (nextCursor của trang trước)") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Số lượng") @RequestParam(defaultValue = "20") Integer size
+    ) {
+        log.info("GET /api/payments/cursor - orderId: {}, status: {}", orderId, status);
+
+        PaymentFilterRequest filterRequest = PaymentFilterRequest.builder()
+                .orderId(orderId)
+                .customerId(customerId)
+                .paymentMethod(paymentMethod)
+                .status(status)
+                .paymentType(paymentType)
+                .fromDate(fromDate)
+                .toDate(toDate)
+                .referenceNumber(referenceNumber)
+                .sortBy(sortBy)
+                .cursor(cursor)
+                .size(size)
+                .build();
+
+        return ResponseEntity.ok(paymentService.getPaymentsByCursor(filterRequest));
+    }
+
     /**
      * GET: Lấy payments theo order ID
      * Endpoint: GET /api/payments/order/{orderId}
@@ -1,18 +1,26 @@
 package com.evm.backend.controller;
 
+import com.evm.backend.dto.request.QuotationFilterRequest;
 import com.evm.backend.dto.request.QuotationRequest;
 import com.evm.backend.dto.response.QuotationResponse;
 import com.evm.backend.dto.response.SalesOrderResponse;
+import com.evm.backend.service.QuotationExportService;
+import com.evm.backend.service.QuotationPdfCacheService;
 import com.evm.backend.service.QuotationService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.Resource;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -20,7 +28,10 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.time.LocalDate;
 import java.util.List;
 
 @RestController
@@ -31,6 +42,8 @@ import java.util.List;
 public class QuotationController {
 
     private final QuotationService quotationService;
+    private final QuotationExportService quotationExportService;
+    private final QuotationPdfCacheService quotationPdfCacheService;
 
     // <<< CHỨC NĂNG: TẠO BÁO GIÁ MỚI
     // <<< ĐẦU API: POST /api/quotations
@@ -192,18 +205,82 @@ public class QuotationController {
     // <<< VAI TRÒ: DEALER_STAFF, BRAND_MANAGER, ADMIN, CUSTOMER
     @GetMapping("/{id}/export-pdf")
     @PreAuthorize("hasAnyRole('DEALER_STAFF', 'BRAND_MANAGER', 'ADMIN', 'CUSTOMER')")
-    @Operation(summary = "Xuất báo giá ra PDF")
-    public ResponseEntity<byte[]> exportQuotationToPdf(@PathVariable Long id) {
+    @Operation(summary = "Xuất báo giá ra PDF",
+            description = "PDF được cache trên đĩa theo nội dung; ETag = hash nội dung, If-None-Match khớp -> 304")
+    public ResponseEntity<Resource> exportQuotationToPdf(
+            @PathVariable Long id,
+            HttpServletRequest request
+    ) {
         log.info("REST request to export quotation to PDF: {}", id);
-        byte[] pdfContent = quotationService.exportQuotationToPdf(id);
+        // Mở file ngay trong service: evict xóa file trong lúc gửi thì vẫn gửi đủ từ file đã mở
+        // (không dùng Tomcat sendfile vì sendfile mở lại file theo đường dẫn sau khi method trả về)
+        QuotationPdfCacheService.OpenedPdf pdf = quotationPdfCacheService.openPdf(id);
+
+        if (etagMatches(request.getHeader(HttpHeaders.IF_NONE_MATCH), pdf.getEtag())) {
+            closeQuietly(pdf);
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(pdf.getEtag())
+                    .cacheControl(CacheControl.noCache().cachePrivate())
+                    .build();
+        }
 
         HttpHeaders headers = new HttpHeaders();
         headers.setContentType(MediaType.APPLICATION_PDF);
-        headers.setContentDispositionFormData("attachment", "quotation-" + id + ".pdf");
+        headers.setContentDispositionFormData("attachment", pdf.getFileName());
+        headers.setContentLength(pdf.getSize());
+        headers.setETag(pdf.getEtag());
+        headers.setCacheControl(CacheControl.noCache().cachePrivate());
+
+        // Converter đọc stream theo buffer rồi đóng sau khi ghi xong
+        return ResponseEntity.ok()
+                .headers(headers)
+                .body(new InputStreamResource(pdf.getInputStream()));
+    }
+
+    // <<< CHỨC NĂNG: XUẤT NHIỀU BÁO GIÁ RA PDF (FILE ZIP)
+    // <<< ĐẦU API: GET /api/quotations/export-zip
+    // <<< VAI TRÒ: DEALER_STAFF, BRAND_MANAGER, ADMIN
+    @GetMapping("/export-zip")
+    @PreAuthorize("hasAnyRole('DEALER_STAFF', 'BRAND_MANAGER', 'ADMIN')")
+    @Operation(summary = "Xuất nhiều báo giá ra PDF (ZIP)",
+            description = "Lọc theo khách hàng, nhân viên, đại lý, trạng thái, khoảng ngày báo giá; mỗi báo giá một file PDF")
+    public ResponseEntity<StreamingResponseBody> exportQuotationsToZip(
+            @RequestParam(required = false) Long customerId,
+            @RequestParam(required = false) Long salesPersonId,
+            @RequestParam(required = false) Long dealerId,
+            @RequestParam(required = false) String status,
+
+            @RequestParam(required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fromDate,
+
+            @RequestParam(required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate toDate
+    ) {
+        log.info("REST request to export quotations to ZIP");
+
+        QuotationFilterRequest filter = QuotationFilterRequest.builder()
+                .customerId(customerId)
+                .salesPersonId(salesPersonId)
+                .dealerId(dealerId)
+                .status(status)
+                .fromDate(fromDate)
+                .toDate(toDate)
+                .build();
+
+        // Kiểm tra filter trước khi stream (lỗi vẫn trả được 400)
+        List<Long> quotationIds = quotationExportService.findQuotationIdsForExport(filter);
+
+        // Ghi ZIP trực tiếp vào response, không buffer cả file
+        StreamingResponseBody body = outputStream ->
+                quotationExportService.exportPdfZip(quotationIds, outputStream);
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.parseMediaType("application/zip"));
+        headers.setContentDispositionFormData("attachment", "quotations-" + LocalDate.now() + ".zip");
 
         return ResponseEntity.ok()
                 .headers(headers)
-                .body(pdfContent);
+                .body(body);
     }
 
     // <<< CHỨC NĂNG: LẤY DANH SÁCH BÁO GIÁ THEO KHÁCH HÀNG
@@ -260,4 +337,28 @@ public class QuotationController {
         QuotationResponse response = quotationService.recalculateQuotation(id);
         return ResponseEntity.ok(response);
     }
-}
\ No newline at end of file
+
+    private boolean etagMatches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String value = candidate.trim();
+            if (value.startsWith("W/")) {
+                value = value.substring(2);
+            }
+            if (value.equals("*") || value.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void closeQuietly(QuotationPdfCacheService.OpenedPdf pdf) {
+        try {
+            pdf.close();
+        } catch (IOException e) {
+            log.debug("Failed to close cached PDF: {}", e.getMessage());
+        }
+    }
+}
@@ -1,22 +1,48 @@
 package com.evm.backend.controller;
 
+import com.evm.backend.dto.request.CubeQueryRequest;
 import com.evm.backend.dto.request.ReportFilterRequest;
+import com.evm.backend.dto.request.ReportJobRequest;
+import com.evm.backend.dto.request.StockAlertThresholdRequest;
 import com.evm.backend.dto.response.*;
+import com.evm.backend.service.DashboardService;
+import com.evm.backend.service.LeaderboardService;
+import com.evm.backend.service.ReportCacheService;
+import com.evm.backend.service.ReportGuardService;
+import com.evm.backend.service.ReportJobService;
 import com.evm.backend.service.ReportService;
+import com.evm.backend.service.SalesCubeService;
+import com.evm.backend.service.SalesRollupService;
+import com.evm.backend.service.StockAlertService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Page;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 @RestController
 @RequestMapping("/api/reports")
@@ -26,6 +52,19 @@ import java.util.List;
 public class ReportController {
 
     private final ReportService reportService;
+    private final SalesRollupService salesRollupService;
+    private final ReportJobService reportJobService;
+    private final DashboardService dashboardService;
+    private final ReportCacheService reportCacheService;
+    private final LeaderboardService leaderboardService;
+    private final StockAlertService stockAlertService;
+    private final SalesCubeService salesCubeService;
+    private final ReportGuardService reportGuardService;
+
+    private static final String TOMCAT_SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String TOMCAT_SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String TOMCAT_SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String TOMCAT_SENDFILE_END = "org.apache.tomcat.sendfile.end";
 
     // =====================================================
     // D.1: SALES REPORTS
@@ -34,8 +73,9 @@ public class ReportController {
     @GetMapping("/sales")
     @PreAuthorize("hasAnyRole('BRAND_MANAGER', 'ADMIN')")
     @Operation(summary = "Báo cáo doanh số bán hàng",
-            description = "Thống kê doanh thu, đơn hàng, top performers theo thời gian")
-    public ResponseEntity<SalesReportResponse> getSalesReport(
+            description = "Thống kê doanh thu, đơn hàng, top performers theo thời gian. " +
+                    "groupBy: DAY, WEEK, MONTH, QUARTER, YEAR; maxPoints: số điểm tối đa của chuỗi doanh thu")
+    public DeferredResult<ResponseEntity<SalesReportResponse>> getSalesReport(
             @RequestParam(required = false)
             @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
 
@@ -44,7 +84,9 @@ public class ReportController {
 
             @RequestParam(required = false) Long dealerId,
             @RequestParam(required = false) Long salesPersonId,
-            @RequestParam(required = false) String groupBy
+            @RequestParam(required = false) String groupBy,
+            @RequestParam(required = false) Integer maxPoints,
+            HttpServletRequest request
     ) {
         log.info("REST request to get sales report");
 
@@ -54,16 +96,18 @@ public class ReportController {
                 .dealerId(dealerId)
                 .salesPersonId(salesPersonId)
                 .groupBy(groupBy)
+                .maxPoints(maxPoints)
                 .build();
 
-        SalesReportResponse response = reportService.getSalesReport(filter);
-        return ResponseEntity.ok(response);
+        return guardedReport("sales", filter, true,
+                () -> reportService.getSalesReport(filter),
+                response -> !Boolean.TRUE.equals(response.getPartial()), request);
     }
 
     @GetMapping("/sales/export")
     @PreAuthorize("hasAnyRole('BRAND_MANAGER', 'ADMIN')")
     @Operation(summary = "Xuất báo cáo doanh số ra Excel")
-    public ResponseEntity<byte[]> exportSalesReport(
+    public ResponseEntity<StreamingResponseBody> exportSalesReport(
             @RequestParam(required = false)
             @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
 
@@ -80,17 +124,15 @@ public class ReportController {
                 .dealerId(dealerId)
                 .build();
 
-        byte[] excelContent = reportService.exportSalesReportToExcel(filter);
+        reportGuardService.checkDateSpan(filter);
 
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.parseMediaType(
-                "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"));
-        headers.setContentDispositionFormData("attachment",
-                "sales-report-" + LocalDate.now() + ".xlsx");
+        // Ghi workbook trực tiếp vào response, không buffer byte[]
+        StreamingResponseBody body = outputStream ->
+                reportService.exportSalesReportToExcel(filter, outputStream);
 
         return ResponseEntity.ok()
-                .headers(headers)
-                .body(excelContent);
+                .headers(excelHeaders("sales-report-" + LocalDate.now() + ".xlsx"))
+                .body(body);
     }
 
     // =====================================================
@@ -104,7 +146,8 @@ public class ReportController {
     public ResponseEntity<InventoryReportResponse> getInventoryReport(
             @RequestParam(required = false) Long productId,
             @RequestParam(required = false) Long dealerId,
-            @RequestParam(required = false) String status
+            @RequestParam(required = false) String status,
+            HttpServletRequest request
     ) {
         log.info("REST request to get inventory report");
 
@@ -114,14 +157,60 @@ public class ReportController {
                 .status(status)
                 .build();
 
-        InventoryReportResponse response = reportService.getInventoryReport(filter);
-        return ResponseEntity.ok(response);
+        return cachedResponse(reportCacheService.getOrCompute("inventory", filter,
+                () -> reportService.getInventoryReport(filter)),
+                request.getHeader(HttpHeaders.IF_NONE_MATCH));
+    }
+
+    @GetMapping("/inventory/page")
+    @PreAuthorize("hasAnyRole('BRAND_MANAGER', 'DEALER_STAFF', 'ADMIN')")
+    @Operation(summary = "Báo cáo tồn kho phân trang",
+            description = "Phân trang keyset theo (tên sản phẩm, inventory id): truyền nextCursor của trang trước. " +
+                    "Thống kê tổng chỉ có ở trang đầu")
+    public ResponseEntity<InventoryReportResponse> getInventoryReportPage(
+            @RequestParam(required = false) Long productId,
+            @RequestParam(required = false) Long dealerId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "100") Integer size
+    ) {
+        log.info("REST request to get inventory report page");
+
+        ReportFilterRequest filter = ReportFilterRequest.builder()
+                .productId(productId)
+                .dealerId(dealerId)
+                .build();
+
+        return ResponseEntity.ok(reportService.getInventoryReportPage(filter, cursor, size));
+    }
+
+    @GetMapping(value = "/inventory/stream", produces = "application/x-ndjson")
+    @PreAuthorize("hasAnyRole('BRAND_MANAGER', 'DEALER_STAFF', 'ADMIN')")
+    @Operation(summary = "Báo cáo tồn kho dạng NDJSON",
+            description = "Mỗi dòng một bản ghi tồn kho, dòng cuối {\"summary\": ...}")
+    public ResponseEntity<StreamingResponseBody> streamInventoryReport(
+            @RequestParam(required = false) Long productId,
+            @RequestParam(required = false) Long dealerId
+    ) {
+        log.info("REST request to stream inventory report");
+
+        ReportFilterRequest filter = ReportFilterRequest.builder()
+                .productId(productId)
+                .dealerId(dealerId)
+                .build();
+
+        // Ghi từng dòng ra response khi đọc cursor, không dựng list trong bộ nhớ
+        StreamingResponseBody body = outputStream ->
+                reportService.streamInventoryReport(filter, outputStream);
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .body(body);
     }
 
     @GetMapping("/inventory/export")
     @PreAuthorize("hasAnyRole('BRAND_MANAGER', 'ADMIN')")
     @Operation(summary = "Xuất báo cáo tồn kho ra Excel")
-    public ResponseEntity<byte[]> exportInventoryReport(
+    public ResponseEntity<StreamingResponseBody> exportInventoryReport(
             @RequestParam(required = false) Long productId,
             @RequestParam(required = false) Long dealerId
     ) {
@@ -132,17 +221,82 @@ public class ReportController {
                 .dealerId(dealerId)
                 .build();
 
-        byte[] excelContent = reportService.exportInventoryReportToExcel(filter);
-
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.parseMediaType(
-                "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"));
-        headers.setContentDispositionFormData("attachment",
-                "inventory-report-" + LocalDate.now() + ".xlsx");
+        // Ghi workbook trực tiếp vào response, dữ liệu tồn kho đọc theo cursor
+        StreamingResponseBody body = outputStream ->
+                reportService.exportInventoryReportToExcel(filter, outputStream);
 
         return ResponseEntity.ok()
-                .headers(headers)
-                .body(excelContent);
+                .headers(excelHeaders("inventory-report-" + LocalDate.now() + ".xlsx"))
+                .body(body);
+    }
+
+    // =====================================================
+    // STOCK ALERTS
+    // =====================================================
+
+    @GetMapping("/alerts")
+    @PreAuthorize("hasAnyRole('BRAND_MANAGER', 'DEALER_STAFF', 'ADMIN')")
+    @Operation(summary = "Cảnh báo tồn kho đang hoạt động",
+            description = "LOW_STOCK / OUT_OF_STOCK, được cập nhật ngay khi tồn kho thay đổi")
+    public ResponseEntity<List<InventoryReportResponse.StockAlert>> getActiveAlerts() {
+        return ResponseEntity.ok(stockAlertService.getActiveAlerts());
+    }
+
+    @GetMapping("/alerts/thresholds")
+    @PreAuthorize("hasAnyRole('BRAND_MANAGER', 'ADMIN')")
+    @Operation(summary = "Danh sách ngưỡng cảnh báo tồn kho")
+    public ResponseEntity<List<StockAlertThresholdResponse>> getAlertThresholds() {
+        return ResponseEntity.ok(stockAlertService.getThresholds());
+    }
+
+    @PutMapping("/alerts/thresholds")
+    @PreAuthorize("hasAnyRole('BRAND_MANAGER', 'ADMIN')")
+    @Operation(summary = "Cấu hình ngưỡng cảnh báo tồn kho",
+            description = "productId NULL = mọi sản phẩm; dealerId NULL = mọi đại lý, 0 = kho hãng. " +
+                    "Ưu tiên: sản phẩm + đại lý > sản phẩm > đại lý > mặc định")
+    public ResponseEntity<StockAlertThresholdResponse> saveAlertThreshold(
+            @Valid @RequestBody StockAlertThresholdRequest request
+    ) {
+        log.info("REST request to save stock alert threshold: product {} / dealer {}",
+                request.getProductId(), request.getDealerId());
+        return ResponseEntity.ok(stockAlertService.saveThreshold(request));
+    }
+
+    @DeleteMapping("/alerts/thresholds/{thresholdId}")
+    @PreAuthorize("hasAnyRole('BRAND_MANAGER', 'ADMIN')")
+    @Operation(summary = "Xóa ngưỡng cảnh báo tồn kho")
+    public ResponseEntity<Void> deleteAlertThreshold(@PathVariable Long thresholdId) {
+        stockAlertService.deleteThreshold(thresholdId);
+        return ResponseEntity.noContent().build();
+    }
+
+    @PostMapping("/alerts/rebuild")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Tính lại toàn bộ cảnh báo tồn kho từ bảng inventory")
+    public ResponseEntity<Map<String, Object>> rebuildAlerts() {
+        int alerts = stockAlertService.rebuild();
+        return ResponseEntity.ok(Map.of("activeAlerts", alerts));
+    }
+
+    // =====================================================
+    // SALES CUBE (AD-HOC)
+    // =====================================================
+
+    @PostMapping("/cube")
+    @PreAuthorize("hasAnyRole('BRAND_MANAGER', 'ADMIN')")
+    @Operation(summary = "Truy vấn ad-hoc trên sales cube trong bộ nhớ",
+            description = "Lọc theo ngày/đại lý/sản phẩm/nhân viên/trạng thái, gom nhóm tối đa 3 chiều: " +
+                    "DAY, MONTH, DEALER, PRODUCT, SALES_PERSON, STATUS; sortBy: REVENUE, ORDERS, KEY")
+    public ResponseEntity<CubeQueryResponse> queryCube(@RequestBody CubeQueryRequest request) {
+        return ResponseEntity.ok(salesCubeService.query(request));
+    }
+
+    @PostMapping("/cube/rebuild")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Build lại sales cube từ sales_order")
+    public ResponseEntity<Map<String, Object>> rebuildCube() {
+        int rows = salesCubeService.rebuild();
+        return ResponseEntity.ok(Map.of("rows", rows));
     }
 
     // =====================================================
@@ -153,14 +307,16 @@ public class ReportController {
     @PreAuthorize("hasAnyRole('BRAND_MANAGER', 'ADMIN')")
     @Operation(summary = "Báo cáo hiệu suất đại lý",
             description = "Thống kê doanh số, KPI, xếp hạng đại lý")
-    public ResponseEntity<DealerPerformanceResponse> getDealerPerformance(
+    public DeferredResult<ResponseEntity<DealerPerformanceResponse>> getDealerPerformance(
             @PathVariable Long dealerId,
 
             @RequestParam(required = false)
             @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
 
             @RequestParam(required = false)
-            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+
+            HttpServletRequest request
     ) {
         log.info("REST request to get dealer performance: {}", dealerId);
 
@@ -169,30 +325,39 @@ public class ReportController {
                 .endDate(endDate)
                 .build();
 
-        DealerPerformanceResponse response = reportService.getDealerPerformance(dealerId, filter);
-        return ResponseEntity.ok(response);
+        return guardedReport("dealer-performance:" + dealerId, filter, true,
+                () -> reportService.getDealerPerformance(dealerId, filter),
+                response -> !Boolean.TRUE.equals(response.getPartial()), request);
     }
 
     @GetMapping("/dealers/performance")
     @PreAuthorize("hasAnyRole('BRAND_MANAGER', 'ADMIN')")
-    @Operation(summary = "Báo cáo hiệu suất tất cả đại lý")
-    public ResponseEntity<List<DealerPerformanceResponse>> getAllDealersPerformance(
+    @Operation(summary = "Báo cáo hiệu suất tất cả đại lý",
+            description = "Phân trang, sắp xếp: achievement_desc, achievement_asc, revenue_desc, revenue_asc, name_asc")
+    public DeferredResult<ResponseEntity<Page<DealerPerformanceResponse>>> getAllDealersPerformance(
             @RequestParam(required = false)
             @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
 
             @RequestParam(required = false)
-            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+
+            @RequestParam(defaultValue = "achievement_desc") String sortBy,
+            @RequestParam(defaultValue = "0") Integer page,
+            @RequestParam(defaultValue = "20") Integer size,
+            HttpServletRequest request
     ) {
         log.info("REST request to get all dealers performance");
 
         ReportFilterRequest filter = ReportFilterRequest.builder()
                 .startDate(startDate)
                 .endDate(endDate)
+                .sortBy(sortBy)
+                .page(page)
+                .size(size)
                 .build();
 
-        List<DealerPerformanceResponse> response =
-                reportService.getAllDealersPerformance(filter);
-        return ResponseEntity.ok(response);
+        return guardedReport("dealers-performance", filter, false,
+                () -> reportService.getAllDealersPerformance(filter), response -> true, request);
     }
 
     // ✅ FIXED: Đổi sang Excel thay vì PDF
@@ -215,6 +380,8 @@ public class ReportController {
                 .endDate(endDate)
                 .build();
 
+        reportGuardService.checkDateSpan(filter);
+
         // ✅ Method name vẫn giữ exportDealerPerformanceToPdf nhưng thực tế export Excel
         byte[] excelContent = reportService.exportDealerPerformanceToPdf(dealerId, filter);
 
@@ -239,14 +406,15 @@ public class ReportController {
     @PreAuthorize("hasAnyRole('BRAND_MANAGER', 'ADMIN')")
     @Operation(summary = "Báo cáo doanh thu tổng hợp",
             description = "Thống kê doanh thu, thanh toán, tăng trưởng")
-    public ResponseEntity<RevenueReportResponse> getRevenueReport(
+    public DeferredResult<ResponseEntity<RevenueReportResponse>> getRevenueReport(
             @RequestParam(required = false)
             @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
 
             @RequestParam(required = false)
             @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
 
-            @RequestParam(required = false) Long dealerId
+            @RequestParam(required = false) Long dealerId,
+            HttpServletRequest request
     ) {
         log.info("REST request to get revenue report");
 
@@ -256,8 +424,8 @@ public class ReportController {
                 .dealerId(dealerId)
                 .build();
 
-        RevenueReportResponse response = reportService.getRevenueReport(filter);
-        return ResponseEntity.ok(response);
+        return guardedReport("revenue", filter, false,
+                () -> reportService.getRevenueReport(filter), response -> true, request);
     }
 
     // =====================================================
@@ -269,35 +437,202 @@ public class ReportController {
     @Operation(summary = "Dashboard tổng quan",
             description = "Thống kê tổng quan cho dashboard")
     public ResponseEntity<DashboardSummaryResponse> getDashboardSummary(
-            Authentication authentication
+            Authentication authentication,
+            HttpServletRequest request
     ) {
         log.info("REST request to get dashboard summary");
 
-        LocalDate today = LocalDate.now();
-        LocalDate startOfMonth = today.withDayOfMonth(1);
+        // Snapshot trong bộ nhớ (TTL ngắn, bị invalidate khi có đơn hàng/thanh toán/tồn kho thay đổi)
+        // ETag theo data version: dashboard polling không đổi dữ liệu chỉ nhận 304
+        return cachedResponse(reportCacheService.getOrCompute("dashboard", null,
+                dashboardService::getDashboardSummary,
+                response -> !Boolean.TRUE.equals(response.getPartial())),
+                request.getHeader(HttpHeaders.IF_NONE_MATCH));
+    }
 
-        ReportFilterRequest filter = ReportFilterRequest.builder()
-                .startDate(startOfMonth)
-                .endDate(today)
-                .build();
+    // =====================================================
+    // LEADERBOARDS (IN-MEMORY)
+    // =====================================================
 
-        // Aggregate data from multiple reports
-        SalesReportResponse salesReport = reportService.getSalesReport(filter);
-        InventoryReportResponse inventoryReport = reportService.getInventoryReport(filter);
-        RevenueReportResponse revenueReport = reportService.getRevenueReport(filter);
-
-        DashboardSummaryResponse summary = DashboardSummaryResponse.builder()
-                .currentDate(today)
-                .totalRevenue(salesReport.getTotalRevenue())
-                .totalOrders(salesReport.getTotalOrders())
-                .growthRate(salesReport.getGrowthRate())
-                .lowStockCount(inventoryReport.getLowStockCount())
-                .outOfStockCount(inventoryReport.getOutOfStockCount())
-                .totalPendingPayment(revenueReport.getTotalPending())
-                .topProducts(salesReport.getTopProducts())
-                .recentAlerts(inventoryReport.getAlerts())
-                .build();
+    @GetMapping("/leaderboards")
+    @PreAuthorize("hasAnyRole('BRAND_MANAGER', 'ADMIN')")
+    @Operation(summary = "Bảng xếp hạng nhân viên, đại lý, sản phẩm",
+            description = "window: TODAY, MTD, QTD, YTD. Đọc từ bộ nhớ, cập nhật theo thời gian thực khi có đơn hàng")
+    public ResponseEntity<List<LeaderboardResponse>> getLeaderboards(
+            @RequestParam(defaultValue = "MTD") String window,
+            @RequestParam(defaultValue = "10") Integer limit
+    ) {
+        return ResponseEntity.ok(leaderboardService.getLeaderboards(window, limit));
+    }
+
+    @GetMapping("/leaderboards/{metric}")
+    @PreAuthorize("hasAnyRole('BRAND_MANAGER', 'ADMIN')")
+    @Operation(summary = "Bảng xếp hạng theo một tiêu chí",
+            description = "metric: SALES_PERSONS, DEALERS, PRODUCTS; window: TODAY, MTD, QTD, YTD")
+    public ResponseEntity<LeaderboardResponse> getLeaderboard(
+            @PathVariable String metric,
+            @RequestParam(defaultValue = "MTD") String window,
+            @RequestParam(defaultValue = "10") Integer limit
+    ) {
+        return ResponseEntity.ok(leaderboardService.getLeaderboard(metric, window, limit));
+    }
+
+    // =====================================================
+    // REPORT JOBS (ASYNC)
+    // =====================================================
+
+    @PostMapping("/jobs")
+    @PreAuthorize("hasAnyRole('BRAND_MANAGER', 'ADMIN')")
+    @Operation(summary = "Tạo báo cáo bất đồng bộ",
+            description = "SALES_EXCEL, INVENTORY_EXCEL, DEALER_PERFORMANCE_EXCEL. Job trùng tham số đang chạy sẽ được dùng lại")
+    public ResponseEntity<ReportJobResponse> submitReportJob(
+            @Valid @RequestBody ReportJobRequest request,
+            Authentication authentication
+    ) {
+        log.info("REST request to submit report job: {}", request.getReportType());
+
+        reportGuardService.checkDateSpan(ReportFilterRequest.builder()
+                .startDate(request.getStartDate())
+                .endDate(request.getEndDate())
+                .build());
+
+        ReportJobResponse response = reportJobService.submit(request, authentication.getName());
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(response);
+    }
+
+    @GetMapping("/jobs")
+    @PreAuthorize("hasAnyRole('BRAND_MANAGER', 'ADMIN')")
+    @Operation(summary = "Danh sách report job")
+    public ResponseEntity<List<ReportJobResponse>> getReportJobs() {
+        return ResponseEntity.ok(reportJobService.getJobs());
+    }
+
+    @GetMapping("/jobs/{jobId}")
+    @PreAuthorize("hasAnyRole('BRAND_MANAGER', 'ADMIN')")
+    @Operation(summary = "Trạng thái report job")
+    public ResponseEntity<ReportJobResponse> getReportJob(@PathVariable String jobId) {
+        return ResponseEntity.ok(reportJobService.getJob(jobId));
+    }
+
+    @GetMapping("/jobs/{jobId}/download")
+    @PreAuthorize("hasAnyRole('BRAND_MANAGER', 'ADMIN')")
+    @Operation(summary = "Tải file báo cáo đã tạo xong")
+    public ResponseEntity<Resource> downloadReportJob(
+            @PathVariable String jobId,
+            HttpServletRequest request
+    ) throws IOException {
+        log.info("REST request to download report job: {}", jobId);
+
+        ReportJobResponse job = reportJobService.getJob(jobId);
+        Path artifact = reportJobService.getArtifact(jobId);
+        long fileSize = Files.size(artifact);
+
+        HttpHeaders headers = excelHeaders(job.getFileName());
+        headers.setContentLength(fileSize);
+
+        // Tomcat sendfile: kernel copy file -> socket, không qua heap
+        if (Boolean.TRUE.equals(request.getAttribute(TOMCAT_SENDFILE_SUPPORT))) {
+            request.setAttribute(TOMCAT_SENDFILE_FILENAME, artifact.toString());
+            request.setAttribute(TOMCAT_SENDFILE_START, 0L);
+            request.setAttribute(TOMCAT_SENDFILE_END, fileSize);
+            return ResponseEntity.ok().headers(headers).build();
+        }
+
+        return ResponseEntity.ok()
+                .headers(headers)
+                .body(new FileSystemResource(artifact));
+    }
+
+    // =====================================================
+    // SALES ROLLUP MAINTENANCE
+    // =====================================================
+
+    @PostMapping("/rollup/rebuild")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Tính lại bảng tổng hợp doanh số theo ngày",
+            description = "Backfill sales_daily_rollup từ toàn bộ sales_order")
+    public ResponseEntity<Map<String, Object>> rebuildSalesRollup() {
+        log.info("REST request to rebuild sales daily rollup");
+
+        long rows = salesRollupService.rebuild();
+        return ResponseEntity.ok(Map.of("rollupRows", rows));
+    }
+
+    private HttpHeaders excelHeaders(String filename) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.parseMediaType(
+                "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"));
+        headers.setContentDispositionFormData("attachment", filename);
+        return headers;
+    }
+
+    /**
+     * Báo cáo nặng: kiểm tra khoảng thời gian theo vai trò; cache hit trả ngay,
+     * cache miss chạy qua ReportGuardService (giới hạn đồng thời, timeout, hủy khi client ngắt kết nối)
+     * fanOut: báo cáo tự chia truy vấn qua CompositeReportExecutor, guard không mở transaction ngoài
+     */
+    private <T> DeferredResult<ResponseEntity<T>> guardedReport(
+            String reportName, ReportFilterRequest filter, boolean fanOut, Supplier<T> loader,
+            Predicate<T> cacheable, HttpServletRequest request) {
+
+        reportGuardService.checkDateSpan(filter);
+
+        // Đọc header trên thread của request: HttpServletRequest không dùng được từ thread của guard
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+
+        ReportCacheService.CachedReport<T> cached = reportCacheService.getIfPresent(reportName, filter);
+        if (cached != null) {
+            DeferredResult<ResponseEntity<T>> result = new DeferredResult<>();
+            result.setResult(cachedResponse(cached, ifNoneMatch));
+            return result;
+        }
+
+        Supplier<ResponseEntity<T>> work = () -> cachedResponse(
+                reportCacheService.getOrCompute(reportName, filter, loader, cacheable), ifNoneMatch);
+        return fanOut ? reportGuardService.submitFanOut(reportName, work)
+                : reportGuardService.submit(reportName, work);
+    }
+
+    /**
+     * Trả kết quả báo cáo kèm ETag; If-None-Match khớp -> 304 không có body
+     * Kết quả không được cache (partial) không có ETag
+     */
+    private <T> ResponseEntity<T> cachedResponse(
+            ReportCacheService.CachedReport<T> report, String ifNoneMatch) {
+
+        String etag = report.getEtag();
+        if (etag == null) {
+            return ResponseEntity.ok()
+                    .cacheControl(CacheControl.noStore())
+                    .body(report.getValue());
+        }
+
+        if (etagMatches(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(etag)
+                    .cacheControl(CacheControl.noCache().cachePrivate())
+                    .build();
+        }
+
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .body(report.getValue());
+    }
 
-        return ResponseEntity.ok(summary);
+    private boolean etagMatches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String value = candidate.trim();
+            if (value.startsWith("W/")) {
+                value = value.substring(2);
+            }
+            if (value.equals("*") || value.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
     }
-}
\ No newline at end of file
+}
@@ -3,8 +3,11 @@ package com.evm.backend.controller;
 import com.evm.backend.dto.request.AssignVehicleRequest;
 import com.evm.backend.dto.request.SalesOrderFilterRequest;
 import com.evm.backend.dto.request.SalesOrderRequest;
+import com.evm.backend.dto.response.CursorPageResponse;
 import com.evm.backend.dto.response.SalesOrderDetailResponse;
+import com.evm.backend.dto.response.SalesOrderImportResponse;
 import com.evm.backend.dto.response.SalesOrderListResponse;
+import com.evm.backend.service.SalesOrderImportService;
 import com.evm.backend.service.SalesOrderService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -14,10 +17,12 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
 
 import java.time.LocalDate;
 import java.util.List;
@@ -30,6 +35,7 @@ import java.util.List;
 public class SalesOrderCrudController {
 
     private final SalesOrderService salesOrderService;
+    private final SalesOrderImportService salesOrderImportService;
 
     // <<< CHỨC NĂNG: LẤY DANH SÁCH ĐƠN HÀNG (CÓ LỌC VÀ PHÂN TRANG)
     // <<< ĐẦU API: GET /api/sales-orders
@@ -62,6 +68,39 @@ public class SalesOrderCrudController {
         return ResponseEntity.ok(salesOrderService.getAllOrders(req));
     }
 
+    // <<< CHỨC NĂNG: LẤY DANH SÁCH ĐƠN HÀNG THEO CURSOR (KHÔNG ĐẾM TỔNG)
+    // <<< ĐẦU API: GET /api/sales-orders/cursor
+    // <<< VAI TRÒ: DEALER_STAFF, BRAND_MANAGER, ADMIN
+    @GetMapping("/cursor")
+    @PreAuthorize("hasAnyRole('DEALER_STAFF', 'BRAND_MANAGER', 'ADMIN')")
+    @Operation(summary = "Lấy danh sách đơn hàng theo cursor",
+            description = "Phân trang keyset theo (cột sắp xếp, order id): truyền nextCursor của trang trước, " +
+                    "giữ nguyên filter và sortBy. Không trả tổng số bản ghi")
+    public ResponseEntity<CursorPageResponse<SalesOrderListResponse>> getOrdersByCursor(
+            @RequestParam(required = false) Long customerId,
+            @RequestParam(required = false) Long salesPersonId,
+            @RequestParam(required = false) String vehicleId,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fromDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate toDate,
+            @RequestParam(required = false) String sortBy,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") Integer size
+    ) {
+        SalesOrderFilterRequest req = SalesOrderFilterRequest.builder()
+                .customerId(customerId)
+                .salesPersonId(salesPersonId)
+                .vehicleId(vehicleId)
+                .status(status)
+                .fromDate(fromDate)
+                .toDate(toDate)
+                .sortBy(sortBy)
+                .cursor(cursor)
+                .size(size)
+                .build();
+        return ResponseEntity.ok(salesOrderService.getOrdersByCursor(req));
+    }
+
     // <<< CHỨC NĂNG: LẤY DANH SÁCH ĐƠN HÀNG GẦN ĐÂY (TRONG 7 NGÀY)
     // <<< ĐẦU API: GET /api/sales-orders/recent
     // <<< VAI TRÒ: DEALER_STAFF, BRAND_MANAGER, ADMIN
@@ -106,6 +145,20 @@ public class SalesOrderCrudController {
                 .body(salesOrderService.createOrder(request));
     }
 
+    // <<< CHỨC NĂNG: IMPORT ĐƠN HÀNG HÀNG LOẠT TỪ FILE CSV/XLSX
+    // <<< ĐẦU API: POST /api/sales-orders/import
+    // <<< VAI TRÒ: DEALER_STAFF, BRAND_MANAGER, ADMIN
+    @PostMapping(value = "/import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @PreAuthorize("hasAnyRole('DEALER_STAFF', 'BRAND_MANAGER', 'ADMIN')")
+    @Operation(summary = "Import đơn hàng từ file CSV/XLSX",
+            description = "Dòng đầu là header: orderDate, vehicleId, customerId, salesPersonId, basePrice, vat, totalPrice " +
+                    "(bắt buộc), registrationFee, discountAmount, status (tùy chọn). " +
+                    "Dòng hợp lệ được tạo đơn, dòng lỗi trả về trong errors kèm số dòng")
+    public ResponseEntity<SalesOrderImportResponse> importOrders(@RequestParam("file") MultipartFile file) {
+        log.info("REST request to import sales orders from {}", file.getOriginalFilename());
+        return ResponseEntity.ok(salesOrderImportService.importOrders(file));
+    }
+
     // <<< CHỨC NĂNG: CẬP NHẬT ĐƠN HÀNG
     // <<< ĐẦU API: PUT /api/sales-orders/{orderId}
     // <<< VAI TRÒ: DEALER_STAFF, BRAND_MANAGER, ADMIN
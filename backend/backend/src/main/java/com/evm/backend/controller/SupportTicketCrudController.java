@@ -2,6 +2,7 @@ package com.evm.backend.controller;
 
 import com.evm.backend.dto.request.SupportTicketFilterRequest;
 import com.evm.backend.dto.request.SupportTicketRequest;
+import com.evm.backend.dto.response.CursorPageResponse;
 import com.evm.backend.dto.response.SupportTicketDetailResponse;
 import com.evm.backend.dto.response.SupportTicketListResponse;
 import com.evm.backend.service.SupportTicketService;
@@ -85,6 +86,56 @@ public class SupportTicketCrudController {
         return ResponseEntity.ok(tickets);
     }
 
+    // <<< CHỨC NĂNG: LẤY DANH SÁCH TICKETS THEO CURSOR (KHÔNG ĐẾM TỔNG)
+    // <<< ĐẦU API: GET /api/support-tickets/cursor
+    // <<< VAI TRÒ: SUPPORT_STAFF, DEALER_STAFF, BRAND_MANAGER, ADMIN
+    @GetMapping("/cursor")
+    @PreAuthorize("hasAnyRole('SUPPORT_STAFF', 'DEALER_STAFF', 'BRAND_MANAGER', 'ADMIN')")
+    @Operation(summary = "Lấy danh sách tickets theo cursor",
+            description = "Phân trang keyset theo (cột sắp xếp, ticket id): truyền nextCursor của trang trước, " +
+                    "giữ nguyên filter và sortBy. Không trả tổng số bản ghi")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Lấy danh sách thành công"),
+            @ApiResponse(responseCode = "400", description = "Cursor không hợp lệ"),
+            @ApiResponse(responseCode = "401", description = "Chưa đăng nhập"),
+            @ApiResponse(responseCode = "403", description = "Không có quyền truy cập")
+    })
+    public ResponseEntity<CursorPageResponse<SupportTicketListResponse>> getTicketsByCursor(
+            @Parameter(description = "Từ khóa tìm kiếm") @RequestParam(required = false) String searchKeyword,
+            @Parameter(description = "Trạng thái") @RequestParam(required = false) String status,
+            @Parameter(description = "Độ ưu tiên") @RequestParam(required = false) String priority,
+            @Parameter(description = "Danh mục") @RequestParam(required = false) String category,
+            @Parameter(description = "Customer ID") @RequestParam(required = false) Long customerId,
+            @Parameter(description = "Assigned User ID") @RequestParam(required = false) Long assignedUserId,
+            @Parameter(description = "Sales Order ID") @RequestParam(required = false) Long salesOrderId,
+            @Parameter(description = "Vehicle ID") @RequestParam(required = false) String vehicleId,
+            @Parameter(description = "Từ ngày") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime fromDate,
+            @Parameter(description = "Đến ngày") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime toDate,
+            @Parameter(description = "Sắp xếp") @RequestParam(required = false) String sortBy,
+            @Parameter(description = "Cursor (nextCursor của trang trước)") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Số lượng") @RequestParam(defaultValue = "20") Integer size
+    ) {
+        log.info("GET /api/support-tickets/cursor - status: {}, priority: {}", status, priority);
+
+        SupportTicketFilterRequest filterRequest = SupportTicketFilterRequest.builder()
+                .searchKeyword(searchKeyword)
+                .status(status)
+                .priority(priority)
+                .category(category)
+                .customerId(customerId)
+                .assignedUserId(assignedUserId)
+                .salesOrderId(salesOrderId)
+                .vehicleId(vehicleId)
+                .fromDate(fromDate)
+                .toDate(toDate)
+                .sortBy(sortBy)
+                .cursor(cursor)
+                .size(size)
+                .build();
+
+        return ResponseEntity.ok(supportTicketService.getTicketsByCursor(filterRequest));
+    }
+
     // <<< CHỨC NĂNG: LẤY TICKETS THEO KHÁCH HÀNG
     // <<< ĐẦU API: GET /api/support-tickets/customer/{customerId}
     // <<< VAI TRÒ: SUPPORT_STAFF, DEALER_STAFF, BRAND_MANAGER, ADMIN, CUSTOMER
@@ -0,0 +1,39 @@
+package com.evm.backend.dto.request;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Truy vấn sales cube: lọc + gom nhóm + tổng hợp trong bộ nhớ
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class CubeQueryRequest {
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate startDate;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate endDate;
+
+    // Lọc (null/rỗng = không lọc); dealerId 0 = chưa gán đại lý
+    private List<Long> dealerIds;
+    private List<Long> productIds;
+    private List<Long> salesPersonIds;
+    private List<String> statuses;
+
+    // Gom nhóm (tối đa 3 chiều): DAY, MONTH, DEALER, PRODUCT, SALES_PERSON, STATUS
+    private List<String> groupBy;
+
+    // Sắp xếp: REVENUE (giảm dần, mặc định), ORDERS (giảm dần), KEY (tăng dần theo chiều gom nhóm)
+    private String sortBy;
+    private Integer limit;
+}
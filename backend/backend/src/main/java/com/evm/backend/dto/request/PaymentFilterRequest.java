@@ -30,4 +30,7 @@ public class PaymentFilterRequest {
 
     private Integer page;
     private Integer size;
+
+    // Phân trang keyset: nextCursor của trang trước (chỉ dùng cho API /cursor, bỏ qua page)
+    private String cursor;
 }
\ No newline at end of file
@@ -32,6 +32,14 @@ public class ReportFilterRequest {
     // Grouping options: DAY, WEEK, MONTH, QUARTER, YEAR
     private String groupBy;
 
+    // Số điểm tối đa của chuỗi doanh thu (gộp các kỳ liên tiếp nếu vượt)
+    private Integer maxPoints;
+
     // Export format: PDF, EXCEL, CSV
     private String exportFormat;
+
+    // Phân trang (báo cáo danh sách đại lý)
+    private String sortBy; // achievement_desc, achievement_asc, revenue_desc, revenue_asc, name_asc
+    private Integer page;
+    private Integer size;
 }
\ No newline at end of file
@@ -0,0 +1,33 @@
+package com.evm.backend.dto.request;
+
+import jakarta.validation.constraints.NotBlank;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDate;
+
+/**
+ * Yêu cầu tạo báo cáo bất đồng bộ (report job)
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ReportJobRequest {
+
+    // SALES_EXCEL, INVENTORY_EXCEL, DEALER_PERFORMANCE_EXCEL
+    @NotBlank(message = "Loại báo cáo không được để trống")
+    private String reportType;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate startDate;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate endDate;
+
+    private Long dealerId;
+    private Long productId;
+}
@@ -23,4 +23,7 @@ public class SalesOrderFilterRequest {
     private String sortBy; // date_asc, date_desc, price_asc, price_desc, status_asc, status_desc
     private Integer page;
     private Integer size;
+
+    // Phân trang keyset: nextCursor của trang trước (chỉ dùng cho API /cursor, bỏ qua page)
+    private String cursor;
 }
\ No newline at end of file
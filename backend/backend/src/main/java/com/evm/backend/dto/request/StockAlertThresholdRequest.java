@@ -0,0 +1,26 @@
+package com.evm.backend.dto.request;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Cấu hình ngưỡng cảnh báo tồn kho thấp
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class StockAlertThresholdRequest {
+
+    private Long productId; // NULL = mọi sản phẩm
+
+    private Long dealerId; // NULL = mọi đại lý, 0 = kho hãng
+
+    @NotNull(message = "Ngưỡng tồn kho không được để trống")
+    @Min(value = 1, message = "Ngưỡng tồn kho phải >= 1")
+    private Integer lowStockLevel;
+}
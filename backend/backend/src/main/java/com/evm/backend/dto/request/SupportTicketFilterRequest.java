@@ -32,4 +32,7 @@ public class SupportTicketFilterRequest {
 
     private Integer page;
     private Integer size;
+
+    // Phân trang keyset: nextCursor của trang trước (chỉ dùng cho API /cursor, bỏ qua page)
+    private String cursor;
 }
\ No newline at end of file
@@ -0,0 +1,46 @@
+package com.evm.backend.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Kết quả truy vấn sales cube
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class CubeQueryResponse {
+    private List<String> groupBy;
+    private List<Row> rows;
+    private Integer totalGroups; // Trước khi áp dụng limit
+
+    // Tổng của các dòng thỏa điều kiện lọc
+    private Long totalOrders;
+    private BigDecimal totalRevenue;
+    private BigDecimal totalDiscount;
+
+    // Thống kê thực thi
+    private Long scannedRows;
+    private Long elapsedMs;
+    private LocalDateTime builtAt; // Lần build lại cube gần nhất
+
+    @Data
+    @Builder
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class Row {
+        // Ví dụ: {"month": "2024-05", "dealerId": 3, "dealerName": "..."}
+        private Map<String, Object> keys;
+        private Long orderCount;
+        private BigDecimal revenue;
+        private BigDecimal discount;
+    }
+}
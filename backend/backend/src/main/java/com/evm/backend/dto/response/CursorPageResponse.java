@@ -0,0 +1,24 @@
+package com.evm.backend.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Trang dữ liệu phân trang keyset (cursor) - giống Slice, không có tổng số bản ghi
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class CursorPageResponse<T> {
+    private List<T> content;
+    private Integer size;
+
+    // Còn trang sau hay không; nextCursor = cursor truyền vào cho trang kế tiếp (null nếu đã hết)
+    private Boolean hasNext;
+    private String nextCursor;
+}
@@ -7,6 +7,7 @@ import lombok.NoArgsConstructor;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Data
@@ -15,6 +16,7 @@ import java.util.List;
 @NoArgsConstructor
 public class DashboardSummaryResponse {
     private LocalDate currentDate;
+    private LocalDateTime computedAt; // Thời điểm tính snapshot
 
     // Sales metrics
     private BigDecimal totalRevenue;
@@ -31,4 +33,8 @@ public class DashboardSummaryResponse {
     // Quick insights
     private List<SalesReportResponse.TopProduct> topProducts;
     private List<InventoryReportResponse.StockAlert> recentAlerts;
+
+    // Báo cáo thiếu một phần (truy vấn con bị lỗi hoặc quá hạn)
+    private Boolean partial;
+    private List<String> missingSections;
 }
\ No newline at end of file
@@ -42,6 +42,14 @@ public class DealerPerformanceResponse {
     private List<MonthlyPerformance> monthlyPerformance;
     private List<ProductPerformance> productBreakdown;
 
+    // MoM / QoQ / YoY của đại lý và từng sản phẩm của đại lý
+    private PeriodComparisonResponse comparison;
+    private List<PeriodComparisonResponse> productComparisons;
+
+    // Báo cáo thiếu một phần (truy vấn con bị lỗi hoặc quá hạn)
+    private Boolean partial;
+    private List<String> missingSections;
+
     @Data
     @Builder
     @AllArgsConstructor
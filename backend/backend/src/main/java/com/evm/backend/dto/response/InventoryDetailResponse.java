@@ -47,6 +47,7 @@ public class InventoryDetailResponse {
 
     // Statistics
     private Double stockPercentage;
-    private Boolean isLowStock;
+    private Boolean isLowStock;   // cảnh báo LOW_STOCK đang hoạt động
+    private Boolean isOutOfStock; // cảnh báo OUT_OF_STOCK đang hoạt động
     private Integer soldQuantity; // calculated: initial total - current total
 }
\ No newline at end of file
@@ -39,5 +39,6 @@ public class InventoryListResponse {
 
     // Calculated
     private Double stockPercentage; // available/total * 100
-    private Boolean isLowStock; // available < threshold
+    private Boolean isLowStock; // cảnh báo LOW_STOCK: 0 < available < ngưỡng của sản phẩm / đại lý
+    private Boolean isOutOfStock; // cảnh báo OUT_OF_STOCK: available <= 0
 }
\ No newline at end of file
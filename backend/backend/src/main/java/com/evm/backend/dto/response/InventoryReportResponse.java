@@ -35,6 +35,9 @@ public class InventoryReportResponse {
     // Cảnh báo cụ thể
     private List<StockAlert> alerts;
 
+    // Phân trang keyset: cursor của trang kế tiếp (null nếu đã hết)
+    private String nextCursor;
+
     @Data
     @Builder
     @AllArgsConstructor
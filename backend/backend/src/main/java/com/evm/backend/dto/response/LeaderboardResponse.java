@@ -0,0 +1,40 @@
+package com.evm.backend.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Bảng xếp hạng theo khung thời gian (TODAY, MTD, QTD, YTD)
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class LeaderboardResponse {
+    private String metric;  // SALES_PERSONS, DEALERS (theo doanh thu), PRODUCTS (theo số xe bán)
+    private String window;  // TODAY, MTD, QTD, YTD
+    private LocalDate fromDate;
+    private LocalDate toDate;
+    private LocalDateTime loadedAt; // Lần nạp lại gần nhất từ DB
+
+    private List<Entry> entries;
+
+    @Data
+    @Builder
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class Entry {
+        private Integer rank;
+        private Long id;
+        private String name;
+        private BigDecimal revenue;
+        private Long orderCount; // Với sản phẩm: số xe bán
+    }
+}
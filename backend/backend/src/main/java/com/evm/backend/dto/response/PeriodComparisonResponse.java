@@ -0,0 +1,46 @@
+package com.evm.backend.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * So sánh kỳ báo cáo với cùng khoảng thời gian của tháng trước (MoM), quý trước (QoQ), năm trước (YoY)
+ * Dùng cho tổng, từng đại lý, từng sản phẩm
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class PeriodComparisonResponse {
+    private Long id; // dealerId / productId, null = tổng
+    private String name;
+
+    // Kỳ hiện tại
+    private BigDecimal revenue;
+    private Long orderCount;
+    private BigDecimal discount;
+
+    private Growth monthOverMonth;
+    private Growth quarterOverQuarter;
+    private Growth yearOverYear;
+
+    @Data
+    @Builder
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class Growth {
+        private LocalDate fromDate;
+        private LocalDate toDate;
+        private BigDecimal previousRevenue;
+        private Long previousOrderCount;
+        private BigDecimal previousDiscount;
+        private BigDecimal revenueGrowth; // %
+        private BigDecimal orderGrowth; // %
+        private BigDecimal discountGrowth; // %
+    }
+}
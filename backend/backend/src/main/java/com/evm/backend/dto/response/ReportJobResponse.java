@@ -0,0 +1,38 @@
+package com.evm.backend.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Trạng thái report job
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ReportJobResponse {
+    private String jobId;
+    private String reportType;
+    private String status; // QUEUED, RUNNING, COMPLETED, FAILED
+    private String requestedBy;
+
+    private LocalDateTime submittedAt;
+    private LocalDateTime startedAt;
+    private LocalDateTime completedAt;
+    private LocalDateTime expiresAt;
+
+    // Thời gian xử lý (ms)
+    private Long queueTimeMs;
+    private Long generationTimeMs;
+
+    // File kết quả
+    private String fileName;
+    private Long fileSize;
+    private String downloadUrl;
+
+    private String errorMessage;
+}
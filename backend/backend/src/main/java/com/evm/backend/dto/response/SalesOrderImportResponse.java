@@ -0,0 +1,39 @@
+package com.evm.backend.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Kết quả import đơn hàng từ file CSV/XLSX
+ * Dòng hợp lệ được tạo đơn, dòng lỗi bị bỏ qua và liệt kê trong errors
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class SalesOrderImportResponse {
+    private String fileName;
+
+    // Số dòng dữ liệu (không tính header, dòng trống)
+    private Integer totalRows;
+    private Integer importedCount;
+    private Integer failedCount;
+
+    private List<Long> orderIds;
+    private List<RowError> errors;
+
+    @Data
+    @Builder
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class RowError {
+        // Số dòng trong file (tính cả header, bắt đầu từ 1)
+        private Integer rowNumber;
+        private String vehicleId;
+        private List<String> messages;
+    }
+}
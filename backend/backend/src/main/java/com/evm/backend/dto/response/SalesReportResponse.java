@@ -28,6 +28,11 @@ public class SalesReportResponse {
     private BigDecimal totalDiscount;
     private BigDecimal growthRate; // So với kỳ trước
 
+    // MoM / QoQ / YoY: tổng, theo đại lý, theo sản phẩm
+    private PeriodComparisonResponse comparison;
+    private List<PeriodComparisonResponse> dealerComparisons;
+    private List<PeriodComparisonResponse> productComparisons;
+
     // Chi tiết theo thời gian
     private List<SalesDataPoint> salesByPeriod;
 
@@ -36,6 +41,10 @@ public class SalesReportResponse {
     private List<TopPerformer> topDealers;
     private List<TopProduct> topProducts;
 
+    // Báo cáo thiếu một phần (truy vấn con bị lỗi hoặc quá hạn)
+    private Boolean partial;
+    private List<String> missingSections;
+
     @Data
     @Builder
     @AllArgsConstructor
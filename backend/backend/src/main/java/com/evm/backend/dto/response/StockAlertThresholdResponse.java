@@ -0,0 +1,23 @@
+package com.evm.backend.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Ngưỡng cảnh báo tồn kho thấp
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class StockAlertThresholdResponse {
+    private Long id;
+    private Long productId;
+    private Long dealerId;
+    private Integer lowStockLevel;
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,45 @@
+package com.evm.backend.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Cơ cấu sản phẩm của đại lý trong tháng đã đóng (đi kèm DealerMonthlySnapshot)
+ */
+@Entity
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "dealer_monthly_product_snapshot",
+        uniqueConstraints = @UniqueConstraint(
+                name = "uk_dealer_monthly_product_snapshot",
+                columnNames = {"dealer_id", "snapshot_month", "product_id"}))
+public class DealerMonthlyProductSnapshot {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "product_snapshot_id")
+    private Long id;
+
+    @Column(name = "dealer_id", nullable = false)
+    private Long dealerId;
+
+    @Column(name = "snapshot_month", nullable = false)
+    private LocalDate snapshotMonth;
+
+    @Column(name = "product_id", nullable = false)
+    private Long productId;
+
+    @Column(name = "product_name")
+    private String productName;
+
+    @Column(name = "units_sold", nullable = false)
+    private Long unitsSold;
+
+    @Column(name = "revenue", precision = 19, scale = 2, nullable = false)
+    private BigDecimal revenue;
+}
@@ -0,0 +1,52 @@
+package com.evm.backend.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Snapshot hiệu suất đại lý của tháng đã đóng (không tính lại khi đọc báo cáo)
+ */
+@Entity
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "dealer_monthly_snapshot",
+        uniqueConstraints = @UniqueConstraint(
+                name = "uk_dealer_monthly_snapshot",
+                columnNames = {"dealer_id", "snapshot_month"}),
+        indexes = {
+                @Index(name = "idx_dealer_snapshot_month", columnList = "snapshot_month")
+        })
+public class DealerMonthlySnapshot {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "snapshot_id")
+    private Long id;
+
+    @Column(name = "dealer_id", nullable = false)
+    private Long dealerId;
+
+    @Column(name = "snapshot_month", nullable = false)
+    private LocalDate snapshotMonth; // Ngày đầu tháng
+
+    @Column(name = "total_revenue", precision = 19, scale = 2, nullable = false)
+    private BigDecimal totalRevenue;
+
+    @Column(name = "order_count", nullable = false)
+    private Long orderCount;
+
+    @Column(name = "monthly_target", precision = 19, scale = 2, nullable = false)
+    private BigDecimal monthlyTarget;
+
+    @Column(name = "achievement_rate", precision = 9, scale = 2, nullable = false)
+    private BigDecimal achievementRate; // %
+
+    @Column(name = "finalized_at", nullable = false)
+    private LocalDateTime finalizedAt;
+}
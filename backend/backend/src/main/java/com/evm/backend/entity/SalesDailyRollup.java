@@ -0,0 +1,53 @@
+package com.evm.backend.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Bảng tổng hợp doanh số theo ngày (fact table cho báo cáo)
+ * Khóa: (ngày, đại lý, sản phẩm, nhân viên bán hàng) - 0 = không xác định
+ */
+@Entity
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "sales_daily_rollup",
+        uniqueConstraints = @UniqueConstraint(
+                name = "uk_sales_daily_rollup_key",
+                columnNames = {"sales_date", "dealer_id", "product_id", "salesperson_id"}),
+        indexes = {
+                @Index(name = "idx_rollup_dealer_date", columnList = "dealer_id, sales_date"),
+                @Index(name = "idx_rollup_product_date", columnList = "product_id, sales_date")
+        })
+public class SalesDailyRollup {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "rollup_id")
+    private Long id;
+
+    @Column(name = "sales_date", nullable = false)
+    private LocalDate salesDate;
+
+    @Column(name = "dealer_id", nullable = false)
+    private Long dealerId;
+
+    @Column(name = "product_id", nullable = false)
+    private Long productId;
+
+    @Column(name = "salesperson_id", nullable = false)
+    private Long salesPersonId;
+
+    @Column(name = "order_count", nullable = false)
+    private Long orderCount;
+
+    @Column(name = "total_revenue", precision = 19, scale = 2, nullable = false)
+    private BigDecimal totalRevenue;
+
+    @Column(name = "total_discount", precision = 19, scale = 2, nullable = false)
+    private BigDecimal totalDiscount;
+}
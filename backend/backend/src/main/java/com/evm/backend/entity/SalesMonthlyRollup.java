@@ -0,0 +1,46 @@
+package com.evm.backend.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Bảng tổng hợp doanh số theo tháng (dùng cho báo cáo MONTH / QUARTER / YEAR)
+ * Khóa: (ngày đầu tháng, đại lý) - 0 = không xác định
+ */
+@Entity
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "sales_monthly_rollup",
+        uniqueConstraints = @UniqueConstraint(
+                name = "uk_sales_monthly_rollup_key",
+                columnNames = {"sales_month", "dealer_id"}),
+        indexes = {
+                @Index(name = "idx_monthly_rollup_dealer_month", columnList = "dealer_id, sales_month")
+        })
+public class SalesMonthlyRollup {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "monthly_rollup_id")
+    private Long id;
+
+    @Column(name = "sales_month", nullable = false)
+    private LocalDate salesMonth; // Ngày đầu tháng
+
+    @Column(name = "dealer_id", nullable = false)
+    private Long dealerId;
+
+    @Column(name = "order_count", nullable = false)
+    private Long orderCount;
+
+    @Column(name = "total_revenue", precision = 19, scale = 2, nullable = false)
+    private BigDecimal totalRevenue;
+
+    @Column(name = "total_discount", precision = 19, scale = 2, nullable = false)
+    private BigDecimal totalDiscount;
+}
@@ -19,11 +19,25 @@ import java.util.Set;
 @Table(name = "sales_order")
 public class SalesOrder {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // TABLE + pooled-lo (cấp id theo khối 50) thay cho IDENTITY để Hibernate gộp INSERT theo JDBC batch
+    // Giá trị bắt đầu được đồng bộ với MAX(order_id) khi khởi động (IdGeneratorInitializer)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "sales_order_id")
+    @TableGenerator(
+            name = "sales_order_id",
+            table = "id_generator",
+            pkColumnName = "sequence_name",
+            valueColumnName = "next_val",
+            pkColumnValue = "sales_order",
+            allocationSize = 50)
     @EqualsAndHashCode.Include
     @Column(name = "order_id")
     private Long id;
 
+    // Khóa lạc quan: hai giao dịch cùng sửa một đơn (gán/hủy gán xe...) -> giao dịch sau lỗi và được thử lại
+    @Version
+    @Column(name = "version", nullable = false, columnDefinition = "bigint default 0")
+    private Long version;
+
     @Column(name = "order_date")
     private LocalDate orderDate;
 
@@ -0,0 +1,60 @@
+package com.evm.backend.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Cảnh báo tồn kho đang hoạt động (một dòng cho mỗi bản ghi tồn kho dưới ngưỡng)
+ * Được cập nhật ngay khi số lượng tồn kho thay đổi, báo cáo đọc trực tiếp không quét bảng inventory
+ */
+@Entity
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "stock_alert",
+        uniqueConstraints = @UniqueConstraint(
+                name = "uk_stock_alert_inventory",
+                columnNames = {"inventory_id"}))
+public class StockAlert {
+    public static final String LOW_STOCK = "LOW_STOCK";       // 0 < available < ngưỡng
+    public static final String OUT_OF_STOCK = "OUT_OF_STOCK"; // available <= 0
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "alert_id")
+    private Long id;
+
+    @Column(name = "inventory_id", nullable = false)
+    private Long inventoryId;
+
+    @Column(name = "product_id", nullable = false)
+    private Long productId;
+
+    @Column(name = "product_name")
+    private String productName;
+
+    @Column(name = "dealer_id")
+    private Long dealerId; // NULL = Brand warehouse
+
+    @Column(name = "dealer_name")
+    private String dealerName;
+
+    @Column(name = "alert_type", length = 20, nullable = false)
+    private String alertType; // LOW_STOCK, OUT_OF_STOCK
+
+    @Column(name = "current_quantity", nullable = false)
+    private Integer currentQuantity;
+
+    @Column(name = "min_stock_level", nullable = false)
+    private Integer minStockLevel;
+
+    @Column(name = "raised_at", nullable = false)
+    private LocalDateTime raisedAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,40 @@
+package com.evm.backend.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Ngưỡng tồn kho thấp theo sản phẩm / đại lý
+ * productId NULL = mọi sản phẩm, dealerId NULL = mọi đại lý, dealerId 0 = kho hãng
+ * Ưu tiên: (sản phẩm, đại lý) > (sản phẩm) > (đại lý) > mặc định
+ */
+@Entity
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "stock_alert_threshold",
+        indexes = {
+                @Index(name = "idx_stock_threshold_product_dealer", columnList = "product_id, dealer_id")
+        })
+public class StockAlertThreshold {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "threshold_id")
+    private Long id;
+
+    @Column(name = "product_id")
+    private Long productId;
+
+    @Column(name = "dealer_id")
+    private Long dealerId;
+
+    @Column(name = "low_stock_level", nullable = false)
+    private Integer lowStockLevel; // Cảnh báo khi 0 < available < lowStockLevel
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,16 @@
+package com.evm.backend.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Báo cáo chạy quá thời hạn và đã bị hủy (504), không kèm Retry-After:
+ * gửi lại y nguyên nhiều khả năng vẫn quá hạn, cần thu hẹp khoảng thời gian/bộ lọc
+ */
+@ResponseStatus(HttpStatus.GATEWAY_TIMEOUT)
+public class ReportTimeoutException extends RuntimeException {
+
+    public ReportTimeoutException(String message) {
+        super(message);
+    }
+}
@@ -128,4 +128,14 @@ public interface DealerContractRepository extends JpaRepository<DealerContract,
     @Query("SELECT dc FROM DealerContract dc " +
             "WHERE :date BETWEEN dc.startDate AND dc.endDate")
     java.util.List<DealerContract> findAllActiveContracts(@Param("date") LocalDate date);
+
+    /**
+     * Get all active contracts with dealer loaded (một query cho báo cáo tất cả đại lý)
+     */
+    @Query("SELECT dc FROM DealerContract dc " +
+            "JOIN FETCH dc.dealer " +
+            "LEFT JOIN FETCH dc.brand " +
+            "WHERE :date BETWEEN dc.startDate AND dc.endDate " +
+            "ORDER BY dc.startDate DESC")
+    List<DealerContract> findAllActiveContractsWithDealer(@Param("date") LocalDate date);
 }
\ No newline at end of file
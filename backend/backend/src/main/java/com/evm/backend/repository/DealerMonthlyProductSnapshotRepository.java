@@ -0,0 +1,41 @@
+package com.evm.backend.repository;
+
+import com.evm.backend.entity.DealerMonthlyProductSnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface DealerMonthlyProductSnapshotRepository extends JpaRepository<DealerMonthlyProductSnapshot, Long> {
+
+    /**
+     * Cơ cấu sản phẩm cộng dồn trên các tháng đã snapshot: [productId, productName, unitsSold, revenue]
+     */
+    @Query("SELECT s.productId, s.productName, SUM(s.unitsSold), SUM(s.revenue) " +
+            "FROM DealerMonthlyProductSnapshot s " +
+            "WHERE s.dealerId = :dealerId " +
+            "AND s.snapshotMonth IN :months " +
+            "GROUP BY s.productId, s.productName")
+    List<Object[]> sumProductMix(
+            @Param("dealerId") Long dealerId,
+            @Param("months") Collection<LocalDate> months
+    );
+
+    @Modifying
+    @Query("DELETE FROM DealerMonthlyProductSnapshot s " +
+            "WHERE s.dealerId = :dealerId AND s.snapshotMonth = :month")
+    int deleteByDealerAndMonth(
+            @Param("dealerId") Long dealerId,
+            @Param("month") LocalDate month
+    );
+
+    @Modifying
+    @Query("DELETE FROM DealerMonthlyProductSnapshot s")
+    int deleteAllRows();
+}
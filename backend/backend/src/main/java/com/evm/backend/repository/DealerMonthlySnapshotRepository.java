@@ -0,0 +1,36 @@
+package com.evm.backend.repository;
+
+import com.evm.backend.entity.DealerMonthlySnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface DealerMonthlySnapshotRepository extends JpaRepository<DealerMonthlySnapshot, Long> {
+
+    List<DealerMonthlySnapshot> findByDealerIdAndSnapshotMonthBetweenOrderBySnapshotMonth(
+            Long dealerId, LocalDate startMonth, LocalDate endMonth);
+
+    /**
+     * Các đại lý đã có snapshot trong tháng
+     */
+    @Query("SELECT s.dealerId FROM DealerMonthlySnapshot s WHERE s.snapshotMonth = :month")
+    List<Long> findDealerIdsByMonth(@Param("month") LocalDate month);
+
+    @Modifying
+    @Query("DELETE FROM DealerMonthlySnapshot s " +
+            "WHERE s.dealerId = :dealerId AND s.snapshotMonth = :month")
+    int deleteByDealerAndMonth(
+            @Param("dealerId") Long dealerId,
+            @Param("month") LocalDate month
+    );
+
+    @Modifying
+    @Query("DELETE FROM DealerMonthlySnapshot s")
+    int deleteAllRows();
+}
@@ -1,19 +1,25 @@
 package com.evm.backend.repository;
 
 import com.evm.backend.entity.Inventory;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface InventoryReportRepository extends JpaRepository<Inventory, Long> {
 
     /**
      * D.2: Inventory report with status - FIXED with Native Query
+     * Trạng thái lấy từ cảnh báo đang hoạt động (ngưỡng cấu hình theo sản phẩm / đại lý)
      */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_TIMEOUT, value = ReportRepository.QUERY_TIMEOUT_SECONDS))
     @Query(value = "SELECT " +
             "p.product_id, " +
             "p.product_name, " +
@@ -25,17 +31,15 @@ public interface InventoryReportRepository extends JpaRepository<Inventory, Long
             "COALESCE(i.available_quantity, 0), " +
             "COALESCE(i.reserved_quantity, 0), " +
             "COALESCE(i.`in_transit_quantity`, 0), " +
-            "CASE " +
-            "  WHEN COALESCE(i.available_quantity, 0) = 0 THEN 'OUT_OF_STOCK' " +
-            "  WHEN COALESCE(i.available_quantity, 0) < 5 THEN 'LOW_STOCK' " +
-            "  ELSE 'NORMAL' " +
-            "END as stock_status " +
+            "COALESCE(a.alert_type, 'NORMAL') as stock_status, " +
+            "i.inventory_id " +
             "FROM inventory i " +
             "JOIN product p ON i.product_id = p.product_id " +
             "LEFT JOIN dealer d ON i.dealer_id = d.dealer_id " +
+            "LEFT JOIN stock_alert a ON a.inventory_id = i.inventory_id " +
             "WHERE (:productId IS NULL OR p.product_id = :productId) " +
             "AND (:dealerId IS NULL OR i.dealer_id = :dealerId OR (:dealerId = 0 AND i.dealer_id IS NULL)) " +
-            "ORDER BY p.product_name",
+            "ORDER BY p.product_name, i.inventory_id",
             nativeQuery = true)
     List<Object[]> getInventoryReportData(
             @Param("productId") Long productId,
@@ -43,31 +47,109 @@ public interface InventoryReportRepository extends JpaRepository<Inventory, Long
     );
 
     /**
-     * Low stock alerts
+     * D.2: Inventory report data dạng cursor (dùng cho export Excel streaming)
+     * Fetch size = Integer.MIN_VALUE: MySQL driver trả từng dòng thay vì nạp toàn bộ kết quả
+     * Phải đóng Stream và gọi trong transaction
      */
-    @Query("SELECT i FROM Inventory i " +
-            "WHERE i.availableQuantity < 5 " +
-            "AND i.availableQuantity > 0 " +
-            "ORDER BY i.availableQuantity ASC")
-    List<Inventory> getLowStockItems();
+    @Query(value = "SELECT " +
+            "p.product_id, " +
+            "p.product_name, " +
+            "p.version, " +
+            "COALESCE(d.dealer_id, 0), " +
+            "COALESCE(d.dealer_name, 'Brand Warehouse'), " +
+            "COALESCE(i.location, ''), " +
+            "COALESCE(i.total_quantity, 0), " +
+            "COALESCE(i.available_quantity, 0), " +
+            "COALESCE(i.reserved_quantity, 0), " +
+            "COALESCE(i.`in_transit_quantity`, 0), " +
+            "COALESCE(a.alert_type, 'NORMAL') as stock_status, " +
+            "i.inventory_id " +
+            "FROM inventory i " +
+            "JOIN product p ON i.product_id = p.product_id " +
+            "LEFT JOIN dealer d ON i.dealer_id = d.dealer_id " +
+            "LEFT JOIN stock_alert a ON a.inventory_id = i.inventory_id " +
+            "WHERE (:productId IS NULL OR p.product_id = :productId) " +
+            "AND (:dealerId IS NULL OR i.dealer_id = :dealerId OR (:dealerId = 0 AND i.dealer_id IS NULL)) " +
+            "ORDER BY p.product_name, i.inventory_id",
+            nativeQuery = true)
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_TIMEOUT, value = ReportRepository.QUERY_TIMEOUT_SECONDS),
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<Object[]> streamInventoryReportData(
+            @Param("productId") Long productId,
+            @Param("dealerId") Long dealerId
+    );
 
     /**
-     * Out of stock
+     * D.2: Inventory report data phân trang keyset theo (product_name, inventory_id)
+     * Trang sau bắt đầu ngay sau dòng cuối của trang trước, không dùng OFFSET
+     * afterProductName = NULL: trang đầu
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_TIMEOUT, value = ReportRepository.QUERY_TIMEOUT_SECONDS))
+    @Query(value = "SELECT " +
+            "p.product_id, " +
+            "p.product_name, " +
+            "p.version, " +
+            "COALESCE(d.dealer_id, 0), " +
+            "COALESCE(d.dealer_name, 'Brand Warehouse'), " +
+            "COALESCE(i.location, ''), " +
+            "COALESCE(i.total_quantity, 0), " +
+            "COALESCE(i.available_quantity, 0), " +
+            "COALESCE(i.reserved_quantity, 0), " +
+            "COALESCE(i.`in_transit_quantity`, 0), " +
+            "COALESCE(a.alert_type, 'NORMAL') as stock_status, " +
+            "i.inventory_id " +
+            "FROM inventory i " +
+            "JOIN product p ON i.product_id = p.product_id " +
+            "LEFT JOIN dealer d ON i.dealer_id = d.dealer_id " +
+            "LEFT JOIN stock_alert a ON a.inventory_id = i.inventory_id " +
+            "WHERE (:productId IS NULL OR p.product_id = :productId) " +
+            "AND (:dealerId IS NULL OR i.dealer_id = :dealerId OR (:dealerId = 0 AND i.dealer_id IS NULL)) " +
+            "AND (:afterProductName IS NULL " +
+            "  OR p.product_name > :afterProductName " +
+            "  OR (p.product_name = :afterProductName AND i.inventory_id > :afterInventoryId)) " +
+            "ORDER BY p.product_name, i.inventory_id " +
+            "LIMIT :limit",
+            nativeQuery = true)
+    List<Object[]> getInventoryReportPage(
+            @Param("productId") Long productId,
+            @Param("dealerId") Long dealerId,
+            @Param("afterProductName") String afterProductName,
+            @Param("afterInventoryId") Long afterInventoryId,
+            @Param("limit") int limit
+    );
+
+    /**
+     * Toàn bộ tồn kho kèm sản phẩm / đại lý (tính lại cảnh báo tồn kho)
      */
     @Query("SELECT i FROM Inventory i " +
-            "WHERE i.availableQuantity = 0 " +
-            "ORDER BY i.product.productName")
-    List<Inventory> getOutOfStockItems();
+            "JOIN FETCH i.product " +
+            "LEFT JOIN FETCH i.dealer")
+    List<Inventory> findAllWithProductAndDealer();
 
     /**
-     * Total statistics
+     * Thống kê tồn kho trong một lần quét (cùng filter với getInventoryReportData, trạng thái từ stock_alert):
+     * [totalProducts, totalStock, availableStock, reservedStock, inTransitStock, lowStockCount, outOfStockCount]
      */
-    @Query("SELECT " +
-            "COUNT(DISTINCT i.product.id), " +
-            "COALESCE(SUM(i.totalQuantity), 0), " +
-            "COALESCE(SUM(i.availableQuantity), 0), " +
-            "COALESCE(SUM(i.reservedQuantity), 0), " +
-            "COALESCE(SUM(i.inTransitQuantity), 0) " +
-            "FROM Inventory i")
-    List<Object[]> getInventoryStatistics();
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_TIMEOUT, value = ReportRepository.QUERY_TIMEOUT_SECONDS))
+    @Query(value = "SELECT " +
+            "COUNT(DISTINCT p.product_id), " +
+            "COALESCE(SUM(i.total_quantity), 0), " +
+            "COALESCE(SUM(i.available_quantity), 0), " +
+            "COALESCE(SUM(i.reserved_quantity), 0), " +
+            "COALESCE(SUM(i.`in_transit_quantity`), 0), " +
+            "COALESCE(SUM(CASE WHEN a.alert_type = 'LOW_STOCK' THEN 1 ELSE 0 END), 0), " +
+            "COALESCE(SUM(CASE WHEN a.alert_type = 'OUT_OF_STOCK' THEN 1 ELSE 0 END), 0) " +
+            "FROM inventory i " +
+            "JOIN product p ON i.product_id = p.product_id " +
+            "LEFT JOIN stock_alert a ON a.inventory_id = i.inventory_id " +
+            "WHERE (:productId IS NULL OR p.product_id = :productId) " +
+            "AND (:dealerId IS NULL OR i.dealer_id = :dealerId OR (:dealerId = 0 AND i.dealer_id IS NULL))",
+            nativeQuery = true)
+    List<Object[]> getInventorySummaryStats(
+            @Param("productId") Long productId,
+            @Param("dealerId") Long dealerId
+    );
 }
\ No newline at end of file
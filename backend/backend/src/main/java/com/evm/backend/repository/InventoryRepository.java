@@ -37,11 +37,21 @@ public interface InventoryRepository extends JpaRepository<Inventory, Long>, Jpa
     List<Inventory> findByDealerIsNullOrderByUpdatedAtDesc();
 
     /**
-     * Find inventory items where available quantity is below a given threshold
+     * Find inventory items where 0 < available quantity < threshold (same rule as stock alerts)
      */
-    @Query("SELECT i FROM Inventory i WHERE i.availableQuantity < :threshold ORDER BY i.availableQuantity ASC")
+    @Query("SELECT i FROM Inventory i " +
+            "WHERE i.availableQuantity > 0 AND i.availableQuantity < :threshold " +
+            "ORDER BY i.availableQuantity ASC")
     List<Inventory> findLowStockInventory(@Param("threshold") Integer threshold);
 
+    /**
+     * Find inventory items with an active stock alert of the given type (per product / dealer thresholds)
+     */
+    @Query("SELECT i FROM Inventory i " +
+            "WHERE i.id IN (SELECT a.inventoryId FROM StockAlert a WHERE a.alertType = :alertType) " +
+            "ORDER BY i.availableQuantity ASC")
+    List<Inventory> findByStockAlertType(@Param("alertType") String alertType);
+
     /**
      * Find inventory by ID with all details (product, brand, dealer)
      */
@@ -70,12 +80,6 @@ public interface InventoryRepository extends JpaRepository<Inventory, Long>, Jpa
     @Query("SELECT SUM(i.inTransitQuantity) FROM Inventory i")
     Long getTotalInTransitQuantity();
 
-    /**
-     * Count inventory records where available quantity is below a given threshold
-     */
-    @Query("SELECT COUNT(i) FROM Inventory i WHERE i.availableQuantity < :threshold")
-    Long countLowStock(@Param("threshold") Integer threshold);
-
     /**
      * Count inventory records belonging to the brand warehouse (dealer is null)
      */
@@ -3,6 +3,7 @@ package com.evm.backend.repository;
 import com.evm.backend.entity.Quotation;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -41,6 +42,27 @@ public interface QuotationRepository extends JpaRepository<Quotation, Long> {
             Pageable pageable
     );
 
+    /**
+     * Id báo giá khớp filter (mới nhất trước), giới hạn bằng pageable (không chạy count query)
+     */
+    @Query("SELECT q.id FROM Quotation q WHERE " +
+            "(:customerId IS NULL OR q.customer.id = :customerId) AND " +
+            "(:salesPersonId IS NULL OR q.salesPerson.id = :salesPersonId) AND " +
+            "(:dealerId IS NULL OR q.dealer.id = :dealerId) AND " +
+            "(:status IS NULL OR q.status = :status) AND " +
+            "(:fromDate IS NULL OR q.quotationDate >= :fromDate) AND " +
+            "(:toDate IS NULL OR q.quotationDate <= :toDate) " +
+            "ORDER BY q.quotationDate DESC, q.id DESC")
+    List<Long> findQuotationIdsWithFilters(
+            @Param("customerId") Long customerId,
+            @Param("salesPersonId") Long salesPersonId,
+            @Param("dealerId") Long dealerId,
+            @Param("status") String status,
+            @Param("fromDate") LocalDate fromDate,
+            @Param("toDate") LocalDate toDate,
+            Pageable pageable
+    );
+
     @Query("SELECT q FROM Quotation q WHERE " +
             "q.validUntil < :today AND q.status = 'SENT'")
     List<Quotation> findExpiredQuotations(@Param("today") LocalDate today);
@@ -63,12 +85,12 @@ public interface QuotationRepository extends JpaRepository<Quotation, Long> {
             @Param("dealerId") Long dealerId
     );
 
-    @Query("SELECT q FROM Quotation q " +
-            "LEFT JOIN FETCH q.product " +
-            "LEFT JOIN FETCH q.customer " +
-            "LEFT JOIN FETCH q.salesPerson " +
-            "LEFT JOIN FETCH q.quotationPromotions " +
-            "WHERE q.id = :id")
+    /**
+     * product/customer/salesPerson/dealer JOIN theo entity graph
+     * quotationPromotions và promotion của chúng nạp theo lô khi truy cập (hibernate.default_batch_fetch_size)
+     */
+    @EntityGraph(attributePaths = {"product", "customer", "salesPerson", "dealer"})
+    @Query("SELECT q FROM Quotation q WHERE q.id = :id")
     Optional<Quotation> findByIdWithDetails(@Param("id") Long id);
 
 //    void deleteByQuotationBySalesOrderId(Long orderId);
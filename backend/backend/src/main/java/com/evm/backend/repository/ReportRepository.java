@@ -1,237 +1,101 @@
 package com.evm.backend.repository;
 
 import com.evm.backend.entity.SalesOrder;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
-import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface ReportRepository extends JpaRepository<SalesOrder, Long> {
 
-    // =====================================================
-    // D.1: SALES REPORTS - FIXED
-    // =====================================================
-
-    /**
-     * Báo cáo doanh thu theo ngày
-     * ✅ Fix: Không dùng constructor projection, trả về Object[] thay thế
-     */
-    @Query("SELECT " +
-            "o.orderDate, " +
-            "SUM(o.totalPrice), " +
-            "COUNT(o), " +
-            "AVG(o.totalPrice) " +
-            "FROM SalesOrder o " +
-            "WHERE o.orderDate BETWEEN :startDate AND :endDate " +
-            "AND (:dealerId IS NULL OR o.vehicle.dealer.id = :dealerId) " +
-            "AND o.status != 'CANCELLED' " +
-            "GROUP BY o.orderDate " +
-            "ORDER BY o.orderDate")
-    List<Object[]> getSalesByDay(
-            @Param("startDate") LocalDate startDate,
-            @Param("endDate") LocalDate endDate,
-            @Param("dealerId") Long dealerId
-    );
-
-    /**
-     * Tổng doanh thu theo khoảng thời gian
-     */
-    @Query("SELECT COALESCE(SUM(o.totalPrice), 0) " +
-            "FROM SalesOrder o " +
-            "WHERE o.orderDate BETWEEN :startDate AND :endDate " +
-            "AND (:dealerId IS NULL OR o.vehicle.dealer.id = :dealerId) " +
-            "AND o.status != 'CANCELLED'")
-    BigDecimal getTotalRevenue(
-            @Param("startDate") LocalDate startDate,
-            @Param("endDate") LocalDate endDate,
-            @Param("dealerId") Long dealerId
-    );
-
-    /**
-     * Tổng số đơn hàng
-     */
-    @Query("SELECT COUNT(o) " +
-            "FROM SalesOrder o " +
-            "WHERE o.orderDate BETWEEN :startDate AND :endDate " +
-            "AND (:dealerId IS NULL OR o.vehicle.dealer.id = :dealerId) " +
-            "AND o.status != 'CANCELLED'")
-    Long getTotalOrders(
-            @Param("startDate") LocalDate startDate,
-            @Param("endDate") LocalDate endDate,
-            @Param("dealerId") Long dealerId
-    );
-
-    /**
-     * Top sales persons
-     */
-    @Query("SELECT " +
-            "o.salesPerson.id, " +
-            "o.salesPerson.fullName, " +
-            "SUM(o.totalPrice), " +
-            "COUNT(o) " +
-            "FROM SalesOrder o " +
-            "WHERE o.orderDate BETWEEN :startDate AND :endDate " +
-            "AND o.salesPerson IS NOT NULL " +
-            "AND o.status != 'CANCELLED' " +
-            "GROUP BY o.salesPerson.id, o.salesPerson.fullName " +
-            "ORDER BY SUM(o.totalPrice) DESC")
-    List<Object[]> getTopSalesPersons(
-            @Param("startDate") LocalDate startDate,
-            @Param("endDate") LocalDate endDate
-    );
-
     /**
-     * Top dealers
+     * Timeout JDBC (giây) cho truy vấn tổng hợp của báo cáo (dùng chung cho SalesDailyRollupRepository,
+     * SalesMonthlyRollupRepository, InventoryReportRepository): truy vấn chạy quá lâu bị DB hủy,
+     * không giữ connection vô hạn (transaction có timeout ngắn hơn thì dùng timeout đó)
      */
-    @Query("SELECT " +
-            "d.id, " +
-            "d.dealerName, " +
-            "SUM(o.totalPrice), " +
-            "COUNT(o) " +
-            "FROM SalesOrder o " +
-            "JOIN o.vehicle v " +
-            "JOIN v.dealer d " +
-            "WHERE o.orderDate BETWEEN :startDate AND :endDate " +
-            "AND o.status != 'CANCELLED' " +
-            "GROUP BY d.id, d.dealerName " +
-            "ORDER BY SUM(o.totalPrice) DESC")
-    List<Object[]> getTopDealers(
-            @Param("startDate") LocalDate startDate,
-            @Param("endDate") LocalDate endDate
-    );
+    String QUERY_TIMEOUT_SECONDS = "30";
 
-    /**
-     * Top products
-     */
-    @Query("SELECT " +
-            "p.id, " +
-            "p.productName, " +
-            "COUNT(o), " +
-            "SUM(o.totalPrice) " +
-            "FROM SalesOrder o " +
-            "JOIN o.vehicle v " +
-            "JOIN v.product p " +
-            "WHERE o.orderDate BETWEEN :startDate AND :endDate " +
-            "AND o.status != 'CANCELLED' " +
-            "GROUP BY p.id, p.productName " +
-            "ORDER BY COUNT(o) DESC")
-    List<Object[]> getTopProducts(
-            @Param("startDate") LocalDate startDate,
-            @Param("endDate") LocalDate endDate
-    );
+    // =====================================================
+    // D.1: SALES REPORTS - FIXED
+    // =====================================================
 
     /**
-     * Total discount amount
+     * Tổng hợp kỳ hiện tại + kỳ trước trong một lần quét (conditional aggregation)
+     * Trả về: [revenue, orderCount, discount, paidAmount, previousRevenue]
      */
-    @Query("SELECT COALESCE(SUM(o.discountAmount), 0) " +
-            "FROM SalesOrder o " +
-            "WHERE o.orderDate BETWEEN :startDate AND :endDate " +
-            "AND (:dealerId IS NULL OR o.vehicle.dealer.id = :dealerId) " +
-            "AND o.status != 'CANCELLED'")
-    BigDecimal getTotalDiscount(
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_TIMEOUT, value = QUERY_TIMEOUT_SECONDS))
+    @Query(value = "SELECT " +
+            "COALESCE(SUM(CASE WHEN r.sales_date BETWEEN :startDate AND :endDate " +
+            "    THEN r.total_revenue ELSE 0 END), 0) as revenue, " +
+            "COALESCE(SUM(CASE WHEN r.sales_date BETWEEN :startDate AND :endDate " +
+            "    THEN r.order_count ELSE 0 END), 0) as order_count, " +
+            "COALESCE(SUM(CASE WHEN r.sales_date BETWEEN :startDate AND :endDate " +
+            "    THEN r.total_discount ELSE 0 END), 0) as discount, " +
+            "(SELECT COALESCE(SUM(p.amount), 0) " +
+            "    FROM payment p " +
+            "    WHERE p.payment_date BETWEEN :startDate AND :endDate " +
+            "    AND p.status = 'COMPLETED' " +
+            "    AND (:dealerId IS NULL OR EXISTS (" +
+            "        SELECT 1 FROM sales_order so " +
+            "        JOIN vehicle v ON so.vehicle_id = v.vehicle_id " +
+            "        WHERE so.order_id = p.order_id AND v.dealer_id = :dealerId))" +
+            ") as paid_amount, " +
+            "COALESCE(SUM(CASE WHEN r.sales_date BETWEEN :prevStartDate AND :prevEndDate " +
+            "    THEN r.total_revenue ELSE 0 END), 0) as previous_revenue " +
+            "FROM sales_daily_rollup r " +
+            "WHERE r.sales_date BETWEEN :prevStartDate AND :endDate " +
+            "AND (:dealerId IS NULL OR r.dealer_id = :dealerId)",
+            nativeQuery = true)
+    List<Object[]> getPeriodSummary(
             @Param("startDate") LocalDate startDate,
             @Param("endDate") LocalDate endDate,
+            @Param("prevStartDate") LocalDate prevStartDate,
+            @Param("prevEndDate") LocalDate prevEndDate,
             @Param("dealerId") Long dealerId
     );
 
     // =====================================================
-    // C.1, C.2: DEALER PERFORMANCE
+    // SALES CUBE
     // =====================================================
 
     /**
-     * Dealer sales by month
+     * Dữ liệu gốc cho sales cube, theo thứ tự order_id (cursor, không nạp toàn bộ):
+     * [orderId, orderDate, dealerId, productId, salesPersonId, status, totalPrice, discountAmount]
      */
     @Query(value = "SELECT " +
-            "DATE_FORMAT(order_date, '%Y-%m') as month, " +
-            "SUM(total_price) as revenue, " +
-            "COUNT(*) as order_count " +
+            "o.order_id, " +
+            "o.order_date, " +
+            "COALESCE(v.dealer_id, 0), " +
+            "COALESCE(v.product_id, 0), " +
+            "COALESCE(o.user_id, 0), " +
+            "COALESCE(o.status, ''), " +
+            "COALESCE(o.total_price, 0), " +
+            "COALESCE(o.discount_amount, 0) " +
             "FROM sales_order o " +
-            "JOIN vehicle v ON o.vehicle_id = v.vehicle_id " +
-            "WHERE v.dealer_id = :dealerId " +
-            "AND o.order_date BETWEEN :startDate AND :endDate " +
-            "AND o.status != 'CANCELLED' " +
-            "GROUP BY DATE_FORMAT(order_date, '%Y-%m') " +
-            "ORDER BY month",
+            "LEFT JOIN vehicle v ON o.vehicle_id = v.vehicle_id " +
+            "WHERE o.order_date IS NOT NULL " +
+            "ORDER BY o.order_id",
             nativeQuery = true)
-    List<Object[]> getDealerSalesByMonth(
-            @Param("dealerId") Long dealerId,
-            @Param("startDate") LocalDate startDate,
-            @Param("endDate") LocalDate endDate
-    );
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<Object[]> streamCubeFacts();
 
-    /**
-     * Dealer product breakdown
-     */
-    @Query("SELECT " +
-            "p.id, " +
-            "p.productName, " +
-            "COUNT(o), " +
-            "SUM(o.totalPrice) " +
-            "FROM SalesOrder o " +
-            "JOIN o.vehicle v " +
-            "JOIN v.product p " +
-            "WHERE v.dealer.id = :dealerId " +
-            "AND o.orderDate BETWEEN :startDate AND :endDate " +
-            "AND o.status != 'CANCELLED' " +
-            "GROUP BY p.id, p.productName " +
-            "ORDER BY SUM(o.totalPrice) DESC")
-    List<Object[]> getDealerProductBreakdown(
-            @Param("dealerId") Long dealerId,
-            @Param("startDate") LocalDate startDate,
-            @Param("endDate") LocalDate endDate
-    );
+    @Query("SELECT d.id, d.dealerName FROM Dealer d")
+    List<Object[]> getDealerNames();
 
-    /**
-     * Dealer total sales
-     */
-    @Query("SELECT COALESCE(SUM(o.totalPrice), 0) " +
-            "FROM SalesOrder o " +
-            "JOIN o.vehicle v " +
-            "WHERE v.dealer.id = :dealerId " +
-            "AND o.orderDate BETWEEN :startDate AND :endDate " +
-            "AND o.status != 'CANCELLED'")
-    BigDecimal getDealerTotalSales(
-            @Param("dealerId") Long dealerId,
-            @Param("startDate") LocalDate startDate,
-            @Param("endDate") LocalDate endDate
-    );
-
-    // =====================================================
-    // PAYMENT REPORTS
-    // =====================================================
+    @Query("SELECT p.id, p.productName FROM Product p")
+    List<Object[]> getProductNames();
 
-    /**
-     * Total paid amount
-     */
-    @Query("SELECT COALESCE(SUM(p.amount), 0) " +
-            "FROM Payment p " +
-            "WHERE p.paymentDate BETWEEN :startDate AND :endDate " +
-            "AND p.status = 'COMPLETED'")
-    BigDecimal getTotalPaidAmount(
-            @Param("startDate") LocalDate startDate,
-            @Param("endDate") LocalDate endDate
-    );
-
-    /**
-     * Orders by payment status
-     */
-    @Query("SELECT " +
-            "o.id, " +
-            "o.totalPrice, " +
-            "COALESCE(SUM(p.amount), 0) " +
-            "FROM SalesOrder o " +
-            "LEFT JOIN o.payments p ON p.status = 'COMPLETED' " +
-            "WHERE o.orderDate BETWEEN :startDate AND :endDate " +
-            "AND o.status != 'CANCELLED' " +
-            "GROUP BY o.id, o.totalPrice " +
-            "HAVING COALESCE(SUM(p.amount), 0) < o.totalPrice")
-    List<Object[]> getOrdersWithPendingPayment(
-            @Param("startDate") LocalDate startDate,
-            @Param("endDate") LocalDate endDate
-    );
-}
\ No newline at end of file
+    @Query("SELECT u.id, u.fullName FROM User u")
+    List<Object[]> getSalesPersonNames();
+}
@@ -0,0 +1,361 @@
+package com.evm.backend.repository;
+
+import com.evm.backend.entity.SalesDailyRollup;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface SalesDailyRollupRepository extends JpaRepository<SalesDailyRollup, Long> {
+
+    // =====================================================
+    // GHI: CẬP NHẬT TĂNG DẦN
+    // =====================================================
+
+    /**
+     * Cộng delta vào dòng rollup (tạo mới nếu chưa có)
+     */
+    @Modifying
+    @Query(value = "INSERT INTO sales_daily_rollup " +
+            "(sales_date, dealer_id, product_id, salesperson_id, order_count, total_revenue, total_discount) " +
+            "VALUES (:salesDate, :dealerId, :productId, :salesPersonId, :orderDelta, :revenueDelta, :discountDelta) " +
+            "ON DUPLICATE KEY UPDATE " +
+            "order_count = order_count + VALUES(order_count), " +
+            "total_revenue = total_revenue + VALUES(total_revenue), " +
+            "total_discount = total_discount + VALUES(total_discount)",
+            nativeQuery = true)
+    int applyDelta(
+            @Param("salesDate") LocalDate salesDate,
+            @Param("dealerId") Long dealerId,
+            @Param("productId") Long productId,
+            @Param("salesPersonId") Long salesPersonId,
+            @Param("orderDelta") long orderDelta,
+            @Param("revenueDelta") BigDecimal revenueDelta,
+            @Param("discountDelta") BigDecimal discountDelta
+    );
+
+    /**
+     * Xóa dòng rollup không còn đơn hàng nào
+     */
+    @Modifying
+    @Query(value = "DELETE FROM sales_daily_rollup " +
+            "WHERE sales_date = :salesDate " +
+            "AND dealer_id = :dealerId " +
+            "AND product_id = :productId " +
+            "AND salesperson_id = :salesPersonId " +
+            "AND order_count <= 0",
+            nativeQuery = true)
+    int deleteIfEmpty(
+            @Param("salesDate") LocalDate salesDate,
+            @Param("dealerId") Long dealerId,
+            @Param("productId") Long productId,
+            @Param("salesPersonId") Long salesPersonId
+    );
+
+    // =====================================================
+    // REBUILD / BACKFILL
+    // =====================================================
+
+    @Modifying
+    @Query(value = "DELETE FROM sales_daily_rollup", nativeQuery = true)
+    int deleteAllRows();
+
+    /**
+     * Tính lại toàn bộ rollup từ sales_order
+     */
+    @Modifying
+    @Query(value = "INSERT INTO sales_daily_rollup " +
+            "(sales_date, dealer_id, product_id, salesperson_id, order_count, total_revenue, total_discount) " +
+            "SELECT " +
+            "o.order_date, " +
+            "COALESCE(v.dealer_id, 0), " +
+            "COALESCE(v.product_id, 0), " +
+            "COALESCE(o.user_id, 0), " +
+            "COUNT(*), " +
+            "COALESCE(SUM(o.total_price), 0), " +
+            "COALESCE(SUM(o.discount_amount), 0) " +
+            "FROM sales_order o " +
+            "LEFT JOIN vehicle v ON o.vehicle_id = v.vehicle_id " +
+            "WHERE o.order_date IS NOT NULL " +
+            "AND o.status != 'CANCELLED' " +
+            "GROUP BY o.order_date, COALESCE(v.dealer_id, 0), COALESCE(v.product_id, 0), COALESCE(o.user_id, 0)",
+            nativeQuery = true)
+    int rebuildFromSalesOrders();
+
+    // =====================================================
+    // ĐỌC: BÁO CÁO DOANH SỐ
+    // =====================================================
+
+    /**
+     * Doanh thu theo kỳ DAY / WEEK / MONTH / QUARTER / YEAR: [bucketStart, revenue, orderCount]
+     * WEEK bắt đầu từ thứ Hai
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_TIMEOUT, value = ReportRepository.QUERY_TIMEOUT_SECONDS))
+    @Query(value = "SELECT " +
+            "CASE :groupBy " +
+            "  WHEN 'YEAR' THEN MAKEDATE(YEAR(sales_date), 1) " +
+            "  WHEN 'QUARTER' THEN MAKEDATE(YEAR(sales_date), 1) + INTERVAL (QUARTER(sales_date) - 1) QUARTER " +
+            "  WHEN 'MONTH' THEN DATE_SUB(sales_date, INTERVAL DAYOFMONTH(sales_date) - 1 DAY) " +
+            "  WHEN 'WEEK' THEN DATE_SUB(sales_date, INTERVAL WEEKDAY(sales_date) DAY) " +
+            "  ELSE sales_date " +
+            "END as bucket, " +
+            "SUM(total_revenue) as revenue, " +
+            "SUM(order_count) as order_count " +
+            "FROM sales_daily_rollup " +
+            "WHERE sales_date BETWEEN :startDate AND :endDate " +
+            "AND (:dealerId IS NULL OR dealer_id = :dealerId) " +
+            "GROUP BY bucket " +
+            "HAVING SUM(order_count) > 0 " +
+            "ORDER BY bucket",
+            nativeQuery = true)
+    List<Object[]> getSalesByBucket(
+            @Param("startDate") LocalDate startDate,
+            @Param("endDate") LocalDate endDate,
+            @Param("dealerId") Long dealerId,
+            @Param("groupBy") String groupBy
+    );
+
+    /**
+     * Tổng hợp: [revenue, orderCount, discount]
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_TIMEOUT, value = ReportRepository.QUERY_TIMEOUT_SECONDS))
+    @Query("SELECT " +
+            "COALESCE(SUM(r.totalRevenue), 0), " +
+            "COALESCE(SUM(r.orderCount), 0), " +
+            "COALESCE(SUM(r.totalDiscount), 0) " +
+            "FROM SalesDailyRollup r " +
+            "WHERE r.salesDate BETWEEN :startDate AND :endDate " +
+            "AND (:dealerId IS NULL OR r.dealerId = :dealerId)")
+    List<Object[]> getTotals(
+            @Param("startDate") LocalDate startDate,
+            @Param("endDate") LocalDate endDate,
+            @Param("dealerId") Long dealerId
+    );
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_TIMEOUT, value = ReportRepository.QUERY_TIMEOUT_SECONDS))
+    @Query("SELECT COALESCE(SUM(r.totalRevenue), 0) " +
+            "FROM SalesDailyRollup r " +
+            "WHERE r.salesDate BETWEEN :startDate AND :endDate " +
+            "AND (:dealerId IS NULL OR r.dealerId = :dealerId)")
+    BigDecimal getTotalRevenue(
+            @Param("startDate") LocalDate startDate,
+            @Param("endDate") LocalDate endDate,
+            @Param("dealerId") Long dealerId
+    );
+
+    /**
+     * Top sales persons: [id, fullName, revenue, orderCount]
+     * Pageable giới hạn số dòng ngay trong DB (LIMIT), Pageable.unpaged() để lấy toàn bộ
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_TIMEOUT, value = ReportRepository.QUERY_TIMEOUT_SECONDS))
+    @Query("SELECT u.id, u.fullName, SUM(r.totalRevenue), SUM(r.orderCount) " +
+            "FROM SalesDailyRollup r " +
+            "JOIN User u ON u.id = r.salesPersonId " +
+            "WHERE r.salesDate BETWEEN :startDate AND :endDate " +
+            "GROUP BY u.id, u.fullName " +
+            "HAVING SUM(r.orderCount) > 0 " +
+            "ORDER BY SUM(r.totalRevenue) DESC")
+    List<Object[]> getTopSalesPersons(
+            @Param("startDate") LocalDate startDate,
+            @Param("endDate") LocalDate endDate,
+            Pageable pageable
+    );
+
+    /**
+     * Top dealers: [id, dealerName, revenue, orderCount]
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_TIMEOUT, value = ReportRepository.QUERY_TIMEOUT_SECONDS))
+    @Query("SELECT d.id, d.dealerName, SUM(r.totalRevenue), SUM(r.orderCount) " +
+            "FROM SalesDailyRollup r " +
+            "JOIN Dealer d ON d.id = r.dealerId " +
+            "WHERE r.salesDate BETWEEN :startDate AND :endDate " +
+            "GROUP BY d.id, d.dealerName " +
+            "HAVING SUM(r.orderCount) > 0 " +
+            "ORDER BY SUM(r.totalRevenue) DESC")
+    List<Object[]> getTopDealers(
+            @Param("startDate") LocalDate startDate,
+            @Param("endDate") LocalDate endDate,
+            Pageable pageable
+    );
+
+    /**
+     * Top products: [id, productName, unitsSold, revenue]
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_TIMEOUT, value = ReportRepository.QUERY_TIMEOUT_SECONDS))
+    @Query("SELECT p.id, p.productName, SUM(r.orderCount), SUM(r.totalRevenue) " +
+            "FROM SalesDailyRollup r " +
+            "JOIN Product p ON p.id = r.productId " +
+            "WHERE r.salesDate BETWEEN :startDate AND :endDate " +
+            "GROUP BY p.id, p.productName " +
+            "HAVING SUM(r.orderCount) > 0 " +
+            "ORDER BY SUM(r.orderCount) DESC")
+    List<Object[]> getTopProducts(
+            @Param("startDate") LocalDate startDate,
+            @Param("endDate") LocalDate endDate,
+            Pageable pageable
+    );
+
+    // =====================================================
+    // ĐỌC: HIỆU SUẤT ĐẠI LÝ
+    // =====================================================
+
+    /**
+     * Doanh số đại lý theo tháng: [month, revenue, orderCount]
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_TIMEOUT, value = ReportRepository.QUERY_TIMEOUT_SECONDS))
+    @Query(value = "SELECT " +
+            "DATE_FORMAT(sales_date, '%Y-%m') as month, " +
+            "SUM(total_revenue) as revenue, " +
+            "SUM(order_count) as order_count " +
+            "FROM sales_daily_rollup " +
+            "WHERE dealer_id = :dealerId " +
+            "AND sales_date BETWEEN :startDate AND :endDate " +
+            "GROUP BY DATE_FORMAT(sales_date, '%Y-%m') " +
+            "HAVING SUM(order_count) > 0 " +
+            "ORDER BY month",
+            nativeQuery = true)
+    List<Object[]> getDealerSalesByMonth(
+            @Param("dealerId") Long dealerId,
+            @Param("startDate") LocalDate startDate,
+            @Param("endDate") LocalDate endDate
+    );
+
+    // =====================================================
+    // ĐỌC: HIỆU SUẤT TẤT CẢ ĐẠI LÝ (SET-BASED)
+    // =====================================================
+
+    /**
+     * Tổng doanh số mọi đại lý (kể cả đại lý chưa bán): [dealerId, dealerName, revenue, orderCount]
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_TIMEOUT, value = ReportRepository.QUERY_TIMEOUT_SECONDS))
+    @Query("SELECT d.id, d.dealerName, COALESCE(SUM(r.totalRevenue), 0), COALESCE(SUM(r.orderCount), 0) " +
+            "FROM Dealer d " +
+            "LEFT JOIN SalesDailyRollup r ON r.dealerId = d.id " +
+            "AND r.salesDate BETWEEN :startDate AND :endDate " +
+            "GROUP BY d.id, d.dealerName")
+    List<Object[]> getAllDealerTotals(
+            @Param("startDate") LocalDate startDate,
+            @Param("endDate") LocalDate endDate
+    );
+
+    /**
+     * Doanh số theo tháng của nhiều đại lý: [dealerId, month, revenue, orderCount]
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_TIMEOUT, value = ReportRepository.QUERY_TIMEOUT_SECONDS))
+    @Query(value = "SELECT " +
+            "dealer_id, " +
+            "DATE_FORMAT(sales_date, '%Y-%m') as month, " +
+            "SUM(total_revenue) as revenue, " +
+            "SUM(order_count) as order_count " +
+            "FROM sales_daily_rollup " +
+            "WHERE dealer_id IN (:dealerIds) " +
+            "AND sales_date BETWEEN :startDate AND :endDate " +
+            "GROUP BY dealer_id, DATE_FORMAT(sales_date, '%Y-%m') " +
+            "HAVING SUM(order_count) > 0 " +
+            "ORDER BY dealer_id, month",
+            nativeQuery = true)
+    List<Object[]> getDealersSalesByMonth(
+            @Param("dealerIds") Collection<Long> dealerIds,
+            @Param("startDate") LocalDate startDate,
+            @Param("endDate") LocalDate endDate
+    );
+
+    /**
+     * Phân tích sản phẩm của nhiều đại lý: [dealerId, productId, productName, unitsSold, revenue]
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_TIMEOUT, value = ReportRepository.QUERY_TIMEOUT_SECONDS))
+    @Query("SELECT r.dealerId, p.id, p.productName, SUM(r.orderCount), SUM(r.totalRevenue) " +
+            "FROM SalesDailyRollup r " +
+            "JOIN Product p ON p.id = r.productId " +
+            "WHERE r.dealerId IN :dealerIds " +
+            "AND r.salesDate BETWEEN :startDate AND :endDate " +
+            "GROUP BY r.dealerId, p.id, p.productName " +
+            "HAVING SUM(r.orderCount) > 0 " +
+            "ORDER BY r.dealerId, SUM(r.totalRevenue) DESC")
+    List<Object[]> getDealersProductBreakdown(
+            @Param("dealerIds") Collection<Long> dealerIds,
+            @Param("startDate") LocalDate startDate,
+            @Param("endDate") LocalDate endDate
+    );
+
+    /**
+     * Phân tích sản phẩm của đại lý: [productId, productName, unitsSold, revenue]
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_TIMEOUT, value = ReportRepository.QUERY_TIMEOUT_SECONDS))
+    @Query("SELECT p.id, p.productName, SUM(r.orderCount), SUM(r.totalRevenue) " +
+            "FROM SalesDailyRollup r " +
+            "JOIN Product p ON p.id = r.productId " +
+            "WHERE r.dealerId = :dealerId " +
+            "AND r.salesDate BETWEEN :startDate AND :endDate " +
+            "GROUP BY p.id, p.productName " +
+            "HAVING SUM(r.orderCount) > 0 " +
+            "ORDER BY SUM(r.totalRevenue) DESC")
+    List<Object[]> getDealerProductBreakdown(
+            @Param("dealerId") Long dealerId,
+            @Param("startDate") LocalDate startDate,
+            @Param("endDate") LocalDate endDate
+    );
+    // =====================================================
+    // ĐỌC: SO SÁNH NHIỀU KỲ (MoM / QoQ / YoY)
+    // =====================================================
+
+    /**
+     * Kỳ hiện tại + 3 kỳ so sánh trong một lần quét rollup, theo (đại lý, sản phẩm):
+     * [dealerId, dealerName, productId, productName,
+     *  curOrders, curRevenue, curDiscount, momOrders, momRevenue, momDiscount,
+     *  qoqOrders, qoqRevenue, qoqDiscount, yoyOrders, yoyRevenue, yoyDiscount]
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_TIMEOUT, value = ReportRepository.QUERY_TIMEOUT_SECONDS))
+    @Query(value = "SELECT c.dealer_id, d.dealer_name, c.product_id, p.product_name, " +
+            "c.cur_orders, c.cur_revenue, c.cur_discount, " +
+            "c.mom_orders, c.mom_revenue, c.mom_discount, " +
+            "c.qoq_orders, c.qoq_revenue, c.qoq_discount, " +
+            "c.yoy_orders, c.yoy_revenue, c.yoy_discount " +
+            "FROM (" +
+            "SELECT dealer_id, product_id, " +
+            "  SUM(CASE WHEN sales_date BETWEEN :startDate AND :endDate THEN order_count ELSE 0 END) AS cur_orders, " +
+            "  SUM(CASE WHEN sales_date BETWEEN :startDate AND :endDate THEN total_revenue ELSE 0 END) AS cur_revenue, " +
+            "  SUM(CASE WHEN sales_date BETWEEN :startDate AND :endDate THEN total_discount ELSE 0 END) AS cur_discount, " +
+            "  SUM(CASE WHEN sales_date BETWEEN :momStart AND :momEnd THEN order_count ELSE 0 END) AS mom_orders, " +
+            "  SUM(CASE WHEN sales_date BETWEEN :momStart AND :momEnd THEN total_revenue ELSE 0 END) AS mom_revenue, " +
+            "  SUM(CASE WHEN sales_date BETWEEN :momStart AND :momEnd THEN total_discount ELSE 0 END) AS mom_discount, " +
+            "  SUM(CASE WHEN sales_date BETWEEN :qoqStart AND :qoqEnd THEN order_count ELSE 0 END) AS qoq_orders, " +
+            "  SUM(CASE WHEN sales_date BETWEEN :qoqStart AND :qoqEnd THEN total_revenue ELSE 0 END) AS qoq_revenue, " +
+            "  SUM(CASE WHEN sales_date BETWEEN :qoqStart AND :qoqEnd THEN total_discount ELSE 0 END) AS qoq_discount, " +
+            "  SUM(CASE WHEN sales_date BETWEEN :yoyStart AND :yoyEnd THEN order_count ELSE 0 END) AS yoy_orders, " +
+            "  SUM(CASE WHEN sales_date BETWEEN :yoyStart AND :yoyEnd THEN total_revenue ELSE 0 END) AS yoy_revenue, " +
+            "  SUM(CASE WHEN sales_date BETWEEN :yoyStart AND :yoyEnd THEN total_discount ELSE 0 END) AS yoy_discount " +
+            "FROM sales_daily_rollup " +
+            "WHERE (sales_date BETWEEN :startDate AND :endDate " +
+            "  OR sales_date BETWEEN :momStart AND :momEnd " +
+            "  OR sales_date BETWEEN :qoqStart AND :qoqEnd " +
+            "  OR sales_date BETWEEN :yoyStart AND :yoyEnd) " +
+            "AND (:dealerId IS NULL OR dealer_id = :dealerId) " +
+            "GROUP BY dealer_id, product_id" +
+            ") c " +
+            "LEFT JOIN dealer d ON d.dealer_id = c.dealer_id " +
+            "LEFT JOIN product p ON p.product_id = c.product_id",
+            nativeQuery = true)
+    List<Object[]> getPeriodComparison(
+            @Param("startDate") LocalDate startDate,
+            @Param("endDate") LocalDate endDate,
+            @Param("momStart") LocalDate momStart,
+            @Param("momEnd") LocalDate momEnd,
+            @Param("qoqStart") LocalDate qoqStart,
+            @Param("qoqEnd") LocalDate qoqEnd,
+            @Param("yoyStart") LocalDate yoyStart,
+            @Param("yoyEnd") LocalDate yoyEnd,
+            @Param("dealerId") Long dealerId
+    );
+}
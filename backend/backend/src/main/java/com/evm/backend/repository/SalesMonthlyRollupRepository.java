@@ -0,0 +1,117 @@
+package com.evm.backend.repository;
+
+import com.evm.backend.entity.SalesMonthlyRollup;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface SalesMonthlyRollupRepository extends JpaRepository<SalesMonthlyRollup, Long> {
+
+    // =====================================================
+    // GHI: CẬP NHẬT TĂNG DẦN
+    // =====================================================
+
+    /**
+     * Cộng delta vào dòng rollup tháng (tạo mới nếu chưa có)
+     */
+    @Modifying
+    @Query(value = "INSERT INTO sales_monthly_rollup " +
+            "(sales_month, dealer_id, order_count, total_revenue, total_discount) " +
+            "VALUES (:salesMonth, :dealerId, :orderDelta, :revenueDelta, :discountDelta) " +
+            "ON DUPLICATE KEY UPDATE " +
+            "order_count = order_count + VALUES(order_count), " +
+            "total_revenue = total_revenue + VALUES(total_revenue), " +
+            "total_discount = total_discount + VALUES(total_discount)",
+            nativeQuery = true)
+    int applyDelta(
+            @Param("salesMonth") LocalDate salesMonth,
+            @Param("dealerId") Long dealerId,
+            @Param("orderDelta") long orderDelta,
+            @Param("revenueDelta") BigDecimal revenueDelta,
+            @Param("discountDelta") BigDecimal discountDelta
+    );
+
+    @Modifying
+    @Query(value = "DELETE FROM sales_monthly_rollup " +
+            "WHERE sales_month = :salesMonth " +
+            "AND dealer_id = :dealerId " +
+            "AND order_count <= 0",
+            nativeQuery = true)
+    int deleteIfEmpty(
+            @Param("salesMonth") LocalDate salesMonth,
+            @Param("dealerId") Long dealerId
+    );
+
+    // =====================================================
+    // REBUILD / BACKFILL
+    // =====================================================
+
+    @Modifying
+    @Query(value = "DELETE FROM sales_monthly_rollup", nativeQuery = true)
+    int deleteAllRows();
+
+    /**
+     * Tính lại rollup tháng từ rollup ngày
+     */
+    @Modifying
+    @Query(value = "INSERT INTO sales_monthly_rollup " +
+            "(sales_month, dealer_id, order_count, total_revenue, total_discount) " +
+            "SELECT " +
+            "DATE_SUB(sales_date, INTERVAL DAYOFMONTH(sales_date) - 1 DAY) as sales_month, " +
+            "dealer_id, " +
+            "SUM(order_count), " +
+            "SUM(total_revenue), " +
+            "SUM(total_discount) " +
+            "FROM sales_daily_rollup " +
+            "GROUP BY sales_month, dealer_id",
+            nativeQuery = true)
+    int rebuildFromDailyRollup();
+
+    // =====================================================
+    // ĐỌC: DOANH SỐ THEO KỲ
+    // =====================================================
+
+    /**
+     * Tháng đầu tiên có doanh số (null nếu chưa có dữ liệu)
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_TIMEOUT, value = ReportRepository.QUERY_TIMEOUT_SECONDS))
+    @Query("SELECT MIN(r.salesMonth) FROM SalesMonthlyRollup r")
+    LocalDate findFirstMonth();
+
+    /**
+     * Doanh thu theo kỳ MONTH / QUARTER / YEAR: [bucketStart, revenue, orderCount]
+     * startMonth, endMonth: ngày đầu tháng (chỉ gồm các tháng trọn vẹn)
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_TIMEOUT, value = ReportRepository.QUERY_TIMEOUT_SECONDS))
+    @Query(value = "SELECT " +
+            "CASE :groupBy " +
+            "  WHEN 'YEAR' THEN MAKEDATE(YEAR(sales_month), 1) " +
+            "  WHEN 'QUARTER' THEN MAKEDATE(YEAR(sales_month), 1) + INTERVAL (QUARTER(sales_month) - 1) QUARTER " +
+            "  ELSE sales_month " +
+            "END as bucket, " +
+            "SUM(total_revenue) as revenue, " +
+            "SUM(order_count) as order_count " +
+            "FROM sales_monthly_rollup " +
+            "WHERE sales_month BETWEEN :startMonth AND :endMonth " +
+            "AND (:dealerId IS NULL OR dealer_id = :dealerId) " +
+            "GROUP BY bucket " +
+            "HAVING SUM(order_count) > 0 " +
+            "ORDER BY bucket",
+            nativeQuery = true)
+    List<Object[]> getSalesByBucket(
+            @Param("startMonth") LocalDate startMonth,
+            @Param("endMonth") LocalDate endMonth,
+            @Param("dealerId") Long dealerId,
+            @Param("groupBy") String groupBy
+    );
+}
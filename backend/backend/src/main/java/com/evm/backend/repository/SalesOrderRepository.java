@@ -3,7 +3,9 @@ package com.evm.backend.repository;
 import com.evm.backend.entity.SalesOrder;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -12,11 +14,12 @@ import org.springframework.stereotype.Repository;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.OffsetDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface SalesOrderRepository extends JpaRepository<SalesOrder, Long> {
+public interface SalesOrderRepository extends JpaRepository<SalesOrder, Long>, JpaSpecificationExecutor<SalesOrder> {
 
     /**
      * Tìm tất cả orders của customer
@@ -39,36 +42,20 @@ public interface SalesOrderRepository extends JpaRepository<SalesOrder, Long> {
     List<SalesOrder> findByStatus(String status);
 
     /**
-     * Tìm orders với filter
+     * Phân trang orders với filter - bước 1: chỉ lấy id của trang hiện tại
+     * LIMIT/OFFSET và sort (Pageable) chạy trong DB trên bảng sales_order, không JOIN FETCH
      */
-    // Repository
-    @Query("""
-    SELECT DISTINCT o FROM SalesOrder o
-    LEFT JOIN FETCH o.vehicle v
-    LEFT JOIN FETCH v.product p
-    LEFT JOIN FETCH p.brand b
-    LEFT JOIN FETCH o.customer c
-    LEFT JOIN FETCH o.salesPerson sp
+    @Query(value = """
+    SELECT o.id FROM SalesOrder o
     WHERE (:customerId IS NULL OR o.customer.id = :customerId)
     AND (:salesPersonId IS NULL OR o.salesPerson.id = :salesPersonId)
     AND (:vehicleId IS NULL OR o.vehicle.id = :vehicleId)
     AND (:status IS NULL OR o.status = :status)
     AND (:fromDate IS NULL OR o.orderDate >= :fromDate)
     AND (:toDate IS NULL OR o.orderDate <= :toDate)
-    ORDER BY o.orderDate DESC
-    """)
-    List<SalesOrder> findOrdersWithFilters(
-            @Param("customerId") Long customerId,
-            @Param("salesPersonId") Long salesPersonId,
-            @Param("vehicleId") String vehicleId,
-            @Param("status") String status,
-            @Param("fromDate") LocalDate fromDate,
-            @Param("toDate") LocalDate toDate
-    );
-
-    // Count query riêng
-    @Query("""
-    SELECT COUNT(DISTINCT o.id) FROM SalesOrder o
+    """,
+    countQuery = """
+    SELECT COUNT(o.id) FROM SalesOrder o
     WHERE (:customerId IS NULL OR o.customer.id = :customerId)
     AND (:salesPersonId IS NULL OR o.salesPerson.id = :salesPersonId)
     AND (:vehicleId IS NULL OR o.vehicle.id = :vehicleId)
@@ -76,28 +63,39 @@ public interface SalesOrderRepository extends JpaRepository<SalesOrder, Long> {
     AND (:fromDate IS NULL OR o.orderDate >= :fromDate)
     AND (:toDate IS NULL OR o.orderDate <= :toDate)
     """)
-    Long countOrdersWithFilters(
+    Page<Long> findOrderIdsWithFilters(
             @Param("customerId") Long customerId,
             @Param("salesPersonId") Long salesPersonId,
             @Param("vehicleId") String vehicleId,
             @Param("status") String status,
             @Param("fromDate") LocalDate fromDate,
-            @Param("toDate") LocalDate toDate
+            @Param("toDate") LocalDate toDate,
+            Pageable pageable
     );
 
+    /**
+     * Phân trang orders với filter - bước 2: tải vehicle/product/brand/customer/salesPerson
+     * cho đúng các id của trang (thứ tự do service sắp lại theo bước 1)
+     */
+    @Query("""
+    SELECT o FROM SalesOrder o
+    LEFT JOIN FETCH o.vehicle v
+    LEFT JOIN FETCH v.product p
+    LEFT JOIN FETCH p.brand b
+    LEFT JOIN FETCH o.customer c
+    LEFT JOIN FETCH o.salesPerson sp
+    WHERE o.id IN :ids
+    """)
+    List<SalesOrder> findAllWithListDetailsByIdIn(@Param("ids") Collection<Long> ids);
+
     /**
      * Tìm order với đầy đủ thông tin (Bao gồm các mối quan hệ lồng nhau)
+     * - Quan hệ 1-1 (vehicle -> product -> brand, customer, salesPerson) JOIN trong cùng câu SELECT (entity graph)
+     * - payments, orderPromotions -> promotion nạp khi truy cập, mỗi collection một câu theo lô
+     *   (hibernate.default_batch_fetch_size), không JOIN FETCH hai collection gây tích Đề-các payments x promotions
      */
-    @Query("SELECT DISTINCT o FROM SalesOrder o " +
-            "LEFT JOIN FETCH o.vehicle v " +          // Tải Vehicle
-            "LEFT JOIN FETCH v.product p " +          // Tải Product (từ Vehicle)
-            "LEFT JOIN FETCH p.brand b " +            // Tải Brand (từ Product)
-            "LEFT JOIN FETCH o.customer " +
-            "LEFT JOIN FETCH o.salesPerson " +
-            "LEFT JOIN FETCH o.payments " +
-            "LEFT JOIN FETCH o.orderPromotions op " + // Tải OrderPromotion
-            "LEFT JOIN FETCH op.promotion " +         // Tải Promotion (từ OrderPromotion)
-            "WHERE o.id = :orderId")
+    @EntityGraph(attributePaths = {"vehicle.product.brand", "customer", "salesPerson"})
+    @Query("SELECT o FROM SalesOrder o WHERE o.id = :orderId")
     Optional<SalesOrder> findByIdWithDetails(@Param("orderId") Long orderId);
 
     /**
@@ -108,6 +106,14 @@ public interface SalesOrderRepository extends JpaRepository<SalesOrder, Long> {
             "AND o.status IN ('PAID', 'COMPLETED')")
     boolean existsByVehicleIdAndSold(@Param("vehicleId") String vehicleId);
 
+    /**
+     * Trong các vehicle cho trước, lấy những vehicle đã được bán (một truy vấn IN)
+     */
+    @Query("SELECT DISTINCT o.vehicle.id FROM SalesOrder o " +
+            "WHERE o.vehicle.id IN :vehicleIds " +
+            "AND o.status IN ('PAID', 'COMPLETED')")
+    List<String> findSoldVehicleIds(@Param("vehicleIds") Collection<String> vehicleIds);
+
     /**
      * Lấy tổng doanh số theo sales person
      */
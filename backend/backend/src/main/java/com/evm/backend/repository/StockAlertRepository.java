@@ -0,0 +1,41 @@
+package com.evm.backend.repository;
+
+import com.evm.backend.entity.StockAlert;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface StockAlertRepository extends JpaRepository<StockAlert, Long> {
+
+    Optional<StockAlert> findByInventoryId(Long inventoryId);
+
+    /**
+     * Cảnh báo đang hoạt động: LOW_STOCK trước (số lượng tăng dần), sau đó OUT_OF_STOCK
+     */
+    @Query("SELECT a FROM StockAlert a " +
+            "ORDER BY a.alertType ASC, a.currentQuantity ASC, a.productName ASC")
+    List<StockAlert> findAllActive();
+
+    /**
+     * [inventoryId, alertType] của các bản ghi tồn kho đang có cảnh báo
+     */
+    @Query("SELECT a.inventoryId, a.alertType FROM StockAlert a WHERE a.inventoryId IN :inventoryIds")
+    List<Object[]> findAlertTypes(@Param("inventoryIds") Collection<Long> inventoryIds);
+
+    long countByAlertType(String alertType);
+
+    @Modifying
+    @Query("DELETE FROM StockAlert a WHERE a.inventoryId = :inventoryId")
+    int deleteByInventoryId(@Param("inventoryId") Long inventoryId);
+
+    @Modifying
+    @Query("DELETE FROM StockAlert a")
+    int deleteAllRows();
+}
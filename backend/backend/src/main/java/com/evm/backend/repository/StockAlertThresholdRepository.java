@@ -0,0 +1,29 @@
+package com.evm.backend.repository;
+
+import com.evm.backend.entity.StockAlertThreshold;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface StockAlertThresholdRepository extends JpaRepository<StockAlertThreshold, Long> {
+
+    /**
+     * Các ngưỡng có thể áp dụng cho (sản phẩm, đại lý); dealerId 0 = kho hãng
+     */
+    @Query("SELECT t FROM StockAlertThreshold t " +
+            "WHERE (t.productId IS NULL OR t.productId = :productId) " +
+            "AND (t.dealerId IS NULL OR t.dealerId = :dealerId)")
+    List<StockAlertThreshold> findApplicable(
+            @Param("productId") Long productId,
+            @Param("dealerId") Long dealerId
+    );
+
+    Optional<StockAlertThreshold> findByProductIdAndDealerId(Long productId, Long dealerId);
+
+    List<StockAlertThreshold> findAllByOrderByProductIdAscDealerIdAsc();
+}
@@ -1,6 +1,7 @@
 package com.evm.backend.repository;
 
 import com.evm.backend.entity.SupportTicket;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
@@ -19,15 +20,8 @@ public interface SupportTicketRepository extends JpaRepository<SupportTicket, Lo
     /**
      * Find ticket by ID with all details
      */
-    @Query("SELECT t FROM SupportTicket t " +
-            "LEFT JOIN FETCH t.customer c " +
-            "LEFT JOIN FETCH t.assignedUser u " +
-            "LEFT JOIN FETCH u.role " +
-            "LEFT JOIN FETCH t.salesOrder o " +
-            "LEFT JOIN FETCH t.vehicle v " +
-            "LEFT JOIN FETCH v.product p " +
-            "LEFT JOIN FETCH p.brand " +
-            "WHERE t.id = :ticketId")
+    @EntityGraph(attributePaths = {"customer", "assignedUser.role", "salesOrder", "vehicle.product.brand"})
+    @Query("SELECT t FROM SupportTicket t WHERE t.id = :ticketId")
     Optional<SupportTicket> findByIdWithDetails(@Param("ticketId") Long ticketId);
 
     /**
@@ -7,6 +7,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -32,6 +33,17 @@ public interface UserRepository extends JpaRepository<User, Long>, JpaSpecificat
             "WHERE u.id = :userId")
     Optional<User> findByIdWithDetails(@Param("userId") Long userId);
 
+    /**
+     * Find users by IDs in one IN query with role/brand/dealer (bulk order import)
+     */
+    @Query("SELECT u FROM User u " +
+            "LEFT JOIN FETCH u.role r " +
+            "LEFT JOIN FETCH u.brand b " +
+            "LEFT JOIN FETCH u.dealer d " +
+            "LEFT JOIN FETCH d.brand " +
+            "WHERE u.id IN :userIds")
+    List<User> findAllWithDetailsByIdIn(@Param("userIds") Collection<Long> userIds);
+
     /**
      * Find user by email
      */
@@ -4,11 +4,13 @@ import com.evm.backend.entity.Vehicle;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -32,6 +34,55 @@ public interface VehicleRepository extends JpaRepository<Vehicle, String> {
             "WHERE v.vin = :vin AND v.id <> :excludeId")
     boolean existsByVinAndIdNot(@Param("vin") String vin, @Param("excludeId") String excludeId);
 
+    /**
+     * Tìm nhiều vehicle trong một truy vấn IN, kèm product/dealer (dùng cho import đơn hàng)
+     */
+    @Query("SELECT v FROM Vehicle v " +
+            "LEFT JOIN FETCH v.product p " +
+            "LEFT JOIN FETCH p.brand " +
+            "LEFT JOIN FETCH v.dealer d " +
+            "LEFT JOIN FETCH d.brand " +
+            "WHERE v.id IN :ids")
+    List<Vehicle> findAllWithProductAndDealerByIdIn(@Param("ids") Collection<String> ids);
+
+    /**
+     * Đổi trạng thái có điều kiện (compare-and-set): chỉ cập nhật khi trạng thái hiện tại = expectedStatus
+     * Trả về 1 nếu giành được xe, 0 nếu xe không tồn tại hoặc đã bị giao dịch khác đổi trạng thái
+     */
+    @Modifying
+    @Query("UPDATE Vehicle v SET v.status = :newStatus " +
+            "WHERE v.id = :vehicleId AND v.status = :expectedStatus")
+    int updateStatusIfCurrent(
+            @Param("vehicleId") String vehicleId,
+            @Param("expectedStatus") String expectedStatus,
+            @Param("newStatus") String newStatus
+    );
+
+    /**
+     * Khóa (SELECT ... FOR UPDATE) các xe trong ids đang ở trạng thái status, trả về id của chúng
+     * Dùng trước updateStatusIfCurrent theo lô: giao dịch khác giành cùng xe phải chờ giao dịch này kết thúc
+     */
+    @Query(value = "SELECT v.vehicle_id FROM vehicle v " +
+            "WHERE v.vehicle_id IN (:ids) AND v.status = :status " +
+            "FOR UPDATE",
+            nativeQuery = true)
+    List<String> lockIdsByIdInAndStatus(
+            @Param("ids") Collection<String> ids,
+            @Param("status") String status
+    );
+
+    /**
+     * Đổi trạng thái có điều kiện cho nhiều xe (import theo lô), trả về số xe đã đổi
+     */
+    @Modifying
+    @Query("UPDATE Vehicle v SET v.status = :newStatus " +
+            "WHERE v.id IN :vehicleIds AND v.status = :expectedStatus")
+    int updateStatusIfCurrent(
+            @Param("vehicleIds") Collection<String> vehicleIds,
+            @Param("expectedStatus") String expectedStatus,
+            @Param("newStatus") String newStatus
+    );
+
     /**
      * Tìm tất cả vehicles của product
      */
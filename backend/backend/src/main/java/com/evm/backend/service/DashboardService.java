@@ -0,0 +1,16 @@
+package com.evm.backend.service;
+
+import com.evm.backend.dto.response.DashboardSummaryResponse;
+
+public interface DashboardService {
+
+    /**
+     * Snapshot dashboard (phục vụ từ bộ nhớ, tính lại khi hết hạn hoặc bị invalidate)
+     */
+    DashboardSummaryResponse getDashboardSummary();
+
+    /**
+     * Đánh dấu snapshot (và cache báo cáo) cũ sau khi transaction hiện tại commit
+     */
+    void invalidate();
+}
@@ -0,0 +1,32 @@
+package com.evm.backend.service;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface DealerSnapshotService {
+
+    /**
+     * Chốt snapshot cho các tháng đã đóng chưa có snapshot
+     * @return số tháng đã chốt
+     */
+    int finalizeClosedMonths();
+
+    /**
+     * Xóa snapshot của tháng đã đóng khi dữ liệu tháng đó thay đổi (sẽ được chốt lại lần chạy sau)
+     */
+    void invalidate(Long dealerId, LocalDate anyDayOfMonth);
+
+    void invalidateAll();
+
+    /**
+     * Doanh số theo tháng: snapshot cho tháng đã chốt + tính trực tiếp cho phần còn lại
+     * @return rows [month (yyyy-MM), revenue, orderCount, monthlyTarget (null nếu tính trực tiếp)]
+     */
+    List<Object[]> getMonthlySales(Long dealerId, LocalDate startDate, LocalDate endDate);
+
+    /**
+     * Cơ cấu sản phẩm: snapshot cho tháng đã chốt + tính trực tiếp cho phần còn lại
+     * @return rows [productId, productName, unitsSold, revenue], giảm dần theo doanh thu
+     */
+    List<Object[]> getProductBreakdown(Long dealerId, LocalDate startDate, LocalDate endDate);
+}
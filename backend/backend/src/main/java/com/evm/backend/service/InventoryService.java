@@ -35,7 +35,8 @@ public interface InventoryService {
     List<InventoryListResponse> getBrandWarehouseInventory();
 
     /**
-     * Get low stock inventory (available < threshold)
+     * Get low stock inventory (0 < available < threshold)
+     * threshold = null: rows with an active LOW_STOCK alert (per product / dealer thresholds)
      */
     List<InventoryListResponse> getLowStockInventory(Integer threshold);
 
@@ -0,0 +1,31 @@
+package com.evm.backend.service;
+
+import com.evm.backend.dto.response.LeaderboardResponse;
+import com.evm.backend.entity.SalesOrder;
+
+import java.util.List;
+
+public interface LeaderboardService {
+
+    /**
+     * Top-K của một bảng xếp hạng (đọc từ bộ nhớ)
+     * @param metric SALES_PERSONS, DEALERS, PRODUCTS
+     * @param window TODAY, MTD, QTD, YTD
+     */
+    LeaderboardResponse getLeaderboard(String metric, String window, int limit);
+
+    /**
+     * Top-K của cả ba bảng xếp hạng trong một khung thời gian
+     */
+    List<LeaderboardResponse> getLeaderboards(String window, int limit);
+
+    /**
+     * Cộng (sign = 1) hoặc trừ (sign = -1) một đơn hàng sau khi transaction hiện tại commit
+     */
+    void applyOrder(SalesOrder order, int sign);
+
+    /**
+     * Nạp lại toàn bộ bảng xếp hạng từ rollup (sau khi transaction hiện tại commit)
+     */
+    void reload();
+}
@@ -2,6 +2,7 @@ package com.evm.backend.service;
 
 import com.evm.backend.dto.request.PaymentFilterRequest;
 import com.evm.backend.dto.request.PaymentRequest;
+import com.evm.backend.dto.response.CursorPageResponse;
 import com.evm.backend.dto.response.PaymentDetailResponse;
 import com.evm.backend.dto.response.PaymentListResponse;
 import org.springframework.data.domain.Page;
@@ -20,6 +21,11 @@ public interface PaymentService {
      */
     Page<PaymentListResponse> getAllPayments(PaymentFilterRequest filterRequest);
 
+    /**
+     * Get payments with keyset (cursor) pagination, without total count
+     */
+    CursorPageResponse<PaymentListResponse> getPaymentsByCursor(PaymentFilterRequest filterRequest);
+
     /**
      * Get payments by order ID
      */
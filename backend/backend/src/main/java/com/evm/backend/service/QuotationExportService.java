@@ -0,0 +1,22 @@
+package com.evm.backend.service;
+
+import com.evm.backend.dto.request.QuotationFilterRequest;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+public interface QuotationExportService {
+
+    /**
+     * Id báo giá sẽ xuất theo filter (mới nhất trước)
+     * Kiểm tra trước khi bắt đầu stream: không có báo giá / vượt giới hạn -> 400
+     */
+    List<Long> findQuotationIdsForExport(QuotationFilterRequest filter);
+
+    /**
+     * Dựng PDF song song trên pool giới hạn, ghi từng file vào ZIP ngay khi xong
+     * Báo giá dựng lỗi được liệt kê trong errors.txt của ZIP
+     */
+    void exportPdfZip(List<Long> quotationIds, OutputStream outputStream) throws IOException;
+}
@@ -0,0 +1,65 @@
+package com.evm.backend.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+
+public interface QuotationPdfCacheService {
+
+    /**
+     * PDF của báo giá từ cache trên đĩa (key = quotation id + hash nội dung được in)
+     * Chưa có hoặc nội dung đã đổi -> dựng lại và lưu file mới; file của nội dung cũ do evict / purgeStaleVersions xóa
+     * Chỉ trả đường dẫn: file vẫn có thể bị evict xóa trước khi mở, người gọi phải xử lý NoSuchFileException
+     */
+    CachedPdf getPdf(Long quotationId);
+
+    /**
+     * Như getPdf nhưng mở sẵn file trước khi trả về: file đã mở vẫn đọc được đến hết dù bị xóa sau đó
+     * File bị xóa giữa lúc dựng và lúc mở -> dựng lại
+     * Người gọi phải đóng OpenedPdf
+     */
+    OpenedPdf openPdf(Long quotationId);
+
+    /**
+     * Xóa PDF của nội dung cũ (không phải bản mới nhất của báo giá) và file tạm bỏ dở quá thời gian lưu
+     */
+    int purgeStaleVersions();
+
+    /**
+     * Xóa mọi PDF đã cache của báo giá (sau khi transaction hiện tại commit)
+     */
+    void evict(Long quotationId);
+
+    /**
+     * File PDF đã cache, ETag = hash nội dung
+     */
+    @Getter
+    @AllArgsConstructor
+    class CachedPdf {
+        private final Path file;
+        private final long size;
+        private final String etag;
+        private final String fileName;
+    }
+
+    /**
+     * PDF đã cache đang mở, size lấy từ file đã mở (khớp với số byte đọc được)
+     */
+    @Getter
+    @AllArgsConstructor
+    class OpenedPdf implements Closeable {
+        private final InputStream inputStream;
+        private final long size;
+        private final String etag;
+        private final String fileName;
+
+        @Override
+        public void close() throws IOException {
+            inputStream.close();
+        }
+    }
+}
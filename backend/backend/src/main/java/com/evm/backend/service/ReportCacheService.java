@@ -0,0 +1,48 @@
+package com.evm.backend.service;
+
+import com.evm.backend.dto.request.ReportFilterRequest;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+public interface ReportCacheService {
+
+    /**
+     * Kết quả còn hợp lệ trong cache, null nếu chưa có hoặc đã cũ (không tính lại)
+     */
+    <T> CachedReport<T> getIfPresent(String reportName, ReportFilterRequest filter);
+
+    /**
+     * Lấy kết quả báo cáo từ cache (key = tên báo cáo + filter đã chuẩn hóa), tính lại nếu chưa có
+     * hoặc đã cũ (data version thay đổi / quá hạn)
+     */
+    <T> CachedReport<T> getOrCompute(String reportName, ReportFilterRequest filter, Supplier<T> loader);
+
+    /**
+     * Như trên, nhưng chỉ lưu kết quả thỏa cacheable (ví dụ: bỏ qua báo cáo partial)
+     */
+    <T> CachedReport<T> getOrCompute(String reportName, ReportFilterRequest filter,
+                                     Supplier<T> loader, Predicate<T> cacheable);
+
+    /**
+     * Version dữ liệu hiện tại (tăng mỗi lần có ghi đơn hàng/thanh toán/tồn kho)
+     */
+    long getDataVersion();
+
+    /**
+     * Tăng data version, toàn bộ kết quả trong cache trở thành cũ
+     */
+    void bumpDataVersion();
+
+    /**
+     * Kết quả báo cáo kèm ETag (null nếu kết quả không được cache)
+     */
+    @Getter
+    @AllArgsConstructor
+    class CachedReport<T> {
+        private final T value;
+        private final String etag;
+    }
+}
@@ -0,0 +1,30 @@
+package com.evm.backend.service;
+
+import com.evm.backend.dto.request.ReportFilterRequest;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.util.function.Supplier;
+
+public interface ReportGuardService {
+
+    /**
+     * Kiểm tra khoảng thời gian của filter theo vai trò người gọi (vượt giới hạn -> BadRequestException)
+     */
+    void checkDateSpan(ReportFilterRequest filter);
+
+    /**
+     * Chạy báo cáo nặng trên thread pool riêng, trong transaction chỉ đọc có timeout
+     * - Đủ số báo cáo chạy đồng thời: từ chối ngay (429 + Retry-After)
+     * - Quá thời gian: hủy truy vấn đang chạy trên DB, trả 504 (ReportTimeoutException, không có Retry-After)
+     * - Client ngắt kết nối: hủy truy vấn đang chạy trên DB
+     */
+    <T> DeferredResult<T> submit(String reportName, Supplier<T> work);
+
+    /**
+     * Như submit nhưng không mở transaction ngoài, dành cho báo cáo fan-out (CompositeReportExecutor):
+     * transaction ngoài sẽ giữ một connection rảnh trong lúc các nhánh mở connection riêng,
+     * với nhiều báo cáo đồng thời có thể làm cạn connection pool
+     * Các nhánh vẫn dùng chung thời hạn, giới hạn đồng thời và lệnh hủy của guard
+     */
+    <T> DeferredResult<T> submitFanOut(String reportName, Supplier<T> work);
+}
@@ -0,0 +1,31 @@
+package com.evm.backend.service;
+
+import com.evm.backend.dto.request.ReportJobRequest;
+import com.evm.backend.dto.response.ReportJobResponse;
+
+import java.nio.file.Path;
+import java.util.List;
+
+public interface ReportJobService {
+
+    /**
+     * Tạo job mới, hoặc trả về job đang chạy với cùng tham số
+     * Hàng đợi đầy -> TooManyRequestsException (429 + Retry-After)
+     */
+    ReportJobResponse submit(ReportJobRequest request, String requestedBy);
+
+    ReportJobResponse getJob(String jobId);
+
+    List<ReportJobResponse> getJobs();
+
+    /**
+     * File kết quả của job đã hoàn thành
+     */
+    Path getArtifact(String jobId);
+
+    /**
+     * Xóa job và file đã hết hạn
+     * @return số job đã xóa
+     */
+    int purgeExpired();
+}
@@ -2,6 +2,9 @@ package com.evm.backend.service;
 
 import com.evm.backend.dto.request.ReportFilterRequest;
 import com.evm.backend.dto.response.*;
+import org.springframework.data.domain.Page;
+
+import java.io.OutputStream;
 
 public interface ReportService {
 
@@ -10,16 +13,19 @@ public interface ReportService {
 
     // D.2: Inventory Reports
     InventoryReportResponse getInventoryReport(ReportFilterRequest filter);
+    InventoryReportResponse getInventorySummary();
+    InventoryReportResponse getInventoryReportPage(ReportFilterRequest filter, String cursor, Integer size);
+    void streamInventoryReport(ReportFilterRequest filter, OutputStream outputStream);
 
     // C.1, C.2: Dealer Performance
     DealerPerformanceResponse getDealerPerformance(Long dealerId, ReportFilterRequest filter);
-    java.util.List<DealerPerformanceResponse> getAllDealersPerformance(ReportFilterRequest filter);
+    Page<DealerPerformanceResponse> getAllDealersPerformance(ReportFilterRequest filter);
 
     // Revenue Report
     RevenueReportResponse getRevenueReport(ReportFilterRequest filter);
 
     // Export functions
-    byte[] exportSalesReportToExcel(ReportFilterRequest filter);
-    byte[] exportInventoryReportToExcel(ReportFilterRequest filter);
+    void exportSalesReportToExcel(ReportFilterRequest filter, OutputStream outputStream);
+    void exportInventoryReportToExcel(ReportFilterRequest filter, OutputStream outputStream);
     byte[] exportDealerPerformanceToPdf(Long dealerId, ReportFilterRequest filter);
 }
\ No newline at end of file
@@ -0,0 +1,29 @@
+package com.evm.backend.service;
+
+import com.evm.backend.dto.request.CubeQueryRequest;
+import com.evm.backend.dto.response.CubeQueryResponse;
+import com.evm.backend.entity.SalesOrder;
+
+public interface SalesCubeService {
+
+    /**
+     * Lọc, gom nhóm, tổng hợp trên dữ liệu dạng cột trong bộ nhớ (song song theo đoạn)
+     */
+    CubeQueryResponse query(CubeQueryRequest request);
+
+    /**
+     * Ghi nhận trạng thái mới của đơn hàng sau khi transaction hiện tại commit
+     */
+    void upsertOrder(SalesOrder order);
+
+    /**
+     * Gỡ đơn hàng khỏi cube sau khi transaction hiện tại commit
+     */
+    void removeOrder(SalesOrder order);
+
+    /**
+     * Build lại toàn bộ cube từ sales_order
+     * @return số dòng
+     */
+    int rebuild();
+}
@@ -0,0 +1,14 @@
+package com.evm.backend.service;
+
+import com.evm.backend.dto.response.SalesOrderImportResponse;
+import org.springframework.web.multipart.MultipartFile;
+
+public interface SalesOrderImportService {
+
+    /**
+     * Import đơn hàng từ file CSV/XLSX (dòng đầu là header, tên cột theo SalesOrderRequest)
+     * - Dòng lỗi (thiếu/sai dữ liệu, vehicle/customer/sales person không tồn tại, xe đã bán) bị bỏ qua và báo lỗi theo dòng
+     * - Dòng hợp lệ được tạo đơn trong cùng một transaction
+     */
+    SalesOrderImportResponse importOrders(MultipartFile file);
+}
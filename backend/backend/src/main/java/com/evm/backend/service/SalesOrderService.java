@@ -3,6 +3,7 @@ package com.evm.backend.service;
 import com.evm.backend.dto.request.AssignVehicleRequest;
 import com.evm.backend.dto.request.SalesOrderFilterRequest;
 import com.evm.backend.dto.request.SalesOrderRequest;
+import com.evm.backend.dto.response.CursorPageResponse;
 import com.evm.backend.dto.response.SalesOrderDetailResponse;
 import com.evm.backend.dto.response.SalesOrderListResponse;
 import org.springframework.data.domain.Page;
@@ -16,6 +17,11 @@ public interface SalesOrderService {
      */
     Page<SalesOrderListResponse> getAllOrders(SalesOrderFilterRequest filterRequest);
 
+    /**
+     * Lấy danh sách orders phân trang keyset (cursor), không đếm tổng
+     */
+    CursorPageResponse<SalesOrderListResponse> getOrdersByCursor(SalesOrderFilterRequest filterRequest);
+
     /**
      * Lấy recent orders (7 ngày gần nhất)
      */
@@ -33,11 +39,13 @@ public interface SalesOrderService {
 
     /**
      * Tạo order mới
+     * Xe phải đang AVAILABLE và được giữ cho đơn (AVAILABLE -> RESERVED); xe ở trạng thái khác -> 400
      */
     SalesOrderDetailResponse createOrder(SalesOrderRequest request);
 
     /**
      * Cập nhật order
+     * Đổi sang xe khác: xe mới phải AVAILABLE và được giữ cho đơn (khác -> 400), xe cũ trả về AVAILABLE
      */
     SalesOrderDetailResponse updateOrder(Long orderId, SalesOrderRequest request);
 
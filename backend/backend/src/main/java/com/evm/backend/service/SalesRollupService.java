@@ -0,0 +1,31 @@
+package com.evm.backend.service;
+
+import com.evm.backend.entity.SalesOrder;
+
+import java.util.Collection;
+
+/**
+ * Duy trì bảng tổng hợp doanh số theo ngày (sales_daily_rollup)
+ */
+public interface SalesRollupService {
+
+    /**
+     * Cộng đóng góp hiện tại của order vào rollup (gọi sau khi tạo/cập nhật)
+     */
+    void recordOrder(SalesOrder order);
+
+    /**
+     * Như recordOrder cho nhiều order (import): gộp delta theo khóa rollup, mỗi khóa một câu upsert
+     */
+    void recordOrders(Collection<SalesOrder> orders);
+
+    /**
+     * Trừ đóng góp hiện tại của order khỏi rollup (gọi trước khi thay đổi/xóa)
+     */
+    void retractOrder(SalesOrder order);
+
+    /**
+     * Tính lại toàn bộ rollup từ sales_order, trả về số dòng rollup
+     */
+    long rebuild();
+}
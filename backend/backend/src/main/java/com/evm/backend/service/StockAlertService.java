@@ -0,0 +1,54 @@
+package com.evm.backend.service;
+
+import com.evm.backend.dto.request.StockAlertThresholdRequest;
+import com.evm.backend.dto.response.InventoryReportResponse;
+import com.evm.backend.dto.response.StockAlertThresholdResponse;
+import com.evm.backend.entity.Inventory;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+public interface StockAlertService {
+
+    /**
+     * Đánh giá lại cảnh báo của một bản ghi tồn kho (gọi trong transaction thay đổi số lượng)
+     */
+    void evaluate(Inventory inventory);
+
+    /**
+     * Gỡ cảnh báo khi bản ghi tồn kho bị xóa
+     */
+    void remove(Long inventoryId);
+
+    /**
+     * Cảnh báo đang hoạt động (đọc bảng stock_alert, không quét tồn kho)
+     */
+    List<InventoryReportResponse.StockAlert> getActiveAlerts();
+
+    /**
+     * Loại cảnh báo (StockAlert.LOW_STOCK / OUT_OF_STOCK) của các bản ghi tồn kho, bản ghi bình thường không có trong map
+     * Cờ tồn kho thấp / hết hàng trên DTO tồn kho đọc từ đây để khớp với cảnh báo
+     */
+    Map<Long, String> getAlertTypes(Collection<Long> inventoryIds);
+
+    /**
+     * Số cảnh báo đang hoạt động theo loại
+     */
+    long countAlerts(String alertType);
+
+    /**
+     * Tính lại toàn bộ cảnh báo từ bảng inventory
+     * @return số cảnh báo đang hoạt động
+     */
+    int rebuild();
+
+    List<StockAlertThresholdResponse> getThresholds();
+
+    /**
+     * Tạo hoặc cập nhật ngưỡng cho (sản phẩm, đại lý); cảnh báo được tính lại
+     */
+    StockAlertThresholdResponse saveThreshold(StockAlertThresholdRequest request);
+
+    void deleteThreshold(Long thresholdId);
+}
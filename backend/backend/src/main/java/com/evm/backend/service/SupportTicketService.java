@@ -2,6 +2,7 @@ package com.evm.backend.service;
 
 import com.evm.backend.dto.request.SupportTicketFilterRequest;
 import com.evm.backend.dto.request.SupportTicketRequest;
+import com.evm.backend.dto.response.CursorPageResponse;
 import com.evm.backend.dto.response.SupportTicketDetailResponse;
 import com.evm.backend.dto.response.SupportTicketListResponse;
 import org.springframework.data.domain.Page;
@@ -19,6 +20,11 @@ public interface SupportTicketService {
      */
     Page<SupportTicketListResponse> getAllTickets(SupportTicketFilterRequest filterRequest);
 
+    /**
+     * Get tickets with keyset (cursor) pagination, without total count
+     */
+    CursorPageResponse<SupportTicketListResponse> getTicketsByCursor(SupportTicketFilterRequest filterRequest);
+
     /**
      * Get tickets by customer
      */
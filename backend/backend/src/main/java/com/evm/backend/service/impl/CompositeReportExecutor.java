@@ -0,0 +1,190 @@
+package com.evm.backend.service.impl;
+
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Chạy song song các truy vấn độc lập của một báo cáo tổng hợp
+ * - Mỗi truy vấn chạy trên pool riêng, trong transaction read-only riêng (connection riêng)
+ * - Mỗi truy vấn có timeout riêng; quá hạn thì dùng giá trị mặc định và đánh dấu báo cáo là partial
+ * - Chỉ fork từ thread của request, không fork lồng nhau bên trong task của pool (tránh deadlock pool)
+ * - Chạy trong ReportGuardService: nhánh dùng thời hạn còn lại của guard (nếu ngắn hơn) và đăng ký Session với guard,
+ *   nên client ngắt kết nối / hết giờ thì các truy vấn của nhánh cũng bị hủy; hết thời hạn guard -> lỗi timeout (504)
+ *   thay vì trả partial
+ */
+@Component
+@Slf4j
+public class CompositeReportExecutor {
+
+    private final TaskExecutor reportQueryExecutor;
+    private final PlatformTransactionManager transactionManager;
+    private final EntityManagerFactory entityManagerFactory;
+    private final TransactionTemplate readOnlyTransaction;
+    private final long timeoutMs;
+
+    public CompositeReportExecutor(
+            @Qualifier("reportQueryExecutor") TaskExecutor reportQueryExecutor,
+            PlatformTransactionManager transactionManager,
+            EntityManagerFactory entityManagerFactory,
+            @Value("${app.reports.fanout.timeout-ms:5000}") long timeoutMs) {
+        this.reportQueryExecutor = reportQueryExecutor;
+        this.transactionManager = transactionManager;
+        this.entityManagerFactory = entityManagerFactory;
+        this.timeoutMs = timeoutMs;
+        this.readOnlyTransaction = readOnlyTransaction(TimeUnit.MILLISECONDS.toNanos(timeoutMs));
+    }
+
+    public Fanout begin(String reportName) {
+        return new Fanout(reportName, GuardedReportContext.current());
+    }
+
+    /**
+     * Transaction read-only riêng cho một nhánh; timeout của transaction được áp dụng làm JDBC query timeout
+     */
+    private TransactionTemplate readOnlyTransaction(long timeoutNanos) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(true);
+        transaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        transaction.setTimeout((int) Math.max(1, TimeUnit.NANOSECONDS.toSeconds(timeoutNanos + 999_999_999L)));
+        return transaction;
+    }
+
+    /**
+     * Một lần fan-out: fork các truy vấn, sau đó join lấy kết quả (hoặc giá trị mặc định)
+     */
+    public class Fanout {
+        private final String reportName;
+        // null: không chạy qua ReportGuardService
+        private final GuardedReportContext guard;
+        private final List<String> missingSections = Collections.synchronizedList(new ArrayList<>());
+
+        private Fanout(String reportName, GuardedReportContext guard) {
+            this.reportName = reportName;
+            this.guard = guard;
+        }
+
+        public <T> Branch<T> fork(String section, Supplier<T> query) {
+            long forkedAt = System.nanoTime();
+            CompletableFuture<T> future;
+            try {
+                TransactionTemplate transaction = branchTransaction();
+                future = CompletableFuture.supplyAsync(
+                        () -> transaction.execute(status -> runQuery(query)),
+                        reportQueryExecutor);
+            } catch (RejectedExecutionException e) {
+                // Pool đầy: nhánh này coi như lỗi, báo cáo trả về partial
+                future = CompletableFuture.failedFuture(e);
+            }
+            return new Branch<>(section, future, forkedAt);
+        }
+
+        /**
+         * Chờ kết quả trong thời hạn của nhánh; lỗi hoặc quá hạn -> fallback + ghi nhận section bị thiếu
+         */
+        public <T> T join(Branch<T> branch, T fallback) {
+            long remainingNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMs) - (System.nanoTime() - branch.forkedAt);
+            if (guard != null) {
+                remainingNanos = Math.min(remainingNanos, guard.remainingNanos());
+            }
+            try {
+                return branch.future.get(Math.max(0, remainingNanos), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                branch.future.cancel(true);
+                checkGuard(branch);
+                log.warn("{}: section '{}' timed out after {}ms, returning partial result",
+                        reportName, branch.section, timeoutMs);
+            } catch (ExecutionException e) {
+                checkGuard(branch);
+                log.error("{}: section '{}' failed, returning partial result",
+                        reportName, branch.section, e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                branch.future.cancel(true);
+            }
+            missingSections.add(branch.section);
+            return fallback;
+        }
+
+        public boolean isPartial() {
+            return !missingSections.isEmpty();
+        }
+
+        public List<String> getMissingSections() {
+            return new ArrayList<>(missingSections);
+        }
+
+        /**
+         * Thời hạn còn lại của guard ngắn hơn timeout fan-out: transaction của nhánh dùng thời hạn của guard
+         */
+        private TransactionTemplate branchTransaction() {
+            long guardRemainingNanos = guard != null ? guard.remainingNanos() : Long.MAX_VALUE;
+            return guardRemainingNanos < TimeUnit.MILLISECONDS.toNanos(timeoutMs) ?
+                    readOnlyTransaction(guardRemainingNanos) : readOnlyTransaction;
+        }
+
+        private <T> T runQuery(Supplier<T> query) {
+            if (guard == null) {
+                return query.get();
+            }
+            Session session = EntityManagerFactoryUtils
+                    .getTransactionalEntityManager(entityManagerFactory)
+                    .unwrap(Session.class);
+            guard.register(session);
+            try {
+                return query.get();
+            } finally {
+                guard.unregister(session);
+            }
+        }
+
+        /**
+         * Báo cáo bị hủy hoặc hết thời hạn của guard: dừng cả báo cáo (không trả partial)
+         */
+        private void checkGuard(Branch<?> branch) {
+            if (guard == null) {
+                return;
+            }
+            if (guard.isCancelled()) {
+                throw new CancellationException(reportName + " cancelled");
+            }
+            if (guard.isExpired()) {
+                guard.cancelQueries();
+                throw new QueryTimeoutException(reportName + ": section '" + branch.section
+                        + "' did not finish before the report deadline");
+            }
+        }
+    }
+
+    public static class Branch<T> {
+        private final String section;
+        private final CompletableFuture<T> future;
+        private final long forkedAt;
+
+        private Branch(String section, CompletableFuture<T> future, long forkedAt) {
+            this.section = section;
+            this.future = future;
+            this.forkedAt = forkedAt;
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.evm.backend.service.impl;
+
+import com.evm.backend.dto.request.ReportFilterRequest;
+import com.evm.backend.dto.response.DashboardSummaryResponse;
+import com.evm.backend.dto.response.InventoryReportResponse;
+import com.evm.backend.dto.response.RevenueReportResponse;
+import com.evm.backend.dto.response.SalesReportResponse;
+import com.evm.backend.service.DashboardService;
+import com.evm.backend.service.ReportCacheService;
+import com.evm.backend.service.ReportService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+@Service
+@Slf4j
+public class DashboardServiceImpl implements DashboardService {
+
+    private final ReportService reportService;
+    private final CompositeReportExecutor compositeReportExecutor;
+    // Giữ data version dùng chung với cache báo cáo; snapshot tính từ version cũ sẽ không được lưu
+    private final ReportCacheService reportCacheService;
+    private final Duration ttl;
+
+    private volatile Snapshot snapshot;
+
+    public DashboardServiceImpl(
+            ReportService reportService,
+            CompositeReportExecutor compositeReportExecutor,
+            ReportCacheService reportCacheService,
+            @Value("${app.reports.dashboard.ttl-seconds:30}") long ttlSeconds) {
+        this.reportService = reportService;
+        this.compositeReportExecutor = compositeReportExecutor;
+        this.reportCacheService = reportCacheService;
+        this.ttl = Duration.ofSeconds(ttlSeconds);
+    }
+
+    @Override
+    public DashboardSummaryResponse getDashboardSummary() {
+        Snapshot current = snapshot;
+        if (isFresh(current)) {
+            return current.summary;
+        }
+
+        // Chỉ một thread tính lại, các thread khác chờ và dùng kết quả
+        synchronized (this) {
+            current = snapshot;
+            if (isFresh(current)) {
+                return current.summary;
+            }
+
+            long version = reportCacheService.getDataVersion();
+            DashboardSummaryResponse summary = computeSummary();
+
+            // Snapshot thiếu dữ liệu (partial) không được lưu
+            Snapshot computed = new Snapshot(summary, version);
+            if (version == reportCacheService.getDataVersion() && !Boolean.TRUE.equals(summary.getPartial())) {
+                snapshot = computed;
+            }
+            return summary;
+        }
+    }
+
+    @Override
+    public void invalidate() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict();
+                }
+            });
+        } else {
+            evict();
+        }
+    }
+
+    // ===== HELPER METHODS =====
+
+    private void evict() {
+        reportCacheService.bumpDataVersion();
+        snapshot = null;
+    }
+
+    private boolean isFresh(Snapshot current) {
+        return current != null
+                && current.version == reportCacheService.getDataVersion()
+                && current.summary.getCurrentDate().equals(LocalDate.now())
+                && current.summary.getComputedAt().plus(ttl).isAfter(LocalDateTime.now());
+    }
+
+    private DashboardSummaryResponse computeSummary() {
+        long start = System.nanoTime();
+
+        LocalDate today = LocalDate.now();
+        LocalDate startOfMonth = today.withDayOfMonth(1);
+
+        ReportFilterRequest filter = ReportFilterRequest.builder()
+                .startDate(startOfMonth)
+                .endDate(today)
+                .build();
+
+        // Tồn kho và doanh thu chạy song song trên pool; báo cáo doanh số chạy trên thread hiện tại
+        // (bản thân nó cũng fan-out, không được chạy lồng trong pool)
+        CompositeReportExecutor.Fanout fanout = compositeReportExecutor.begin("Dashboard");
+        var inventoryBranch = fanout.fork("inventory", reportService::getInventorySummary);
+        var revenueBranch = fanout.fork("revenue", () -> reportService.getRevenueReport(filter));
+
+        // Aggregate data from multiple reports (tồn kho: chỉ thống kê, không nạp chi tiết)
+        SalesReportResponse salesReport = reportService.getSalesReport(filter);
+        InventoryReportResponse inventorySummary = fanout.join(inventoryBranch, new InventoryReportResponse());
+        RevenueReportResponse revenueReport = fanout.join(revenueBranch, new RevenueReportResponse());
+
+        List<String> missingSections = new ArrayList<>(salesReport.getMissingSections());
+        missingSections.addAll(fanout.getMissingSections());
+
+        DashboardSummaryResponse summary = DashboardSummaryResponse.builder()
+                .currentDate(today)
+                .computedAt(LocalDateTime.now())
+                .totalRevenue(salesReport.getTotalRevenue())
+                .totalOrders(salesReport.getTotalOrders())
+                .growthRate(salesReport.getGrowthRate())
+                .lowStockCount(inventorySummary.getLowStockCount())
+                .outOfStockCount(inventorySummary.getOutOfStockCount())
+                .totalPendingPayment(revenueReport.getTotalPending())
+                .topProducts(salesReport.getTopProducts())
+                .recentAlerts(inventorySummary.getAlerts())
+                .partial(!missingSections.isEmpty())
+                .missingSections(missingSections)
+                .build();
+
+        log.debug("Dashboard snapshot computed in {}ms", (System.nanoTime() - start) / 1_000_000);
+        return summary;
+    }
+
+    private static class Snapshot {
+        private final DashboardSummaryResponse summary;
+        private final long version;
+
+        private Snapshot(DashboardSummaryResponse summary, long version) {
+            this.summary = summary;
+            this.version = version;
+        }
+    }
+}
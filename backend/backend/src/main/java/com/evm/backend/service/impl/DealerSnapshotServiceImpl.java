@@ -0,0 +1,287 @@
+package com.evm.backend.service.impl;
+
+import com.evm.backend.entity.DealerContract;
+import com.evm.backend.entity.DealerMonthlyProductSnapshot;
+import com.evm.backend.entity.DealerMonthlySnapshot;
+import com.evm.backend.repository.DealerContractRepository;
+import com.evm.backend.repository.DealerMonthlyProductSnapshotRepository;
+import com.evm.backend.repository.DealerMonthlySnapshotRepository;
+import com.evm.backend.repository.SalesDailyRollupRepository;
+import com.evm.backend.repository.SalesMonthlyRollupRepository;
+import com.evm.backend.service.DealerSnapshotService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+@Transactional
+public class DealerSnapshotServiceImpl implements DealerSnapshotService {
+
+    private final DealerMonthlySnapshotRepository snapshotRepository;
+    private final DealerMonthlyProductSnapshotRepository productSnapshotRepository;
+    private final SalesDailyRollupRepository rollupRepository;
+    private final SalesMonthlyRollupRepository monthlyRollupRepository;
+    private final DealerContractRepository contractRepository;
+
+    // =====================================================
+    // CHỐT SNAPSHOT
+    // =====================================================
+
+    @Override
+    @Scheduled(cron = "${app.reports.snapshots.finalize-cron:0 30 1 * * *}")
+    public int finalizeClosedMonths() {
+        LocalDate firstMonth = monthlyRollupRepository.findFirstMonth();
+        if (firstMonth == null) {
+            return 0;
+        }
+
+        LocalDate currentMonth = LocalDate.now().withDayOfMonth(1);
+        int finalizedMonths = 0;
+
+        for (LocalDate month = firstMonth; month.isBefore(currentMonth); month = month.plusMonths(1)) {
+            if (finalizeMonth(month) > 0) {
+                finalizedMonths++;
+            }
+        }
+
+        if (finalizedMonths > 0) {
+            log.info("Dealer monthly snapshots finalized for {} months", finalizedMonths);
+        }
+        return finalizedMonths;
+    }
+
+    @Override
+    public void invalidate(Long dealerId, LocalDate anyDayOfMonth) {
+        LocalDate month = anyDayOfMonth.withDayOfMonth(1);
+        if (!month.isBefore(LocalDate.now().withDayOfMonth(1))) {
+            return; // Tháng hiện tại chưa có snapshot
+        }
+
+        int removed = snapshotRepository.deleteByDealerAndMonth(dealerId, month);
+        productSnapshotRepository.deleteByDealerAndMonth(dealerId, month);
+
+        if (removed > 0) {
+            log.info("Dealer snapshot {} / {} invalidated by late change", dealerId, YearMonth.from(month));
+        }
+    }
+
+    @Override
+    public void invalidateAll() {
+        snapshotRepository.deleteAllRows();
+        productSnapshotRepository.deleteAllRows();
+    }
+
+    /**
+     * Chốt snapshot cho các đại lý chưa có snapshot trong tháng (set-based cho cả tháng)
+     * @return số đại lý đã chốt
+     */
+    private int finalizeMonth(LocalDate month) {
+        LocalDate monthEnd = month.with(TemporalAdjusters.lastDayOfMonth());
+        Set<Long> existing = new HashSet<>(snapshotRepository.findDealerIdsByMonth(month));
+
+        List<Object[]> totals = rollupRepository.getAllDealerTotals(month, monthEnd).stream()
+                .filter(row -> !existing.contains(((Number) row[0]).longValue()))
+                .collect(Collectors.toList());
+        if (totals.isEmpty()) {
+            return 0;
+        }
+
+        // Hợp đồng hiệu lực tại cuối tháng (start date mới nhất)
+        Map<Long, DealerContract> contracts = new HashMap<>();
+        for (DealerContract contract : contractRepository.findAllActiveContractsWithDealer(monthEnd)) {
+            contracts.putIfAbsent(contract.getDealer().getId(), contract);
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        List<DealerMonthlySnapshot> snapshots = new ArrayList<>();
+        List<Long> dealersWithSales = new ArrayList<>();
+
+        for (Object[] row : totals) {
+            Long dealerId = ((Number) row[0]).longValue();
+            BigDecimal revenue = row[2] != null ? new BigDecimal(row[2].toString()) : BigDecimal.ZERO;
+            long orderCount = row[3] != null ? ((Number) row[3]).longValue() : 0L;
+            BigDecimal target = monthlyTarget(contracts.get(dealerId));
+
+            snapshots.add(DealerMonthlySnapshot.builder()
+                    .dealerId(dealerId)
+                    .snapshotMonth(month)
+                    .totalRevenue(revenue)
+                    .orderCount(orderCount)
+                    .monthlyTarget(target)
+                    .achievementRate(target.compareTo(BigDecimal.ZERO) > 0 ?
+                            revenue.multiply(new BigDecimal("100")).divide(target, 2, RoundingMode.HALF_UP) :
+                            BigDecimal.ZERO)
+                    .finalizedAt(now)
+                    .build());
+
+            if (orderCount > 0) {
+                dealersWithSales.add(dealerId);
+            }
+        }
+        snapshotRepository.saveAll(snapshots);
+
+        // Cơ cấu sản phẩm: [dealerId, productId, productName, unitsSold, revenue]
+        if (!dealersWithSales.isEmpty()) {
+            List<DealerMonthlyProductSnapshot> products = rollupRepository
+                    .getDealersProductBreakdown(dealersWithSales, month, monthEnd)
+                    .stream()
+                    .map(row -> DealerMonthlyProductSnapshot.builder()
+                            .dealerId(((Number) row[0]).longValue())
+                            .snapshotMonth(month)
+                            .productId(((Number) row[1]).longValue())
+                            .productName((String) row[2])
+                            .unitsSold(((Number) row[3]).longValue())
+                            .revenue(new BigDecimal(row[4].toString()))
+                            .build())
+                    .collect(Collectors.toList());
+            productSnapshotRepository.saveAll(products);
+        }
+
+        return snapshots.size();
+    }
+
+    // =====================================================
+    // ĐỌC: SNAPSHOT + PHẦN CÒN MỞ
+    // =====================================================
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Object[]> getMonthlySales(Long dealerId, LocalDate startDate, LocalDate endDate) {
+        Map<LocalDate, DealerMonthlySnapshot> snapshots = coveredSnapshots(dealerId, startDate, endDate);
+
+        List<Object[]> rows = new ArrayList<>();
+        for (DealerMonthlySnapshot snapshot : snapshots.values()) {
+            if (snapshot.getOrderCount() > 0) {
+                rows.add(new Object[]{
+                        YearMonth.from(snapshot.getSnapshotMonth()).toString(),
+                        snapshot.getTotalRevenue(),
+                        snapshot.getOrderCount(),
+                        snapshot.getMonthlyTarget()});
+            }
+        }
+
+        // Tháng chưa chốt / tháng lẻ ở đầu-cuối kỳ: tính trực tiếp từ rollup ngày
+        for (LocalDate[] range : liveRanges(startDate, endDate, snapshots.keySet())) {
+            rows.addAll(rollupRepository.getDealerSalesByMonth(dealerId, range[0], range[1]));
+        }
+
+        rows.sort(Comparator.comparing(row -> (String) row[0]));
+        return rows;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Object[]> getProductBreakdown(Long dealerId, LocalDate startDate, LocalDate endDate) {
+        Map<LocalDate, DealerMonthlySnapshot> snapshots = coveredSnapshots(dealerId, startDate, endDate);
+
+        // productId -> [productId, productName, unitsSold, revenue]
+        Map<Long, Object[]> merged = new LinkedHashMap<>();
+        if (!snapshots.isEmpty()) {
+            mergeProducts(merged, productSnapshotRepository.sumProductMix(dealerId, snapshots.keySet()));
+        }
+        for (LocalDate[] range : liveRanges(startDate, endDate, snapshots.keySet())) {
+            mergeProducts(merged, rollupRepository.getDealerProductBreakdown(dealerId, range[0], range[1]));
+        }
+
+        List<Object[]> rows = new ArrayList<>(merged.values());
+        rows.sort(Comparator.comparing((Object[] row) -> (BigDecimal) row[3]).reversed());
+        return rows;
+    }
+
+    // ===== HELPER METHODS =====
+
+    /**
+     * Snapshot của các tháng nằm trọn trong kỳ báo cáo
+     */
+    private Map<LocalDate, DealerMonthlySnapshot> coveredSnapshots(
+            Long dealerId, LocalDate startDate, LocalDate endDate) {
+
+        Map<LocalDate, DealerMonthlySnapshot> covered = new LinkedHashMap<>();
+        for (DealerMonthlySnapshot snapshot : snapshotRepository
+                .findByDealerIdAndSnapshotMonthBetweenOrderBySnapshotMonth(
+                        dealerId, startDate.withDayOfMonth(1), endDate.withDayOfMonth(1))) {
+            LocalDate month = snapshot.getSnapshotMonth();
+            if (!month.isBefore(startDate) && !month.with(TemporalAdjusters.lastDayOfMonth()).isAfter(endDate)) {
+                covered.put(month, snapshot);
+            }
+        }
+        return covered;
+    }
+
+    /**
+     * Các khoảng ngày liên tục không được snapshot bao phủ
+     */
+    private List<LocalDate[]> liveRanges(LocalDate startDate, LocalDate endDate, Set<LocalDate> coveredMonths) {
+        List<LocalDate[]> ranges = new ArrayList<>();
+        LocalDate[] current = null;
+
+        for (LocalDate month = startDate.withDayOfMonth(1); !month.isAfter(endDate); month = month.plusMonths(1)) {
+            if (coveredMonths.contains(month)) {
+                current = null;
+                continue;
+            }
+            LocalDate from = month.isBefore(startDate) ? startDate : month;
+            LocalDate monthEnd = month.with(TemporalAdjusters.lastDayOfMonth());
+            LocalDate to = monthEnd.isAfter(endDate) ? endDate : monthEnd;
+
+            if (current == null) {
+                current = new LocalDate[]{from, to};
+                ranges.add(current);
+            } else {
+                current[1] = to;
+            }
+        }
+        return ranges;
+    }
+
+    private void mergeProducts(Map<Long, Object[]> merged, List<Object[]> rows) {
+        for (Object[] row : rows) {
+            Long productId = ((Number) row[0]).longValue();
+            long units = ((Number) row[2]).longValue();
+            BigDecimal revenue = new BigDecimal(row[3].toString());
+
+            Object[] total = merged.get(productId);
+            if (total == null) {
+                merged.put(productId, new Object[]{productId, row[1], units, revenue});
+            } else {
+                total[2] = (Long) total[2] + units;
+                total[3] = ((BigDecimal) total[3]).add(revenue);
+            }
+        }
+    }
+
+    /**
+     * Mục tiêu tháng = mục tiêu hợp đồng / số tháng của hợp đồng
+     */
+    private BigDecimal monthlyTarget(DealerContract contract) {
+        if (contract == null || contract.getSalesTarget() == null
+                || contract.getStartDate() == null || contract.getEndDate() == null) {
+            return BigDecimal.ZERO;
+        }
+        long months = ChronoUnit.MONTHS.between(
+                contract.getStartDate().withDayOfMonth(1), contract.getEndDate().withDayOfMonth(1)) + 1;
+        return contract.getSalesTarget().divide(
+                BigDecimal.valueOf(Math.max(1, months)), 2, RoundingMode.HALF_UP);
+    }
+}
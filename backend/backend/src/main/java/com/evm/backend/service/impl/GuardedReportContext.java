@@ -0,0 +1,94 @@
+package com.evm.backend.service.impl;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Thời hạn và các truy vấn đang chạy của một báo cáo chạy qua ReportGuardService
+ * - Gắn vào thread của guard trong lúc chạy báo cáo; CompositeReportExecutor lấy ra khi fan-out
+ *   để các nhánh (thread + transaction riêng) dùng chung thời hạn và bị hủy cùng báo cáo
+ * - Mỗi transaction đang chạy truy vấn đăng ký Session; hủy báo cáo -> cancelQuery() trên mọi Session
+ */
+@Slf4j
+final class GuardedReportContext {
+
+    private static final ThreadLocal<GuardedReportContext> CURRENT = new ThreadLocal<>();
+
+    private final String reportName;
+    private final long deadlineNanos;
+    private final Set<Session> sessions = ConcurrentHashMap.newKeySet();
+    private volatile boolean cancelled;
+
+    GuardedReportContext(String reportName, long timeoutMs) {
+        this.reportName = reportName;
+        this.deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+    }
+
+    /**
+     * Báo cáo đang chạy trên thread hiện tại; null nếu không chạy qua guard
+     */
+    static GuardedReportContext current() {
+        return CURRENT.get();
+    }
+
+    void bind() {
+        CURRENT.set(this);
+    }
+
+    void unbind() {
+        CURRENT.remove();
+    }
+
+    long remainingNanos() {
+        return deadlineNanos - System.nanoTime();
+    }
+
+    boolean isExpired() {
+        return remainingNanos() <= 0;
+    }
+
+    boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Đăng ký Session của transaction đang chạy; báo cáo đã bị hủy thì hủy luôn
+     */
+    void register(Session session) {
+        sessions.add(session);
+        if (cancelled) {
+            cancelQuery(session);
+        }
+    }
+
+    void unregister(Session session) {
+        sessions.remove(session);
+    }
+
+    /**
+     * Client ngắt kết nối / hết giờ: hủy mọi truy vấn đang chạy và chặn truy vấn mới
+     */
+    void cancel() {
+        cancelled = true;
+        cancelQueries();
+    }
+
+    /**
+     * Hủy các truy vấn đang chạy (driver gửi KILL QUERY), transaction tương ứng sẽ rollback
+     */
+    void cancelQueries() {
+        sessions.forEach(this::cancelQuery);
+    }
+
+    private void cancelQuery(Session session) {
+        try {
+            session.cancelQuery();
+        } catch (RuntimeException e) {
+            log.debug("Could not cancel query of report {}: {}", reportName, e.getMessage());
+        }
+    }
+}
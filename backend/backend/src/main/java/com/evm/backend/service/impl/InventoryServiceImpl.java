@@ -8,7 +8,9 @@ import com.evm.backend.entity.*;
 import com.evm.backend.exception.BadRequestException;
 import com.evm.backend.exception.ResourceNotFoundException;
 import com.evm.backend.repository.*;
+import com.evm.backend.service.DashboardService;
 import com.evm.backend.service.InventoryService;
+import com.evm.backend.service.StockAlertService;
 import jakarta.persistence.criteria.Predicate;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -32,8 +34,8 @@ public class InventoryServiceImpl implements InventoryService {
     private final InventoryRepository inventoryRepository;
     private final ProductRepository productRepository;
     private final DealerRepository dealerRepository;
-
-    private static final Integer LOW_STOCK_THRESHOLD = 5;
+    private final DashboardService dashboardService;
+    private final StockAlertService stockAlertService;
 
     @Override
     @Transactional(readOnly = true)
@@ -45,7 +47,8 @@ public class InventoryServiceImpl implements InventoryService {
 
         Page<Inventory> inventories = inventoryRepository.findAll(spec, pageable);
 
-        return inventories.map(this::convertToListResponse);
+        Map<Long, String> alertTypes = alertTypes(inventories.getContent());
+        return inventories.map(i -> convertToListResponse(i, alertTypes.get(i.getId())));
     }
 
     @Override
@@ -58,9 +61,7 @@ public class InventoryServiceImpl implements InventoryService {
 
         List<Inventory> inventories = inventoryRepository.findByProductIdOrderByUpdatedAtDesc(productId);
 
-        return inventories.stream()
-                .map(this::convertToListResponse)
-                .collect(Collectors.toList());
+        return convertToListResponses(inventories);
     }
 
     @Override
@@ -73,9 +74,7 @@ public class InventoryServiceImpl implements InventoryService {
 
         List<Inventory> inventories = inventoryRepository.findByDealerIdOrderByUpdatedAtDesc(dealerId);
 
-        return inventories.stream()
-                .map(this::convertToListResponse)
-                .collect(Collectors.toList());
+        return convertToListResponses(inventories);
     }
 
     @Override
@@ -85,9 +84,7 @@ public class InventoryServiceImpl implements InventoryService {
 
         List<Inventory> inventories = inventoryRepository.findByDealerIsNullOrderByUpdatedAtDesc();
 
-        return inventories.stream()
-                .map(this::convertToListResponse)
-                .collect(Collectors.toList());
+        return convertToListResponses(inventories);
     }
 
     @Override
@@ -95,12 +92,12 @@ public class InventoryServiceImpl implements InventoryService {
     public List<InventoryListResponse> getLowStockInventory(Integer threshold) {
         log.info("Getting low stock inventory (threshold: {})", threshold);
 
-        Integer actualThreshold = threshold != null ? threshold : LOW_STOCK_THRESHOLD;
-        List<Inventory> inventories = inventoryRepository.findLowStockInventory(actualThreshold);
+        // Không truyền ngưỡng: theo cảnh báo tồn kho (ngưỡng cấu hình theo sản phẩm / đại lý)
+        List<Inventory> inventories = threshold != null ?
+                inventoryRepository.findLowStockInventory(threshold) :
+                inventoryRepository.findByStockAlertType(StockAlert.LOW_STOCK);
 
-        return inventories.stream()
-                .map(this::convertToListResponse)
-                .collect(Collectors.toList());
+        return convertToListResponses(inventories);
     }
 
     @Override
@@ -163,7 +160,9 @@ public class InventoryServiceImpl implements InventoryService {
                 .build();
 
         Inventory savedInventory = inventoryRepository.save(inventory);
+        stockAlertService.evaluate(savedInventory);
         log.info("Inventory created successfully: {}", savedInventory.getId());
+        dashboardService.invalidate();
 
         return convertToDetailResponse(savedInventory);
     }
@@ -204,7 +203,9 @@ public class InventoryServiceImpl implements InventoryService {
         inventory.setLocation(request.getLocation());
 
         Inventory updatedInventory = inventoryRepository.save(inventory);
+        stockAlertService.evaluate(updatedInventory);
         log.info("Inventory updated successfully: {}", inventoryId);
+        dashboardService.invalidate();
 
         return convertToDetailResponse(updatedInventory);
     }
@@ -228,7 +229,9 @@ public class InventoryServiceImpl implements InventoryService {
         inventory.setAvailableQuantity(newAvailable);
 
         Inventory adjustedInventory = inventoryRepository.save(inventory);
+        stockAlertService.evaluate(adjustedInventory);
         log.info("Inventory quantity adjusted successfully: {}", inventoryId);
+        dashboardService.invalidate();
 
         return convertToDetailResponse(adjustedInventory);
     }
@@ -250,7 +253,9 @@ public class InventoryServiceImpl implements InventoryService {
         inventory.setReservedQuantity(inventory.getReservedQuantity() + quantity);
 
         Inventory reservedInventory = inventoryRepository.save(inventory);
+        stockAlertService.evaluate(reservedInventory);
         log.info("Inventory reserved successfully: {}", inventoryId);
+        dashboardService.invalidate();
 
         return convertToDetailResponse(reservedInventory);
     }
@@ -272,7 +277,9 @@ public class InventoryServiceImpl implements InventoryService {
         inventory.setAvailableQuantity(inventory.getAvailableQuantity() + quantity);
 
         Inventory releasedInventory = inventoryRepository.save(inventory);
+        stockAlertService.evaluate(releasedInventory);
         log.info("Reserved inventory released successfully: {}", inventoryId);
+        dashboardService.invalidate();
 
         return convertToDetailResponse(releasedInventory);
     }
@@ -298,6 +305,7 @@ public class InventoryServiceImpl implements InventoryService {
         fromInventory.setTotalQuantity(fromInventory.getTotalQuantity() - quantity);
         fromInventory.setInTransitQuantity(fromInventory.getInTransitQuantity() + quantity);
         inventoryRepository.save(fromInventory);
+        stockAlertService.evaluate(fromInventory);
 
         // Add to destination (or create if not exists)
         Optional<Inventory> toInventoryOpt = inventoryRepository.findByProductIdAndDealerId(
@@ -317,9 +325,11 @@ public class InventoryServiceImpl implements InventoryService {
                     .inTransitQuantity(quantity)
                     .build();
         }
-        inventoryRepository.save(toInventory);
+        toInventory = inventoryRepository.save(toInventory);
+        stockAlertService.evaluate(toInventory);
 
         log.info("Inventory transferred successfully from {} to dealer {}", fromInventoryId, toDealerId);
+        dashboardService.invalidate();
 
         return convertToDetailResponse(fromInventory);
     }
@@ -335,8 +345,10 @@ public class InventoryServiceImpl implements InventoryService {
             throw new BadRequestException("Cannot delete inventory with remaining stock");
         }
 
+        stockAlertService.remove(inventoryId);
         inventoryRepository.delete(inventory);
         log.info("Inventory deleted successfully: {}", inventoryId);
+        dashboardService.invalidate();
     }
 
     @Override
@@ -349,7 +361,8 @@ public class InventoryServiceImpl implements InventoryService {
         stats.put("totalAvailableStock", inventoryRepository.getTotalAvailableQuantity());
         stats.put("totalReservedStock", inventoryRepository.getTotalReservedQuantity());
         stats.put("totalInTransitStock", inventoryRepository.getTotalInTransitQuantity());
-        stats.put("lowStockCount", inventoryRepository.countLowStock(LOW_STOCK_THRESHOLD));
+        stats.put("lowStockCount", stockAlertService.countAlerts(StockAlert.LOW_STOCK));
+        stats.put("outOfStockCount", stockAlertService.countAlerts(StockAlert.OUT_OF_STOCK));
         stats.put("brandWarehouseCount", inventoryRepository.countByDealerIsNull());
 
         return stats;
@@ -441,13 +454,27 @@ public class InventoryServiceImpl implements InventoryService {
         return PageRequest.of(page, size, sort);
     }
 
-    private InventoryListResponse convertToListResponse(Inventory i) {
+    /**
+     * Cờ tồn kho thấp / hết hàng lấy từ bảng stock_alert (một truy vấn cho cả danh sách)
+     */
+    private List<InventoryListResponse> convertToListResponses(List<Inventory> inventories) {
+        Map<Long, String> alertTypes = alertTypes(inventories);
+        return inventories.stream()
+                .map(i -> convertToListResponse(i, alertTypes.get(i.getId())))
+                .collect(Collectors.toList());
+    }
+
+    private Map<Long, String> alertTypes(List<Inventory> inventories) {
+        return stockAlertService.getAlertTypes(inventories.stream()
+                .map(Inventory::getId)
+                .collect(Collectors.toList()));
+    }
+
+    private InventoryListResponse convertToListResponse(Inventory i, String alertType) {
         // Calculate stock percentage
         Double stockPercentage = i.getTotalQuantity() > 0 ?
                 (i.getAvailableQuantity().doubleValue() / i.getTotalQuantity().doubleValue()) * 100 : 0.0;
 
-        Boolean isLowStock = i.getAvailableQuantity() < LOW_STOCK_THRESHOLD;
-
         return InventoryListResponse.builder()
                 .inventoryId(i.getId())
                 // Product info
@@ -469,7 +496,8 @@ public class InventoryServiceImpl implements InventoryService {
                 .updatedAt(i.getUpdatedAt())
                 // Calculated
                 .stockPercentage(stockPercentage)
-                .isLowStock(isLowStock)
+                .isLowStock(StockAlert.LOW_STOCK.equals(alertType))
+                .isOutOfStock(StockAlert.OUT_OF_STOCK.equals(alertType))
                 .build();
     }
 
@@ -477,7 +505,8 @@ public class InventoryServiceImpl implements InventoryService {
         Double stockPercentage = i.getTotalQuantity() > 0 ?
                 (i.getAvailableQuantity().doubleValue() / i.getTotalQuantity().doubleValue()) * 100 : 0.0;
 
-        Boolean isLowStock = i.getAvailableQuantity() < LOW_STOCK_THRESHOLD;
+        // Trong transaction ghi: StockAlertService.evaluate đã chạy trước, truy vấn thấy cảnh báo mới
+        String alertType = stockAlertService.getAlertTypes(List.of(i.getId())).get(i.getId());
 
         return InventoryDetailResponse.builder()
                 .inventoryId(i.getId())
@@ -509,7 +538,8 @@ public class InventoryServiceImpl implements InventoryService {
                 .updatedAt(i.getUpdatedAt())
                 // Statistics
                 .stockPercentage(stockPercentage)
-                .isLowStock(isLowStock)
+                .isLowStock(StockAlert.LOW_STOCK.equals(alertType))
+                .isOutOfStock(StockAlert.OUT_OF_STOCK.equals(alertType))
                 .soldQuantity(0) // TODO: Calculate from orders if needed
                 .build();
     }
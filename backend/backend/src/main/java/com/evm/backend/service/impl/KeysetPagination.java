@@ -0,0 +1,147 @@
+package com.evm.backend.service.impl;
+
+import com.evm.backend.dto.response.CursorPageResponse;
+import com.evm.backend.exception.BadRequestException;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Phân trang keyset (cursor) theo một cột sắp xếp + id, không OFFSET và không COUNT
+ * - Cursor = Base64(sortKey, id, giá trị sort) của dòng cuối trang trước; client truyền lại nguyên chuỗi
+ * - Điều kiện seek cùng chiều sắp xếp, NULL xếp như MySQL (đầu khi ASC, cuối khi DESC)
+ * - Lấy dư một dòng để biết còn trang sau
+ */
+final class KeysetPagination<T> {
+
+    static final int DEFAULT_SIZE = 20;
+    static final int MAX_SIZE = 100;
+
+    private static final String ID = "id";
+
+    private final String sortKey;
+    private final String field;
+    private final Sort.Direction direction;
+    private final Function<T, Comparable<?>> sortValue;
+    private final Function<T, Long> idValue;
+    private final Function<String, Comparable<?>> parser;
+
+    /**
+     * @param sortKey   giá trị sortBy của API, ghi vào cursor để phát hiện cursor dùng sai kiểu sắp xếp
+     * @param field     thuộc tính entity dùng để sắp xếp
+     * @param sortValue đọc giá trị sort từ entity (dòng cuối trang)
+     * @param idValue   đọc id từ entity
+     * @param parser    chuỗi trong cursor -> giá trị sort (LocalDate::parse, BigDecimal::new, ...)
+     */
+    KeysetPagination(String sortKey, String field, Sort.Direction direction,
+                     Function<T, Comparable<?>> sortValue, Function<T, Long> idValue,
+                     Function<String, Comparable<?>> parser) {
+        this.sortKey = sortKey;
+        this.field = field;
+        this.direction = direction;
+        this.sortValue = sortValue;
+        this.idValue = idValue;
+        this.parser = parser;
+    }
+
+    static int limit(Integer size) {
+        return size != null ? Math.max(1, Math.min(size, MAX_SIZE)) : DEFAULT_SIZE;
+    }
+
+    Sort sort() {
+        return Sort.by(direction, field).and(Sort.by(direction, ID));
+    }
+
+    /**
+     * Điều kiện "đứng sau dòng cuối trang trước"; không có cursor -> không lọc
+     */
+    Specification<T> after(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return (root, query, cb) -> cb.conjunction();
+        }
+        Position position = decode(cursor);
+        return (root, query, cb) -> seek(cb, root.get(field), root.get(ID), position);
+    }
+
+    /**
+     * rows: kết quả truy vấn với limit + 1 dòng
+     */
+    <R> CursorPageResponse<R> toResponse(List<T> rows, int limit, Function<List<T>, List<R>> converter) {
+        boolean hasNext = rows.size() > limit;
+        List<T> pageRows = hasNext ? rows.subList(0, limit) : rows;
+
+        return CursorPageResponse.<R>builder()
+                .content(converter.apply(pageRows))
+                .size(pageRows.size())
+                .hasNext(hasNext)
+                .nextCursor(hasNext ? encode(pageRows.get(pageRows.size() - 1)) : null)
+                .build();
+    }
+
+    // ===== HELPER METHODS =====
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Predicate seek(CriteriaBuilder cb, Path sortPath, Path<Long> idPath, Position position) {
+        boolean ascending = direction.isAscending();
+        Predicate idAfter = ascending ? cb.greaterThan(idPath, position.id) : cb.lessThan(idPath, position.id);
+
+        if (position.value == null) {
+            // ASC: NULL đứng đầu -> tiếp các NULL còn lại rồi tới mọi giá trị khác NULL
+            // DESC: NULL đứng cuối -> chỉ còn các NULL phía sau
+            Predicate remainingNulls = cb.and(cb.isNull(sortPath), idAfter);
+            return ascending ? cb.or(remainingNulls, cb.isNotNull(sortPath)) : remainingNulls;
+        }
+
+        Comparable value = position.value;
+        Predicate valueAfter = ascending ? cb.greaterThan(sortPath, value) : cb.lessThan(sortPath, value);
+        Predicate sameValue = cb.and(cb.equal(sortPath, value), idAfter);
+        return ascending ? cb.or(valueAfter, sameValue) : cb.or(valueAfter, sameValue, cb.isNull(sortPath));
+    }
+
+    private String encode(T last) {
+        Comparable<?> value = sortValue.apply(last);
+        // Giá trị null ghi rỗng, khác null có tiền tố "=" (phân biệt với chuỗi rỗng)
+        String position = sortKey + ":" + idValue.apply(last) + ":" + (value == null ? "" : "=" + value);
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private Position decode(String cursor) {
+        String[] parts;
+        try {
+            parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(":", 3);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("cursor không hợp lệ");
+        }
+        if (parts.length != 3) {
+            throw new BadRequestException("cursor không hợp lệ");
+        }
+        if (!sortKey.equals(parts[0])) {
+            throw new BadRequestException("cursor không khớp kiểu sắp xếp " + sortKey);
+        }
+        try {
+            Long id = Long.parseLong(parts[1]);
+            Comparable<?> value = parts[2].isEmpty() ? null : parser.apply(parts[2].substring(1));
+            return new Position(value, id);
+        } catch (RuntimeException e) {
+            throw new BadRequestException("cursor không hợp lệ");
+        }
+    }
+
+    private static class Position {
+        private final Comparable<?> value;
+        private final Long id;
+
+        private Position(Comparable<?> value, Long id) {
+            this.value = value;
+            this.id = id;
+        }
+    }
+}
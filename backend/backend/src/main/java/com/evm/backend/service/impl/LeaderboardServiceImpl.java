@@ -0,0 +1,503 @@
+package com.evm.backend.service.impl;
+
+import com.evm.backend.config.ReplicaRoutingDataSource;
+import com.evm.backend.dto.response.LeaderboardResponse;
+import com.evm.backend.entity.SalesOrder;
+import com.evm.backend.entity.Vehicle;
+import com.evm.backend.exception.BadRequestException;
+import com.evm.backend.repository.SalesDailyRollupRepository;
+import com.evm.backend.service.LeaderboardService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.IsoFields;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongConsumer;
+
+/**
+ * Bảng xếp hạng trong bộ nhớ cho nhân viên bán hàng, đại lý, sản phẩm
+ * - Mỗi (metric, window) giữ điểm theo id + tập đã sắp xếp: cập nhật O(log n), đọc top-K O(K)
+ * - Cập nhật tăng dần sau khi transaction đơn hàng commit
+ * - Khung thời gian sang kỳ mới (ngày/tháng/quý/năm) thì nạp lại từ rollup; định kỳ nạp lại để sửa sai lệch
+ * - Nạp từ rollup chạy ngoài lock (đọc và cập nhật tăng dần không bị chặn), xong thì thay board trong một bước
+ * - Mỗi transaction có đơn hàng nhận số thứ tự commit (trước khi commit DB); board ghi lại mốc số thứ tự lúc nạp
+ *   và bỏ qua delta có số thứ tự <= mốc (rollup đã chứa đơn đó), delta đến trong lúc nạp được áp lại sau khi thay
+ * - Không bao giờ đếm trùng: đọc rollup lúc có transaction đang commit thì đọc lại; vẫn không đọc được lúc yên
+ *   thì lấy mốc = số thứ tự sau khi đọc (các đơn đang commit có thể bị thiếu, lần nạp định kỳ sẽ bù)
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class LeaderboardServiceImpl implements LeaderboardService {
+
+    private static final String SALES_PERSONS = "SALES_PERSONS";
+    private static final String DEALERS = "DEALERS";
+    private static final String PRODUCTS = "PRODUCTS";
+    private static final List<String> METRICS = List.of(SALES_PERSONS, DEALERS, PRODUCTS);
+
+    private static final String TODAY = "TODAY";
+    private static final String MTD = "MTD";
+    private static final String QTD = "QTD";
+    private static final String YTD = "YTD";
+    private static final List<String> WINDOWS = List.of(TODAY, MTD, QTD, YTD);
+
+    private static final int MAX_LIMIT = 100;
+    private static final Long UNASSIGNED = 0L;
+
+    // Nạp lại khi có transaction commit xen vào lúc đọc rollup (không biết rollup đã chứa đơn đó chưa)
+    private static final int MAX_LOAD_ATTEMPTS = 5;
+    // Trước mỗi lần đọc lại: chờ các transaction đang commit xong (commit đơn hàng rất ngắn)
+    private static final long QUIET_WAIT_MS = 200;
+    private static final long QUIET_POLL_MS = 5;
+
+    private final SalesDailyRollupRepository rollupRepository;
+
+    // "METRIC|WINDOW" -> board / lần nạp đang chạy; truy cập trong synchronized (this), không gọi DB khi giữ lock
+    private final Map<String, Board> boards = new HashMap<>();
+    private final Map<String, Loading> loadings = new HashMap<>();
+
+    // Số thứ tự commit đã cấp / số transaction đang commit (từ beforeCommit tới afterCompletion)
+    private final AtomicLong commitSequence = new AtomicLong();
+    private final AtomicInteger committing = new AtomicInteger();
+
+    @Override
+    public LeaderboardResponse getLeaderboard(String metric, String window, int limit) {
+        String normalizedMetric = normalize(metric, METRICS, "metric");
+        String normalizedWindow = normalize(window, WINDOWS, "window");
+        int k = Math.max(1, Math.min(limit, MAX_LIMIT));
+
+        Board board = currentBoard(normalizedMetric, normalizedWindow, false);
+
+        List<LeaderboardResponse.Entry> entries = new ArrayList<>(k);
+        synchronized (this) {
+            Iterator<Score> iterator = board.ranking.iterator();
+            while (iterator.hasNext() && entries.size() < k) {
+                Score score = iterator.next();
+                entries.add(LeaderboardResponse.Entry.builder()
+                        .rank(entries.size() + 1)
+                        .id(score.id)
+                        .name(score.name)
+                        .revenue(score.revenue)
+                        .orderCount(score.count)
+                        .build());
+            }
+        }
+
+        return LeaderboardResponse.builder()
+                .metric(normalizedMetric)
+                .window(normalizedWindow)
+                .fromDate(board.start)
+                .toDate(LocalDate.now())
+                .loadedAt(board.loadedAt)
+                .entries(entries)
+                .build();
+    }
+
+    @Override
+    public List<LeaderboardResponse> getLeaderboards(String window, int limit) {
+        List<LeaderboardResponse> result = new ArrayList<>();
+        for (String metric : METRICS) {
+            result.add(getLeaderboard(metric, window, limit));
+        }
+        return result;
+    }
+
+    @Override
+    public void applyOrder(SalesOrder order, int sign) {
+        // Lấy id/tên ngay trong transaction (entity còn session), áp dụng sau khi commit
+        LocalDate orderDate = order.getOrderDate();
+        BigDecimal revenue = order.getTotalPrice() != null ? order.getTotalPrice() : BigDecimal.ZERO;
+        BigDecimal revenueDelta = revenue.multiply(BigDecimal.valueOf(sign));
+
+        Vehicle vehicle = order.getVehicle();
+        List<Delta> deltas = new ArrayList<>(3);
+        if (order.getSalesPerson() != null) {
+            deltas.add(new Delta(SALES_PERSONS, order.getSalesPerson().getId(),
+                    order.getSalesPerson().getFullName()));
+        }
+        if (vehicle != null && vehicle.getDealer() != null) {
+            deltas.add(new Delta(DEALERS, vehicle.getDealer().getId(),
+                    vehicle.getDealer().getDealerName()));
+        }
+        if (vehicle != null && vehicle.getProduct() != null) {
+            deltas.add(new Delta(PRODUCTS, vehicle.getProduct().getId(),
+                    vehicle.getProduct().getProductName()));
+        }
+
+        afterCommitInOrder(sequence -> applyDeltas(sequence, orderDate, deltas, revenueDelta, sign));
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${app.reports.leaderboards.refresh-interval-ms:600000}",
+            initialDelayString = "${app.reports.leaderboards.refresh-interval-ms:600000}")
+    public void reload() {
+        afterCommit(this::loadAll);
+    }
+
+    // ===== HELPER METHODS =====
+
+    private synchronized void applyDeltas(long sequence, LocalDate orderDate, List<Delta> deltas,
+                                          BigDecimal revenue, int sign) {
+        if (orderDate == null) {
+            return;
+        }
+        LocalDate today = LocalDate.now();
+
+        for (String window : WINDOWS) {
+            LocalDate start = windowStart(window, today);
+            if (orderDate.isBefore(start) || orderDate.isAfter(today)) {
+                continue;
+            }
+            for (Delta delta : deltas) {
+                if (UNASSIGNED.equals(delta.id)) {
+                    continue;
+                }
+                String key = key(delta.metric, window);
+                Board board = boards.get(key);
+                // Chưa nạp hoặc đã sang kỳ mới: bỏ qua, lần đọc sau sẽ nạp lại từ rollup
+                // sequence <= watermark: rollup lúc nạp đã chứa đơn này
+                if (board != null && board.start.equals(start) && sequence > board.watermark) {
+                    board.add(delta.id, delta.name, revenue, sign);
+                }
+                // Đang nạp lại: giữ để áp vào board mới nếu rollup đọc được chưa chứa đơn này
+                Loading loading = loadings.get(key);
+                if (loading != null && loading.start.equals(start)) {
+                    loading.pending.add(new PendingDelta(sequence, delta, revenue, sign));
+                }
+            }
+        }
+    }
+
+    private void loadAll() {
+        long start = System.nanoTime();
+        for (String metric : METRICS) {
+            for (String window : WINDOWS) {
+                currentBoard(metric, window, true);
+            }
+        }
+        log.info("Leaderboards loaded from rollup in {}ms", (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Board của kỳ hiện tại; nạp từ rollup nếu chưa có, đã sang kỳ mới hoặc refresh
+     * Chỉ một thread nạp mỗi board, các thread khác chờ kết quả của lần nạp đó
+     * Khi refresh, board cũ vẫn được đọc cho tới khi board mới thay vào
+     */
+    private Board currentBoard(String metric, String window, boolean refresh) {
+        LocalDate today = LocalDate.now();
+        LocalDate start = windowStart(window, today);
+        String key = key(metric, window);
+
+        Loading loading;
+        synchronized (this) {
+            Board board = boards.get(key);
+            if (!refresh && board != null && board.start.equals(start)) {
+                return board;
+            }
+            loading = loadings.get(key);
+            if (refresh || loading == null || !loading.start.equals(start)) {
+                loading = new Loading(start);
+                loadings.put(key, loading);
+            } else {
+                return awaitLoad(loading);
+            }
+        }
+
+        try {
+            Board board = load(key, metric, today, loading);
+            loading.result.complete(board);
+            return board;
+        } catch (RuntimeException | Error e) {
+            loading.result.completeExceptionally(e);
+            throw e;
+        } finally {
+            synchronized (this) {
+                loadings.remove(key, loading);
+            }
+        }
+    }
+
+    /**
+     * Đọc rollup (không giữ lock), rồi thay board và áp các delta đến trong lúc đọc mà rollup chưa chứa
+     */
+    private Board load(String key, String metric, LocalDate end, Loading loading) {
+        for (int attempt = 1; ; attempt++) {
+            if (attempt > 1) {
+                awaitQuiet();
+            }
+            // Không có transaction nào đang commit và không có commit mới trong lúc đọc:
+            // rollup chứa đúng các đơn có sequence <= watermark
+            long watermark = commitSequence.get();
+            boolean quiet = committing.get() == 0;
+            // Delta có sequence <= watermark bị bỏ qua: rollup phải đọc từ primary, replica có thể chưa có
+            Board board = ReplicaRoutingDataSource.onPrimary(() -> query(metric, loading.start, end, watermark));
+            long readEnd = commitSequence.get();
+            boolean exact = quiet && readEnd == watermark;
+
+            if (exact || attempt == MAX_LOAD_ATTEMPTS) {
+                if (!exact) {
+                    // Không biết rollup đã chứa các đơn commit trong lúc đọc chưa: bỏ qua mọi delta tới readEnd
+                    // (có thể thiếu, không đếm trùng); sai lệch được sửa ở lần nạp định kỳ
+                    board.watermark = readEnd;
+                    log.warn("Leaderboard {} loaded while orders were committing, skipping deltas up to {}",
+                            key, readEnd);
+                }
+                synchronized (this) {
+                    for (PendingDelta pending : loading.pending) {
+                        if (pending.sequence > board.watermark) {
+                            board.add(pending.delta.id, pending.delta.name, pending.revenue, pending.sign);
+                        }
+                    }
+                    boards.put(key, board);
+                }
+                return board;
+            }
+        }
+    }
+
+    /**
+     * Chờ tối đa QUIET_WAIT_MS tới khi không còn transaction đơn hàng nào đang commit
+     */
+    private void awaitQuiet() {
+        long deadline = System.nanoTime() + QUIET_WAIT_MS * 1_000_000;
+        while (committing.get() > 0 && System.nanoTime() < deadline) {
+            try {
+                Thread.sleep(QUIET_POLL_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private Board awaitLoad(Loading loading) {
+        try {
+            return loading.result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw e;
+        }
+    }
+
+    private Board query(String metric, LocalDate start, LocalDate end, long watermark) {
+        Board board = new Board(start, PRODUCTS.equals(metric), watermark);
+
+        switch (metric) {
+            case SALES_PERSONS:
+                // [id, fullName, revenue, orderCount]
+                rollupRepository.getTopSalesPersons(start, end, Pageable.unpaged())
+                        .forEach(row -> board.add(toLong(row[0]), (String) row[1],
+                                toBigDecimal(row[2]), toLong(row[3])));
+                break;
+            case DEALERS:
+                // [id, dealerName, revenue, orderCount]
+                rollupRepository.getTopDealers(start, end, Pageable.unpaged())
+                        .forEach(row -> board.add(toLong(row[0]), (String) row[1],
+                                toBigDecimal(row[2]), toLong(row[3])));
+                break;
+            default:
+                // [id, productName, unitsSold, revenue]
+                rollupRepository.getTopProducts(start, end, Pageable.unpaged())
+                        .forEach(row -> board.add(toLong(row[0]), (String) row[1],
+                                toBigDecimal(row[3]), toLong(row[2])));
+                break;
+        }
+        return board;
+    }
+
+    private LocalDate windowStart(String window, LocalDate today) {
+        switch (window) {
+            case TODAY:
+                return today;
+            case MTD:
+                return today.withDayOfMonth(1);
+            case QTD:
+                return today.with(IsoFields.DAY_OF_QUARTER, 1);
+            default:
+                return today.withDayOfYear(1);
+        }
+    }
+
+    private String normalize(String value, List<String> allowed, String name) {
+        String normalized = value == null ? "" :
+                value.trim().toUpperCase(Locale.ROOT).replace('-', '_');
+        if (!allowed.contains(normalized)) {
+            throw new BadRequestException(name + " không hợp lệ: " + value
+                    + ". Giá trị hỗ trợ: " + String.join(", ", allowed));
+        }
+        return normalized;
+    }
+
+    private String key(String metric, String window) {
+        return metric + "|" + window;
+    }
+
+    /**
+     * Chạy action sau khi transaction hiện tại commit, kèm số thứ tự commit cấp ngay trước khi commit DB
+     */
+    private void afterCommitInOrder(LongConsumer action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.accept(commitSequence.incrementAndGet());
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            // 0 = transaction không tới bước commit
+            private long sequence;
+
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                committing.incrementAndGet();
+                sequence = commitSequence.incrementAndGet();
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (sequence == 0) {
+                    return;
+                }
+                committing.decrementAndGet();
+                if (status == STATUS_COMMITTED) {
+                    action.accept(sequence);
+                }
+            }
+        });
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private Long toLong(Object value) {
+        return value != null ? ((Number) value).longValue() : 0L;
+    }
+
+    private BigDecimal toBigDecimal(Object value) {
+        if (value == null) {
+            return BigDecimal.ZERO;
+        }
+        return value instanceof BigDecimal ? (BigDecimal) value : new BigDecimal(value.toString());
+    }
+
+    /**
+     * Điểm của một id trong board (immutable: đổi điểm = xóa khỏi TreeSet rồi thêm bản mới)
+     */
+    private static class Score {
+        private final Long id;
+        private final String name;
+        private final BigDecimal revenue;
+        private final long count;
+
+        private Score(Long id, String name, BigDecimal revenue, long count) {
+            this.id = id;
+            this.name = name;
+            this.revenue = revenue;
+            this.count = count;
+        }
+    }
+
+    private static class Board {
+        private final LocalDate start;
+        // Số thứ tự commit lớn nhất đã nằm trong rollup lúc nạp (hoặc có thể đã nằm, nếu đọc không yên)
+        // Chỉ đổi trước khi board được công bố
+        private long watermark;
+        private final LocalDateTime loadedAt = LocalDateTime.now();
+        private final Map<Long, Score> scores = new HashMap<>();
+        private final TreeSet<Score> ranking;
+
+        private Board(LocalDate start, boolean rankByUnits, long watermark) {
+            this.start = start;
+            this.watermark = watermark;
+            // Sản phẩm xếp theo số xe bán, còn lại theo doanh thu; hòa thì theo id để thứ tự ổn định
+            Comparator<Score> byRevenue = Comparator.comparing((Score s) -> s.revenue).reversed();
+            Comparator<Score> byCount = Comparator.comparingLong((Score s) -> s.count).reversed();
+            Comparator<Score> primary = rankByUnits ? byCount.thenComparing(byRevenue) : byRevenue.thenComparing(byCount);
+            this.ranking = new TreeSet<>(primary.thenComparing(s -> s.id));
+        }
+
+        private void add(Long id, String name, BigDecimal revenue, long count) {
+            Score old = scores.remove(id);
+            if (old != null) {
+                ranking.remove(old);
+            }
+
+            Score updated = old == null ?
+                    new Score(id, name, revenue, count) :
+                    new Score(id, name != null ? name : old.name, old.revenue.add(revenue), old.count + count);
+
+            // Không còn đơn hàng nào trong kỳ: rời bảng xếp hạng
+            if (updated.count > 0) {
+                scores.put(id, updated);
+                ranking.add(updated);
+            }
+        }
+    }
+
+    /**
+     * Một lần nạp board đang chạy: các thread khác chờ result, delta commit trong lúc nạp được giữ trong pending
+     */
+    private static class Loading {
+        private final LocalDate start;
+        private final CompletableFuture<Board> result = new CompletableFuture<>();
+        private final List<PendingDelta> pending = new ArrayList<>();
+
+        private Loading(LocalDate start) {
+            this.start = start;
+        }
+    }
+
+    private static class PendingDelta {
+        private final long sequence;
+        private final Delta delta;
+        private final BigDecimal revenue;
+        private final int sign;
+
+        private PendingDelta(long sequence, Delta delta, BigDecimal revenue, int sign) {
+            this.sequence = sequence;
+            this.delta = delta;
+            this.revenue = revenue;
+            this.sign = sign;
+        }
+    }
+
+    private static class Delta {
+        private final String metric;
+        private final Long id;
+        private final String name;
+
+        private Delta(String metric, Long id, String name) {
+            this.metric = metric;
+            this.id = id;
+            this.name = name;
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package com.evm.backend.service.impl;
+
+import com.evm.backend.exception.BadRequestException;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.springframework.web.multipart.MultipartFile;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Đọc file đơn hàng theo từng dòng, không dựng cả workbook trong bộ nhớ
+ * - CSV (UTF-8, phân tách ',' hoặc ';', hỗ trợ ô trong dấu nháy kép)
+ * - XLSX: POI event model (SAX trên sheet đầu tiên, shared strings chỉ đọc)
+ * Ô ngày trong XLSX trả về dạng yyyy-MM-dd, ô số trả về số thuần (không định dạng nghìn)
+ */
+final class OrderSheetReader {
+
+    /**
+     * rowNumber: số dòng trong file, bắt đầu từ 1
+     */
+    interface RowHandler {
+        void row(int rowNumber, List<String> cells);
+    }
+
+    private OrderSheetReader() {
+    }
+
+    static void read(MultipartFile file, RowHandler handler) throws IOException {
+        String fileName = file.getOriginalFilename() != null ? file.getOriginalFilename().toLowerCase() : "";
+
+        if (fileName.endsWith(".csv")) {
+            try (InputStream inputStream = file.getInputStream()) {
+                readCsv(inputStream, handler);
+            }
+        } else if (fileName.endsWith(".xlsx")) {
+            readXlsx(file, handler);
+        } else {
+            throw new BadRequestException("Chỉ hỗ trợ file .csv hoặc .xlsx");
+        }
+    }
+
+    // ===== CSV =====
+
+    private static void readCsv(InputStream inputStream, RowHandler handler) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+
+        // Dòng đầu (header) quyết định dấu phân tách: Excel bản địa hóa thường xuất ';'
+        String header = reader.readLine();
+        if (header == null) {
+            return;
+        }
+        if (header.startsWith("\uFEFF")) {
+            header = header.substring(1); // BOM của Excel
+        }
+        char delimiter = detectDelimiter(header);
+        handler.row(1, splitCsvLine(header, delimiter));
+
+        // Các dòng sau đọc theo ký tự để ô trong dấu nháy kép được phép chứa xuống dòng
+        List<String> cells = new ArrayList<>();
+        StringBuilder cell = new StringBuilder();
+        boolean quoted = false;
+        int rowNumber = 2;
+
+        int c;
+        while ((c = reader.read()) != -1) {
+            if (quoted) {
+                if (c == '"') {
+                    reader.mark(1);
+                    if (reader.read() == '"') {
+                        cell.append('"');
+                    } else {
+                        quoted = false;
+                        reader.reset();
+                    }
+                } else {
+                    cell.append((char) c);
+                }
+            } else if (c == '"' && cell.length() == 0) {
+                quoted = true;
+            } else if (c == delimiter) {
+                cells.add(cell.toString());
+                cell.setLength(0);
+            } else if (c == '\n') {
+                cells.add(cell.toString());
+                cell.setLength(0);
+                handler.row(rowNumber++, cells);
+                cells = new ArrayList<>();
+            } else if (c != '\r') {
+                cell.append((char) c);
+            }
+        }
+
+        if (cell.length() > 0 || !cells.isEmpty()) {
+            cells.add(cell.toString());
+            handler.row(rowNumber, cells);
+        }
+    }
+
+    private static char detectDelimiter(CharSequence headerLine) {
+        int commas = 0;
+        int semicolons = 0;
+        for (int i = 0; i < headerLine.length(); i++) {
+            if (headerLine.charAt(i) == ',') commas++;
+            if (headerLine.charAt(i) == ';') semicolons++;
+        }
+        return semicolons > commas ? ';' : ',';
+    }
+
+    /**
+     * Header không chứa xuống dòng trong ô: tách trên một dòng
+     */
+    private static List<String> splitCsvLine(CharSequence line, char delimiter) {
+        List<String> cells = new ArrayList<>();
+        StringBuilder cell = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    cell.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    cell.append(c);
+                }
+            } else if (c == '"' && cell.length() == 0) {
+                quoted = true;
+            } else if (c == delimiter) {
+                cells.add(cell.toString());
+                cell.setLength(0);
+            } else {
+                cell.append(c);
+            }
+        }
+        cells.add(cell.toString());
+        return cells;
+    }
+
+    // ===== XLSX (event model) =====
+
+    private static void readXlsx(MultipartFile file, RowHandler handler) throws IOException {
+        // OPCPackage mở từ file đọc zip theo từng entry, không nạp cả file vào heap như khi mở từ stream
+        Path tempFile = Files.createTempFile("order-import-", ".xlsx");
+        try {
+            file.transferTo(tempFile);
+
+            try (OPCPackage pkg = OPCPackage.open(tempFile.toFile(), PackageAccess.READ)) {
+                ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg);
+                XSSFReader xssfReader = new XSSFReader(pkg);
+                StylesTable styles = xssfReader.getStylesTable();
+
+                XSSFReader.SheetIterator sheets = (XSSFReader.SheetIterator) xssfReader.getSheetsData();
+                if (!sheets.hasNext()) {
+                    throw new BadRequestException("File không có sheet nào");
+                }
+
+                try (InputStream sheet = sheets.next()) {
+                    XMLReader parser = XMLHelper.newXMLReader();
+                    parser.setContentHandler(new XSSFSheetXMLHandler(
+                            styles, null, strings, new SheetRowCollector(handler), new PlainDataFormatter(), false));
+                    parser.parse(new InputSource(sheet));
+                }
+            } catch (OpenXML4JException | SAXException | ParserConfigurationException e) {
+                throw new BadRequestException("File XLSX không hợp lệ: " + e.getMessage());
+            }
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    /**
+     * Gom ô của từng dòng theo cột (ô trống ở giữa -> chuỗi rỗng)
+     */
+    private static class SheetRowCollector implements XSSFSheetXMLHandler.SheetContentsHandler {
+        private final RowHandler handler;
+        private List<String> cells;
+        private int nextColumn;
+
+        private SheetRowCollector(RowHandler handler) {
+            this.handler = handler;
+        }
+
+        @Override
+        public void startRow(int rowNum) {
+            cells = new ArrayList<>();
+            nextColumn = 0;
+        }
+
+        @Override
+        public void endRow(int rowNum) {
+            handler.row(rowNum + 1, cells);
+        }
+
+        @Override
+        public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+            int column = cellReference != null ? new CellReference(cellReference).getCol() : nextColumn;
+            while (cells.size() < column) {
+                cells.add("");
+            }
+            cells.add(formattedValue != null ? formattedValue : "");
+            nextColumn = column + 1;
+        }
+    }
+
+    /**
+     * Ngày -> ISO (yyyy-MM-dd), số -> dạng thuần, không phụ thuộc định dạng hiển thị của ô
+     */
+    private static class PlainDataFormatter extends DataFormatter {
+        @Override
+        public String formatRawCellContents(double value, int formatIndex, String formatString) {
+            if (DateUtil.isADateFormat(formatIndex, formatString) && DateUtil.isValidExcelDate(value)) {
+                return DateUtil.getLocalDateTime(value).toLocalDate().toString();
+            }
+            return BigDecimal.valueOf(value).stripTrailingZeros().toPlainString();
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.evm.backend.service.impl;
 
 import com.evm.backend.dto.request.PaymentFilterRequest;
 import com.evm.backend.dto.request.PaymentRequest;
+import com.evm.backend.dto.response.CursorPageResponse;
 import com.evm.backend.dto.response.PaymentDetailResponse;
 import com.evm.backend.dto.response.PaymentListResponse;
 import com.evm.backend.entity.Payment;
@@ -12,7 +13,9 @@ import com.evm.backend.exception.BadRequestException;
 import com.evm.backend.repository.PaymentRepository;
 import com.evm.backend.repository.SalesOrderRepository;
 import com.evm.backend.repository.CustomerRepository;
+import com.evm.backend.service.DashboardService;
 import com.evm.backend.service.PaymentService;
+import com.evm.backend.service.SalesRollupService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.dao.DataIntegrityViolationException;
@@ -40,6 +43,8 @@ public class PaymentServiceImpl implements PaymentService {
     private final PaymentRepository paymentRepository;
     private final SalesOrderRepository salesOrderRepository;
     private final CustomerRepository customerRepository;
+    private final SalesRollupService salesRollupService;
+    private final DashboardService dashboardService;
 
     @Override
     @Transactional(readOnly = true)
@@ -54,6 +59,26 @@ public class PaymentServiceImpl implements PaymentService {
         return payments.map(this::convertToListResponse);
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPageResponse<PaymentListResponse> getPaymentsByCursor(PaymentFilterRequest filterRequest) {
+        log.info("Getting payments by cursor with filter: {}", filterRequest);
+
+        KeysetPagination<Payment> keyset = buildKeyset(filterRequest);
+        int limit = KeysetPagination.limit(filterRequest.getSize());
+
+        // Seek theo (cột sắp xếp, id) thay cho OFFSET, lấy dư 1 dòng thay cho COUNT
+        Specification<Payment> spec = buildSpecification(filterRequest).and(keyset.after(filterRequest.getCursor()));
+        List<Payment> payments = paymentRepository.findBy(spec, query -> query
+                .sortBy(keyset.sort())
+                .limit(limit + 1)
+                .all());
+
+        return keyset.toResponse(payments, limit, page -> page.stream()
+                .map(this::convertToListResponse)
+                .collect(Collectors.toList()));
+    }
+
     @Override
     @Transactional(readOnly = true)
     public List<PaymentListResponse> getPaymentsByOrderId(Long orderId) {
@@ -152,6 +177,7 @@ public class PaymentServiceImpl implements PaymentService {
 
         Payment savedPayment = paymentRepository.save(payment);
         log.info("Payment created successfully: {}", savedPayment.getId());
+        dashboardService.invalidate();
 
         // Update order status if fully paid
         updateOrderStatusIfFullyPaid(order);
@@ -191,6 +217,7 @@ public class PaymentServiceImpl implements PaymentService {
 
         Payment updatedPayment = paymentRepository.save(payment);
         log.info("Payment updated successfully: {}", paymentId);
+        dashboardService.invalidate();
 
         // Update order status if needed
         updateOrderStatusIfFullyPaid(order);
@@ -216,6 +243,7 @@ public class PaymentServiceImpl implements PaymentService {
         payment.setStatus("COMPLETED");
         Payment confirmedPayment = paymentRepository.save(payment);
         log.info("Payment confirmed successfully: {}", paymentId);
+        dashboardService.invalidate();
 
         // Update order status if fully paid
         updateOrderStatusIfFullyPaid(payment.getOrder());
@@ -242,6 +270,7 @@ public class PaymentServiceImpl implements PaymentService {
 
         Payment refundedPayment = paymentRepository.save(payment);
         log.info("Payment refunded successfully: {}", paymentId);
+        dashboardService.invalidate();
 
         // Update order status
         updateOrderStatusAfterRefund(payment.getOrder());
@@ -270,6 +299,7 @@ public class PaymentServiceImpl implements PaymentService {
             paymentRepository.flush(); // Force thực thi DELETE ngay lập tức
 
             log.info("Payment deleted successfully: {}", paymentId);
+            dashboardService.invalidate();
 
             // ✅ CẬP NHẬT TRẠNG THÁI ORDER
             if (orderId != null) {
@@ -396,6 +426,25 @@ public class PaymentServiceImpl implements PaymentService {
         return PageRequest.of(page, size, sort);
     }
 
+    private KeysetPagination<Payment> buildKeyset(PaymentFilterRequest filter) {
+        String sortBy = filter.getSortBy() != null ? filter.getSortBy() : "date_desc";
+
+        switch (sortBy) {
+            case "date_asc":
+                return new KeysetPagination<>(sortBy, "paymentDate", Sort.Direction.ASC,
+                        Payment::getPaymentDate, Payment::getId, LocalDate::parse);
+            case "amount_asc":
+                return new KeysetPagination<>(sortBy, "amount", Sort.Direction.ASC,
+                        Payment::getAmount, Payment::getId, BigDecimal::new);
+            case "amount_desc":
+                return new KeysetPagination<>(sortBy, "amount", Sort.Direction.DESC,
+                        Payment::getAmount, Payment::getId, BigDecimal::new);
+            default:
+                return new KeysetPagination<>("date_desc", "paymentDate", Sort.Direction.DESC,
+                        Payment::getPaymentDate, Payment::getId, LocalDate::parse);
+        }
+    }
+
     private void validatePaymentAmount(SalesOrder order, BigDecimal paymentAmount) {
         BigDecimal totalPaid = getTotalPaidAmountByOrderId(order.getId());
         BigDecimal remaining = order.getTotalPrice().subtract(totalPaid);
@@ -417,8 +466,10 @@ public class PaymentServiceImpl implements PaymentService {
         BigDecimal remaining = order.getTotalPrice().subtract(totalPaid);
 
         if (remaining.compareTo(BigDecimal.ZERO) <= 0) {
+            salesRollupService.retractOrder(order);
             order.setStatus("PAID");
             salesOrderRepository.save(order);
+            salesRollupService.recordOrder(order);
             log.info("Order {} marked as PAID", order.getId());
         }
     }
@@ -426,6 +477,7 @@ public class PaymentServiceImpl implements PaymentService {
     private void updateOrderStatusAfterRefund(SalesOrder order) {
         BigDecimal totalPaid = getTotalPaidAmountByOrderId(order.getId());
 
+        salesRollupService.retractOrder(order);
         if (totalPaid.compareTo(BigDecimal.ZERO) == 0) {
             order.setStatus("PENDING");
         } else if (totalPaid.compareTo(order.getTotalPrice()) < 0) {
@@ -433,6 +485,7 @@ public class PaymentServiceImpl implements PaymentService {
         }
 
         salesOrderRepository.save(order);
+        salesRollupService.recordOrder(order);
         log.info("Order {} status updated after refund", order.getId());
     }
 
@@ -0,0 +1,166 @@
+package com.evm.backend.service.impl;
+
+import com.evm.backend.dto.request.QuotationFilterRequest;
+import com.evm.backend.exception.BadRequestException;
+import com.evm.backend.repository.QuotationRepository;
+import com.evm.backend.service.QuotationExportService;
+import com.evm.backend.service.QuotationPdfCacheService;
+import com.evm.backend.service.QuotationPdfCacheService.CachedPdf;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.util.*;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+@Service
+@Slf4j
+public class QuotationExportServiceImpl implements QuotationExportService {
+
+    private final QuotationRepository quotationRepository;
+    private final QuotationPdfCacheService quotationPdfCacheService;
+    private final TaskExecutor pdfExecutor;
+    private final int inFlight;
+    private final int maxCount;
+
+    public QuotationExportServiceImpl(
+            QuotationRepository quotationRepository,
+            QuotationPdfCacheService quotationPdfCacheService,
+            @Qualifier("quotationPdfExecutor") TaskExecutor pdfExecutor,
+            @Value("${app.quotations.export.in-flight:8}") int inFlight,
+            @Value("${app.quotations.export.max-count:500}") int maxCount) {
+        this.quotationRepository = quotationRepository;
+        this.quotationPdfCacheService = quotationPdfCacheService;
+        this.pdfExecutor = pdfExecutor;
+        this.inFlight = Math.max(1, inFlight);
+        this.maxCount = maxCount;
+    }
+
+    @Override
+    public List<Long> findQuotationIdsForExport(QuotationFilterRequest filter) {
+        if (filter.getFromDate() != null && filter.getToDate() != null
+                && filter.getFromDate().isAfter(filter.getToDate())) {
+            throw new BadRequestException("fromDate phải trước hoặc bằng toDate");
+        }
+
+        // Lấy dư 1 để biết có vượt giới hạn hay không
+        List<Long> ids = quotationRepository.findQuotationIdsWithFilters(
+                filter.getCustomerId(),
+                filter.getSalesPersonId(),
+                filter.getDealerId(),
+                filter.getStatus(),
+                filter.getFromDate(),
+                filter.getToDate(),
+                PageRequest.of(0, maxCount + 1));
+
+        if (ids.isEmpty()) {
+            throw new BadRequestException("Không có báo giá nào khớp bộ lọc");
+        }
+        if (ids.size() > maxCount) {
+            throw new BadRequestException(
+                    "Số báo giá vượt quá " + maxCount + " mỗi lần xuất, vui lòng thu hẹp bộ lọc");
+        }
+        return ids;
+    }
+
+    /**
+     * Tối đa inFlight PDF đang dựng / chờ ghi cho mỗi request: chỉ gửi PDF mới đi dựng khi một PDF đã ghi xong,
+     * nên client tải chậm thì việc dựng cũng chậm lại và bộ nhớ không tăng theo số báo giá
+     * PDF lấy qua cache trên đĩa (báo giá không đổi thì không dựng lại), copy từ file vào ZIP theo thứ tự xong
+     */
+    @Override
+    public void exportPdfZip(List<Long> quotationIds, OutputStream outputStream) throws IOException {
+        CompletionService<CachedPdf> completion = new ExecutorCompletionService<>(pdfExecutor);
+        Map<Future<CachedPdf>, Long> running = new HashMap<>();
+        Iterator<Long> remaining = quotationIds.iterator();
+        Set<String> entryNames = new HashSet<>();
+        List<String> errors = new ArrayList<>();
+        long start = System.currentTimeMillis();
+
+        ZipOutputStream zip = new ZipOutputStream(outputStream);
+        // PDF đã nén sẵn (flate), nén thêm gần như không giảm kích thước
+        zip.setLevel(Deflater.BEST_SPEED);
+
+        try {
+            while (running.size() < inFlight && remaining.hasNext()) {
+                submit(completion, running, remaining.next());
+            }
+
+            while (!running.isEmpty()) {
+                Future<CachedPdf> done = completion.take();
+                Long quotationId = running.remove(done);
+
+                try {
+                    CachedPdf pdf = done.get();
+                    // Mở file trước khi tạo entry: file cache bị xóa thì không để lại entry rỗng trong ZIP
+                    // (file đã mở vẫn đọc được đến hết dù bị xóa sau đó)
+                    try (InputStream in = Files.newInputStream(pdf.getFile())) {
+                        zip.putNextEntry(new ZipEntry(uniqueName(entryNames, pdf.getFileName())));
+                        in.transferTo(zip);
+                        zip.closeEntry();
+                    }
+                } catch (NoSuchFileException e) {
+                    // File cache vừa bị xóa (báo giá được cập nhật trong lúc xuất)
+                    errors.add("Quotation " + quotationId + ": cập nhật trong lúc xuất, vui lòng xuất lại");
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    log.warn("Failed to render quotation {} for ZIP export", quotationId, cause);
+                    errors.add("Quotation " + quotationId + ": " + cause.getMessage());
+                }
+
+                if (remaining.hasNext()) {
+                    submit(completion, running, remaining.next());
+                }
+            }
+
+            if (!errors.isEmpty()) {
+                zip.putNextEntry(new ZipEntry("errors.txt"));
+                zip.write(String.join("\n", errors).getBytes(StandardCharsets.UTF_8));
+                zip.closeEntry();
+            }
+            zip.finish();
+            zip.flush();
+
+            log.info("Exported {} quotation PDFs ({} failed) in {} ms",
+                    quotationIds.size() - errors.size(), errors.size(), System.currentTimeMillis() - start);
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Quotation export interrupted", e);
+        } finally {
+            // Client ngắt kết nối / lỗi ghi: bỏ các PDF chưa dựng
+            running.keySet().forEach(future -> future.cancel(true));
+        }
+    }
+
+    // ===== HELPER METHODS =====
+
+    private void submit(CompletionService<CachedPdf> completion,
+                        Map<Future<CachedPdf>, Long> running, Long quotationId) {
+        running.put(completion.submit(() -> quotationPdfCacheService.getPdf(quotationId)), quotationId);
+    }
+
+    private static String uniqueName(Set<String> entryNames, String fileName) {
+        String safe = fileName.replaceAll("\\.pdf$", "").replaceAll("[^A-Za-z0-9._-]", "_");
+        String name = safe + ".pdf";
+        for (int i = 2; !entryNames.add(name); i++) {
+            name = safe + "-" + i + ".pdf";
+        }
+        return name;
+    }
+}
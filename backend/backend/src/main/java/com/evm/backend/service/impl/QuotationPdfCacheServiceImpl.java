@@ -0,0 +1,274 @@
+package com.evm.backend.service.impl;
+
+import com.evm.backend.entity.Quotation;
+import com.evm.backend.exception.ResourceNotFoundException;
+import com.evm.backend.repository.QuotationRepository;
+import com.evm.backend.service.QuotationPdfCacheService;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Hibernate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Cache PDF báo giá trên đĩa: {dir}/{quotationId}/{contentHash}.pdf
+ * - Hash tính từ đúng các trường được in (QuotationPdfRenderer.contentHash): gửi/chấp nhận/sửa báo giá
+ *   đổi nội dung -> hash mới -> dựng lại, không trả nhầm PDF cũ
+ * - Ghi file tạm rồi ATOMIC_MOVE: request khác không bao giờ đọc phải file đang ghi dở
+ * - Request không xóa file nào: update/recalculate xóa cả thư mục của báo giá (evict), file của nội dung cũ
+ *   còn sót lại được purgeStaleVersions dọn định kỳ
+ * - Tải một PDF dùng openPdf: mở file trước khi trả về nên file bị xóa giữa chừng không làm hỏng response
+ */
+@Service
+@Slf4j
+public class QuotationPdfCacheServiceImpl implements QuotationPdfCacheService {
+
+    private static final String PDF_SUFFIX = ".pdf";
+    private static final String PART_SUFFIX = ".part";
+    // Dựng lại tối đa một lần khi file bị evict xóa ngay trước khi mở
+    private static final int OPEN_ATTEMPTS = 2;
+
+    private final QuotationRepository quotationRepository;
+    private final QuotationPdfRenderer quotationPdfRenderer;
+    private final TransactionTemplate readOnlyTransaction;
+    private final Path cacheDir;
+    private final Duration retention;
+
+    public QuotationPdfCacheServiceImpl(
+            QuotationRepository quotationRepository,
+            QuotationPdfRenderer quotationPdfRenderer,
+            PlatformTransactionManager transactionManager,
+            @Value("${app.quotations.pdf-cache.dir:cache/quotations/}") String cacheDir,
+            @Value("${app.quotations.pdf-cache.retention-minutes:10}") long retentionMinutes) throws IOException {
+        this.quotationRepository = quotationRepository;
+        this.quotationPdfRenderer = quotationPdfRenderer;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.cacheDir = Paths.get(cacheDir).toAbsolutePath();
+        this.retention = Duration.ofMinutes(retentionMinutes);
+        Files.createDirectories(this.cacheDir);
+    }
+
+    @Override
+    public CachedPdf getPdf(Long quotationId) {
+        Quotation quotation = loadForRendering(quotationId);
+        String hash = quotationPdfRenderer.contentHash(quotation);
+
+        Path directory = cacheDir.resolve(String.valueOf(quotationId));
+        Path file = directory.resolve(hash + PDF_SUFFIX);
+
+        try {
+            long size;
+            if (Files.exists(file)) {
+                log.debug("Quotation PDF cache hit: {} ({})", quotationId, hash);
+            } else {
+                render(quotation, directory, file);
+            }
+            try {
+                size = Files.size(file);
+            } catch (NoSuchFileException e) {
+                // Bị evict xóa ngay sau khi kiểm tra
+                render(quotation, directory, file);
+                size = Files.size(file);
+            }
+
+            String fileName = (quotation.getQuotationNumber() != null
+                    ? quotation.getQuotationNumber()
+                    : "quotation-" + quotationId) + PDF_SUFFIX;
+            return new CachedPdf(file, size, "\"" + hash + "\"", fileName);
+
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot cache PDF for quotation " + quotationId, e);
+        }
+    }
+
+    @Override
+    public OpenedPdf openPdf(Long quotationId) {
+        for (int attempt = 1; ; attempt++) {
+            CachedPdf pdf = getPdf(quotationId);
+            try {
+                FileChannel channel = FileChannel.open(pdf.getFile(), StandardOpenOption.READ);
+                try {
+                    return new OpenedPdf(Channels.newInputStream(channel), channel.size(),
+                            pdf.getEtag(), pdf.getFileName());
+                } catch (IOException e) {
+                    channel.close();
+                    throw e;
+                }
+            } catch (NoSuchFileException e) {
+                if (attempt >= OPEN_ATTEMPTS) {
+                    throw new UncheckedIOException("PDF for quotation " + quotationId
+                            + " was evicted repeatedly while opening", e);
+                }
+                log.debug("Quotation PDF {} evicted before open, rendering again", quotationId);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot open cached PDF for quotation " + quotationId, e);
+            }
+        }
+    }
+
+    @Override
+    public void evict(Long quotationId) {
+        Runnable delete = () -> {
+            Path directory = cacheDir.resolve(String.valueOf(quotationId));
+            try {
+                if (Files.isDirectory(directory)) {
+                    deleteOtherVersions(directory, null);
+                    Files.deleteIfExists(directory);
+                    log.debug("Quotation PDF cache evicted: {}", quotationId);
+                }
+            } catch (IOException e) {
+                // File cũ vẫn an toàn: hash không còn khớp nội dung mới nên sẽ không được trả về
+                log.warn("Failed to evict PDF cache for quotation {}", quotationId, e);
+            }
+        };
+
+        // Xóa sau commit: request đọc song song trước commit vẫn thấy dữ liệu cũ và có thể ghi lại file cũ
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    delete.run();
+                }
+            });
+        } else {
+            delete.run();
+        }
+    }
+
+    /**
+     * Mỗi thư mục báo giá giữ file PDF mới nhất; các bản cũ hơn và file .part quá retention thì xóa
+     * (request đang tải bản cũ đã mở file nên vẫn đọc được hết)
+     */
+    @Override
+    @Scheduled(fixedDelayString = "${app.quotations.pdf-cache.cleanup-interval-ms:600000}")
+    public int purgeStaleVersions() {
+        long cutoffMillis = System.currentTimeMillis() - retention.toMillis();
+        int removed = 0;
+
+        try (DirectoryStream<Path> directories = Files.newDirectoryStream(cacheDir, Files::isDirectory)) {
+            for (Path directory : directories) {
+                removed += purgeStaleVersions(directory, cutoffMillis);
+            }
+        } catch (IOException e) {
+            log.warn("Failed to scan quotation PDF cache directory {}", cacheDir, e);
+        }
+
+        if (removed > 0) {
+            log.info("Purged {} stale quotation PDFs", removed);
+        }
+        return removed;
+    }
+
+    // ===== HELPER METHODS =====
+
+    /**
+     * Nạp đủ mọi quan hệ renderer cần trong transaction ngắn, dựng PDF ngoài transaction
+     */
+    private Quotation loadForRendering(Long quotationId) {
+        return readOnlyTransaction.execute(status -> {
+            Quotation quotation = quotationRepository.findByIdWithDetails(quotationId)
+                    .orElseThrow(() -> new ResourceNotFoundException("Quotation not found"));
+            quotation.getQuotationPromotions().forEach(qp -> Hibernate.initialize(qp.getPromotion()));
+            return quotation;
+        });
+    }
+
+    private void render(Quotation quotation, Path directory, Path file) throws IOException {
+        Files.createDirectories(directory);
+        Path partFile = Files.createTempFile(directory, "render-", PART_SUFFIX);
+        try {
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(partFile))) {
+                quotationPdfRenderer.render(quotation, out);
+            }
+            Files.move(partFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.info("Quotation PDF rendered and cached: {} ({} bytes)", quotation.getId(), Files.size(file));
+        } finally {
+            Files.deleteIfExists(partFile);
+        }
+    }
+
+    /**
+     * Xóa các PDF khác trong thư mục của báo giá (keep = null: xóa hết)
+     */
+    private void deleteOtherVersions(Path directory, Path keep) throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                if (!file.equals(keep) && file.getFileName().toString().endsWith(PDF_SUFFIX)) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    private int purgeStaleVersions(Path directory, long cutoffMillis) {
+        List<Path> pdfs = new ArrayList<>();
+        int removed = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(PDF_SUFFIX)) {
+                    pdfs.add(file);
+                } else if (name.endsWith(PART_SUFFIX) && isOlderThan(file, cutoffMillis)) {
+                    removed += deleteQuietly(file);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Failed to scan quotation PDF cache directory {}", directory, e);
+            return removed;
+        }
+
+        // Bản mới nhất là nội dung hiện tại của báo giá (hoặc sẽ bị evict khi báo giá đổi)
+        pdfs.sort(Comparator.comparingLong(this::lastModifiedMillis).reversed());
+        for (Path file : pdfs.subList(Math.min(1, pdfs.size()), pdfs.size())) {
+            if (isOlderThan(file, cutoffMillis)) {
+                removed += deleteQuietly(file);
+            }
+        }
+        return removed;
+    }
+
+    private boolean isOlderThan(Path file, long cutoffMillis) {
+        return lastModifiedMillis(file) < cutoffMillis;
+    }
+
+    private long lastModifiedMillis(Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            // File vừa bị xóa: coi như mới nhất, không đụng tới
+            return Long.MAX_VALUE;
+        }
+    }
+
+    private int deleteQuietly(Path file) {
+        try {
+            return Files.deleteIfExists(file) ? 1 : 0;
+        } catch (IOException e) {
+            log.warn("Failed to delete cached quotation PDF {}", file, e);
+            return 0;
+        }
+    }
+}
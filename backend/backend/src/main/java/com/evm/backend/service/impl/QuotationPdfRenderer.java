@@ -0,0 +1,445 @@
+package com.evm.backend.service.impl;
+
+import com.evm.backend.entity.Quotation;
+import com.evm.backend.entity.QuotationPromotion;
+import com.itextpdf.text.*;
+import com.itextpdf.text.pdf.BaseFont;
+import com.itextpdf.text.pdf.PdfPCell;
+import com.itextpdf.text.pdf.PdfPTable;
+import com.itextpdf.text.pdf.PdfWriter;
+import com.itextpdf.text.pdf.draw.LineSeparator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.NumberFormat;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Dựng PDF báo giá theo một layout cố định
+ * - Font tiếng Việt (DejaVu Sans, nhúng trong classpath: fonts/) parse một lần khi khởi động, dùng chung cho mọi PDF
+ *   (BaseFont chỉ đọc; glyph đã dùng được ghi nhận theo từng PdfWriter nên dùng chung giữa các thread được)
+ * - Kiểu ô/bảng (padding, viền, nền) tạo qua các hàm dựng dùng chung, không lặp lại cấu hình trong từng phần
+ * Không truy cập DB: quotation phải được nạp đủ (product, customer, salesPerson, dealer, quotationPromotions)
+ */
+@Component
+@Slf4j
+public class QuotationPdfRenderer {
+
+    private static final String FONT_REGULAR = "fonts/DejaVuSans.ttf";
+    private static final String FONT_BOLD = "fonts/DejaVuSans-Bold.ttf";
+
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+    // NumberFormat không thread-safe
+    private static final ThreadLocal<NumberFormat> CURRENCY_FORMATTER =
+            ThreadLocal.withInitial(() -> NumberFormat.getCurrencyInstance(new Locale("vi", "VN")));
+
+    // Tăng khi layout hoặc nội dung cố định (thông tin công ty, tiêu đề...) thay đổi
+    private static final String LAYOUT_VERSION = "1";
+
+    // PDF một trang báo giá (font đã subset) thường ~30-60KB
+    private static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+
+    private final Font fontTitle;
+    private final Font fontHeader;
+    private final Font fontNormal;
+    private final Font fontSmall;
+
+    public QuotationPdfRenderer() {
+        BaseFont bold = loadFont(FONT_BOLD);
+        BaseFont regular = loadFont(FONT_REGULAR);
+
+        this.fontTitle = new Font(bold, 18, Font.NORMAL);
+        this.fontHeader = new Font(bold, 12, Font.NORMAL);
+        this.fontNormal = new Font(regular, 10, Font.NORMAL);
+        this.fontSmall = new Font(regular, 8, Font.NORMAL);
+    }
+
+    public byte[] render(Quotation quotation) {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream(INITIAL_BUFFER_SIZE);
+        render(quotation, baos);
+        return baos.toByteArray();
+    }
+
+    /**
+     * Ghi PDF thẳng ra stream (không đóng stream)
+     */
+    public void render(Quotation quotation, OutputStream out) {
+        Document document = new Document(PageSize.A4, 40, 40, 40, 40);
+        try {
+            PdfWriter writer = PdfWriter.getInstance(document, out);
+            writer.setCloseStream(false);
+            document.open();
+
+            addCompanyHeader(document);
+            addTitle(document);
+            addQuotationInfo(document, quotation);
+            addCustomerInfo(document, quotation);
+            addProductTable(document, quotation);
+            addPriceSummary(document, quotation);
+            addTermsAndConditions(document, quotation);
+            addFooter(document, quotation);
+        } catch (DocumentException e) {
+            throw new IllegalStateException("Failed to render PDF for quotation " + quotation.getQuotationNumber(), e);
+        } finally {
+            if (document.isOpen()) {
+                document.close();
+            }
+        }
+    }
+
+    /**
+     * Hash (SHA-256, hex) của mọi nội dung được in ra PDF: cùng hash -> cùng file PDF
+     * Đổi layout / nội dung cố định thì tăng LAYOUT_VERSION để bỏ các PDF đã cache
+     */
+    public String contentHash(Quotation quotation) {
+        List<String> promotions = new ArrayList<>();
+        if (quotation.getQuotationPromotions() != null) {
+            for (QuotationPromotion qp : quotation.getQuotationPromotions()) {
+                promotions.add(qp.getPromotion().getPromotionName() + "=" + formatCurrency(qp.getAppliedAmount()));
+            }
+            Collections.sort(promotions);
+        }
+
+        List<String> values = Arrays.asList(
+                LAYOUT_VERSION,
+                quotation.getQuotationNumber(),
+                formatDate(quotation.getQuotationDate()),
+                formatDate(quotation.getValidUntil()),
+                getStatusText(quotation.getStatus()),
+                quotation.getCustomer() != null ? quotation.getCustomer().getFullName() : null,
+                quotation.getCustomer() != null ? quotation.getCustomer().getPhoneNumber() : null,
+                quotation.getCustomer() != null ? quotation.getCustomer().getEmail() : null,
+                quotation.getCustomer() != null ? quotation.getCustomer().getAddress() : null,
+                quotation.getSalesPerson() != null ? quotation.getSalesPerson().getFullName() : null,
+                quotation.getDealer() != null ? quotation.getDealer().getDealerName() : null,
+                quotation.getProduct() != null ? quotation.getProduct().getProductName() : null,
+                quotation.getProduct() != null ? quotation.getProduct().getVersion() : null,
+                formatCurrency(quotation.getBasePrice()),
+                formatCurrency(quotation.getVat()),
+                formatCurrency(quotation.getRegistrationFee()),
+                formatCurrency(quotation.getDiscountAmount()),
+                formatCurrency(quotation.getTotalPrice()),
+                String.join("\u001E", promotions),
+                quotation.getTermsAndConditions(),
+                quotation.getNotes());
+
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (String value : values) {
+                // Phân biệt null với chuỗi rỗng, và ranh giới giữa các trường
+                digest.update(value != null ? ("1" + value).getBytes(StandardCharsets.UTF_8) : new byte[]{'0'});
+                digest.update((byte) 0x1F);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static BaseFont loadFont(String path) {
+        try (InputStream in = new ClassPathResource(path).getInputStream()) {
+            // cached = false: không giữ thêm bản trong cache tĩnh của iText, instance này đã được giữ trong bean
+            BaseFont font = BaseFont.createFont(path, BaseFont.IDENTITY_H, BaseFont.EMBEDDED, false, in.readAllBytes(), null);
+            log.info("Loaded PDF font {}", path);
+            return font;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot load PDF font " + path, e);
+        } catch (DocumentException e) {
+            throw new IllegalStateException("Invalid PDF font " + path, e);
+        }
+    }
+
+    // ===== Các phần của layout =====
+
+    private void addCompanyHeader(Document document) throws DocumentException {
+        PdfPTable headerTable = table(2, 0);
+        headerTable.setSpacingAfter(20);
+
+        Paragraph company = new Paragraph();
+        company.add(new Phrase("CÔNG TY XE ĐIỆN EVM\n", fontHeader));
+        company.add(new Phrase("Electric Vehicle Management System\n", fontNormal));
+        company.add(new Phrase("Địa chỉ: 123 Đường ABC, Quận 1, TP.HCM\n", fontSmall));
+        company.add(new Phrase("Hotline: 1900-xxxx | Email: sales@evm.vn", fontSmall));
+        headerTable.addCell(blockCell(company, Element.ALIGN_LEFT));
+
+        Paragraph info = new Paragraph();
+        info.add(new Phrase("Mã số thuế: 0123456789\n", fontSmall));
+        info.add(new Phrase("Website: www.evm.vn\n", fontSmall));
+        headerTable.addCell(blockCell(info, Element.ALIGN_RIGHT));
+
+        document.add(headerTable);
+
+        // Separator
+        LineSeparator line = new LineSeparator(1, 100, BaseColor.GRAY, Element.ALIGN_CENTER, -2);
+        document.add(new Chunk(line));
+        document.add(new Paragraph(" "));
+    }
+
+    private void addTitle(Document document) throws DocumentException {
+        Paragraph title = new Paragraph();
+        title.setAlignment(Element.ALIGN_CENTER);
+        title.setSpacingAfter(10);
+        title.add(new Chunk("BÁO GIÁ XE ĐIỆN", fontTitle));
+        document.add(title);
+
+        Paragraph subtitle = new Paragraph();
+        subtitle.setAlignment(Element.ALIGN_CENTER);
+        subtitle.setSpacingAfter(20);
+        subtitle.add(new Phrase("(Electric Vehicle Quotation)", fontNormal));
+        document.add(subtitle);
+    }
+
+    private void addQuotationInfo(Document document, Quotation quotation) throws DocumentException {
+        PdfPTable table = table(4, 15);
+        table.setWidths(new int[]{25, 25, 25, 25});
+
+        addLabelValue(table, "Số báo giá:", quotation.getQuotationNumber(), 3);
+        addLabelValue(table, "Ngày báo giá:", formatDate(quotation.getQuotationDate()), 3);
+        addLabelValue(table, "Có hiệu lực đến:", formatDate(quotation.getValidUntil()), 3);
+        addLabelValue(table, "Trạng thái:", getStatusText(quotation.getStatus()), 3);
+
+        document.add(table);
+    }
+
+    private void addCustomerInfo(Document document, Quotation quotation) throws DocumentException {
+        document.add(sectionHeader("THÔNG TIN KHÁCH HÀNG", 10));
+
+        PdfPTable table = table(2, 15);
+        table.setWidths(new int[]{30, 70});
+
+        if (quotation.getCustomer() != null) {
+            addLabelValue(table, "Tên khách hàng:", quotation.getCustomer().getFullName(), 5);
+            addLabelValue(table, "Số điện thoại:", quotation.getCustomer().getPhoneNumber(), 5);
+            if (quotation.getCustomer().getEmail() != null) {
+                addLabelValue(table, "Email:", quotation.getCustomer().getEmail(), 5);
+            }
+            if (quotation.getCustomer().getAddress() != null) {
+                addLabelValue(table, "Địa chỉ:", quotation.getCustomer().getAddress(), 5);
+            }
+        }
+
+        if (quotation.getSalesPerson() != null) {
+            addLabelValue(table, "Nhân viên tư vấn:", quotation.getSalesPerson().getFullName(), 5);
+        }
+
+        if (quotation.getDealer() != null) {
+            addLabelValue(table, "Đại lý:", quotation.getDealer().getDealerName(), 5);
+        }
+
+        document.add(table);
+    }
+
+    private void addProductTable(Document document, Quotation quotation) throws DocumentException {
+        document.add(sectionHeader("CHI TIẾT SẢN PHẨM", 10));
+
+        PdfPTable table = table(4, 15);
+        table.setWidths(new int[]{40, 20, 20, 20});
+
+        // Header
+        table.addCell(gridHeaderCell("Sản phẩm"));
+        table.addCell(gridHeaderCell("Phiên bản"));
+        table.addCell(gridHeaderCell("Số lượng"));
+        table.addCell(gridHeaderCell("Đơn giá"));
+
+        // Product row
+        if (quotation.getProduct() != null) {
+            table.addCell(gridCell(quotation.getProduct().getProductName(), Element.ALIGN_LEFT));
+            table.addCell(gridCell(quotation.getProduct().getVersion(), Element.ALIGN_CENTER));
+            table.addCell(gridCell("1", Element.ALIGN_CENTER));
+            table.addCell(gridCell(formatCurrency(quotation.getBasePrice()), Element.ALIGN_RIGHT));
+        }
+
+        document.add(table);
+    }
+
+    private void addPriceSummary(Document document, Quotation quotation) throws DocumentException {
+        document.add(sectionHeader("TỔNG KẾT GIÁ", 10));
+
+        PdfPTable table = table(2, 15);
+        table.setWidths(new int[]{70, 30});
+
+        addSummaryRow(table, "Giá niêm yết:", formatCurrency(quotation.getBasePrice()), false);
+        addSummaryRow(table, "VAT (10%):", formatCurrency(quotation.getVat()), false);
+
+        if (quotation.getRegistrationFee() != null && quotation.getRegistrationFee().compareTo(BigDecimal.ZERO) > 0) {
+            addSummaryRow(table, "Phí trước bạ:", formatCurrency(quotation.getRegistrationFee()), false);
+        }
+
+        if (quotation.getQuotationPromotions() != null && !quotation.getQuotationPromotions().isEmpty()) {
+            for (QuotationPromotion qp : quotation.getQuotationPromotions()) {
+                String promotionLabel = "  - " + qp.getPromotion().getPromotionName() + ":";
+                addSummaryRow(table, promotionLabel, "-" + formatCurrency(qp.getAppliedAmount()), false);
+            }
+        }
+
+        if (quotation.getDiscountAmount() != null && quotation.getDiscountAmount().compareTo(BigDecimal.ZERO) > 0) {
+            addSummaryRow(table, "Tổng giảm giá:", "-" + formatCurrency(quotation.getDiscountAmount()), false);
+        }
+
+        // Separator
+        PdfPCell separatorCell = new PdfPCell();
+        separatorCell.setColspan(2);
+        separatorCell.setBorder(Rectangle.TOP);
+        separatorCell.setPaddingTop(5);
+        separatorCell.setPaddingBottom(5);
+        table.addCell(separatorCell);
+
+        addSummaryRow(table, "TỔNG CỘNG:", formatCurrency(quotation.getTotalPrice()), true);
+
+        document.add(table);
+    }
+
+    private void addTermsAndConditions(Document document, Quotation quotation) throws DocumentException {
+        if (quotation.getTermsAndConditions() != null && !quotation.getTermsAndConditions().isEmpty()) {
+            document.add(sectionHeader("ĐIỀU KHOẢN & ĐIỀU KIỆN", 15));
+            document.add(justified(quotation.getTermsAndConditions()));
+        }
+
+        if (quotation.getNotes() != null && !quotation.getNotes().isEmpty()) {
+            document.add(sectionHeader("GHI CHÚ", 10));
+            document.add(justified(quotation.getNotes()));
+        }
+    }
+
+    private void addFooter(Document document, Quotation quotation) throws DocumentException {
+        document.add(new Paragraph("\n", fontSmall));
+
+        PdfPTable signatureTable = table(2, 0);
+        signatureTable.setSpacingBefore(10);
+        signatureTable.setKeepTogether(true);
+        signatureTable.setWidths(new float[]{1f, 1f});
+
+        Paragraph customer = new Paragraph();
+        customer.setAlignment(Element.ALIGN_CENTER);
+        customer.add(new Phrase("KHÁCH HÀNG\n", fontHeader));
+        customer.add(new Phrase("(Ký và ghi rõ họ tên)", fontSmall));
+        customer.add(new Phrase("\n\n\n", fontSmall)); // 3 dòng cho chữ ký
+
+        Paragraph sales = new Paragraph();
+        sales.setAlignment(Element.ALIGN_CENTER);
+        sales.add(new Phrase("NHÂN VIÊN TƯ VẤN\n", fontHeader));
+        sales.add(new Phrase("(Ký và ghi rõ họ tên)", fontSmall));
+        sales.add(new Phrase("\n\n", fontSmall)); // Chỉ 2 dòng trước tên
+        if (quotation.getSalesPerson() != null) {
+            sales.add(new Phrase(quotation.getSalesPerson().getFullName(), fontNormal));
+        }
+
+        signatureTable.addCell(signatureCell(customer));
+        signatureTable.addCell(signatureCell(sales));
+
+        document.add(signatureTable);
+    }
+
+    // ===== Kiểu bảng / ô dùng chung =====
+
+    private static PdfPTable table(int columns, float spacingAfter) {
+        PdfPTable table = new PdfPTable(columns);
+        table.setWidthPercentage(100);
+        table.setSpacingAfter(spacingAfter);
+        return table;
+    }
+
+    private Paragraph sectionHeader(String text, float spacingBefore) {
+        Paragraph header = new Paragraph(text, fontHeader);
+        header.setSpacingBefore(spacingBefore);
+        header.setSpacingAfter(10);
+        return header;
+    }
+
+    private Paragraph justified(String text) {
+        Paragraph paragraph = new Paragraph(text, fontNormal);
+        paragraph.setAlignment(Element.ALIGN_JUSTIFIED);
+        paragraph.setSpacingAfter(15);
+        return paragraph;
+    }
+
+    private static PdfPCell blockCell(Paragraph content, int alignment) {
+        PdfPCell cell = new PdfPCell();
+        cell.setBorder(Rectangle.NO_BORDER);
+        cell.setHorizontalAlignment(alignment);
+        cell.addElement(content);
+        return cell;
+    }
+
+    private static PdfPCell signatureCell(Paragraph content) {
+        PdfPCell cell = blockCell(content, Element.ALIGN_CENTER);
+        cell.setPaddingTop(5);
+        cell.setPaddingBottom(5);
+        return cell;
+    }
+
+    private static PdfPCell plainCell(String text, Font font, float padding, int alignment) {
+        PdfPCell cell = new PdfPCell(new Phrase(text != null ? text : "", font));
+        cell.setBorder(Rectangle.NO_BORDER);
+        cell.setPadding(padding);
+        cell.setHorizontalAlignment(alignment);
+        return cell;
+    }
+
+    private void addLabelValue(PdfPTable table, String label, String value, float padding) {
+        table.addCell(plainCell(label, fontHeader, padding, Element.ALIGN_LEFT));
+        table.addCell(plainCell(value, fontNormal, padding, Element.ALIGN_LEFT));
+    }
+
+    private void addSummaryRow(PdfPTable table, String label, String value, boolean isBold) {
+        Font font = isBold ? fontHeader : fontNormal;
+        table.addCell(plainCell(label, font, 5, Element.ALIGN_LEFT));
+        table.addCell(plainCell(value, font, 5, Element.ALIGN_RIGHT));
+    }
+
+    private PdfPCell gridHeaderCell(String text) {
+        PdfPCell cell = new PdfPCell(new Phrase(text, fontHeader));
+        cell.setBackgroundColor(BaseColor.LIGHT_GRAY);
+        cell.setPadding(8);
+        cell.setHorizontalAlignment(Element.ALIGN_CENTER);
+        return cell;
+    }
+
+    private PdfPCell gridCell(String text, int alignment) {
+        PdfPCell cell = new PdfPCell(new Phrase(text != null ? text : "", fontNormal));
+        cell.setPadding(8);
+        cell.setHorizontalAlignment(alignment);
+        return cell;
+    }
+
+    // ===== Định dạng =====
+
+    private static String formatDate(LocalDate date) {
+        return date != null ? date.format(DATE_FORMATTER) : "";
+    }
+
+    private static String formatCurrency(BigDecimal amount) {
+        if (amount == null) return "0 ₫";
+        return CURRENCY_FORMATTER.get().format(amount);
+    }
+
+    private static String getStatusText(String status) {
+        if (status == null) return "";
+        switch (status) {
+            case "DRAFT": return "Nháp";
+            case "SENT": return "Đã gửi";
+            case "ACCEPTED": return "Đã chấp nhận";
+            case "REJECTED": return "Đã từ chối";
+            case "EXPIRED": return "Hết hạn";
+            case "CONVERTED": return "Đã chuyển đơn";
+            default: return status;
+        }
+    }
+}
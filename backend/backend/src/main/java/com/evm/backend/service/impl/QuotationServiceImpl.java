@@ -7,8 +7,9 @@ import com.evm.backend.entity.*;
 import com.evm.backend.exception.BadRequestException;
 import com.evm.backend.exception.ResourceNotFoundException;
 import com.evm.backend.repository.*;
+import com.evm.backend.service.QuotationPdfCacheService;
 import com.evm.backend.service.QuotationService;
-import com.itextpdf.text.pdf.draw.LineSeparator;
+import com.evm.backend.service.SalesRollupService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
@@ -16,17 +17,11 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import com.itextpdf.text.*;
-import com.itextpdf.text.pdf.*;
-import java.io.ByteArrayOutputStream;
-import java.text.NumberFormat;
-import java.time.format.DateTimeFormatter;
-import java.util.Locale;
-
-
-
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.nio.file.Files;
 import java.time.LocalDate;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
@@ -49,16 +44,8 @@ public class QuotationServiceImpl implements QuotationService {
     private final PromotionRepository promotionRepository;
     private final SalesOrderRepository salesOrderRepository;
     private final QuotationPromotionRepository quotationPromotionRepository;
-
-    // Thêm các constant vào class QuotationServiceImpl
-    private static final Font FONT_TITLE = new Font(Font.FontFamily.HELVETICA, 18, Font.BOLD);
-    private static final Font FONT_HEADER = new Font(Font.FontFamily.HELVETICA, 12, Font.BOLD);
-    private static final Font FONT_NORMAL = new Font(Font.FontFamily.HELVETICA, 10, Font.NORMAL);
-    private static final Font FONT_SMALL = new Font(Font.FontFamily.HELVETICA, 8, Font.NORMAL);
-//    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("dd/MM/yyyy");
-//    private static final NumberFormat CURRENCY_FORMATTER = NumberFormat.getCurrencyInstance(new Locale("vi", "VN"));
-    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("dd/MM/yyyy");
-    private static final NumberFormat CURRENCY_FORMATTER = NumberFormat.getCurrencyInstance(new Locale("vi", "VN"));
+    private final SalesRollupService salesRollupService;
+    private final QuotationPdfCacheService quotationPdfCacheService;
 
     private static final BigDecimal VAT_RATE = new BigDecimal("0.10"); // 10%
 
@@ -266,6 +253,8 @@ public class QuotationServiceImpl implements QuotationService {
         log.info("Quotation {} updated successfully with {} promotions",
                 id, updated.getQuotationPromotions().size());
 
+        quotationPdfCacheService.evict(id);
+
         return convertToResponse(updated);
     }
 
@@ -298,6 +287,7 @@ public class QuotationServiceImpl implements QuotationService {
             quotationRepository.delete(quotation);
             quotationRepository.flush();
 
+            quotationPdfCacheService.evict(id);
             log.info("Successfully deleted quotation: {} (ID: {})", quotation.getQuotationNumber(), id);
 
         } catch (Exception e) {
@@ -392,6 +382,7 @@ public class QuotationServiceImpl implements QuotationService {
                 .build();
 
         SalesOrder savedOrder = salesOrderRepository.save(order);
+        salesRollupService.recordOrder(savedOrder);
         log.info("Created order {} from quotation {}", savedOrder.getId(), quotation.getId());
 
         // Copy promotions from quotation to order
@@ -481,398 +472,11 @@ public class QuotationServiceImpl implements QuotationService {
 
     @Override
     public byte[] exportQuotationToPdf(Long id) {
-        Quotation quotation = quotationRepository.findByIdWithDetails(id)
-                .orElseThrow(() -> new ResourceNotFoundException("Quotation not found"));
-
+        QuotationPdfCacheService.CachedPdf pdf = quotationPdfCacheService.getPdf(id);
         try {
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            Document document = new Document(PageSize.A4, 40, 40, 40, 40);
-            PdfWriter.getInstance(document, baos);
-
-            // Tạo fonts hỗ trợ tiếng Việt với itext-asian
-            BaseFont bfBold = BaseFont.createFont("c:/windows/fonts/arialbd.ttf", BaseFont.IDENTITY_H, BaseFont.EMBEDDED);
-            BaseFont bfNormal = BaseFont.createFont("c:/windows/fonts/arial.ttf", BaseFont.IDENTITY_H, BaseFont.EMBEDDED);
-
-            Font fontTitle = new Font(bfBold, 18, Font.BOLD);
-            Font fontHeader = new Font(bfBold, 12, Font.BOLD);
-            Font fontNormal = new Font(bfNormal, 10, Font.NORMAL);
-            Font fontSmall = new Font(bfNormal, 8, Font.NORMAL);
-
-            document.open();
-
-            // 1. Header - Company Info
-            addCompanyHeader(document, fontHeader, fontNormal, fontSmall);
-
-            // 2. Title
-            addTitle(document, quotation, fontTitle, fontNormal);
-
-            // 3. Quotation Info
-            addQuotationInfo(document, quotation, fontHeader, fontNormal);
-
-            // 4. Customer Info
-            addCustomerInfo(document, quotation, fontHeader, fontNormal);
-
-            // 5. Product Details Table
-            addProductTable(document, quotation, fontHeader, fontNormal);
-
-            // 6. Price Summary
-            addPriceSummary(document, quotation, fontHeader, fontNormal);
-
-            // 7. Terms and Conditions
-            addTermsAndConditions(document, quotation, fontHeader, fontNormal);
-
-            // 8. Footer
-            addFooter(document, quotation, fontHeader, fontNormal, fontSmall);
-
-            document.close();
-
-            log.info("PDF generated successfully for quotation: {}", quotation.getQuotationNumber());
-            return baos.toByteArray();
-
-        } catch (Exception e) {
-            log.error("Error generating PDF for quotation: {}", quotation.getQuotationNumber(), e);
-            throw new RuntimeException("Failed to generate PDF: " + e.getMessage(), e);
-        }
-    }
-
-// ============================================================
-// BƯỚC 5: Thêm các helper methods vào cuối class
-// ============================================================
-
-    private void addCompanyHeader(Document document, Font fontHeader, Font fontNormal, Font fontSmall)
-            throws DocumentException {
-        PdfPTable headerTable = new PdfPTable(2);
-        headerTable.setWidthPercentage(100);
-        headerTable.setSpacingAfter(20);
-
-        // Left side - Company info
-        PdfPCell leftCell = new PdfPCell();
-        leftCell.setBorder(Rectangle.NO_BORDER);
-        Paragraph company = new Paragraph();
-        company.add(new Phrase("CÔNG TY XE ĐIỆN EVM\n", fontHeader));
-        company.add(new Phrase("Electric Vehicle Management System\n", fontNormal));
-        company.add(new Phrase("Địa chỉ: 123 Đường ABC, Quận 1, TP.HCM\n", fontSmall));
-        company.add(new Phrase("Hotline: 1900-xxxx | Email: sales@evm.vn", fontSmall));
-        leftCell.addElement(company);
-
-        // Right side
-        PdfPCell rightCell = new PdfPCell();
-        rightCell.setBorder(Rectangle.NO_BORDER);
-        rightCell.setHorizontalAlignment(Element.ALIGN_RIGHT);
-        Paragraph info = new Paragraph();
-        info.add(new Phrase("Mã số thuế: 0123456789\n", fontSmall));
-        info.add(new Phrase("Website: www.evm.vn\n", fontSmall));
-        rightCell.addElement(info);
-
-        headerTable.addCell(leftCell);
-        headerTable.addCell(rightCell);
-        document.add(headerTable);
-
-        // Separator
-        LineSeparator line = new LineSeparator(1, 100, BaseColor.GRAY, Element.ALIGN_CENTER, -2);
-        document.add(new Chunk(line));
-        document.add(new Paragraph(" "));
-    }
-
-    private void addTitle(Document document, Quotation quotation, Font fontTitle, Font fontNormal)
-            throws DocumentException {
-        Paragraph title = new Paragraph();
-        title.setAlignment(Element.ALIGN_CENTER);
-        title.setSpacingAfter(10);
-        title.add(new Chunk("BÁO GIÁ XE ĐIỆN", fontTitle));
-        document.add(title);
-
-        Paragraph subtitle = new Paragraph();
-        subtitle.setAlignment(Element.ALIGN_CENTER);
-        subtitle.setSpacingAfter(20);
-        subtitle.add(new Phrase("(Electric Vehicle Quotation)", fontNormal));
-        document.add(subtitle);
-    }
-
-    private void addQuotationInfo(Document document, Quotation quotation, Font fontHeader, Font fontNormal)
-            throws DocumentException {
-        PdfPTable table = new PdfPTable(4);
-        table.setWidthPercentage(100);
-        table.setSpacingAfter(15);
-        table.setWidths(new int[]{25, 25, 25, 25});
-
-        addInfoCell(table, "Số báo giá:", quotation.getQuotationNumber(), fontHeader, fontNormal);
-        addInfoCell(table, "Ngày báo giá:", quotation.getQuotationDate().format(DATE_FORMATTER), fontHeader, fontNormal);
-        addInfoCell(table, "Có hiệu lực đến:", quotation.getValidUntil().format(DATE_FORMATTER), fontHeader, fontNormal);
-        addInfoCell(table, "Trạng thái:", getStatusText(quotation.getStatus()), fontHeader, fontNormal);
-
-        document.add(table);
-    }
-
-    private void addCustomerInfo(Document document, Quotation quotation, Font fontHeader, Font fontNormal)
-            throws DocumentException {
-        Paragraph header = new Paragraph("THÔNG TIN KHÁCH HÀNG", fontHeader);
-        header.setSpacingBefore(10);
-        header.setSpacingAfter(10);
-        document.add(header);
-
-        PdfPTable table = new PdfPTable(2);
-        table.setWidthPercentage(100);
-        table.setSpacingAfter(15);
-        table.setWidths(new int[]{30, 70});
-
-        if (quotation.getCustomer() != null) {
-            addDetailRow(table, "Tên khách hàng:", quotation.getCustomer().getFullName(), fontHeader, fontNormal);
-            addDetailRow(table, "Số điện thoại:", quotation.getCustomer().getPhoneNumber(), fontHeader, fontNormal);
-            if (quotation.getCustomer().getEmail() != null) {
-                addDetailRow(table, "Email:", quotation.getCustomer().getEmail(), fontHeader, fontNormal);
-            }
-            if (quotation.getCustomer().getAddress() != null) {
-                addDetailRow(table, "Địa chỉ:", quotation.getCustomer().getAddress(), fontHeader, fontNormal);
-            }
-        }
-
-        if (quotation.getSalesPerson() != null) {
-            addDetailRow(table, "Nhân viên tư vấn:", quotation.getSalesPerson().getFullName(), fontHeader, fontNormal);
-        }
-
-        if (quotation.getDealer() != null) {
-            addDetailRow(table, "Đại lý:", quotation.getDealer().getDealerName(), fontHeader, fontNormal);
-        }
-
-        document.add(table);
-    }
-
-    private void addProductTable(Document document, Quotation quotation, Font fontHeader, Font fontNormal)
-            throws DocumentException {
-        Paragraph header = new Paragraph("CHI TIẾT SẢN PHẨM", fontHeader);
-        header.setSpacingBefore(10);
-        header.setSpacingAfter(10);
-        document.add(header);
-
-        PdfPTable table = new PdfPTable(4);
-        table.setWidthPercentage(100);
-        table.setSpacingAfter(15);
-        table.setWidths(new int[]{40, 20, 20, 20});
-
-        // Header
-        addTableHeader(table, "Sản phẩm", fontHeader);
-        addTableHeader(table, "Phiên bản", fontHeader);
-        addTableHeader(table, "Số lượng", fontHeader);
-        addTableHeader(table, "Đơn giá", fontHeader);
-
-        // Product row
-        if (quotation.getProduct() != null) {
-            addTableCell(table, quotation.getProduct().getProductName(), Element.ALIGN_LEFT, fontNormal);
-            addTableCell(table, quotation.getProduct().getVersion(), Element.ALIGN_CENTER, fontNormal);
-            addTableCell(table, "1", Element.ALIGN_CENTER, fontNormal);
-            addTableCell(table, formatCurrency(quotation.getBasePrice()), Element.ALIGN_RIGHT, fontNormal);
-        }
-
-        document.add(table);
-    }
-
-    private void addPriceSummary(Document document, Quotation quotation, Font fontHeader, Font fontNormal)
-            throws DocumentException {
-        Paragraph header = new Paragraph("TỔNG KẾT GIÁ", fontHeader);
-        header.setSpacingBefore(10);
-        header.setSpacingAfter(10);
-        document.add(header);
-
-        PdfPTable table = new PdfPTable(2);
-        table.setWidthPercentage(100);
-        table.setSpacingAfter(15);
-        table.setWidths(new int[]{70, 30});
-
-        // Base price
-        addSummaryRow(table, "Giá niêm yết:", formatCurrency(quotation.getBasePrice()), false, fontHeader, fontNormal);
-
-        // VAT
-        addSummaryRow(table, "VAT (10%):", formatCurrency(quotation.getVat()), false, fontHeader, fontNormal);
-
-        // Registration fee
-        if (quotation.getRegistrationFee() != null && quotation.getRegistrationFee().compareTo(BigDecimal.ZERO) > 0) {
-            addSummaryRow(table, "Phí trước bạ:", formatCurrency(quotation.getRegistrationFee()), false, fontHeader, fontNormal);
-        }
-
-        // Promotions
-        if (quotation.getQuotationPromotions() != null && !quotation.getQuotationPromotions().isEmpty()) {
-            for (QuotationPromotion qp : quotation.getQuotationPromotions()) {
-                String promotionLabel = "  - " + qp.getPromotion().getPromotionName() + ":";
-                addSummaryRow(table, promotionLabel, "-" + formatCurrency(qp.getAppliedAmount()), false, fontHeader, fontNormal);
-            }
-        }
-
-        // Total discount
-        if (quotation.getDiscountAmount() != null && quotation.getDiscountAmount().compareTo(BigDecimal.ZERO) > 0) {
-            addSummaryRow(table, "Tổng giảm giá:", "-" + formatCurrency(quotation.getDiscountAmount()), false, fontHeader, fontNormal);
-        }
-
-        // Separator
-        PdfPCell separatorCell = new PdfPCell();
-        separatorCell.setColspan(2);
-        separatorCell.setBorder(Rectangle.TOP);
-        separatorCell.setPaddingTop(5);
-        separatorCell.setPaddingBottom(5);
-        table.addCell(separatorCell);
-
-        // Total price
-        addSummaryRow(table, "TỔNG CỘNG:", formatCurrency(quotation.getTotalPrice()), true, fontHeader, fontNormal);
-
-        document.add(table);
-    }
-
-    private void addTermsAndConditions(Document document, Quotation quotation, Font fontHeader, Font fontNormal)
-            throws DocumentException {
-        if (quotation.getTermsAndConditions() != null && !quotation.getTermsAndConditions().isEmpty()) {
-            Paragraph header = new Paragraph("ĐIỀU KHOẢN & ĐIỀU KIỆN", fontHeader);
-            header.setSpacingBefore(15);
-            header.setSpacingAfter(10);
-            document.add(header);
-
-            Paragraph terms = new Paragraph(quotation.getTermsAndConditions(), fontNormal);
-            terms.setAlignment(Element.ALIGN_JUSTIFIED);
-            terms.setSpacingAfter(15);
-            document.add(terms);
-        }
-
-        if (quotation.getNotes() != null && !quotation.getNotes().isEmpty()) {
-            Paragraph header = new Paragraph("GHI CHÚ", fontHeader);
-            header.setSpacingBefore(10);
-            header.setSpacingAfter(10);
-            document.add(header);
-
-            Paragraph notes = new Paragraph(quotation.getNotes(), fontNormal);
-            notes.setAlignment(Element.ALIGN_JUSTIFIED);
-            notes.setSpacingAfter(15);
-            document.add(notes);
-        }
-    }
-
-    private void addFooter(Document document, Quotation quotation, Font fontHeader, Font fontNormal, Font fontSmall)
-            throws DocumentException {
-
-        // Thêm khoảng trống vừa phải
-        document.add(new Paragraph("\n", fontSmall));
-
-        PdfPTable signatureTable = new PdfPTable(2);
-        signatureTable.setWidthPercentage(100);
-        signatureTable.setSpacingBefore(10);
-        signatureTable.setKeepTogether(true);
-
-        try {
-            signatureTable.setWidths(new float[]{1f, 1f});
-        } catch (DocumentException e) {
-            e.printStackTrace();
-        }
-
-        // Customer signature
-        PdfPCell customerCell = new PdfPCell();
-        customerCell.setBorder(Rectangle.NO_BORDER);
-        customerCell.setHorizontalAlignment(Element.ALIGN_CENTER);
-        customerCell.setPaddingTop(5);
-        customerCell.setPaddingBottom(5);
-
-        Paragraph customer = new Paragraph();
-        customer.setAlignment(Element.ALIGN_CENTER);
-        customer.add(new Phrase("KHÁCH HÀNG\n", fontHeader));
-        customer.add(new Phrase("(Ký và ghi rõ họ tên)", fontSmall));
-        customer.add(new Phrase("\n\n\n", fontSmall)); // 3 dòng cho chữ ký
-        customerCell.addElement(customer);
-
-        // Sales person signature
-        PdfPCell salesCell = new PdfPCell();
-        salesCell.setBorder(Rectangle.NO_BORDER);
-        salesCell.setHorizontalAlignment(Element.ALIGN_CENTER);
-        salesCell.setPaddingTop(5);
-        salesCell.setPaddingBottom(5);
-
-        Paragraph sales = new Paragraph();
-        sales.setAlignment(Element.ALIGN_CENTER);
-        sales.add(new Phrase("NHÂN VIÊN TƯ VẤN\n", fontHeader));
-        sales.add(new Phrase("(Ký và ghi rõ họ tên)", fontSmall));
-        sales.add(new Phrase("\n\n", fontSmall)); // Chỉ 2 dòng trước tên
-
-        if (quotation.getSalesPerson() != null) {
-            sales.add(new Phrase(quotation.getSalesPerson().getFullName(), fontNormal));
-        }
-        salesCell.addElement(sales);
-
-        signatureTable.addCell(customerCell);
-        signatureTable.addCell(salesCell);
-
-        document.add(signatureTable);
-    }
-
-// ============================================================
-// Utility helper methods
-// ============================================================
-
-    private void addInfoCell(PdfPTable table, String label, String value, Font fontHeader, Font fontNormal) {
-        PdfPCell labelCell = new PdfPCell(new Phrase(label, fontHeader));
-        labelCell.setBorder(Rectangle.NO_BORDER);
-        labelCell.setPadding(3);
-        table.addCell(labelCell);
-
-        PdfPCell valueCell = new PdfPCell(new Phrase(value, fontNormal));
-        valueCell.setBorder(Rectangle.NO_BORDER);
-        valueCell.setPadding(3);
-        table.addCell(valueCell);
-    }
-
-    private void addDetailRow(PdfPTable table, String label, String value, Font fontHeader, Font fontNormal) {
-        PdfPCell labelCell = new PdfPCell(new Phrase(label, fontHeader));
-        labelCell.setBorder(Rectangle.NO_BORDER);
-        labelCell.setPadding(5);
-        table.addCell(labelCell);
-
-        PdfPCell valueCell = new PdfPCell(new Phrase(value != null ? value : "", fontNormal));
-        valueCell.setBorder(Rectangle.NO_BORDER);
-        valueCell.setPadding(5);
-        table.addCell(valueCell);
-    }
-
-    private void addTableHeader(PdfPTable table, String text, Font fontHeader) {
-        PdfPCell cell = new PdfPCell(new Phrase(text, fontHeader));
-        cell.setBackgroundColor(BaseColor.LIGHT_GRAY);
-        cell.setPadding(8);
-        cell.setHorizontalAlignment(Element.ALIGN_CENTER);
-        table.addCell(cell);
-    }
-
-    private void addTableCell(PdfPTable table, String text, int alignment, Font fontNormal) {
-        PdfPCell cell = new PdfPCell(new Phrase(text, fontNormal));
-        cell.setPadding(8);
-        cell.setHorizontalAlignment(alignment);
-        table.addCell(cell);
-    }
-
-    private void addSummaryRow(PdfPTable table, String label, String value, boolean isBold, Font fontHeader, Font fontNormal) {
-        Font labelFont = isBold ? fontHeader : fontNormal;
-        Font valueFont = isBold ? fontHeader : fontNormal;
-
-        PdfPCell labelCell = new PdfPCell(new Phrase(label, labelFont));
-        labelCell.setBorder(Rectangle.NO_BORDER);
-        labelCell.setPadding(5);
-        labelCell.setHorizontalAlignment(Element.ALIGN_LEFT);
-        table.addCell(labelCell);
-
-        PdfPCell valueCell = new PdfPCell(new Phrase(value, valueFont));
-        valueCell.setBorder(Rectangle.NO_BORDER);
-        valueCell.setPadding(5);
-        valueCell.setHorizontalAlignment(Element.ALIGN_RIGHT);
-        table.addCell(valueCell);
-    }
-
-    private String formatCurrency(BigDecimal amount) {
-        if (amount == null) return "0 ₫";
-        return CURRENCY_FORMATTER.format(amount);
-    }
-
-    private String getStatusText(String status) {
-        switch (status) {
-            case "DRAFT": return "Nháp";
-            case "SENT": return "Đã gửi";
-            case "ACCEPTED": return "Đã chấp nhận";
-            case "REJECTED": return "Đã từ chối";
-            case "EXPIRED": return "Hết hạn";
-            case "CONVERTED": return "Đã chuyển đơn";
-            default: return status;
+            return Files.readAllBytes(pdf.getFile());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read PDF for quotation " + id, e);
         }
     }
 
@@ -937,6 +541,7 @@ public class QuotationServiceImpl implements QuotationService {
         quotation.setTotalPrice(totalPrice);
 
         Quotation updated = quotationRepository.save(quotation);
+        quotationPdfCacheService.evict(id);
         return convertToResponse(updated);
     }
 
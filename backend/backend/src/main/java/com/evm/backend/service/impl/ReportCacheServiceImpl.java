@@ -0,0 +1,248 @@
+package com.evm.backend.service.impl;
+
+import com.evm.backend.config.ReplicaRoutingDataSource;
+import com.evm.backend.dto.request.ReportFilterRequest;
+import com.evm.backend.service.ReportCacheService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Cache kết quả báo cáo trong bộ nhớ
+ * - Key: tên báo cáo + filter đã chuẩn hóa; LRU giới hạn số entry
+ * - Entry chỉ hợp lệ khi cùng data version và chưa quá max-age
+ * - Single-flight: nhiều request cùng key (cùng data version) khi chưa có entry chỉ tính một lần,
+ *   các request còn lại chờ kết quả đó (tránh dồn truy vấn nặng vào DB sau mỗi lần bumpDataVersion)
+ * - Tính lại ngay sau bumpDataVersion (trong khoảng replica có thể còn trễ) thì đọc từ primary:
+ *   kết quả thiếu thay đổi vừa ghi không được cache dưới data version mới; sau khoảng đó replica đã theo kịp
+ *   (ReplicaLagMonitor chuyển về primary khi trễ quá max-lag-seconds)
+ * - ETag = epoch của process + data version + SHA-256 của key đã chuẩn hóa: không trùng giữa các filter,
+ *   không trùng sau khi restart
+ */
+@Service
+@Slf4j
+public class ReportCacheServiceImpl implements ReportCacheService {
+
+    private final int maxEntries;
+    private final Duration maxAge;
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong dataVersion = new AtomicLong();
+    private final long primaryReadWindowMs;
+    private volatile long lastBumpMillis = System.currentTimeMillis();
+
+    private final Map<String, Entry> entries;
+
+    // Lần tính đang chạy theo key + data version
+    private final ConcurrentMap<String, CompletableFuture<CachedReport<?>>> inFlight = new ConcurrentHashMap<>();
+
+    public ReportCacheServiceImpl(
+            @Value("${app.reports.cache.max-entries:200}") int maxEntries,
+            @Value("${app.reports.cache.max-age-seconds:300}") long maxAgeSeconds,
+            @Value("${app.datasource.replica.max-lag-seconds:30}") long replicaMaxLagSeconds,
+            @Value("${app.datasource.replica.lag-check-interval-ms:5000}") long replicaLagCheckIntervalMs) {
+        this.maxEntries = maxEntries;
+        this.maxAge = Duration.ofSeconds(maxAgeSeconds);
+        // Độ trễ tối đa replica được phép + thời gian đến lần đo trễ kế tiếp
+        this.primaryReadWindowMs = replicaMaxLagSeconds * 1000 + replicaLagCheckIntervalMs;
+
+        // accessOrder = true: entry ít dùng nhất bị loại khi vượt giới hạn
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > ReportCacheServiceImpl.this.maxEntries;
+            }
+        };
+    }
+
+    @Override
+    public <T> CachedReport<T> getOrCompute(String reportName, ReportFilterRequest filter, Supplier<T> loader) {
+        return getOrCompute(reportName, filter, loader, value -> true);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> CachedReport<T> getIfPresent(String reportName, ReportFilterRequest filter) {
+        String key = cacheKey(reportName, filter);
+
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+        }
+        if (entry != null && isFresh(entry, dataVersion.get())) {
+            return new CachedReport<>((T) entry.value, entry.etag);
+        }
+        return null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> CachedReport<T> getOrCompute(String reportName, ReportFilterRequest filter,
+                                            Supplier<T> loader, Predicate<T> cacheable) {
+        String key = cacheKey(reportName, filter);
+        long version = dataVersion.get();
+
+        CachedReport<T> cached = getIfPresent(reportName, filter);
+        if (cached != null) {
+            return cached;
+        }
+
+        String flightKey = key + "@" + version;
+        CompletableFuture<CachedReport<?>> flight = new CompletableFuture<>();
+        CompletableFuture<CachedReport<?>> running = inFlight.putIfAbsent(flightKey, flight);
+        if (running != null) {
+            log.debug("Report {} already computing, waiting for it", key);
+            return (CachedReport<T>) await(running);
+        }
+
+        try {
+            // Lần tính trước có thể vừa xong giữa getIfPresent và putIfAbsent
+            cached = getIfPresent(reportName, filter);
+            if (cached == null) {
+                cached = compute(key, version, loader, cacheable);
+            }
+            flight.complete(cached);
+            return cached;
+        } catch (RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(flightKey, flight);
+        }
+    }
+
+    @Override
+    public long getDataVersion() {
+        return dataVersion.get();
+    }
+
+    @Override
+    public void bumpDataVersion() {
+        lastBumpMillis = System.currentTimeMillis();
+        dataVersion.incrementAndGet();
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    // ===== HELPER METHODS =====
+
+    private <T> CachedReport<T> compute(String key, long version, Supplier<T> loader, Predicate<T> cacheable) {
+        T value = System.currentTimeMillis() - lastBumpMillis < primaryReadWindowMs ?
+                ReplicaRoutingDataSource.onPrimary(loader) :
+                loader.get();
+
+        // Dữ liệu thay đổi trong lúc tính, hoặc kết quả không nên cache: trả về nhưng không lưu
+        if (!cacheable.test(value) || version != dataVersion.get()) {
+            return new CachedReport<>(value, null);
+        }
+
+        String etag = "\"" + epoch + "-" + version + "-" + sha256(key) + "\"";
+        synchronized (entries) {
+            entries.put(key, new Entry(value, etag, version, System.currentTimeMillis()));
+        }
+        log.debug("Report cached: {} ({})", key, etag);
+        return new CachedReport<>(value, etag);
+    }
+
+    /**
+     * Chờ lần tính của request khác; lỗi của lần tính đó được ném lại nguyên dạng
+     */
+    private CachedReport<?> await(CompletableFuture<CachedReport<?>> running) {
+        try {
+            return running.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+
+    private static String sha256(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private boolean isFresh(Entry entry, long version) {
+        return entry.version == version
+                && entry.computedAt + maxAge.toMillis() > System.currentTimeMillis();
+    }
+
+    /**
+     * Chuẩn hóa filter thành key; filter thiếu ngày phụ thuộc ngày hiện tại nên key kèm ngày hôm nay
+     */
+    private String cacheKey(String reportName, ReportFilterRequest filter) {
+        StringBuilder key = new StringBuilder(reportName);
+        if (filter == null) {
+            return key.append('|').append(LocalDate.now()).toString();
+        }
+
+        if (filter.getStartDate() == null || filter.getEndDate() == null) {
+            key.append("|today=").append(LocalDate.now());
+        }
+        appendPart(key, "start", filter.getStartDate());
+        appendPart(key, "end", filter.getEndDate());
+        appendPart(key, "dealer", filter.getDealerId());
+        appendPart(key, "salesPerson", filter.getSalesPersonId());
+        appendPart(key, "customer", filter.getCustomerId());
+        appendPart(key, "product", filter.getProductId());
+        appendPart(key, "status", normalize(filter.getStatus()));
+        appendPart(key, "groupBy", normalize(filter.getGroupBy()));
+        appendPart(key, "maxPoints", filter.getMaxPoints());
+        appendPart(key, "sortBy", normalize(filter.getSortBy()));
+        appendPart(key, "page", filter.getPage());
+        appendPart(key, "size", filter.getSize());
+        return key.toString();
+    }
+
+    private void appendPart(StringBuilder key, String name, Object value) {
+        if (value != null) {
+            key.append('|').append(name).append('=').append(value);
+        }
+    }
+
+    private String normalize(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        return value.trim().toUpperCase(Locale.ROOT);
+    }
+
+    private static class Entry {
+        private final Object value;
+        private final String etag;
+        private final long version;
+        private final long computedAt;
+
+        private Entry(Object value, String etag, long version, long computedAt) {
+            this.value = value;
+            this.etag = etag;
+            this.version = version;
+            this.computedAt = computedAt;
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package com.evm.backend.service.impl;
+
+import com.evm.backend.dto.request.ReportFilterRequest;
+import com.evm.backend.exception.BadRequestException;
+import com.evm.backend.exception.ReportTimeoutException;
+import com.evm.backend.exception.TooManyRequestsException;
+import com.evm.backend.service.ReportGuardService;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionTimedOutException;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.sql.SQLTimeoutException;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Bảo vệ DB khỏi báo cáo quá nặng
+ * - Giới hạn khoảng thời gian theo vai trò
+ * - Giới hạn số báo cáo chạy đồng thời (semaphore), đầy thì trả 429 thay vì xếp hàng giữ thread/connection
+ * - Timeout transaction -> timeout JDBC cho từng câu lệnh; hết giờ hoặc client ngắt kết nối thì hủy câu lệnh đang chạy
+ * - Hết giờ trả 504 (ReportTimeoutException), khác với 429 + Retry-After khi đầy giới hạn đồng thời
+ * - Báo cáo fan-out (CompositeReportExecutor) dùng chung thời hạn và lệnh hủy qua GuardedReportContext;
+ *   guard không mở transaction ngoài cho báo cáo fan-out (xem submitFanOut)
+ */
+@Service
+@Slf4j
+public class ReportGuardServiceImpl implements ReportGuardService {
+
+    // Thời gian chờ thêm của DeferredResult sau timeout transaction (để lỗi timeout từ DB về trước)
+    private static final long TIMEOUT_GRACE_MS = 2000;
+
+    private static final int NEW = 0;
+    private static final int RUNNING = 1;
+    private static final int CANCELLED = 2;
+
+    private final TaskExecutor executor;
+    private final EntityManagerFactory entityManagerFactory;
+    private final TransactionTemplate readOnlyTransaction;
+    private final Semaphore permits;
+    private final int maxConcurrent;
+    private final long timeoutMs;
+    private final long retryAfterSeconds;
+    private final int adminMaxSpanDays;
+    private final int brandManagerMaxSpanDays;
+    private final int defaultMaxSpanDays;
+
+    public ReportGuardServiceImpl(
+            @Qualifier("reportGuardExecutor") TaskExecutor executor,
+            EntityManagerFactory entityManagerFactory,
+            PlatformTransactionManager transactionManager,
+            @Value("${app.reports.guard.max-concurrent:3}") int maxConcurrent,
+            @Value("${app.reports.guard.timeout-ms:30000}") long timeoutMs,
+            @Value("${app.reports.guard.retry-after-seconds:10}") long retryAfterSeconds,
+            @Value("${app.reports.guard.max-span-days.admin:1830}") int adminMaxSpanDays,
+            @Value("${app.reports.guard.max-span-days.brand-manager:732}") int brandManagerMaxSpanDays,
+            @Value("${app.reports.guard.max-span-days.default:366}") int defaultMaxSpanDays) {
+        this.executor = executor;
+        this.entityManagerFactory = entityManagerFactory;
+        this.permits = new Semaphore(maxConcurrent);
+        this.maxConcurrent = maxConcurrent;
+        this.timeoutMs = timeoutMs;
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.adminMaxSpanDays = adminMaxSpanDays;
+        this.brandManagerMaxSpanDays = brandManagerMaxSpanDays;
+        this.defaultMaxSpanDays = defaultMaxSpanDays;
+
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.readOnlyTransaction.setTimeout((int) Math.max(1, TimeUnit.MILLISECONDS.toSeconds(timeoutMs + 999)));
+    }
+
+    @Override
+    public void checkDateSpan(ReportFilterRequest filter) {
+        // Thiếu startDate: báo cáo dùng khoảng mặc định ngắn (1-3 tháng)
+        if (filter == null || filter.getStartDate() == null) {
+            return;
+        }
+        LocalDate endDate = filter.getEndDate() != null ? filter.getEndDate() : LocalDate.now();
+        long spanDays = ChronoUnit.DAYS.between(filter.getStartDate(), endDate) + 1;
+        int maxSpanDays = maxSpanDays();
+
+        if (spanDays > maxSpanDays) {
+            throw new BadRequestException("Khoảng thời gian báo cáo tối đa " + maxSpanDays
+                    + " ngày cho vai trò hiện tại (yêu cầu: " + spanDays + " ngày)");
+        }
+    }
+
+    @Override
+    public <T> DeferredResult<T> submit(String reportName, Supplier<T> work) {
+        return submit(reportName, work, true);
+    }
+
+    @Override
+    public <T> DeferredResult<T> submitFanOut(String reportName, Supplier<T> work) {
+        return submit(reportName, work, false);
+    }
+
+    // ===== HELPER METHODS =====
+
+    private <T> DeferredResult<T> submit(String reportName, Supplier<T> work, boolean inTransaction) {
+        if (!permits.tryAcquire()) {
+            log.warn("Report {} rejected: {} heavy reports already running", reportName, maxConcurrent);
+            throw new TooManyRequestsException(
+                    "Đang có quá nhiều báo cáo chạy đồng thời, vui lòng thử lại sau", retryAfterSeconds);
+        }
+
+        RunningReport running = new RunningReport(reportName, timeoutMs);
+        DeferredResult<T> result = new DeferredResult<>(timeoutMs + TIMEOUT_GRACE_MS);
+
+        result.onTimeout(() -> {
+            cancel(running, "timeout");
+            result.setErrorResult(timeoutException());
+        });
+        result.onError(error -> cancel(running, "client disconnected"));
+
+        try {
+            executor.execute(() -> run(running, work, inTransaction, result));
+        } catch (TaskRejectedException e) {
+            permits.release();
+            throw new TooManyRequestsException(
+                    "Đang có quá nhiều báo cáo chạy đồng thời, vui lòng thử lại sau", retryAfterSeconds);
+        }
+        return result;
+    }
+
+    private <T> void run(RunningReport running, Supplier<T> work, boolean inTransaction, DeferredResult<T> result) {
+        // Đã bị hủy trước khi kịp chạy: cancel() đã trả permit
+        if (!running.state.compareAndSet(NEW, RUNNING)) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        try {
+            T value = inTransaction ? readOnlyTransaction.execute(status -> runInTransaction(running, work))
+                    : runBound(running, work);
+            result.setResult(value);
+        } catch (RuntimeException e) {
+            if (running.cancelled) {
+                log.info("Report {} cancelled after {}ms ({})", running.reportName,
+                        (System.nanoTime() - start) / 1_000_000, running.cancelReason);
+            } else if (isTimeout(e)) {
+                log.warn("Report {} timed out after {}ms", running.reportName, (System.nanoTime() - start) / 1_000_000);
+                result.setErrorResult(timeoutException());
+            } else {
+                result.setErrorResult(e);
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    private <T> T runInTransaction(RunningReport running, Supplier<T> work) {
+        Session session = EntityManagerFactoryUtils
+                .getTransactionalEntityManager(entityManagerFactory)
+                .unwrap(Session.class);
+        running.context.register(session);
+        try {
+            return runBound(running, work);
+        } finally {
+            running.context.unregister(session);
+        }
+    }
+
+    /**
+     * Báo cáo fan-out chạy thẳng trên thread của guard, không giữ connection:
+     * mỗi nhánh tự mở transaction (REQUIRES_NEW), lấy thời hạn và đăng ký Session qua context
+     */
+    private <T> T runBound(RunningReport running, Supplier<T> work) {
+        running.context.bind();
+        try {
+            return work.get();
+        } finally {
+            running.context.unbind();
+        }
+    }
+
+    private void cancel(RunningReport running, String reason) {
+        running.cancelReason = reason;
+        running.cancelled = true;
+
+        if (running.state.compareAndSet(NEW, CANCELLED)) {
+            permits.release();
+            log.info("Report {} cancelled before start ({})", running.reportName, reason);
+            return;
+        }
+
+        // Đang chạy: hủy câu lệnh JDBC hiện tại của guard và của mọi nhánh fan-out, transaction sẽ rollback
+        running.context.cancel();
+    }
+
+    private boolean isTimeout(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof QueryTimeoutException
+                    || cause instanceof TransactionTimedOutException
+                    || cause instanceof jakarta.persistence.QueryTimeoutException
+                    || cause instanceof SQLTimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Quá thời hạn là do bản thân báo cáo quá nặng, không phải do quá tải: 504 không có Retry-After
+     */
+    private ReportTimeoutException timeoutException() {
+        return new ReportTimeoutException("Báo cáo chạy quá " + timeoutMs / 1000
+                + " giây và đã bị hủy, hãy thu hẹp khoảng thời gian/bộ lọc");
+    }
+
+    private int maxSpanDays() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null) {
+            return defaultMaxSpanDays;
+        }
+        int maxSpanDays = defaultMaxSpanDays;
+        for (GrantedAuthority authority : authentication.getAuthorities()) {
+            if ("ROLE_ADMIN".equals(authority.getAuthority())) {
+                maxSpanDays = Math.max(maxSpanDays, adminMaxSpanDays);
+            } else if ("ROLE_BRAND_MANAGER".equals(authority.getAuthority())) {
+                maxSpanDays = Math.max(maxSpanDays, brandManagerMaxSpanDays);
+            }
+        }
+        return maxSpanDays;
+    }
+
+    private static class RunningReport {
+        private final String reportName;
+        private final AtomicInteger state = new AtomicInteger(NEW);
+        private final GuardedReportContext context;
+        private volatile boolean cancelled;
+        private volatile String cancelReason;
+
+        private RunningReport(String reportName, long timeoutMs) {
+            this.reportName = reportName;
+            this.context = new GuardedReportContext(reportName, timeoutMs);
+        }
+    }
+}
@@ -0,0 +1,360 @@
+package com.evm.backend.service.impl;
+
+import com.evm.backend.dto.request.ReportFilterRequest;
+import com.evm.backend.dto.request.ReportJobRequest;
+import com.evm.backend.dto.response.ReportJobResponse;
+import com.evm.backend.exception.BadRequestException;
+import com.evm.backend.exception.ResourceNotFoundException;
+import com.evm.backend.exception.TooManyRequestsException;
+import com.evm.backend.service.ReportJobService;
+import com.evm.backend.service.ReportService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+@Service
+@Slf4j
+public class ReportJobServiceImpl implements ReportJobService {
+
+    private static final String REPORT_SALES = "SALES_EXCEL";
+    private static final String REPORT_INVENTORY = "INVENTORY_EXCEL";
+    private static final String REPORT_DEALER_PERFORMANCE = "DEALER_PERFORMANCE_EXCEL";
+
+    private static final String STATUS_QUEUED = "QUEUED";
+    private static final String STATUS_RUNNING = "RUNNING";
+    private static final String STATUS_COMPLETED = "COMPLETED";
+    private static final String STATUS_FAILED = "FAILED";
+
+    private final ReportService reportService;
+    private final TaskExecutor reportJobExecutor;
+    private final Path artifactDir;
+    private final Duration retention;
+    private final long retryAfterSeconds;
+
+    private final Map<String, ReportJob> jobs = new ConcurrentHashMap<>();
+    // dedupKey -> jobId của job đang QUEUED/RUNNING
+    private final Map<String, String> inFlight = new ConcurrentHashMap<>();
+
+    public ReportJobServiceImpl(
+            ReportService reportService,
+            @Qualifier("reportJobExecutor") TaskExecutor reportJobExecutor,
+            @Value("${app.reports.jobs.dir:reports/jobs/}") String artifactDir,
+            @Value("${app.reports.jobs.retention-minutes:60}") long retentionMinutes,
+            @Value("${app.reports.jobs.retry-after-seconds:30}") long retryAfterSeconds) throws IOException {
+        this.reportService = reportService;
+        this.reportJobExecutor = reportJobExecutor;
+        this.artifactDir = Paths.get(artifactDir).toAbsolutePath().normalize();
+        this.retention = Duration.ofMinutes(retentionMinutes);
+        this.retryAfterSeconds = retryAfterSeconds;
+
+        Files.createDirectories(this.artifactDir);
+    }
+
+    @Override
+    public ReportJobResponse submit(ReportJobRequest request, String requestedBy) {
+        String reportType = request.getReportType().trim().toUpperCase();
+        validate(reportType, request);
+
+        String dedupKey = dedupKey(reportType, request);
+
+        // Job giống hệt đang chạy -> dùng lại
+        ReportJob job;
+        synchronized (inFlight) {
+            String existingId = inFlight.get(dedupKey);
+            ReportJob existing = existingId != null ? jobs.get(existingId) : null;
+            if (existing != null) {
+                log.info("Report job {} reused for {} ({})", existing.id, reportType, requestedBy);
+                return toResponse(existing);
+            }
+
+            job = new ReportJob(UUID.randomUUID().toString(), reportType, dedupKey, requestedBy, request);
+            jobs.put(job.id, job);
+            inFlight.put(dedupKey, job.id);
+        }
+
+        try {
+            reportJobExecutor.execute(() -> run(job));
+        } catch (TaskRejectedException e) {
+            jobs.remove(job.id);
+            inFlight.remove(dedupKey, job.id);
+            log.warn("Report job queue is full, rejected {} ({})", reportType, requestedBy);
+            throw new TooManyRequestsException("Hàng đợi báo cáo đang đầy, vui lòng thử lại sau", retryAfterSeconds);
+        }
+
+        log.info("Report job {} queued: {} ({})", job.id, reportType, requestedBy);
+        return toResponse(job);
+    }
+
+    @Override
+    public ReportJobResponse getJob(String jobId) {
+        return toResponse(findJob(jobId));
+    }
+
+    @Override
+    public List<ReportJobResponse> getJobs() {
+        return jobs.values().stream()
+                .sorted(Comparator.comparing((ReportJob job) -> job.submittedAt).reversed())
+                .map(this::toResponse)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public Path getArtifact(String jobId) {
+        ReportJob job = findJob(jobId);
+        if (!STATUS_COMPLETED.equals(job.status)) {
+            throw new BadRequestException("Báo cáo chưa sẵn sàng, trạng thái hiện tại: " + job.status);
+        }
+        if (job.artifact == null || !Files.exists(job.artifact)) {
+            throw new ResourceNotFoundException("Report file not found for job: " + jobId);
+        }
+        return job.artifact;
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${app.reports.jobs.cleanup-interval-ms:300000}")
+    public int purgeExpired() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(retention);
+        int removed = 0;
+
+        for (ReportJob job : jobs.values()) {
+            if (job.completedAt != null && job.completedAt.isBefore(cutoff)) {
+                jobs.remove(job.id);
+                deleteQuietly(job.artifact);
+                removed++;
+            }
+        }
+
+        // File mồ côi (từ lần chạy trước, hoặc file .part bị bỏ dở)
+        long cutoffMillis = System.currentTimeMillis() - retention.toMillis();
+        try (Stream<Path> files = Files.list(artifactDir)) {
+            files.filter(file -> isOrphan(file, cutoffMillis))
+                    .forEach(this::deleteQuietly);
+        } catch (IOException e) {
+            log.warn("Failed to scan report artifact directory {}", artifactDir, e);
+        }
+
+        if (removed > 0) {
+            log.info("Purged {} expired report jobs", removed);
+        }
+        return removed;
+    }
+
+    // ===== JOB EXECUTION =====
+
+    private void run(ReportJob job) {
+        job.startedAt = LocalDateTime.now();
+        job.status = STATUS_RUNNING;
+        long start = System.nanoTime();
+
+        Path partFile = artifactDir.resolve(job.id + ".part");
+        Path artifact = artifactDir.resolve(job.id + ".xlsx");
+
+        try {
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(partFile))) {
+                generate(job, out);
+            }
+            Files.move(partFile, artifact, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            job.artifact = artifact;
+            job.fileSize = Files.size(artifact);
+            job.status = STATUS_COMPLETED;
+
+        } catch (Exception e) {
+            log.error("Report job {} failed", job.id, e);
+            deleteQuietly(partFile);
+            job.status = STATUS_FAILED;
+            job.errorMessage = e.getMessage();
+
+        } finally {
+            job.generationTimeMs = (System.nanoTime() - start) / 1_000_000;
+            job.completedAt = LocalDateTime.now();
+            inFlight.remove(job.dedupKey, job.id);
+
+            log.info("Report job {} {}: type={}, queue={}ms, generation={}ms, size={} bytes",
+                    job.id, job.status, job.reportType, queueTimeMs(job),
+                    job.generationTimeMs, job.fileSize);
+        }
+    }
+
+    private void generate(ReportJob job, OutputStream out) throws IOException {
+        ReportJobRequest request = job.request;
+        ReportFilterRequest filter = ReportFilterRequest.builder()
+                .startDate(request.getStartDate())
+                .endDate(request.getEndDate())
+                .dealerId(request.getDealerId())
+                .productId(request.getProductId())
+                .build();
+
+        switch (job.reportType) {
+            case REPORT_SALES:
+                reportService.exportSalesReportToExcel(filter, out);
+                break;
+            case REPORT_INVENTORY:
+                reportService.exportInventoryReportToExcel(filter, out);
+                break;
+            case REPORT_DEALER_PERFORMANCE:
+                out.write(reportService.exportDealerPerformanceToPdf(request.getDealerId(), filter));
+                break;
+            default:
+                throw new IllegalStateException("Unsupported report type: " + job.reportType);
+        }
+    }
+
+    // ===== HELPER METHODS =====
+
+    private void validate(String reportType, ReportJobRequest request) {
+        switch (reportType) {
+            case REPORT_SALES:
+            case REPORT_INVENTORY:
+                break;
+            case REPORT_DEALER_PERFORMANCE:
+                if (request.getDealerId() == null) {
+                    throw new BadRequestException("dealerId là bắt buộc với báo cáo hiệu suất đại lý");
+                }
+                break;
+            default:
+                throw new BadRequestException("Loại báo cáo không hợp lệ: " + reportType);
+        }
+
+        if (request.getStartDate() != null && request.getEndDate() != null
+                && request.getStartDate().isAfter(request.getEndDate())) {
+            throw new BadRequestException("Ngày bắt đầu phải trước ngày kết thúc");
+        }
+    }
+
+    /**
+     * Khóa dedup: loại báo cáo + tham số (ngày mặc định được chốt theo hôm nay)
+     */
+    private String dedupKey(String reportType, ReportJobRequest request) {
+        return String.join("|",
+                reportType,
+                Objects.toString(request.getStartDate(), "today:" + LocalDate.now()),
+                Objects.toString(request.getEndDate(), "today:" + LocalDate.now()),
+                Objects.toString(request.getDealerId(), ""),
+                Objects.toString(request.getProductId(), ""));
+    }
+
+    private ReportJob findJob(String jobId) {
+        ReportJob job = jobs.get(jobId);
+        if (job == null) {
+            throw new ResourceNotFoundException("Report job not found with id: " + jobId);
+        }
+        return job;
+    }
+
+    private boolean isOrphan(Path file, long cutoffMillis) {
+        String name = file.getFileName().toString();
+        String jobId = name.substring(0, name.lastIndexOf('.') > 0 ? name.lastIndexOf('.') : name.length());
+        if (jobs.containsKey(jobId)) {
+            return false;
+        }
+        try {
+            return Files.getLastModifiedTime(file).toMillis() < cutoffMillis;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private void deleteQuietly(Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Failed to delete report artifact {}", file, e);
+        }
+    }
+
+    private Long queueTimeMs(ReportJob job) {
+        return job.startedAt != null ?
+                Duration.between(job.submittedAt, job.startedAt).toMillis() : null;
+    }
+
+    private ReportJobResponse toResponse(ReportJob job) {
+        boolean completed = STATUS_COMPLETED.equals(job.status);
+        return ReportJobResponse.builder()
+                .jobId(job.id)
+                .reportType(job.reportType)
+                .status(job.status)
+                .requestedBy(job.requestedBy)
+                .submittedAt(job.submittedAt)
+                .startedAt(job.startedAt)
+                .completedAt(job.completedAt)
+                .expiresAt(job.completedAt != null ? job.completedAt.plus(retention) : null)
+                .queueTimeMs(queueTimeMs(job))
+                .generationTimeMs(job.generationTimeMs)
+                .fileName(completed ? fileName(job) : null)
+                .fileSize(job.fileSize)
+                .downloadUrl(completed ? "/api/reports/jobs/" + job.id + "/download" : null)
+                .errorMessage(job.errorMessage)
+                .build();
+    }
+
+    private String fileName(ReportJob job) {
+        String prefix;
+        switch (job.reportType) {
+            case REPORT_SALES:
+                prefix = "sales-report";
+                break;
+            case REPORT_INVENTORY:
+                prefix = "inventory-report";
+                break;
+            default:
+                prefix = "dealer-performance-" + job.request.getDealerId();
+        }
+        return prefix + "-" + job.submittedAt.toLocalDate() + ".xlsx";
+    }
+
+    /**
+     * Trạng thái job trong bộ nhớ (cập nhật bởi thread của executor)
+     */
+    private static class ReportJob {
+        private final String id;
+        private final String reportType;
+        private final String dedupKey;
+        private final String requestedBy;
+        private final ReportJobRequest request;
+        private final LocalDateTime submittedAt = LocalDateTime.now();
+
+        private volatile String status = STATUS_QUEUED;
+        private volatile LocalDateTime startedAt;
+        private volatile LocalDateTime completedAt;
+        private volatile Long generationTimeMs;
+        private volatile Path artifact;
+        private volatile Long fileSize;
+        private volatile String errorMessage;
+
+        private ReportJob(String id, String reportType, String dedupKey,
+                          String requestedBy, ReportJobRequest request) {
+            this.id = id;
+            this.reportType = reportType;
+            this.dedupKey = dedupKey;
+            this.requestedBy = requestedBy;
+            this.request = request;
+        }
+    }
+}
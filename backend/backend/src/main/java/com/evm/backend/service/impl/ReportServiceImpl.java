@@ -3,19 +3,30 @@ package com.evm.backend.service.impl;
 import com.evm.backend.dto.request.ReportFilterRequest;
 import com.evm.backend.dto.response.*;
 import com.evm.backend.entity.DealerContract;
-import com.evm.backend.entity.Inventory;
+import com.evm.backend.exception.BadRequestException;
 import com.evm.backend.exception.ResourceNotFoundException;
 import com.evm.backend.repository.*;
+import com.evm.backend.service.DealerSnapshotService;
 import com.evm.backend.service.ReportService;
+import com.evm.backend.service.StockAlertService;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.text.NumberFormat;
 import java.time.format.DateTimeFormatter;
 import java.util.Locale;
@@ -23,9 +34,24 @@ import java.util.Locale;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.temporal.IsoFields;
+import java.time.temporal.TemporalAdjusters;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
@@ -37,15 +63,56 @@ public class ReportServiceImpl implements ReportService {
     private final InventoryReportRepository inventoryRepository;
     private final DealerContractRepository contractRepository;
     private final DealerRepository dealerRepository;
+    private final SalesDailyRollupRepository rollupRepository;
+    private final SalesMonthlyRollupRepository monthlyRollupRepository;
+    private final CompositeReportExecutor compositeReportExecutor;
+    private final DealerSnapshotService dealerSnapshotService;
+    private final ObjectMapper objectMapper;
+    private final StockAlertService stockAlertService;
 
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("dd/MM/yyyy");
     private static final NumberFormat CURRENCY_FORMAT = NumberFormat.getCurrencyInstance(new Locale("vi", "VN"));
 
+    // Kỳ báo cáo doanh số
+    private static final String GROUP_DAY = "DAY";
+    private static final String GROUP_WEEK = "WEEK";
+    private static final String GROUP_MONTH = "MONTH";
+    private static final String GROUP_QUARTER = "QUARTER";
+    private static final String GROUP_YEAR = "YEAR";
+    private static final Set<String> SUPPORTED_GROUP_BY =
+            Set.of(GROUP_DAY, GROUP_WEEK, GROUP_MONTH, GROUP_QUARTER, GROUP_YEAR);
+
+    // So sánh nhiều kỳ: lùi 1 tháng (MoM), 3 tháng (QoQ), 12 tháng (YoY)
+    private static final int[] COMPARISON_SHIFT_MONTHS = {1, 3, 12};
+    private static final Long UNASSIGNED = 0L;
+
+    // Phân trang keyset báo cáo tồn kho
+    private static final int DEFAULT_INVENTORY_PAGE_SIZE = 100;
+    private static final int MAX_INVENTORY_PAGE_SIZE = 500;
+
+    // Phân trang báo cáo hiệu suất tất cả đại lý
+    private static final int DEFAULT_DEALER_PAGE_SIZE = 20;
+    private static final int MAX_DEALER_PAGE_SIZE = 100;
+
+    // Export Excel streaming: số dòng giữ trong bộ nhớ cho mỗi sheet
+    private static final int EXCEL_ROW_WINDOW = 200;
+
+    // Độ rộng cột cố định (ký tự) cho từng loại sheet
+    private static final int[] SUMMARY_COLUMN_WIDTHS = {24, 20, 14, 14};
+    private static final int[] SALES_PERIOD_COLUMN_WIDTHS = {14, 20, 10, 18};
+    // Top 10 lấy bằng LIMIT trong DB thay vì cắt danh sách trong Java
+    private static final Pageable TOP_LIMIT = PageRequest.of(0, 10);
+
+    private static final int[] TOP_RANKING_COLUMN_WIDTHS = {28, 32, 20, 14};
+    private static final int[] INVENTORY_DETAIL_COLUMN_WIDTHS = {30, 14, 28, 20, 10, 10, 10, 12, 14};
+    private static final int[] INVENTORY_ALERT_COLUMN_WIDTHS = {16, 30, 28, 12, 12, 45};
+
     // =====================================================
     // D.1: SALES REPORT - FIXED
     // =====================================================
 
     @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public SalesReportResponse getSalesReport(ReportFilterRequest filter) {
         log.info("Generating sales report from {} to {}",
                 filter.getStartDate(), filter.getEndDate());
@@ -54,59 +121,60 @@ public class ReportServiceImpl implements ReportService {
                 filter.getStartDate() : LocalDate.now().minusMonths(1);
         LocalDate endDate = filter.getEndDate() != null ?
                 filter.getEndDate() : LocalDate.now();
-
-        // ✅ Get sales data by period (returns Object[])
-        List<Object[]> salesData = reportRepository.getSalesByDay(
-                startDate, endDate, filter.getDealerId());
-
-        // ✅ Convert Object[] to SalesDataPoint
-        List<SalesReportResponse.SalesDataPoint> salesByPeriod = salesData.stream()
-                .map(data -> SalesReportResponse.SalesDataPoint.builder()
-                        .date((LocalDate) data[0])
-                        .period(data[0].toString())
-                        .revenue(convertToBigDecimal(data[1]))      // ✅ FIX Ở ĐÂY
-                        .orderCount(((Number) data[2]).longValue())
-                        .averageValue(convertToBigDecimal(data[3])) // ✅ VÀ ĐÂY
-                        .build())
-                .collect(Collectors.toList());
-
-        // Calculate totals
-        BigDecimal totalRevenue = reportRepository.getTotalRevenue(
-                startDate, endDate, filter.getDealerId());
-        Long totalOrders = reportRepository.getTotalOrders(
-                startDate, endDate, filter.getDealerId());
-        BigDecimal totalDiscount = reportRepository.getTotalDiscount(
-                startDate, endDate, filter.getDealerId());
+        Long dealerId = filter.getDealerId();
+        String groupBy = normalizeGroupBy(filter.getGroupBy());
+
+        // Các truy vấn độc lập chạy song song, mỗi truy vấn một connection read-only
+        CompositeReportExecutor.Fanout fanout = compositeReportExecutor.begin("Sales report");
+        var seriesBranch = fanout.fork("salesByPeriod",
+                () -> getSalesSeries(startDate, endDate, dealerId, groupBy));
+        var summaryBranch = fanout.fork("summary",
+                () -> getPeriodSummary(startDate, endDate, dealerId));
+        var salesPersonsBranch = fanout.fork("topSalesPersons",
+                () -> rollupRepository.getTopSalesPersons(startDate, endDate, TOP_LIMIT));
+        var dealersBranch = fanout.fork("topDealers",
+                () -> rollupRepository.getTopDealers(startDate, endDate, TOP_LIMIT));
+        var productsBranch = fanout.fork("topProducts",
+                () -> rollupRepository.getTopProducts(startDate, endDate, TOP_LIMIT));
+        var comparisonBranch = fanout.fork("periodComparison",
+                () -> getPeriodComparisons(startDate, endDate, dealerId));
+
+        // ✅ Sales by period, bucketed in DB (DAY/WEEK/MONTH/QUARTER/YEAR), optional downsampling
+        List<SalesReportResponse.SalesDataPoint> salesByPeriod = downsample(
+                fanout.join(seriesBranch, List.of()), filter.getMaxPoints());
+
+        // Calculate totals + previous period in one round-trip
+        Object[] summary = fanout.join(summaryBranch, emptyPeriodSummary());
+        BigDecimal totalRevenue = convertToBigDecimal(summary[0]);
+        Long totalOrders = convertToNumber(summary[1], Long.class);
+        BigDecimal totalDiscount = convertToBigDecimal(summary[2]);
+        BigDecimal previousRevenue = convertToBigDecimal(summary[4]);
 
         BigDecimal averageOrderValue = totalOrders > 0 ?
                 totalRevenue.divide(BigDecimal.valueOf(totalOrders), 2, RoundingMode.HALF_UP) :
                 BigDecimal.ZERO;
 
         // Calculate growth rate
-        LocalDate prevStartDate = startDate.minusDays(
-                endDate.toEpochDay() - startDate.toEpochDay());
-        BigDecimal previousRevenue = reportRepository.getTotalRevenue(
-                prevStartDate, startDate.minusDays(1), filter.getDealerId());
         BigDecimal growthRate = calculateGrowthRate(totalRevenue, previousRevenue);
 
         // ✅ Get top performers (returns Object[])
         List<SalesReportResponse.TopPerformer> topSalesPersons =
-                convertToTopPerformers(reportRepository.getTopSalesPersons(startDate, endDate))
-                        .stream().limit(10).collect(Collectors.toList());
+                convertToTopPerformers(fanout.join(salesPersonsBranch, List.of()));
 
         List<SalesReportResponse.TopPerformer> topDealers =
-                convertToTopPerformers(reportRepository.getTopDealers(startDate, endDate))
-                        .stream().limit(10).collect(Collectors.toList());
+                convertToTopPerformers(fanout.join(dealersBranch, List.of()));
 
         // ✅ Get top products
         List<SalesReportResponse.TopProduct> topProducts =
-                convertToTopProducts(reportRepository.getTopProducts(startDate, endDate))
-                        .stream().limit(10).collect(Collectors.toList());
+                convertToTopProducts(fanout.join(productsBranch, List.of()));
+
+        // MoM / QoQ / YoY: tổng, theo đại lý, theo sản phẩm
+        PeriodComparisons comparisons = fanout.join(comparisonBranch, null);
 
         return SalesReportResponse.builder()
                 .fromDate(startDate)
                 .toDate(endDate)
-                .groupBy(filter.getGroupBy() != null ? filter.getGroupBy() : "DAY")
+                .groupBy(groupBy)
                 .totalRevenue(totalRevenue)
                 .totalOrders(totalOrders)
                 .averageOrderValue(averageOrderValue)
@@ -116,9 +184,146 @@ public class ReportServiceImpl implements ReportService {
                 .topSalesPersons(topSalesPersons)
                 .topDealers(topDealers)
                 .topProducts(topProducts)
+                .comparison(comparisons != null ? toComparison(comparisons.total, comparisons.windows) : null)
+                .dealerComparisons(comparisons != null ?
+                        toComparisons(comparisons.dealers.values(), comparisons.windows) : List.of())
+                .productComparisons(comparisons != null ?
+                        toComparisons(comparisons.products.values(), comparisons.windows) : List.of())
+                .partial(fanout.isPartial())
+                .missingSections(fanout.getMissingSections())
                 .build();
     }
 
+    /**
+     * Doanh thu theo kỳ
+     * MONTH/QUARTER/YEAR: tháng trọn vẹn đọc từ sales_monthly_rollup, phần lẻ đầu/cuối kỳ đọc từ rollup ngày
+     */
+    private List<SalesReportResponse.SalesDataPoint> getSalesSeries(
+            LocalDate startDate, LocalDate endDate, Long dealerId, String groupBy) {
+
+        Map<LocalDate, SalesReportResponse.SalesDataPoint> buckets = new TreeMap<>();
+
+        if (!GROUP_DAY.equals(groupBy) && !GROUP_WEEK.equals(groupBy)) {
+            LocalDate firstFullMonth = startDate.getDayOfMonth() == 1 ?
+                    startDate : startDate.withDayOfMonth(1).plusMonths(1);
+            LocalDate lastFullMonth = endDate.equals(endDate.with(TemporalAdjusters.lastDayOfMonth())) ?
+                    endDate.withDayOfMonth(1) : endDate.withDayOfMonth(1).minusMonths(1);
+
+            if (!firstFullMonth.isAfter(lastFullMonth)) {
+                mergeBuckets(buckets, monthlyRollupRepository.getSalesByBucket(
+                        firstFullMonth, lastFullMonth, dealerId, groupBy), groupBy);
+
+                if (startDate.isBefore(firstFullMonth)) {
+                    mergeBuckets(buckets, rollupRepository.getSalesByBucket(
+                            startDate, firstFullMonth.minusDays(1), dealerId, groupBy), groupBy);
+                }
+                LocalDate afterLastFullMonth = lastFullMonth.plusMonths(1);
+                if (!endDate.isBefore(afterLastFullMonth)) {
+                    mergeBuckets(buckets, rollupRepository.getSalesByBucket(
+                            afterLastFullMonth, endDate, dealerId, groupBy), groupBy);
+                }
+                return finishDataPoints(buckets.values());
+            }
+        }
+
+        mergeBuckets(buckets, rollupRepository.getSalesByBucket(startDate, endDate, dealerId, groupBy), groupBy);
+        return finishDataPoints(buckets.values());
+    }
+
+    /**
+     * Cộng dồn rows [bucketStart, revenue, orderCount] vào map theo bucket
+     */
+    private void mergeBuckets(Map<LocalDate, SalesReportResponse.SalesDataPoint> buckets,
+                              List<Object[]> rows, String groupBy) {
+        for (Object[] row : rows) {
+            LocalDate bucket = toLocalDate(row[0]);
+            SalesReportResponse.SalesDataPoint point = buckets.computeIfAbsent(bucket, date ->
+                    SalesReportResponse.SalesDataPoint.builder()
+                            .date(date)
+                            .period(formatPeriod(date, groupBy))
+                            .revenue(BigDecimal.ZERO)
+                            .orderCount(0L)
+                            .build());
+            point.setRevenue(point.getRevenue().add(convertToBigDecimal(row[1])));
+            point.setOrderCount(point.getOrderCount() + convertToNumber(row[2], Long.class));
+        }
+    }
+
+    /**
+     * Gộp các kỳ liên tiếp khi số điểm vượt maxPoints (tổng doanh thu / số đơn được giữ nguyên)
+     */
+    private List<SalesReportResponse.SalesDataPoint> downsample(
+            List<SalesReportResponse.SalesDataPoint> points, Integer maxPoints) {
+
+        if (maxPoints == null || maxPoints <= 0 || points.size() <= maxPoints) {
+            return points;
+        }
+
+        int chunkSize = (points.size() + maxPoints - 1) / maxPoints;
+        List<SalesReportResponse.SalesDataPoint> sampled = new ArrayList<>();
+
+        for (int i = 0; i < points.size(); i += chunkSize) {
+            List<SalesReportResponse.SalesDataPoint> chunk =
+                    points.subList(i, Math.min(i + chunkSize, points.size()));
+            SalesReportResponse.SalesDataPoint first = chunk.get(0);
+            SalesReportResponse.SalesDataPoint last = chunk.get(chunk.size() - 1);
+
+            sampled.add(SalesReportResponse.SalesDataPoint.builder()
+                    .date(first.getDate())
+                    .period(chunk.size() > 1 ? first.getPeriod() + ".." + last.getPeriod() : first.getPeriod())
+                    .revenue(chunk.stream()
+                            .map(SalesReportResponse.SalesDataPoint::getRevenue)
+                            .reduce(BigDecimal.ZERO, BigDecimal::add))
+                    .orderCount(chunk.stream()
+                            .mapToLong(SalesReportResponse.SalesDataPoint::getOrderCount)
+                            .sum())
+                    .build());
+        }
+
+        return finishDataPoints(sampled);
+    }
+
+    private List<SalesReportResponse.SalesDataPoint> finishDataPoints(
+            Collection<SalesReportResponse.SalesDataPoint> points) {
+        for (SalesReportResponse.SalesDataPoint point : points) {
+            point.setAverageValue(point.getOrderCount() > 0 ?
+                    point.getRevenue().divide(BigDecimal.valueOf(point.getOrderCount()), 2, RoundingMode.HALF_UP) :
+                    BigDecimal.ZERO);
+        }
+        return new ArrayList<>(points);
+    }
+
+    private String normalizeGroupBy(String groupBy) {
+        if (groupBy == null || groupBy.isBlank()) {
+            return GROUP_DAY;
+        }
+        String normalized = groupBy.trim().toUpperCase();
+        if (!SUPPORTED_GROUP_BY.contains(normalized)) {
+            throw new BadRequestException("groupBy không hợp lệ: " + groupBy
+                    + " (DAY, WEEK, MONTH, QUARTER, YEAR)");
+        }
+        return normalized;
+    }
+
+    /**
+     * Nhãn kỳ: 2024-01-15, 2024-W03, 2024-01, 2024-Q1, 2024
+     */
+    private String formatPeriod(LocalDate bucket, String groupBy) {
+        switch (groupBy) {
+            case GROUP_WEEK:
+                return String.format("%d-W%02d",
+                        bucket.get(IsoFields.WEEK_BASED_YEAR), bucket.get(IsoFields.WEEK_OF_WEEK_BASED_YEAR));
+            case GROUP_MONTH:
+                return YearMonth.from(bucket).toString();
+            case GROUP_QUARTER:
+                return bucket.getYear() + "-Q" + bucket.get(IsoFields.QUARTER_OF_YEAR);
+            case GROUP_YEAR:
+                return String.valueOf(bucket.getYear());
+            default:
+                return bucket.toString();
+        }
+    }
+
     // =====================================================
     // D.2: INVENTORY REPORT - FIXED
     // =====================================================
@@ -131,83 +336,160 @@ public class ReportServiceImpl implements ReportService {
         List<Object[]> inventoryData = inventoryRepository.getInventoryReportData(
                 filter.getProductId(), filter.getDealerId());
 
-        // Convert to InventoryDetail - SAFE CASTING
-        List<InventoryReportResponse.InventoryDetail> inventoryDetails = inventoryData.stream()
-                .map(data -> {
-                    // Sử dụng convertToNumber để đảm bảo ép kiểu an toàn
-                    Long productId = convertToNumber(data[0], Long.class);
-                    String productName = data[1] != null ? (String) data[1] : "";
-                    String version = data[2] != null ? (String) data[2] : "";
-                    Long dealerId = convertToNumber(data[3], Long.class);
-                    String dealerName = data[4] != null ? (String) data[4] : "";
-                    String location = data[5] != null ? (String) data[5] : "";
-                    Integer totalQty = convertToNumber(data[6], Integer.class);
-                    Integer availableQty = convertToNumber(data[7], Integer.class);
-                    Integer reservedQty = convertToNumber(data[8], Integer.class);
-                    Integer inTransitQty = convertToNumber(data[9], Integer.class);
-                    String stockStatus = data[10] != null ? (String) data[10] : "UNKNOWN";
-
-                    return InventoryReportResponse.InventoryDetail.builder()
-                            .productId(productId)
-                            .productName(productName)
-                            .version(version)
-                            .dealerId(dealerId)
-                            .dealerName(dealerName)
-                            .location(location)
-                            .totalQuantity(totalQty)
-                            .availableQuantity(availableQty)
-                            .reservedQuantity(reservedQty)
-                            .inTransitQuantity(inTransitQty)
-                            .stockStatus(stockStatus)
-                            .build();
-                })
-                .collect(Collectors.toList());
+        // Chi tiết và thống kê tính trong cùng một lần duyệt kết quả
+        InventoryStats stats = new InventoryStats();
+        List<InventoryReportResponse.InventoryDetail> inventoryDetails = new ArrayList<>(inventoryData.size());
+        for (Object[] row : inventoryData) {
+            InventoryReportResponse.InventoryDetail detail = toInventoryDetail(row);
+            stats.add(detail);
+            inventoryDetails.add(detail);
+        }
+
+        InventoryReportResponse response = buildInventorySummary(stats);
+        response.setInventoryDetails(inventoryDetails);
+        return response;
+    }
+
+    @Override
+    public InventoryReportResponse getInventoryReportPage(
+            ReportFilterRequest filter, String cursor, Integer size) {
+        log.info("Generating inventory report page");
+
+        int limit = size != null ? Math.max(1, Math.min(size, MAX_INVENTORY_PAGE_SIZE)) : DEFAULT_INVENTORY_PAGE_SIZE;
+
+        // Cursor = (productName, inventoryId) của dòng cuối trang trước
+        String afterProductName = null;
+        Long afterInventoryId = null;
+        if (cursor != null && !cursor.isBlank()) {
+            Object[] position = decodeInventoryCursor(cursor);
+            afterProductName = (String) position[0];
+            afterInventoryId = (Long) position[1];
+        }
 
-        // Get statistics
-        List<Object[]> statsList = inventoryRepository.getInventoryStatistics();
-
-        // SỬA: Lấy mảng Object[] đầu tiên (hàng dữ liệu thống kê)
-        Object[] statsData = (statsList != null && !statsList.isEmpty()) ?
-                statsList.get(0) :
-                new Object[]{0L, 0, 0, 0, 0}; // Dùng Long/Integer để tránh lỗi ép kiểu ban đầu
-
-        // Truy cập các cột trong mảng statsData (index 0 đến 4)
-        Integer totalProducts = convertToNumber(statsData[0], Integer.class);
-        Integer totalStock = convertToNumber(statsData[1], Integer.class);
-        Integer availableStock = convertToNumber(statsData[2], Integer.class);
-        Integer reservedStock = convertToNumber(statsData[3], Integer.class);
-        Integer inTransitStock = convertToNumber(statsData[4], Integer.class);
-
-        // Count alerts
-        int lowStockCount = (int) inventoryDetails.stream()
-                .filter(d -> "LOW_STOCK".equals(d.getStockStatus()))
-                .count();
-        int outOfStockCount = (int) inventoryDetails.stream()
-                .filter(d -> "OUT_OF_STOCK".equals(d.getStockStatus()))
-                .count();
+        // Lấy dư một dòng để biết còn trang sau hay không
+        List<Object[]> rows = inventoryRepository.getInventoryReportPage(
+                filter.getProductId(), filter.getDealerId(), afterProductName, afterInventoryId, limit + 1);
+        boolean hasMore = rows.size() > limit;
+        List<Object[]> pageRows = hasMore ? rows.subList(0, limit) : rows;
+
+        // Thống kê (một truy vấn aggregate) chỉ trả về ở trang đầu
+        InventoryReportResponse response = afterProductName == null ?
+                buildInventorySummary(statsFromRow(firstRow(inventoryRepository.getInventorySummaryStats(
+                        filter.getProductId(), filter.getDealerId())))) :
+                InventoryReportResponse.builder().reportDate(LocalDate.now()).build();
+
+        response.setInventoryDetails(pageRows.stream()
+                .map(this::toInventoryDetail)
+                .collect(Collectors.toList()));
+        response.setNextCursor(hasMore ? encodeInventoryCursor(pageRows.get(pageRows.size() - 1)) : null);
+        return response;
+    }
 
+    @Override
+    public void streamInventoryReport(ReportFilterRequest filter, OutputStream outputStream) {
+        log.info("Streaming inventory report (NDJSON)");
+
+        // Mỗi dòng một InventoryDetail; dòng cuối {"summary": ...} tính trong cùng lần đọc cursor
+        try (Stream<Object[]> inventoryData = inventoryRepository.streamInventoryReportData(
+                filter.getProductId(), filter.getDealerId())) {
+
+            InventoryStats stats = new InventoryStats();
+            Iterator<Object[]> rows = inventoryData.iterator();
+            while (rows.hasNext()) {
+                InventoryReportResponse.InventoryDetail detail = toInventoryDetail(rows.next());
+                stats.add(detail);
+                outputStream.write(objectMapper.writeValueAsBytes(detail));
+                outputStream.write('\n');
+            }
+
+            outputStream.write(objectMapper.writeValueAsBytes(Map.of("summary", buildInventorySummary(stats))));
+            outputStream.write('\n');
+            outputStream.flush();
+
+        } catch (IOException e) {
+            log.error("Error streaming inventory report", e);
+            throw new RuntimeException("Failed to stream inventory report", e);
+        }
+    }
+
+    @Override
+    public InventoryReportResponse getInventorySummary() {
+        log.info("Generating inventory summary");
+
+        // Tổng tồn kho và số LOW_STOCK / OUT_OF_STOCK trong một truy vấn aggregate, không nạp từng dòng
+        return buildInventorySummary(statsFromRow(firstRow(
+                inventoryRepository.getInventorySummaryStats(null, null))));
+    }
+
+    /**
+     * Thống kê tổng + cảnh báo (không gồm danh sách chi tiết)
+     */
+    private InventoryReportResponse buildInventorySummary(InventoryStats stats) {
         // Generate alerts
         List<InventoryReportResponse.StockAlert> alerts = generateStockAlerts();
 
         return InventoryReportResponse.builder()
                 .reportDate(LocalDate.now())
-                .totalProducts(totalProducts)
-                .totalStock(totalStock)
-                .availableStock(availableStock)
-                .reservedStock(reservedStock)
-                .inTransitStock(inTransitStock)
-                .lowStockCount(lowStockCount)
-                .outOfStockCount(outOfStockCount)
-                .inventoryDetails(inventoryDetails)
+                .totalProducts(stats.totalProducts)
+                .totalStock(stats.totalStock)
+                .availableStock(stats.availableStock)
+                .reservedStock(stats.reservedStock)
+                .inTransitStock(stats.inTransitStock)
+                .lowStockCount(stats.lowStockCount)
+                .outOfStockCount(stats.outOfStockCount)
+                .inventoryDetails(new ArrayList<>())
                 .alerts(alerts)
                 .build();
     }
 
+    /**
+     * Row của getInventorySummaryStats -> InventoryStats
+     */
+    private InventoryStats statsFromRow(Object[] row) {
+        InventoryStats stats = new InventoryStats();
+        if (row == null) {
+            return stats;
+        }
+        stats.totalProducts = convertToNumber(row[0], Integer.class);
+        stats.totalStock = convertToNumber(row[1], Integer.class);
+        stats.availableStock = convertToNumber(row[2], Integer.class);
+        stats.reservedStock = convertToNumber(row[3], Integer.class);
+        stats.inTransitStock = convertToNumber(row[4], Integer.class);
+        stats.lowStockCount = convertToNumber(row[5], Integer.class);
+        stats.outOfStockCount = convertToNumber(row[6], Integer.class);
+        return stats;
+    }
+
+    private Object[] firstRow(List<Object[]> rows) {
+        return rows != null && !rows.isEmpty() ? rows.get(0) : null;
+    }
+
+    private String encodeInventoryCursor(Object[] row) {
+        String productName = row[1] != null ? (String) row[1] : "";
+        String position = convertToNumber(row[11], Long.class) + ":" + productName;
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Cursor -> [productName, inventoryId]
+     */
+    private Object[] decodeInventoryCursor(String cursor) {
+        try {
+            String position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = position.indexOf(':');
+            return new Object[]{position.substring(separator + 1), Long.parseLong(position.substring(0, separator))};
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new BadRequestException("cursor không hợp lệ");
+        }
+    }
+
     // =====================================================
     // C.1, C.2: DEALER PERFORMANCE - FIXED
     // =====================================================
 
     @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public DealerPerformanceResponse getDealerPerformance(
             Long dealerId, ReportFilterRequest filter) {
         log.info("Generating performance report for dealer: {}", dealerId);
@@ -220,34 +502,143 @@ public class ReportServiceImpl implements ReportService {
         LocalDate endDate = filter.getEndDate() != null ?
                 filter.getEndDate() : LocalDate.now();
 
-        // Get sales data
-        BigDecimal totalRevenue = reportRepository.getDealerTotalSales(
-                dealerId, startDate, endDate);
-        Long totalOrders = reportRepository.getTotalOrders(startDate, endDate, dealerId);
-        BigDecimal avgOrderValue = totalOrders > 0 ?
-                totalRevenue.divide(BigDecimal.valueOf(totalOrders), 2, RoundingMode.HALF_UP) :
-                BigDecimal.ZERO;
+        // Các truy vấn độc lập chạy song song, mỗi truy vấn một connection read-only
+        CompositeReportExecutor.Fanout fanout = compositeReportExecutor.begin("Dealer performance " + dealerId);
+        var totalsBranch = fanout.fork("totals",
+                () -> totalsRow(rollupRepository.getTotals(startDate, endDate, dealerId)));
+        var contractBranch = fanout.fork("contract",
+                () -> contractRepository.findActiveContract(dealerId, LocalDate.now()));
+        // Tháng đã đóng đọc từ snapshot, chỉ phần còn mở tính trực tiếp từ rollup
+        var monthlyBranch = fanout.fork("monthlyPerformance",
+                () -> dealerSnapshotService.getMonthlySales(dealerId, startDate, endDate));
+        var productsBranch = fanout.fork("productBreakdown",
+                () -> dealerSnapshotService.getProductBreakdown(dealerId, startDate, endDate));
+        var comparisonBranch = fanout.fork("periodComparison",
+                () -> getPeriodComparisons(startDate, endDate, dealerId));
+
+        // Get sales data (from daily rollup)
+        Object[] totals = fanout.join(totalsBranch, totalsRow(List.of()));
+        BigDecimal totalRevenue = convertToBigDecimal(totals[0]);
+        Long totalOrders = convertToNumber(totals[1], Long.class);
 
         // Get contract and KPI
-        DealerContract contract = contractRepository
-                .findActiveContract(dealerId, LocalDate.now())
+        DealerContract contract = fanout.join(contractBranch, Optional.<DealerContract>empty())
                 .orElse(null);
 
-        BigDecimal salesTarget = contract != null ? contract.getSalesTarget() : BigDecimal.ZERO;
-        BigDecimal achievementRate = calculateAchievementRate(totalRevenue, salesTarget);
-        String performanceLevel = determinePerformanceLevel(achievementRate);
+        DealerPerformanceResponse response = buildDealerPerformance(
+                dealerId, dealer.getDealerName(), startDate, endDate,
+                totalRevenue, totalOrders, contract);
 
         // ✅ Get monthly breakdown (returns Object[])
-        List<DealerPerformanceResponse.MonthlyPerformance> monthlyPerformance =
-                getMonthlyPerformance(dealerId, startDate, endDate, salesTarget);
+        response.setMonthlyPerformance(toMonthlyPerformance(
+                fanout.join(monthlyBranch, List.of()),
+                monthlyTarget(contract)));
 
         // ✅ Get product breakdown (returns Object[])
-        List<DealerPerformanceResponse.ProductPerformance> productBreakdown =
-                getProductBreakdown(dealerId, startDate, endDate, totalRevenue);
+        response.setProductBreakdown(toProductBreakdown(
+                fanout.join(productsBranch, List.of()),
+                totalRevenue));
+
+        // MoM / QoQ / YoY của đại lý và từng sản phẩm
+        PeriodComparisons comparisons = fanout.join(comparisonBranch, null);
+        if (comparisons != null) {
+            response.setComparison(toComparison(comparisons.total, comparisons.windows));
+            response.setProductComparisons(toComparisons(comparisons.products.values(), comparisons.windows));
+        }
+
+        response.setPartial(fanout.isPartial());
+        response.setMissingSections(fanout.getMissingSections());
+        return response;
+    }
+
+    @Override
+    public Page<DealerPerformanceResponse> getAllDealersPerformance(
+            ReportFilterRequest filter) {
+        log.info("Generating performance report for all dealers");
+
+        // Kiểm tra phân trang trước khi chạy truy vấn (PageRequest.of ném IllegalArgumentException -> 500)
+        int page = filter.getPage() != null ? filter.getPage() : 0;
+        int size = filter.getSize() != null ? filter.getSize() : DEFAULT_DEALER_PAGE_SIZE;
+        if (page < 0) {
+            throw new BadRequestException("page phải >= 0");
+        }
+        if (size < 1 || size > MAX_DEALER_PAGE_SIZE) {
+            throw new BadRequestException("size phải trong khoảng 1.." + MAX_DEALER_PAGE_SIZE);
+        }
+
+        LocalDate startDate = filter.getStartDate() != null ?
+                filter.getStartDate() : LocalDate.now().minusMonths(3);
+        LocalDate endDate = filter.getEndDate() != null ?
+                filter.getEndDate() : LocalDate.now();
+
+        // 1. Active contracts of every dealer in one query (latest start date wins)
+        Map<Long, DealerContract> contracts = new HashMap<>();
+        for (DealerContract contract : contractRepository.findAllActiveContractsWithDealer(LocalDate.now())) {
+            contracts.putIfAbsent(contract.getDealer().getId(), contract);
+        }
+
+        // 2. Totals of every dealer in one GROUP BY query
+        List<DealerPerformanceResponse> performances = rollupRepository
+                .getAllDealerTotals(startDate, endDate)
+                .stream()
+                .map(data -> {
+                    Long dealerId = ((Number) data[0]).longValue();
+                    return buildDealerPerformance(
+                            dealerId, (String) data[1], startDate, endDate,
+                            convertToBigDecimal(data[2]),
+                            convertToNumber(data[3], Long.class),
+                            contracts.get(dealerId));
+                })
+                .sorted(dealerPerformanceComparator(filter.getSortBy()))
+                .collect(Collectors.toList());
+
+        // 3. Paginate in memory (one row per dealer)
+        Pageable pageable = PageRequest.of(page, size);
+
+        int start = (int) Math.min(pageable.getOffset(), performances.size());
+        int end = Math.min(start + pageable.getPageSize(), performances.size());
+        List<DealerPerformanceResponse> pageContent = new ArrayList<>(performances.subList(start, end));
+
+        // 4. Monthly + product breakdown only for dealers on this page (GROUP BY dealer)
+        if (!pageContent.isEmpty()) {
+            List<Long> dealerIds = pageContent.stream()
+                    .map(DealerPerformanceResponse::getDealerId)
+                    .collect(Collectors.toList());
+
+            Map<Long, List<Object[]>> monthlyByDealer = groupByDealer(
+                    rollupRepository.getDealersSalesByMonth(dealerIds, startDate, endDate));
+            Map<Long, List<Object[]>> productsByDealer = groupByDealer(
+                    rollupRepository.getDealersProductBreakdown(dealerIds, startDate, endDate));
+
+            for (DealerPerformanceResponse response : pageContent) {
+                response.setMonthlyPerformance(toMonthlyPerformance(
+                        monthlyByDealer.getOrDefault(response.getDealerId(), List.of()),
+                        monthlyTarget(contracts.get(response.getDealerId()))));
+                response.setProductBreakdown(toProductBreakdown(
+                        productsByDealer.getOrDefault(response.getDealerId(), List.of()),
+                        response.getTotalRevenue()));
+            }
+        }
+
+        return new PageImpl<>(pageContent, pageable, performances.size());
+    }
+
+    private DealerPerformanceResponse buildDealerPerformance(
+            Long dealerId, String dealerName, LocalDate startDate, LocalDate endDate,
+            BigDecimal totalRevenue, Long totalOrders, DealerContract contract) {
+
+        BigDecimal avgOrderValue = totalOrders > 0 ?
+                totalRevenue.divide(BigDecimal.valueOf(totalOrders), 2, RoundingMode.HALF_UP) :
+                BigDecimal.ZERO;
+
+        BigDecimal salesTarget = contract != null && contract.getSalesTarget() != null ?
+                contract.getSalesTarget() : BigDecimal.ZERO;
+        BigDecimal achievementRate = calculateAchievementRate(totalRevenue, salesTarget);
+        String performanceLevel = determinePerformanceLevel(achievementRate);
 
         return DealerPerformanceResponse.builder()
                 .dealerId(dealerId)
-                .dealerName(dealer.getDealerName())
+                .dealerName(dealerName)
                 .fromDate(startDate)
                 .toDate(endDate)
                 .totalRevenue(totalRevenue)
@@ -260,20 +651,45 @@ public class ReportServiceImpl implements ReportService {
                 .contractStartDate(contract != null ? contract.getStartDate() : null)
                 .contractEndDate(contract != null ? contract.getEndDate() : null)
                 .commissionRate(contract != null ? contract.getCommissionRate() : null)
-                .monthlyPerformance(monthlyPerformance)
-                .productBreakdown(productBreakdown)
+                .monthlyPerformance(new ArrayList<>())
+                .productBreakdown(new ArrayList<>())
                 .build();
     }
 
-    @Override
-    public List<DealerPerformanceResponse> getAllDealersPerformance(
-            ReportFilterRequest filter) {
-        log.info("Generating performance report for all dealers");
+    private Comparator<DealerPerformanceResponse> dealerPerformanceComparator(String sortBy) {
+        Comparator<DealerPerformanceResponse> byAchievement =
+                Comparator.comparing(DealerPerformanceResponse::getAchievementRate);
+        Comparator<DealerPerformanceResponse> byRevenue =
+                Comparator.comparing(DealerPerformanceResponse::getTotalRevenue);
 
-        var dealers = dealerRepository.findAll();
-        return dealers.stream()
-                .map(dealer -> getDealerPerformance(dealer.getId(), filter))
-                .collect(Collectors.toList());
+        if (sortBy == null) {
+            return byAchievement.reversed().thenComparing(byRevenue.reversed());
+        }
+        switch (sortBy) {
+            case "achievement_asc":
+                return byAchievement.thenComparing(byRevenue);
+            case "revenue_desc":
+                return byRevenue.reversed();
+            case "revenue_asc":
+                return byRevenue;
+            case "name_asc":
+                return Comparator.comparing(DealerPerformanceResponse::getDealerName,
+                        Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER));
+            default:
+                return byAchievement.reversed().thenComparing(byRevenue.reversed());
+        }
+    }
+
+    /**
+     * Group rows [dealerId, ...] theo dealerId, bỏ cột dealerId
+     */
+    private Map<Long, List<Object[]>> groupByDealer(List<Object[]> rows) {
+        Map<Long, List<Object[]>> grouped = new HashMap<>();
+        for (Object[] row : rows) {
+            grouped.computeIfAbsent(((Number) row[0]).longValue(), id -> new ArrayList<>())
+                    .add(Arrays.copyOfRange(row, 1, row.length));
+        }
+        return grouped;
     }
 
     // =====================================================
@@ -289,15 +705,12 @@ public class ReportServiceImpl implements ReportService {
         LocalDate endDate = filter.getEndDate() != null ?
                 filter.getEndDate() : LocalDate.now();
 
-        BigDecimal totalRevenue = reportRepository.getTotalRevenue(
-                startDate, endDate, null);
-        BigDecimal totalPaid = reportRepository.getTotalPaidAmount(startDate, endDate);
-
-        // Calculate previous period for growth
-        LocalDate prevStartDate = startDate.minusDays(
-                endDate.toEpochDay() - startDate.toEpochDay());
-        BigDecimal previousRevenue = reportRepository.getTotalRevenue(
-                prevStartDate, startDate.minusDays(1), null);
+        // Totals, paid amount and previous period in one round-trip
+        Object[] summary = getPeriodSummary(startDate, endDate, filter.getDealerId());
+        BigDecimal totalRevenue = convertToBigDecimal(summary[0]);
+        BigDecimal totalDiscount = convertToBigDecimal(summary[2]);
+        BigDecimal totalPaid = convertToBigDecimal(summary[3]);
+        BigDecimal previousRevenue = convertToBigDecimal(summary[4]);
         BigDecimal growthRate = calculateGrowthRate(totalRevenue, previousRevenue);
 
         return RevenueReportResponse.builder()
@@ -305,6 +718,7 @@ public class ReportServiceImpl implements ReportService {
                 .fromDate(startDate)
                 .toDate(endDate)
                 .totalRevenue(totalRevenue)
+                .totalDiscount(totalDiscount)
                 .totalPaid(totalPaid)
                 .totalPending(totalRevenue.subtract(totalPaid))
                 .previousPeriodRevenue(previousRevenue)
@@ -317,13 +731,12 @@ public class ReportServiceImpl implements ReportService {
     // =====================================================
 
     @Override
-    public byte[] exportSalesReportToExcel(ReportFilterRequest filter) {
-        log.info("Exporting sales report to Excel");
-
-        try (Workbook workbook = new XSSFWorkbook();
-             ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
+    public void exportSalesReportToExcel(ReportFilterRequest filter, OutputStream outputStream) {
+        log.info("Exporting sales report to Excel (streaming)");
 
-            // Get report data
+        SXSSFWorkbook workbook = createStreamingWorkbook();
+        try {
+            // Get report data (đã tổng hợp theo ngày, số dòng nhỏ)
             SalesReportResponse report = getSalesReport(filter);
 
             // Create styles
@@ -334,81 +747,69 @@ public class ReportServiceImpl implements ReportService {
             CellStyle percentStyle = createPercentStyle(workbook);
 
             // ========== SHEET 1: SUMMARY ==========
-            Sheet summarySheet = workbook.createSheet("Tổng quan");
+            Sheet summarySheet = createSheet(workbook, "Tổng quan", SUMMARY_COLUMN_WIDTHS);
             createSalesSummarySheet(summarySheet, report, headerStyle, currencyStyle, percentStyle);
 
             // ========== SHEET 2: SALES BY PERIOD ==========
-            Sheet periodSheet = workbook.createSheet("Doanh thu theo thời gian");
+            Sheet periodSheet = createSheet(workbook, "Doanh thu theo thời gian", SALES_PERIOD_COLUMN_WIDTHS);
             createSalesByPeriodSheet(periodSheet, report, headerStyle, dateStyle, currencyStyle, numberStyle);
 
             // ========== SHEET 3: TOP PERFORMERS ==========
-            Sheet performersSheet = workbook.createSheet("Top nhân viên & đại lý");
+            Sheet performersSheet = createSheet(workbook, "Top nhân viên & đại lý", TOP_RANKING_COLUMN_WIDTHS);
             createTopPerformersSheet(performersSheet, report, headerStyle, currencyStyle, numberStyle);
 
             // ========== SHEET 4: TOP PRODUCTS ==========
-            Sheet productsSheet = workbook.createSheet("Top sản phẩm");
+            Sheet productsSheet = createSheet(workbook, "Top sản phẩm", TOP_RANKING_COLUMN_WIDTHS);
             createTopProductsSheet(productsSheet, report, headerStyle, currencyStyle, numberStyle);
 
-            // Auto-size columns
-            for (int i = 0; i < 4; i++) {
-                Sheet sheet = workbook.getSheetAt(i);
-                for (int j = 0; j < 10; j++) {
-                    sheet.autoSizeColumn(j);
-                }
-            }
-
             workbook.write(outputStream);
             log.info("Sales report Excel exported successfully");
-            return outputStream.toByteArray();
 
         } catch (IOException e) {
             log.error("Error exporting sales report to Excel", e);
             throw new RuntimeException("Failed to export sales report", e);
+        } finally {
+            disposeWorkbook(workbook);
         }
     }
 
     @Override
-    public byte[] exportInventoryReportToExcel(ReportFilterRequest filter) {
-        log.info("Exporting inventory report to Excel");
+    public void exportInventoryReportToExcel(ReportFilterRequest filter, OutputStream outputStream) {
+        log.info("Exporting inventory report to Excel (streaming)");
 
-        try (Workbook workbook = new XSSFWorkbook();
-             ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
-
-            // Get report data
-            InventoryReportResponse report = getInventoryReport(filter);
+        SXSSFWorkbook workbook = createStreamingWorkbook();
+        try (Stream<Object[]> inventoryData = inventoryRepository.streamInventoryReportData(
+                filter.getProductId(), filter.getDealerId())) {
 
             // Create styles
             CellStyle headerStyle = createHeaderStyle(workbook);
             CellStyle numberStyle = createNumberStyle(workbook);
             CellStyle alertStyle = createAlertStyle(workbook);
 
-            // ========== SHEET 1: SUMMARY ==========
-            Sheet summarySheet = workbook.createSheet("Tổng quan");
-            createInventorySummarySheet(summarySheet, report, headerStyle, numberStyle);
+            // Tạo sheet theo đúng thứ tự tab, sheet tổng quan được ghi sau khi đếm xong chi tiết
+            Sheet summarySheet = createSheet(workbook, "Tổng quan", SUMMARY_COLUMN_WIDTHS);
+            Sheet detailsSheet = createSheet(workbook, "Chi tiết tồn kho", INVENTORY_DETAIL_COLUMN_WIDTHS);
+            Sheet alertsSheet = createSheet(workbook, "Cảnh báo", INVENTORY_ALERT_COLUMN_WIDTHS);
 
-            // ========== SHEET 2: INVENTORY DETAILS ==========
-            Sheet detailsSheet = workbook.createSheet("Chi tiết tồn kho");
-            createInventoryDetailsSheet(detailsSheet, report, headerStyle, numberStyle);
+            // ========== SHEET 2: INVENTORY DETAILS (cursor, không giữ list) ==========
+            InventoryStats stats = writeInventoryDetailsSheet(detailsSheet,
+                    inventoryData.map(this::toInventoryDetail), headerStyle, numberStyle);
 
-            // ========== SHEET 3: ALERTS ==========
-            Sheet alertsSheet = workbook.createSheet("Cảnh báo");
-            createInventoryAlertsSheet(alertsSheet, report, headerStyle, alertStyle, numberStyle);
+            // ========== SHEET 1: SUMMARY (thống kê từ cùng lần đọc chi tiết) ==========
+            InventoryReportResponse summary = buildInventorySummary(stats);
+            createInventorySummarySheet(summarySheet, summary, headerStyle, numberStyle);
 
-            // Auto-size columns
-            for (int i = 0; i < 3; i++) {
-                Sheet sheet = workbook.getSheetAt(i);
-                for (int j = 0; j < 15; j++) {
-                    sheet.autoSizeColumn(j);
-                }
-            }
+            // ========== SHEET 3: ALERTS ==========
+            createInventoryAlertsSheet(alertsSheet, summary, headerStyle, alertStyle, numberStyle);
 
             workbook.write(outputStream);
             log.info("Inventory report Excel exported successfully");
-            return outputStream.toByteArray();
 
         } catch (IOException e) {
             log.error("Error exporting inventory report to Excel", e);
             throw new RuntimeException("Failed to export inventory report", e);
+        } finally {
+            disposeWorkbook(workbook);
         }
     }
 
@@ -458,6 +859,38 @@ public class ReportServiceImpl implements ReportService {
         }
     }
 
+// ============================================================
+// HELPER METHODS - STREAMING WORKBOOK
+// ============================================================
+
+    private SXSSFWorkbook createStreamingWorkbook() {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(EXCEL_ROW_WINDOW);
+        workbook.setCompressTempFiles(true);
+        return workbook;
+    }
+
+    /**
+     * Độ rộng cột cố định (số ký tự) thay cho autoSizeColumn - autoSize phải đọc lại mọi dòng
+     */
+    private Sheet createSheet(Workbook workbook, String name, int[] columnWidths) {
+        Sheet sheet = workbook.createSheet(name);
+        for (int i = 0; i < columnWidths.length; i++) {
+            sheet.setColumnWidth(i, columnWidths[i] * 256);
+        }
+        return sheet;
+    }
+
+    private void disposeWorkbook(SXSSFWorkbook workbook) {
+        try {
+            workbook.close();
+        } catch (IOException e) {
+            log.warn("Failed to close streaming workbook", e);
+        } finally {
+            // Xóa file tạm của SXSSF
+            workbook.dispose();
+        }
+    }
+
 // ============================================================
 // HELPER METHODS - EXCEL STYLES
 // ============================================================
@@ -559,7 +992,7 @@ public class ReportServiceImpl implements ReportService {
 
         // Header
         Row headerRow = sheet.createRow(rowNum++);
-        String[] headers = {"Ngày", "Doanh thu", "Số đơn", "Giá trị TB"};
+        String[] headers = {"Kỳ", "Doanh thu", "Số đơn", "Giá trị TB"};
         for (int i = 0; i < headers.length; i++) {
             Cell cell = headerRow.createCell(i);
             cell.setCellValue(headers[i]);
@@ -569,7 +1002,7 @@ public class ReportServiceImpl implements ReportService {
         // Data
         for (SalesReportResponse.SalesDataPoint data : report.getSalesByPeriod()) {
             Row row = sheet.createRow(rowNum++);
-            row.createCell(0).setCellValue(data.getDate().format(DATE_FORMATTER));
+            row.createCell(0).setCellValue(data.getPeriod());
 
             Cell revenueCell = row.createCell(1);
             revenueCell.setCellValue(data.getRevenue().doubleValue());
@@ -708,12 +1141,18 @@ public class ReportServiceImpl implements ReportService {
         createSummaryRow(sheet, rowNum++, "Cảnh báo tồn thấp:", report.getLowStockCount(), numberStyle);
     }
 
-    private void createInventoryDetailsSheet(Sheet sheet, InventoryReportResponse report,
-                                             CellStyle headerStyle, CellStyle numberStyle) {
-        int rowNum = 0;
+    /**
+     * Ghi chi tiết tồn kho từ Stream, đồng thời cộng dồn số liệu tổng hợp
+     * @return InventoryStats: số sản phẩm, tổng / sẵn có / đã đặt / đang vận chuyển, số dòng LOW_STOCK / OUT_OF_STOCK
+     */
+    private InventoryStats writeInventoryDetailsSheet(Sheet sheet,
+                                                      Stream<InventoryReportResponse.InventoryDetail> details,
+                                                      CellStyle headerStyle, CellStyle numberStyle) {
+        int[] rowNum = {0};
+        InventoryStats stats = new InventoryStats();
 
         // Header
-        Row headerRow = sheet.createRow(rowNum++);
+        Row headerRow = sheet.createRow(rowNum[0]++);
         String[] headers = {"Sản phẩm", "Phiên bản", "Đại lý", "Vị trí",
                 "Tổng", "Có sẵn", "Đã đặt", "Đang chuyển", "Trạng thái"};
         for (int i = 0; i < headers.length; i++) {
@@ -723,8 +1162,8 @@ public class ReportServiceImpl implements ReportService {
         }
 
         // Data
-        for (InventoryReportResponse.InventoryDetail detail : report.getInventoryDetails()) {
-            Row row = sheet.createRow(rowNum++);
+        details.forEach(detail -> {
+            Row row = sheet.createRow(rowNum[0]++);
             row.createCell(0).setCellValue(detail.getProductName());
             row.createCell(1).setCellValue(detail.getVersion());
             row.createCell(2).setCellValue(detail.getDealerName());
@@ -736,7 +1175,11 @@ public class ReportServiceImpl implements ReportService {
             createNumberCell(row, 7, detail.getInTransitQuantity(), numberStyle);
 
             row.createCell(8).setCellValue(detail.getStockStatus());
-        }
+
+            stats.add(detail);
+        });
+
+        return stats;
     }
 
     private void createInventoryAlertsSheet(Sheet sheet, InventoryReportResponse report,
@@ -914,6 +1357,26 @@ public class ReportServiceImpl implements ReportService {
     // HELPER METHODS - FIXED
     // =====================================================
 
+    /**
+     * ✅ Convert Object[] (getInventoryReportData) to InventoryDetail - SAFE CASTING
+     */
+    private InventoryReportResponse.InventoryDetail toInventoryDetail(Object[] data) {
+        // Sử dụng convertToNumber để đảm bảo ép kiểu an toàn
+        return InventoryReportResponse.InventoryDetail.builder()
+                .productId(convertToNumber(data[0], Long.class))
+                .productName(data[1] != null ? (String) data[1] : "")
+                .version(data[2] != null ? (String) data[2] : "")
+                .dealerId(convertToNumber(data[3], Long.class))
+                .dealerName(data[4] != null ? (String) data[4] : "")
+                .location(data[5] != null ? (String) data[5] : "")
+                .totalQuantity(convertToNumber(data[6], Integer.class))
+                .availableQuantity(convertToNumber(data[7], Integer.class))
+                .reservedQuantity(convertToNumber(data[8], Integer.class))
+                .inTransitQuantity(convertToNumber(data[9], Integer.class))
+                .stockStatus(data[10] != null ? (String) data[10] : "UNKNOWN")
+                .build();
+    }
+
     /**
      * ✅ Convert Object[] to TopPerformer
      */
@@ -942,6 +1405,100 @@ public class ReportServiceImpl implements ReportService {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * [revenue, orderCount, discount, paidAmount, previousRevenue] - kỳ trước có cùng độ dài
+     */
+    private Object[] getPeriodSummary(LocalDate startDate, LocalDate endDate, Long dealerId) {
+        LocalDate prevStartDate = startDate.minusDays(
+                endDate.toEpochDay() - startDate.toEpochDay());
+        List<Object[]> rows = reportRepository.getPeriodSummary(
+                startDate, endDate, prevStartDate, startDate.minusDays(1), dealerId);
+
+        return (rows != null && !rows.isEmpty() && rows.get(0) != null) ?
+                rows.get(0) :
+                emptyPeriodSummary();
+    }
+
+    private Object[] emptyPeriodSummary() {
+        return new Object[]{BigDecimal.ZERO, 0L, BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO};
+    }
+
+    private Object[] totalsRow(List<Object[]> rows) {
+        return (rows != null && !rows.isEmpty() && rows.get(0) != null) ?
+                rows.get(0) :
+                new Object[]{BigDecimal.ZERO, 0L, BigDecimal.ZERO};
+    }
+
+    /**
+     * MoM / QoQ / YoY của kỳ [startDate, endDate] trong một lần quét rollup,
+     * gộp một lượt thành tổng + theo đại lý + theo sản phẩm
+     */
+    private PeriodComparisons getPeriodComparisons(LocalDate startDate, LocalDate endDate, Long dealerId) {
+        PeriodComparisons comparisons = new PeriodComparisons(startDate, endDate);
+        LocalDate[][] windows = comparisons.windows;
+
+        List<Object[]> rows = rollupRepository.getPeriodComparison(startDate, endDate,
+                windows[0][0], windows[0][1], windows[1][0], windows[1][1], windows[2][0], windows[2][1],
+                dealerId);
+
+        // [dealerId, dealerName, productId, productName, (orders, revenue, discount) x 4 kỳ]
+        for (Object[] row : rows) {
+            comparisons.total.add(row);
+
+            Long rowDealerId = convertToNumber(row[0], Long.class);
+            if (!UNASSIGNED.equals(rowDealerId)) {
+                comparisons.dealers
+                        .computeIfAbsent(rowDealerId, id -> new ComparisonTotals(id, (String) row[1]))
+                        .add(row);
+            }
+            Long productId = convertToNumber(row[2], Long.class);
+            if (!UNASSIGNED.equals(productId)) {
+                comparisons.products
+                        .computeIfAbsent(productId, id -> new ComparisonTotals(id, (String) row[3]))
+                        .add(row);
+            }
+        }
+        return comparisons;
+    }
+
+    /**
+     * Sắp xếp theo doanh thu kỳ hiện tại giảm dần
+     */
+    private List<PeriodComparisonResponse> toComparisons(
+            Collection<ComparisonTotals> totals, LocalDate[][] windows) {
+        return totals.stream()
+                .sorted(Comparator.comparing((ComparisonTotals t) -> t.revenue[0]).reversed())
+                .map(t -> toComparison(t, windows))
+                .collect(Collectors.toList());
+    }
+
+    private PeriodComparisonResponse toComparison(ComparisonTotals totals, LocalDate[][] windows) {
+        return PeriodComparisonResponse.builder()
+                .id(totals.id)
+                .name(totals.name)
+                .revenue(totals.revenue[0])
+                .orderCount(totals.orders[0])
+                .discount(totals.discount[0])
+                .monthOverMonth(toGrowth(totals, 1, windows[0]))
+                .quarterOverQuarter(toGrowth(totals, 2, windows[1]))
+                .yearOverYear(toGrowth(totals, 3, windows[2]))
+                .build();
+    }
+
+    private PeriodComparisonResponse.Growth toGrowth(ComparisonTotals totals, int period, LocalDate[] window) {
+        return PeriodComparisonResponse.Growth.builder()
+                .fromDate(window[0])
+                .toDate(window[1])
+                .previousRevenue(totals.revenue[period])
+                .previousOrderCount(totals.orders[period])
+                .previousDiscount(totals.discount[period])
+                .revenueGrowth(calculateGrowthRate(totals.revenue[0], totals.revenue[period]))
+                .orderGrowth(calculateGrowthRate(
+                        BigDecimal.valueOf(totals.orders[0]), BigDecimal.valueOf(totals.orders[period])))
+                .discountGrowth(calculateGrowthRate(totals.discount[0], totals.discount[period]))
+                .build();
+    }
+
     private <T extends Number> T convertToNumber(Object value, Class<T> targetType) {
         if (value == null) {
             return targetType.cast(0);
@@ -959,6 +1516,16 @@ public class ReportServiceImpl implements ReportService {
         return targetType.cast(bd.longValue());
     }
 
+    private LocalDate toLocalDate(Object value) {
+        if (value instanceof LocalDate) {
+            return (LocalDate) value;
+        }
+        if (value instanceof java.sql.Date) {
+            return ((java.sql.Date) value).toLocalDate();
+        }
+        return LocalDate.parse(value.toString().substring(0, 10));
+    }
+
     private BigDecimal convertToBigDecimal(Object value) {
         if (value == null) {
             return BigDecimal.ZERO;
@@ -1010,24 +1577,19 @@ public class ReportServiceImpl implements ReportService {
     }
 
     /**
-     * ✅ Get monthly performance (convert Object[] to DTO)
+     * ✅ Convert monthly rows [month, revenue, orderCount, (monthlyTarget)] to DTO
+     * Tháng đã chốt snapshot mang sẵn mục tiêu tháng; tháng còn mở dùng liveMonthlyTarget
      */
-    private List<DealerPerformanceResponse.MonthlyPerformance> getMonthlyPerformance(
-            Long dealerId, LocalDate startDate, LocalDate endDate, BigDecimal totalTarget) {
-
-        List<Object[]> monthlyData = reportRepository
-                .getDealerSalesByMonth(dealerId, startDate, endDate);
-
-        int monthCount = (int) java.time.temporal.ChronoUnit.MONTHS
-                .between(startDate.withDayOfMonth(1), endDate.withDayOfMonth(1)) + 1;
-        BigDecimal monthlyTarget = totalTarget.divide(
-                BigDecimal.valueOf(monthCount), 2, RoundingMode.HALF_UP);
+    private List<DealerPerformanceResponse.MonthlyPerformance> toMonthlyPerformance(
+            List<Object[]> monthlyData, BigDecimal liveMonthlyTarget) {
 
         return monthlyData.stream()
                 .map(data -> {
                     String month = (String) data[0];
                     BigDecimal revenue = convertToBigDecimal(data[1]);  // ✅ FIX Ở ĐÂY
                     Long orderCount = ((Number) data[2]).longValue();
+                    BigDecimal monthlyTarget = data.length > 3 && data[3] != null ?
+                            convertToBigDecimal(data[3]) : liveMonthlyTarget;
                     BigDecimal achievement = calculateAchievementRate(revenue, monthlyTarget);
 
                     return DealerPerformanceResponse.MonthlyPerformance.builder()
@@ -1042,13 +1604,24 @@ public class ReportServiceImpl implements ReportService {
     }
 
     /**
-     * ✅ Get product breakdown (convert Object[] to DTO)
+     * Mục tiêu tháng = mục tiêu hợp đồng / số tháng của hợp đồng (cùng cách tính với snapshot)
      */
-    private List<DealerPerformanceResponse.ProductPerformance> getProductBreakdown(
-            Long dealerId, LocalDate startDate, LocalDate endDate, BigDecimal totalRevenue) {
+    private BigDecimal monthlyTarget(DealerContract contract) {
+        if (contract == null || contract.getSalesTarget() == null
+                || contract.getStartDate() == null || contract.getEndDate() == null) {
+            return BigDecimal.ZERO;
+        }
+        long months = java.time.temporal.ChronoUnit.MONTHS.between(
+                contract.getStartDate().withDayOfMonth(1), contract.getEndDate().withDayOfMonth(1)) + 1;
+        return contract.getSalesTarget().divide(
+                BigDecimal.valueOf(Math.max(1, months)), 2, RoundingMode.HALF_UP);
+    }
 
-        List<Object[]> productData = reportRepository
-                .getDealerProductBreakdown(dealerId, startDate, endDate);
+    /**
+     * ✅ Convert product rows [productId, productName, unitsSold, revenue] to DTO
+     */
+    private List<DealerPerformanceResponse.ProductPerformance> toProductBreakdown(
+            List<Object[]> productData, BigDecimal totalRevenue) {
 
         return productData.stream()
                 .map(data -> {
@@ -1074,38 +1647,97 @@ public class ReportServiceImpl implements ReportService {
     }
 
     private List<InventoryReportResponse.StockAlert> generateStockAlerts() {
-        List<InventoryReportResponse.StockAlert> alerts = new ArrayList<>();
-
-        // Low stock alerts
-        List<Inventory> lowStock = inventoryRepository.getLowStockItems();
-        for (Inventory inv : lowStock) {
-            alerts.add(InventoryReportResponse.StockAlert.builder()
-                    .productId(inv.getProduct().getId())
-                    .productName(inv.getProduct().getProductName())
-                    .dealerId(inv.getDealer() != null ? inv.getDealer().getId() : null)
-                    .dealerName(inv.getDealer() != null ? inv.getDealer().getDealerName() : "Brand Warehouse")
-                    .alertType("LOW_STOCK")
-                    .currentQuantity(inv.getAvailableQuantity())
-                    .minStockLevel(5)
-                    .message("Số lượng tồn kho thấp, cần nhập thêm hàng")
-                    .build());
+        // Cảnh báo đang hoạt động được duy trì khi tồn kho thay đổi, không quét bảng inventory
+        return stockAlertService.getActiveAlerts();
+    }
+
+    /**
+     * Kết quả một lần quét so sánh nhiều kỳ; windows: [MoM, QoQ, YoY] x [from, to]
+     */
+    private static class PeriodComparisons {
+        private final LocalDate[][] windows;
+        private final ComparisonTotals total = new ComparisonTotals(null, null);
+        private final Map<Long, ComparisonTotals> dealers = new HashMap<>();
+        private final Map<Long, ComparisonTotals> products = new HashMap<>();
+
+        private PeriodComparisons(LocalDate startDate, LocalDate endDate) {
+            this.windows = new LocalDate[COMPARISON_SHIFT_MONTHS.length][];
+            // Kỳ kết thúc ở cuối tháng thì kỳ so sánh cũng kết thúc ở cuối tháng (28/02 -> 31/01)
+            boolean endsAtMonthEnd = endDate.getDayOfMonth() == endDate.lengthOfMonth();
+            for (int i = 0; i < COMPARISON_SHIFT_MONTHS.length; i++) {
+                LocalDate from = startDate.minusMonths(COMPARISON_SHIFT_MONTHS[i]);
+                LocalDate to = endDate.minusMonths(COMPARISON_SHIFT_MONTHS[i]);
+                if (endsAtMonthEnd) {
+                    to = to.withDayOfMonth(to.lengthOfMonth());
+                }
+                windows[i] = new LocalDate[]{from, to};
+            }
         }
+    }
 
-        // Out of stock alerts
-        List<Inventory> outOfStock = inventoryRepository.getOutOfStockItems();
-        for (Inventory inv : outOfStock) {
-            alerts.add(InventoryReportResponse.StockAlert.builder()
-                    .productId(inv.getProduct().getId())
-                    .productName(inv.getProduct().getProductName())
-                    .dealerId(inv.getDealer() != null ? inv.getDealer().getId() : null)
-                    .dealerName(inv.getDealer() != null ? inv.getDealer().getDealerName() : "Brand Warehouse")
-                    .alertType("OUT_OF_STOCK")
-                    .currentQuantity(0)
-                    .minStockLevel(5)
-                    .message("Hết hàng - Cần nhập hàng khẩn cấp")
-                    .build());
+    /**
+     * Số liệu của một nhóm (tổng / đại lý / sản phẩm); index 0 = kỳ hiện tại, 1..3 = MoM, QoQ, YoY
+     */
+    private static class ComparisonTotals {
+        private final Long id;
+        private final String name;
+        private final long[] orders = new long[4];
+        private final BigDecimal[] revenue = {BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO};
+        private final BigDecimal[] discount = {BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO};
+
+        private ComparisonTotals(Long id, String name) {
+            this.id = id;
+            this.name = name;
+        }
+
+        private void add(Object[] row) {
+            for (int period = 0; period < 4; period++) {
+                int column = 4 + period * 3;
+                orders[period] += row[column] != null ? ((Number) row[column]).longValue() : 0L;
+                revenue[period] = revenue[period].add(toBigDecimal(row[column + 1]));
+                discount[period] = discount[period].add(toBigDecimal(row[column + 2]));
+            }
+        }
+
+        private static BigDecimal toBigDecimal(Object value) {
+            if (value == null) {
+                return BigDecimal.ZERO;
+            }
+            return value instanceof BigDecimal ? (BigDecimal) value : new BigDecimal(value.toString());
+        }
+    }
+
+    /**
+     * Thống kê tồn kho cộng dồn khi duyệt từng dòng chi tiết
+     */
+    private static class InventoryStats {
+        private final Set<Long> productIds = new HashSet<>();
+        private int totalProducts;
+        private int totalStock;
+        private int availableStock;
+        private int reservedStock;
+        private int inTransitStock;
+        private int lowStockCount;
+        private int outOfStockCount;
+
+        private void add(InventoryReportResponse.InventoryDetail detail) {
+            if (productIds.add(detail.getProductId())) {
+                totalProducts++;
+            }
+            totalStock += valueOf(detail.getTotalQuantity());
+            availableStock += valueOf(detail.getAvailableQuantity());
+            reservedStock += valueOf(detail.getReservedQuantity());
+            inTransitStock += valueOf(detail.getInTransitQuantity());
+
+            if ("LOW_STOCK".equals(detail.getStockStatus())) {
+                lowStockCount++;
+            } else if ("OUT_OF_STOCK".equals(detail.getStockStatus())) {
+                outOfStockCount++;
+            }
         }
 
-        return alerts;
+        private static int valueOf(Integer value) {
+            return value != null ? value : 0;
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,537 @@
+package com.evm.backend.service.impl;
+
+import com.evm.backend.config.ReplicaRoutingDataSource;
+import com.evm.backend.dto.request.CubeQueryRequest;
+import com.evm.backend.dto.response.CubeQueryResponse;
+import com.evm.backend.entity.SalesOrder;
+import com.evm.backend.entity.Vehicle;
+import com.evm.backend.exception.BadRequestException;
+import com.evm.backend.repository.ReportRepository;
+import com.evm.backend.service.SalesCubeService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Sales cube dạng cột trong bộ nhớ (dealer × product × salesperson × day × status)
+ * - Build từ sales_order khi khởi động, cập nhật theo sự kiện đơn hàng sau khi commit
+ * - Truy vấn chia dữ liệu thành các đoạn, scan song song trên nhiều core rồi gộp kết quả
+ * - Sự kiện đến trong lúc build lại được ghi nhận và áp dụng lại lên cube mới
+ */
+@Service
+@Slf4j
+public class SalesCubeServiceImpl implements SalesCubeService {
+
+    private static final Map<String, Integer> DIMENSIONS = new LinkedHashMap<>();
+
+    static {
+        DIMENSIONS.put("DAY", SalesCubeStore.DIM_DAY);
+        DIMENSIONS.put("MONTH", SalesCubeStore.DIM_MONTH);
+        DIMENSIONS.put("DEALER", SalesCubeStore.DIM_DEALER);
+        DIMENSIONS.put("PRODUCT", SalesCubeStore.DIM_PRODUCT);
+        DIMENSIONS.put("SALES_PERSON", SalesCubeStore.DIM_SALES_PERSON);
+        DIMENSIONS.put("STATUS", SalesCubeStore.DIM_STATUS);
+    }
+
+    private static final String SORT_REVENUE = "REVENUE";
+    private static final String SORT_ORDERS = "ORDERS";
+    private static final String SORT_KEY = "KEY";
+
+    private static final int CHUNK_SIZE = 1 << 16;
+    private static final int DEFAULT_LIMIT = 1000;
+    private static final int MAX_LIMIT = 10000;
+    private static final long UNASSIGNED = 0L;
+
+    private final ReportRepository reportRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final boolean enabled;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Object rebuildMonitor = new Object();
+
+    // Truy cập dưới lock
+    private SalesCubeStore store;
+    private LocalDateTime builtAt;
+    private List<Consumer<SalesCubeStore>> pendingEvents; // khác null khi đang build lại
+
+    public SalesCubeServiceImpl(
+            ReportRepository reportRepository,
+            PlatformTransactionManager transactionManager,
+            @Value("${app.reports.cube.enabled:true}") boolean enabled) {
+        this.reportRepository = reportRepository;
+        this.enabled = enabled;
+
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    // =====================================================
+    // TRUY VẤN
+    // =====================================================
+
+    @Override
+    public CubeQueryResponse query(CubeQueryRequest request) {
+        if (!enabled) {
+            throw new BadRequestException("Sales cube đang tắt (app.reports.cube.enabled)");
+        }
+        long start = System.nanoTime();
+
+        if (request.getStartDate() != null && request.getEndDate() != null
+                && request.getStartDate().isAfter(request.getEndDate())) {
+            throw new BadRequestException("startDate phải trước hoặc bằng endDate");
+        }
+        List<String> groupBy = normalizeGroupBy(request.getGroupBy());
+        int[] dimensions = groupBy.stream().mapToInt(DIMENSIONS::get).toArray();
+        String sortBy = normalizeSortBy(request.getSortBy());
+        int limit = request.getLimit() != null ?
+                Math.max(1, Math.min(request.getLimit(), MAX_LIMIT)) : DEFAULT_LIMIT;
+
+        ensureBuilt();
+
+        lock.readLock().lock();
+        try {
+            SalesCubeStore cube = store;
+            SalesCubeStore.Filter filter = buildFilter(cube, request);
+            int[] monthOfDay = groupBy.contains("MONTH") ? monthTable(cube) : null;
+
+            // Mỗi đoạn scan độc lập (không chia sẻ trạng thái), gộp từng cặp kết quả
+            int size = cube.size();
+            int chunks = (size + CHUNK_SIZE - 1) / CHUNK_SIZE;
+            Map<Long, long[]> groups = IntStream.range(0, chunks)
+                    .parallel()
+                    .mapToObj(chunk -> cube.scan(chunk * CHUNK_SIZE,
+                            Math.min(size, (chunk + 1) * CHUNK_SIZE), filter, dimensions, monthOfDay))
+                    .reduce(this::mergeGroups)
+                    .orElseGet(HashMap::new);
+
+            List<GroupRow> rows = new ArrayList<>(groups.size());
+            long totalOrders = 0;
+            long totalRevenue = 0;
+            long totalDiscount = 0;
+            for (Map.Entry<Long, long[]> group : groups.entrySet()) {
+                long[] totals = group.getValue();
+                totalOrders += totals[0];
+                totalRevenue += totals[1];
+                totalDiscount += totals[2];
+                rows.add(toGroupRow(cube, dimensions, group.getKey(), totals));
+            }
+            rows.sort(rowComparator(sortBy));
+
+            List<CubeQueryResponse.Row> resultRows = new ArrayList<>(Math.min(limit, rows.size()));
+            for (GroupRow row : rows.subList(0, Math.min(limit, rows.size()))) {
+                resultRows.add(CubeQueryResponse.Row.builder()
+                        .keys(row.keys)
+                        .orderCount(row.orderCount)
+                        .revenue(fromCents(row.revenue))
+                        .discount(fromCents(row.discount))
+                        .build());
+            }
+
+            long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+            log.debug("Sales cube query {} scanned {} rows in {}ms", groupBy, size, elapsedMs);
+
+            return CubeQueryResponse.builder()
+                    .groupBy(groupBy)
+                    .rows(resultRows)
+                    .totalGroups(rows.size())
+                    .totalOrders(totalOrders)
+                    .totalRevenue(fromCents(totalRevenue))
+                    .totalDiscount(fromCents(totalDiscount))
+                    .scannedRows((long) size)
+                    .elapsedMs(elapsedMs)
+                    .builtAt(builtAt)
+                    .build();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // =====================================================
+    // CẬP NHẬT THEO SỰ KIỆN ĐƠN HÀNG
+    // =====================================================
+
+    @Override
+    public void upsertOrder(SalesOrder order) {
+        if (!enabled || order == null || order.getId() == null) {
+            return;
+        }
+        if (order.getOrderDate() == null) {
+            removeOrder(order);
+            return;
+        }
+
+        // Lấy giá trị ngay trong transaction (entity còn session), áp dụng sau khi commit
+        long orderId = order.getId();
+        int day = (int) order.getOrderDate().toEpochDay();
+        Vehicle vehicle = order.getVehicle();
+        long dealerId = vehicle != null && vehicle.getDealer() != null ? vehicle.getDealer().getId() : UNASSIGNED;
+        String dealerName = vehicle != null && vehicle.getDealer() != null ? vehicle.getDealer().getDealerName() : null;
+        long productId = vehicle != null && vehicle.getProduct() != null ? vehicle.getProduct().getId() : UNASSIGNED;
+        String productName = vehicle != null && vehicle.getProduct() != null ? vehicle.getProduct().getProductName() : null;
+        long salesPersonId = order.getSalesPerson() != null ? order.getSalesPerson().getId() : UNASSIGNED;
+        String salesPersonName = order.getSalesPerson() != null ? order.getSalesPerson().getFullName() : null;
+        String status = order.getStatus();
+        long revenue = toCents(order.getTotalPrice());
+        long discount = toCents(order.getDiscountAmount());
+
+        afterCommit(() -> apply(cube -> {
+            cube.upsert(orderId, day, dealerId, productId, salesPersonId, status, revenue, discount);
+            cube.dealerDictionary.name(dealerId, dealerName);
+            cube.productDictionary.name(productId, productName);
+            cube.salesPersonDictionary.name(salesPersonId, salesPersonName);
+        }));
+    }
+
+    @Override
+    public void removeOrder(SalesOrder order) {
+        if (!enabled || order == null || order.getId() == null) {
+            return;
+        }
+        long orderId = order.getId();
+        afterCommit(() -> apply(cube -> cube.remove(orderId)));
+    }
+
+    @Override
+    public int rebuild() {
+        if (!enabled) {
+            return 0;
+        }
+
+        synchronized (rebuildMonitor) {
+            long start = System.nanoTime();
+
+            lock.writeLock().lock();
+            try {
+                pendingEvents = new ArrayList<>();
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            SalesCubeStore fresh;
+            try {
+                // Sự kiện trước lúc build không được phát lại: phải đọc từ primary, replica có thể chưa có
+                fresh = ReplicaRoutingDataSource.onPrimary(() -> readOnlyTransaction.execute(status -> load()));
+            } catch (RuntimeException e) {
+                lock.writeLock().lock();
+                try {
+                    pendingEvents = null;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                throw e;
+            }
+
+            lock.writeLock().lock();
+            try {
+                // Sự kiện đến trong lúc build: áp dụng lại (upsert/remove đều idempotent)
+                pendingEvents.forEach(event -> event.accept(fresh));
+                pendingEvents = null;
+                store = fresh;
+                builtAt = LocalDateTime.now();
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            log.info("Sales cube built: {} rows in {}ms", fresh.size(), (System.nanoTime() - start) / 1_000_000);
+            return fresh.size();
+        }
+    }
+
+    // ===== HELPER METHODS =====
+
+    private SalesCubeStore load() {
+        SalesCubeStore cube = new SalesCubeStore();
+
+        // [orderId, orderDate, dealerId, productId, salesPersonId, status, totalPrice, discountAmount]
+        try (Stream<Object[]> facts = reportRepository.streamCubeFacts()) {
+            facts.forEach(row -> cube.upsert(
+                    ((Number) row[0]).longValue(),
+                    (int) toLocalDate(row[1]).toEpochDay(),
+                    ((Number) row[2]).longValue(),
+                    ((Number) row[3]).longValue(),
+                    ((Number) row[4]).longValue(),
+                    (String) row[5],
+                    toCents(row[6]),
+                    toCents(row[7])));
+        }
+
+        reportRepository.getDealerNames().forEach(row ->
+                cube.dealerDictionary.name(((Number) row[0]).longValue(), (String) row[1]));
+        reportRepository.getProductNames().forEach(row ->
+                cube.productDictionary.name(((Number) row[0]).longValue(), (String) row[1]));
+        reportRepository.getSalesPersonNames().forEach(row ->
+                cube.salesPersonDictionary.name(((Number) row[0]).longValue(), (String) row[1]));
+        return cube;
+    }
+
+    private void ensureBuilt() {
+        lock.readLock().lock();
+        try {
+            if (store != null) {
+                return;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        synchronized (rebuildMonitor) {
+            if (store == null) {
+                rebuild();
+            }
+        }
+    }
+
+    private void apply(Consumer<SalesCubeStore> event) {
+        lock.writeLock().lock();
+        try {
+            if (store != null) {
+                event.accept(store);
+            }
+            if (pendingEvents != null) {
+                pendingEvents.add(event);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private SalesCubeStore.Filter buildFilter(SalesCubeStore cube, CubeQueryRequest request) {
+        SalesCubeStore.Filter filter = new SalesCubeStore.Filter();
+        if (request.getStartDate() != null) {
+            filter.fromDay = (int) request.getStartDate().toEpochDay();
+        }
+        if (request.getEndDate() != null) {
+            filter.toDay = (int) request.getEndDate().toEpochDay();
+        }
+        filter.dealerMask = idMask(cube.dealerDictionary, request.getDealerIds());
+        filter.productMask = idMask(cube.productDictionary, request.getProductIds());
+        filter.salesPersonMask = idMask(cube.salesPersonDictionary, request.getSalesPersonIds());
+
+        if (request.getStatuses() != null && !request.getStatuses().isEmpty()) {
+            filter.statusMask = new boolean[cube.statusCount()];
+            for (String status : request.getStatuses()) {
+                int code = status != null ? cube.findStatusCode(status.trim().toUpperCase(Locale.ROOT)) : -1;
+                if (code >= 0) {
+                    filter.statusMask[code] = true;
+                }
+            }
+        }
+        return filter;
+    }
+
+    private boolean[] idMask(SalesCubeStore.Dictionary dictionary, List<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return null;
+        }
+        boolean[] mask = new boolean[dictionary.size()];
+        for (Long id : ids) {
+            int code = id != null ? dictionary.find(id) : -1;
+            if (code >= 0) {
+                mask[code] = true;
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * epochDay - minDay -> year * 12 + (month - 1), tránh tạo LocalDate cho từng dòng khi scan
+     */
+    private int[] monthTable(SalesCubeStore cube) {
+        if (cube.size() == 0 || cube.minDay() > cube.maxDay()) {
+            return new int[0];
+        }
+        int[] table = new int[cube.maxDay() - cube.minDay() + 1];
+        for (int i = 0; i < table.length; i++) {
+            LocalDate date = LocalDate.ofEpochDay((long) cube.minDay() + i);
+            table[i] = date.getYear() * 12 + date.getMonthValue() - 1;
+        }
+        return table;
+    }
+
+    private Map<Long, long[]> mergeGroups(Map<Long, long[]> left, Map<Long, long[]> right) {
+        Map<Long, long[]> target = left.size() >= right.size() ? left : right;
+        Map<Long, long[]> source = target == left ? right : left;
+        source.forEach((key, totals) -> target.merge(key, totals, (a, b) -> {
+            a[0] += b[0];
+            a[1] += b[1];
+            a[2] += b[2];
+            return a;
+        }));
+        return target;
+    }
+
+    private GroupRow toGroupRow(SalesCubeStore cube, int[] dimensions, long packedKey, long[] totals) {
+        Object[] sortValues = new Object[dimensions.length];
+        Map<String, Object> keys = new LinkedHashMap<>();
+
+        // Giải mã từ chiều cuối (bit thấp) lên chiều đầu
+        int[] values = new int[dimensions.length];
+        long key = packedKey;
+        long mask = (1L << SalesCubeStore.KEY_BITS) - 1;
+        for (int i = dimensions.length - 1; i >= 0; i--) {
+            values[i] = (int) (key & mask);
+            key >>>= SalesCubeStore.KEY_BITS;
+        }
+
+        for (int i = 0; i < dimensions.length; i++) {
+            int value = values[i];
+            switch (dimensions[i]) {
+                case SalesCubeStore.DIM_DAY:
+                    keys.put("date", LocalDate.ofEpochDay((long) cube.minDay() + value).toString());
+                    sortValues[i] = (long) value;
+                    break;
+                case SalesCubeStore.DIM_MONTH:
+                    keys.put("month", YearMonth.of(value / 12, value % 12 + 1).toString());
+                    sortValues[i] = (long) value;
+                    break;
+                case SalesCubeStore.DIM_DEALER:
+                    keys.put("dealerId", cube.dealerDictionary.id(value));
+                    keys.put("dealerName", cube.dealerDictionary.name(value));
+                    sortValues[i] = cube.dealerDictionary.id(value);
+                    break;
+                case SalesCubeStore.DIM_PRODUCT:
+                    keys.put("productId", cube.productDictionary.id(value));
+                    keys.put("productName", cube.productDictionary.name(value));
+                    sortValues[i] = cube.productDictionary.id(value);
+                    break;
+                case SalesCubeStore.DIM_SALES_PERSON:
+                    keys.put("salesPersonId", cube.salesPersonDictionary.id(value));
+                    keys.put("salesPersonName", cube.salesPersonDictionary.name(value));
+                    sortValues[i] = cube.salesPersonDictionary.id(value);
+                    break;
+                default:
+                    keys.put("status", cube.statusName(value));
+                    sortValues[i] = cube.statusName(value);
+                    break;
+            }
+        }
+        return new GroupRow(keys, sortValues, totals[0], totals[1], totals[2]);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Comparator<GroupRow> rowComparator(String sortBy) {
+        switch (sortBy) {
+            case SORT_ORDERS:
+                return Comparator.comparingLong((GroupRow row) -> row.orderCount).reversed()
+                        .thenComparing(Comparator.comparingLong((GroupRow row) -> row.revenue).reversed());
+            case SORT_KEY:
+                return (a, b) -> {
+                    for (int i = 0; i < a.sortValues.length; i++) {
+                        int compared = ((Comparable) a.sortValues[i]).compareTo(b.sortValues[i]);
+                        if (compared != 0) {
+                            return compared;
+                        }
+                    }
+                    return 0;
+                };
+            default:
+                return Comparator.comparingLong((GroupRow row) -> row.revenue).reversed()
+                        .thenComparing(Comparator.comparingLong((GroupRow row) -> row.orderCount).reversed());
+        }
+    }
+
+    private List<String> normalizeGroupBy(List<String> groupBy) {
+        List<String> normalized = new ArrayList<>();
+        if (groupBy == null) {
+            return normalized;
+        }
+        for (String dimension : groupBy) {
+            String name = dimension != null ? dimension.trim().toUpperCase(Locale.ROOT).replace('-', '_') : "";
+            if (!DIMENSIONS.containsKey(name)) {
+                throw new BadRequestException("groupBy không hợp lệ: " + dimension
+                        + ". Giá trị hỗ trợ: " + String.join(", ", DIMENSIONS.keySet()));
+            }
+            if (!normalized.contains(name)) {
+                normalized.add(name);
+            }
+        }
+        if (normalized.size() > SalesCubeStore.MAX_GROUP_DIMENSIONS) {
+            throw new BadRequestException("groupBy tối đa " + SalesCubeStore.MAX_GROUP_DIMENSIONS + " chiều");
+        }
+        return normalized;
+    }
+
+    private String normalizeSortBy(String sortBy) {
+        if (sortBy == null || sortBy.isBlank()) {
+            return SORT_REVENUE;
+        }
+        String normalized = sortBy.trim().toUpperCase(Locale.ROOT);
+        if (!SORT_REVENUE.equals(normalized) && !SORT_ORDERS.equals(normalized) && !SORT_KEY.equals(normalized)) {
+            throw new BadRequestException("sortBy không hợp lệ: " + sortBy
+                    + ". Giá trị hỗ trợ: REVENUE, ORDERS, KEY");
+        }
+        return normalized;
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private LocalDate toLocalDate(Object value) {
+        if (value instanceof LocalDate) {
+            return (LocalDate) value;
+        }
+        if (value instanceof java.sql.Date) {
+            return ((java.sql.Date) value).toLocalDate();
+        }
+        return LocalDate.parse(value.toString().substring(0, 10));
+    }
+
+    private long toCents(Object value) {
+        if (value == null) {
+            return 0L;
+        }
+        BigDecimal amount = value instanceof BigDecimal ? (BigDecimal) value : new BigDecimal(value.toString());
+        return amount.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValue();
+    }
+
+    private BigDecimal fromCents(long cents) {
+        return BigDecimal.valueOf(cents, 2);
+    }
+
+    private static class GroupRow {
+        private final Map<String, Object> keys;
+        private final Object[] sortValues;
+        private final long orderCount;
+        private final long revenue;
+        private final long discount;
+
+        private GroupRow(Map<String, Object> keys, Object[] sortValues,
+                         long orderCount, long revenue, long discount) {
+            this.keys = keys;
+            this.sortValues = sortValues;
+            this.orderCount = orderCount;
+            this.revenue = revenue;
+            this.discount = discount;
+        }
+    }
+}
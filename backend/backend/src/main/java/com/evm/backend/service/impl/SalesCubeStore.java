@@ -0,0 +1,292 @@
+package com.evm.backend.service.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Kho dữ liệu dạng cột cho sales cube (mỗi đơn hàng một dòng)
+ * - Ngày: epoch day (int[]); đại lý / sản phẩm / nhân viên: mã từ điển (int[]); trạng thái: byte[]
+ * - Doanh thu, giảm giá: long (đơn vị xu, 1/100)
+ * - Dòng bị xóa đánh dấu status = DELETED, được dọn khi build lại
+ * Không tự đồng bộ: caller giữ read lock khi scan, write lock khi ghi
+ */
+final class SalesCubeStore {
+
+    static final byte DELETED = -1;
+
+    // Số bit cho mỗi chiều khi đóng gói group key vào một long (tối đa 3 chiều)
+    static final int KEY_BITS = 20;
+    static final int MAX_GROUP_DIMENSIONS = 3;
+
+    static final int DIM_DAY = 0;
+    static final int DIM_MONTH = 1;
+    static final int DIM_DEALER = 2;
+    static final int DIM_PRODUCT = 3;
+    static final int DIM_SALES_PERSON = 4;
+    static final int DIM_STATUS = 5;
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private int size;
+    private long[] orderIds = new long[INITIAL_CAPACITY];
+    private int[] days = new int[INITIAL_CAPACITY];
+    private int[] dealers = new int[INITIAL_CAPACITY];
+    private int[] products = new int[INITIAL_CAPACITY];
+    private int[] salesPersons = new int[INITIAL_CAPACITY];
+    private byte[] statuses = new byte[INITIAL_CAPACITY];
+    private long[] revenues = new long[INITIAL_CAPACITY];
+    private long[] discounts = new long[INITIAL_CAPACITY];
+
+    // Dòng [0, sortedLimit) có orderId tăng dần (tìm nhị phân); dòng thêm sau không theo thứ tự nằm trong overflow
+    private int sortedLimit;
+    private final Map<Long, Integer> overflow = new HashMap<>();
+
+    final Dictionary dealerDictionary = new Dictionary();
+    final Dictionary productDictionary = new Dictionary();
+    final Dictionary salesPersonDictionary = new Dictionary();
+    private final List<String> statusNames = new ArrayList<>();
+    private final Map<String, Byte> statusCodes = new HashMap<>();
+
+    private int minDay = Integer.MAX_VALUE;
+    private int maxDay = Integer.MIN_VALUE;
+
+    // =====================================================
+    // GHI
+    // =====================================================
+
+    void upsert(long orderId, int day, long dealerId, long productId, long salesPersonId,
+                String status, long revenueCents, long discountCents) {
+        int row = find(orderId);
+        if (row < 0) {
+            row = append(orderId);
+        }
+        days[row] = day;
+        dealers[row] = dealerDictionary.code(dealerId);
+        products[row] = productDictionary.code(productId);
+        salesPersons[row] = salesPersonDictionary.code(salesPersonId);
+        statuses[row] = statusCode(status);
+        revenues[row] = revenueCents;
+        discounts[row] = discountCents;
+
+        minDay = Math.min(minDay, day);
+        maxDay = Math.max(maxDay, day);
+    }
+
+    void remove(long orderId) {
+        int row = find(orderId);
+        if (row >= 0) {
+            statuses[row] = DELETED;
+        }
+    }
+
+    // =====================================================
+    // ĐỌC
+    // =====================================================
+
+    int size() {
+        return size;
+    }
+
+    int minDay() {
+        return minDay;
+    }
+
+    int maxDay() {
+        return maxDay;
+    }
+
+    int statusCount() {
+        return statusNames.size();
+    }
+
+    String statusName(int code) {
+        return statusNames.get(code);
+    }
+
+    /**
+     * Mã trạng thái; -1 nếu chưa từng xuất hiện
+     */
+    int findStatusCode(String status) {
+        Byte code = statusCodes.get(status);
+        return code != null ? code : -1;
+    }
+
+    /**
+     * Lọc + gom nhóm các dòng [from, to)
+     * @return groupKey -> [orderCount, revenueCents, discountCents]
+     */
+    Map<Long, long[]> scan(int from, int to, Filter filter, int[] groupDimensions, int[] monthOfDay) {
+        Map<Long, long[]> groups = new HashMap<>();
+        long[] lastTotals = null;
+        long lastKey = 0;
+
+        for (int i = from; i < to; i++) {
+            byte status = statuses[i];
+            int day = days[i];
+            if (status == DELETED
+                    || day < filter.fromDay || day > filter.toDay
+                    || (filter.statusMask != null && !filter.statusMask[status])
+                    || (filter.dealerMask != null && !filter.dealerMask[dealers[i]])
+                    || (filter.productMask != null && !filter.productMask[products[i]])
+                    || (filter.salesPersonMask != null && !filter.salesPersonMask[salesPersons[i]])) {
+                continue;
+            }
+
+            long key = 0;
+            for (int dimension : groupDimensions) {
+                key = (key << KEY_BITS) | dimensionValue(dimension, i, monthOfDay);
+            }
+
+            // Dòng liên tiếp thường cùng nhóm (dữ liệu theo thứ tự đơn hàng): tránh tra HashMap
+            long[] totals;
+            if (lastTotals != null && key == lastKey) {
+                totals = lastTotals;
+            } else {
+                totals = groups.computeIfAbsent(key, k -> new long[3]);
+                lastTotals = totals;
+                lastKey = key;
+            }
+            totals[0]++;
+            totals[1] += revenues[i];
+            totals[2] += discounts[i];
+        }
+        return groups;
+    }
+
+    // ===== HELPER METHODS =====
+
+    private int dimensionValue(int dimension, int row, int[] monthOfDay) {
+        switch (dimension) {
+            case DIM_DAY:
+                return days[row] - minDay;
+            case DIM_MONTH:
+                return monthOfDay[days[row] - minDay];
+            case DIM_DEALER:
+                return dealers[row];
+            case DIM_PRODUCT:
+                return products[row];
+            case DIM_SALES_PERSON:
+                return salesPersons[row];
+            default:
+                return statuses[row];
+        }
+    }
+
+    private int find(long orderId) {
+        int row = Arrays.binarySearch(orderIds, 0, sortedLimit, orderId);
+        if (row >= 0) {
+            return row;
+        }
+        Integer overflowRow = overflow.get(orderId);
+        return overflowRow != null ? overflowRow : -1;
+    }
+
+    private int append(long orderId) {
+        if (size == orderIds.length) {
+            grow();
+        }
+        int row = size++;
+        orderIds[row] = orderId;
+
+        if (sortedLimit == row && (row == 0 || orderIds[row - 1] < orderId)) {
+            sortedLimit++;
+        } else {
+            overflow.put(orderId, row);
+        }
+        return row;
+    }
+
+    private void grow() {
+        int capacity = orderIds.length * 2;
+        orderIds = Arrays.copyOf(orderIds, capacity);
+        days = Arrays.copyOf(days, capacity);
+        dealers = Arrays.copyOf(dealers, capacity);
+        products = Arrays.copyOf(products, capacity);
+        salesPersons = Arrays.copyOf(salesPersons, capacity);
+        statuses = Arrays.copyOf(statuses, capacity);
+        revenues = Arrays.copyOf(revenues, capacity);
+        discounts = Arrays.copyOf(discounts, capacity);
+    }
+
+    private byte statusCode(String status) {
+        String name = status != null ? status : "";
+        Byte code = statusCodes.get(name);
+        if (code == null) {
+            if (statusNames.size() >= Byte.MAX_VALUE) {
+                throw new IllegalStateException("Too many distinct order statuses for sales cube");
+            }
+            code = (byte) statusNames.size();
+            statusNames.add(name);
+            statusCodes.put(name, code);
+        }
+        return code;
+    }
+
+    /**
+     * Từ điển id -> mã liên tục (0..n-1) kèm tên hiển thị
+     */
+    static final class Dictionary {
+        private final Map<Long, Integer> codes = new HashMap<>();
+        private long[] ids = new long[64];
+        private String[] names = new String[64];
+        private int count;
+
+        int code(long id) {
+            Integer code = codes.get(id);
+            if (code == null) {
+                if (count >= (1 << KEY_BITS)) {
+                    throw new IllegalStateException("Sales cube dictionary is full");
+                }
+                if (count == ids.length) {
+                    ids = Arrays.copyOf(ids, count * 2);
+                    names = Arrays.copyOf(names, count * 2);
+                }
+                code = count++;
+                codes.put(id, code);
+                ids[code] = id;
+            }
+            return code;
+        }
+
+        /**
+         * Mã của id; -1 nếu chưa có trong cube
+         */
+        int find(long id) {
+            Integer code = codes.get(id);
+            return code != null ? code : -1;
+        }
+
+        long id(int code) {
+            return ids[code];
+        }
+
+        String name(int code) {
+            return names[code];
+        }
+
+        void name(long id, String name) {
+            if (name != null) {
+                names[code(id)] = name;
+            }
+        }
+
+        int size() {
+            return count;
+        }
+    }
+
+    /**
+     * Điều kiện lọc đã dịch sang mã (mask null = không lọc)
+     */
+    static final class Filter {
+        int fromDay = Integer.MIN_VALUE;
+        int toDay = Integer.MAX_VALUE;
+        boolean[] dealerMask;
+        boolean[] productMask;
+        boolean[] salesPersonMask;
+        boolean[] statusMask;
+    }
+}
@@ -0,0 +1,431 @@
+package com.evm.backend.service.impl;
+
+import com.evm.backend.dto.response.SalesOrderImportResponse;
+import com.evm.backend.entity.Customer;
+import com.evm.backend.entity.SalesOrder;
+import com.evm.backend.entity.User;
+import com.evm.backend.entity.Vehicle;
+import com.evm.backend.exception.BadRequestException;
+import com.evm.backend.repository.CustomerRepository;
+import com.evm.backend.repository.SalesOrderRepository;
+import com.evm.backend.repository.UserRepository;
+import com.evm.backend.repository.VehicleRepository;
+import com.evm.backend.service.SalesOrderImportService;
+import com.evm.backend.service.SalesRollupService;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Import đơn hàng hàng loạt (file cuối ngày của đại lý)
+ * - Đọc file theo từng dòng (CSV / XLSX event model), xử lý theo lô batch-size dòng
+ * - Mỗi lô: tra vehicle/customer/sales person/xe đã bán bằng truy vấn IN, kiểm tra trong bộ nhớ,
+ *   INSERT bằng JDBC batch (SalesOrder dùng TableGenerator nên Hibernate gộp được INSERT)
+ * - Dòng chưa hủy giữ xe như khi tạo đơn (AVAILABLE -> RESERVED): khóa các xe AVAILABLE của lô (FOR UPDATE)
+ *   rồi đổi trạng thái bằng một UPDATE có điều kiện; xe không AVAILABLE / đã được dòng trước giữ -> lỗi của dòng
+ * - Rollup/cube/leaderboard cập nhật theo lô (SalesRollupService.recordOrders)
+ */
+@Service
+@Slf4j
+public class SalesOrderImportServiceImpl implements SalesOrderImportService {
+
+    private static final Set<String> ORDER_STATUSES = Set.of("PENDING", "CONFIRMED", "PAID", "COMPLETED", "CANCELLED");
+    private static final Set<String> SOLD_STATUSES = Set.of("PAID", "COMPLETED");
+    private static final String CANCELLED = "CANCELLED";
+    private static final String VEHICLE_AVAILABLE = "AVAILABLE";
+    private static final String VEHICLE_RESERVED = "RESERVED";
+    private static final DateTimeFormatter LOCAL_DATE_FORMAT = DateTimeFormatter.ofPattern("d/M/yyyy");
+
+    // Tên cột trong header (không phân biệt hoa thường, bỏ khoảng trắng / '_' / '-')
+    private static final String ORDER_DATE = "orderdate";
+    private static final String VEHICLE_ID = "vehicleid";
+    private static final String CUSTOMER_ID = "customerid";
+    private static final String SALES_PERSON_ID = "salespersonid";
+    private static final String BASE_PRICE = "baseprice";
+    private static final String VAT = "vat";
+    private static final String REGISTRATION_FEE = "registrationfee";
+    private static final String DISCOUNT_AMOUNT = "discountamount";
+    private static final String TOTAL_PRICE = "totalprice";
+    private static final String STATUS = "status";
+
+    private static final List<String> REQUIRED_COLUMNS =
+            List.of(ORDER_DATE, VEHICLE_ID, CUSTOMER_ID, SALES_PERSON_ID, BASE_PRICE, VAT, TOTAL_PRICE);
+
+    private final SalesOrderRepository salesOrderRepository;
+    private final VehicleRepository vehicleRepository;
+    private final CustomerRepository customerRepository;
+    private final UserRepository userRepository;
+    private final SalesRollupService salesRollupService;
+    private final EntityManager entityManager;
+    private final int batchSize;
+    private final int maxRows;
+
+    public SalesOrderImportServiceImpl(
+            SalesOrderRepository salesOrderRepository,
+            VehicleRepository vehicleRepository,
+            CustomerRepository customerRepository,
+            UserRepository userRepository,
+            SalesRollupService salesRollupService,
+            EntityManager entityManager,
+            @Value("${app.orders.import.batch-size:500}") int batchSize,
+            @Value("${app.orders.import.max-rows:10000}") int maxRows) {
+        this.salesOrderRepository = salesOrderRepository;
+        this.vehicleRepository = vehicleRepository;
+        this.customerRepository = customerRepository;
+        this.userRepository = userRepository;
+        this.salesRollupService = salesRollupService;
+        this.entityManager = entityManager;
+        this.batchSize = batchSize;
+        this.maxRows = maxRows;
+    }
+
+    @Override
+    @Transactional
+    public SalesOrderImportResponse importOrders(MultipartFile file) {
+        if (file == null || file.isEmpty()) {
+            throw new BadRequestException("File import rỗng");
+        }
+        log.info("Importing sales orders from {} ({} bytes)", file.getOriginalFilename(), file.getSize());
+
+        ImportState state = new ImportState();
+        try {
+            OrderSheetReader.read(file, state::accept);
+        } catch (IOException e) {
+            throw new BadRequestException("Không đọc được file import: " + e.getMessage());
+        }
+        if (state.columns == null) {
+            throw new BadRequestException("File import không có dòng header");
+        }
+        importBatch(state);
+        state.errors.sort(Comparator.comparing(SalesOrderImportResponse.RowError::getRowNumber));
+
+        log.info("Imported {} of {} sales orders from {} ({} rows failed)",
+                state.orderIds.size(), state.totalRows, file.getOriginalFilename(), state.errors.size());
+
+        return SalesOrderImportResponse.builder()
+                .fileName(file.getOriginalFilename())
+                .totalRows(state.totalRows)
+                .importedCount(state.orderIds.size())
+                .failedCount(state.errors.size())
+                .orderIds(state.orderIds)
+                .errors(state.errors)
+                .build();
+    }
+
+    // ===== HELPER METHODS =====
+
+    /**
+     * Tạo đơn cho các dòng đang chờ: tra cứu theo lô, kiểm tra, INSERT batch
+     */
+    private void importBatch(ImportState state) {
+        List<ImportRow> rows = state.pending;
+        if (rows.isEmpty()) {
+            return;
+        }
+
+        Set<String> vehicleIds = new HashSet<>();
+        Set<Long> customerIds = new HashSet<>();
+        Set<Long> salesPersonIds = new HashSet<>();
+        for (ImportRow row : rows) {
+            if (row.vehicleId != null) vehicleIds.add(row.vehicleId);
+            if (row.customerId != null) customerIds.add(row.customerId);
+            if (row.salesPersonId != null) salesPersonIds.add(row.salesPersonId);
+        }
+
+        Map<String, Vehicle> vehicles = vehicleIds.isEmpty() ? Map.of() :
+                vehicleRepository.findAllWithProductAndDealerByIdIn(vehicleIds).stream()
+                        .collect(Collectors.toMap(Vehicle::getId, Function.identity()));
+        Map<Long, Customer> customers = customerIds.isEmpty() ? Map.of() :
+                customerRepository.findAllById(customerIds).stream()
+                        .collect(Collectors.toMap(Customer::getId, Function.identity()));
+        Map<Long, User> salesPersons = salesPersonIds.isEmpty() ? Map.of() :
+                userRepository.findAllWithDetailsByIdIn(salesPersonIds).stream()
+                        .collect(Collectors.toMap(User::getId, Function.identity()));
+        if (!vehicleIds.isEmpty()) {
+            state.soldVehicleIds.addAll(salesOrderRepository.findSoldVehicleIds(vehicleIds));
+        }
+
+        List<ImportRow> validRows = new ArrayList<>(rows.size());
+        for (ImportRow row : rows) {
+            Vehicle vehicle = vehicles.get(row.vehicleId);
+            Customer customer = customers.get(row.customerId);
+            User salesPerson = salesPersons.get(row.salesPersonId);
+
+            if (row.vehicleId != null && vehicle == null) {
+                row.errors.add("Vehicle không tồn tại: " + row.vehicleId);
+            }
+            if (row.customerId != null && customer == null) {
+                row.errors.add("Customer không tồn tại: " + row.customerId);
+            }
+            if (row.salesPersonId != null && salesPerson == null) {
+                row.errors.add("Sales person không tồn tại: " + row.salesPersonId);
+            }
+            // Xe đã bán trong DB hoặc ở dòng trước của chính file này
+            if (vehicle != null && state.soldVehicleIds.contains(row.vehicleId)) {
+                row.errors.add("Vehicle đã được bán: " + row.vehicleId);
+            }
+
+            if (row.errors.isEmpty()) {
+                validRows.add(row);
+            } else {
+                addRowError(state, row);
+            }
+        }
+
+        Set<String> claimableVehicleIds = lockAvailableVehicles(validRows);
+        Set<String> claimedVehicleIds = new HashSet<>();
+
+        List<SalesOrder> orders = new ArrayList<>(validRows.size());
+        for (ImportRow row : validRows) {
+            Vehicle vehicle = vehicles.get(row.vehicleId);
+
+            // Mỗi xe chỉ được một dòng chưa hủy giữ
+            if (!CANCELLED.equals(row.status)) {
+                if (!claimableVehicleIds.remove(row.vehicleId)) {
+                    row.errors.add("Vehicle không ở trạng thái AVAILABLE: " + row.vehicleId
+                            + (claimedVehicleIds.contains(row.vehicleId) ? " (đã được dòng trước giữ)" : ""));
+                    addRowError(state, row);
+                    continue;
+                }
+                claimedVehicleIds.add(row.vehicleId);
+            }
+
+            if (SOLD_STATUSES.contains(row.status)) {
+                state.soldVehicleIds.add(row.vehicleId);
+            }
+            orders.add(SalesOrder.builder()
+                    .orderDate(row.orderDate)
+                    .basePrice(row.basePrice)
+                    .vat(row.vat)
+                    .registrationFee(row.registrationFee)
+                    .discountAmount(row.discountAmount)
+                    .totalPrice(row.totalPrice)
+                    .status(row.status)
+                    .vehicle(vehicle)
+                    .customer(customers.get(row.customerId))
+                    .salesPerson(salesPersons.get(row.salesPersonId))
+                    .build());
+        }
+
+        if (!claimedVehicleIds.isEmpty()) {
+            // Các xe đã bị khóa ở lockAvailableVehicles: UPDATE khớp đủ số xe
+            vehicleRepository.updateStatusIfCurrent(claimedVehicleIds, VEHICLE_AVAILABLE, VEHICLE_RESERVED);
+        }
+
+        if (!orders.isEmpty()) {
+            // id cấp theo khối từ id_generator -> flush gửi INSERT theo batch (hibernate.jdbc.batch_size)
+            salesOrderRepository.saveAll(orders);
+            entityManager.flush();
+            salesRollupService.recordOrders(orders);
+            orders.forEach(order -> state.orderIds.add(order.getId()));
+        }
+
+        // Giải phóng persistence context của lô vừa xong
+        entityManager.clear();
+        rows.clear();
+    }
+
+    /**
+     * Khóa các xe AVAILABLE mà những dòng chưa hủy cần giữ; xe không có trong kết quả thì không giữ được
+     */
+    private Set<String> lockAvailableVehicles(List<ImportRow> rows) {
+        Set<String> vehicleIds = new HashSet<>();
+        for (ImportRow row : rows) {
+            if (!CANCELLED.equals(row.status)) {
+                vehicleIds.add(row.vehicleId);
+            }
+        }
+        return vehicleIds.isEmpty() ? new HashSet<>() :
+                new HashSet<>(vehicleRepository.lockIdsByIdInAndStatus(vehicleIds, VEHICLE_AVAILABLE));
+    }
+
+    private void addRowError(ImportState state, ImportRow row) {
+        state.errors.add(SalesOrderImportResponse.RowError.builder()
+                .rowNumber(row.rowNumber)
+                .vehicleId(row.vehicleId)
+                .messages(row.errors)
+                .build());
+    }
+
+    /**
+     * Dòng thô -> ImportRow, lỗi định dạng ghi vào row.errors
+     */
+    private ImportRow parseRow(int rowNumber, List<String> cells, Map<String, Integer> columns) {
+        ImportRow row = new ImportRow(rowNumber);
+
+        row.orderDate = parseDate(row, cell(cells, columns, ORDER_DATE), "Ngày đặt hàng");
+        row.vehicleId = required(row, cell(cells, columns, VEHICLE_ID), "Vehicle ID");
+        row.customerId = parseId(row, cell(cells, columns, CUSTOMER_ID), "Customer ID");
+        row.salesPersonId = parseId(row, cell(cells, columns, SALES_PERSON_ID), "Sales Person ID");
+        row.basePrice = parseAmount(row, cell(cells, columns, BASE_PRICE), "Giá cơ bản", true, false);
+        row.vat = parseAmount(row, cell(cells, columns, VAT), "VAT", true, true);
+        row.registrationFee = parseAmount(row, cell(cells, columns, REGISTRATION_FEE), "Phí đăng ký", false, true);
+        row.discountAmount = parseAmount(row, cell(cells, columns, DISCOUNT_AMOUNT), "Giảm giá", false, true);
+        row.totalPrice = parseAmount(row, cell(cells, columns, TOTAL_PRICE), "Tổng giá", true, false);
+
+        String status = cell(cells, columns, STATUS);
+        row.status = status != null ? status.toUpperCase() : "PENDING";
+        if (!ORDER_STATUSES.contains(row.status)) {
+            row.errors.add("Trạng thái không hợp lệ: " + status);
+        }
+        return row;
+    }
+
+    private String cell(List<String> cells, Map<String, Integer> columns, String column) {
+        Integer index = columns.get(column);
+        if (index == null || index >= cells.size()) {
+            return null;
+        }
+        String value = cells.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    private String required(ImportRow row, String value, String label) {
+        if (value == null) {
+            row.errors.add(label + " không được để trống");
+        }
+        return value;
+    }
+
+    private LocalDate parseDate(ImportRow row, String value, String label) {
+        if (required(row, value, label) == null) {
+            return null;
+        }
+        try {
+            return value.contains("/") ? LocalDate.parse(value, LOCAL_DATE_FORMAT) : LocalDate.parse(value);
+        } catch (DateTimeParseException e) {
+            row.errors.add(label + " không hợp lệ (yyyy-MM-dd hoặc dd/MM/yyyy): " + value);
+            return null;
+        }
+    }
+
+    private Long parseId(ImportRow row, String value, String label) {
+        if (required(row, value, label) == null) {
+            return null;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            row.errors.add(label + " không hợp lệ: " + value);
+            return null;
+        }
+    }
+
+    /**
+     * Cột không bắt buộc để trống -> 0 (giống createOrder)
+     */
+    private BigDecimal parseAmount(ImportRow row, String value, String label, boolean required, boolean allowZero) {
+        if (value == null) {
+            if (required) {
+                row.errors.add(label + " không được để trống");
+                return null;
+            }
+            return BigDecimal.ZERO;
+        }
+        try {
+            BigDecimal amount = new BigDecimal(value.replace(" ", ""));
+            if (allowZero ? amount.signum() < 0 : amount.signum() <= 0) {
+                row.errors.add(label + (allowZero ? " phải lớn hơn hoặc bằng 0" : " phải lớn hơn 0"));
+            }
+            return amount;
+        } catch (NumberFormatException e) {
+            row.errors.add(label + " không phải là số: " + value);
+            return null;
+        }
+    }
+
+    private static String normalizeHeader(String header) {
+        return header.trim().toLowerCase().replaceAll("[\\s_\\-]", "");
+    }
+
+    private static boolean isBlank(List<String> cells) {
+        return cells.stream().allMatch(cell -> cell == null || cell.isBlank());
+    }
+
+    /**
+     * Trạng thái của một lần import (header, lô đang chờ, kết quả)
+     */
+    private class ImportState {
+        private Map<String, Integer> columns;
+        private int totalRows;
+        private final List<ImportRow> pending = new ArrayList<>();
+        private final Set<String> soldVehicleIds = new HashSet<>();
+        private final List<Long> orderIds = new ArrayList<>();
+        private final List<SalesOrderImportResponse.RowError> errors = new ArrayList<>();
+
+        private void accept(int rowNumber, List<String> cells) {
+            if (isBlank(cells)) {
+                return;
+            }
+            if (columns == null) {
+                columns = readHeader(cells);
+                return;
+            }
+
+            if (++totalRows > maxRows) {
+                throw new BadRequestException("File import vượt quá " + maxRows + " dòng dữ liệu");
+            }
+            ImportRow row = parseRow(rowNumber, cells, columns);
+            if (!row.errors.isEmpty()) {
+                errors.add(SalesOrderImportResponse.RowError.builder()
+                        .rowNumber(row.rowNumber)
+                        .vehicleId(row.vehicleId)
+                        .messages(row.errors)
+                        .build());
+                return;
+            }
+
+            pending.add(row);
+            if (pending.size() >= batchSize) {
+                importBatch(this);
+            }
+        }
+
+        private Map<String, Integer> readHeader(List<String> cells) {
+            Map<String, Integer> header = new HashMap<>();
+            for (int i = 0; i < cells.size(); i++) {
+                if (cells.get(i) != null) {
+                    header.putIfAbsent(normalizeHeader(cells.get(i)), i);
+                }
+            }
+            List<String> missing = REQUIRED_COLUMNS.stream()
+                    .filter(column -> !header.containsKey(column))
+                    .collect(Collectors.toList());
+            if (!missing.isEmpty()) {
+                throw new BadRequestException("File import thiếu cột: " + String.join(", ", missing));
+            }
+            return header;
+        }
+    }
+
+    private static class ImportRow {
+        private final int rowNumber;
+        private final List<String> errors = new ArrayList<>();
+        private LocalDate orderDate;
+        private String vehicleId;
+        private Long customerId;
+        private Long salesPersonId;
+        private BigDecimal basePrice;
+        private BigDecimal vat;
+        private BigDecimal registrationFee;
+        private BigDecimal discountAmount;
+        private BigDecimal totalPrice;
+        private String status;
+
+        private ImportRow(int rowNumber) {
+            this.rowNumber = rowNumber;
+        }
+    }
+}
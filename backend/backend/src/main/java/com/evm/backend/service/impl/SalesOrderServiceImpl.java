@@ -3,23 +3,34 @@ package com.evm.backend.service.impl;
 import com.evm.backend.dto.request.AssignVehicleRequest;
 import com.evm.backend.dto.request.SalesOrderFilterRequest;
 import com.evm.backend.dto.request.SalesOrderRequest;
+import com.evm.backend.dto.response.CursorPageResponse;
 import com.evm.backend.dto.response.SalesOrderDetailResponse;
 import com.evm.backend.dto.response.SalesOrderListResponse;
 import com.evm.backend.entity.*;
 import com.evm.backend.exception.BadRequestException;
+import com.evm.backend.exception.ConflictException;
 import com.evm.backend.exception.ResourceNotFoundException;
 import com.evm.backend.repository.*;
 import com.evm.backend.service.SalesOrderService;
+import com.evm.backend.service.SalesRollupService;
+import jakarta.persistence.criteria.Predicate;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.*;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Service
@@ -36,80 +47,56 @@ public class SalesOrderServiceImpl implements SalesOrderService {
     private final OrderPromotionsRepository orderPromotionsRepository;
     private final PaymentRepository paymentRepository;
     private final QuotationRepository quotationRepository;
+    private final SalesRollupService salesRollupService;
+    private final PlatformTransactionManager transactionManager;
+
+    private static final String VEHICLE_AVAILABLE = "AVAILABLE";
+    private static final String VEHICLE_RESERVED = "RESERVED";
+    private static final int MAX_OPTIMISTIC_ATTEMPTS = 3;
 
     @Override
     @Transactional(readOnly = true)
     public Page<SalesOrderListResponse> getAllOrders(SalesOrderFilterRequest filterRequest) {
         log.info("Getting orders with filters: {}", filterRequest);
 
-        try {
-            // Get total count
-            Long total = salesOrderRepository.countOrdersWithFilters(
-                    filterRequest.getCustomerId(),
-                    filterRequest.getSalesPersonId(),
-                    filterRequest.getVehicleId(),
-                    filterRequest.getStatus(),
-                    filterRequest.getFromDate(),
-                    filterRequest.getToDate()
-            );
-            log.info("Total orders found: {}", total);
-
-            // Get pageable
-            Pageable pageable = buildPageable(filterRequest);
-            log.info("Pageable: page={}, size={}", pageable.getPageNumber(), pageable.getPageSize());
-
-            // Get all data (with JOIN FETCH)
-            List<SalesOrder> allOrders = salesOrderRepository.findOrdersWithFilters(
-                    filterRequest.getCustomerId(),
-                    filterRequest.getSalesPersonId(),
-                    filterRequest.getVehicleId(),
-                    filterRequest.getStatus(),
-                    filterRequest.getFromDate(),
-                    filterRequest.getToDate()
-            );
-            log.info("Fetched {} orders from database", allOrders.size());
-
-            // Manual pagination
-            int start = (int) pageable.getOffset();
-            int end = Math.min((start + pageable.getPageSize()), allOrders.size());
-            log.info("Pagination: start={}, end={}", start, end);
-
-            List<SalesOrder> pageContent = allOrders.subList(start, end);
-            log.info("Page content size: {}", pageContent.size());
-
-            // Convert to response - LOG CHI TIẾT
-            List<SalesOrderListResponse> responseList = new ArrayList<>();
-            for (SalesOrder order : pageContent) {
-                try {
-                    log.debug("Converting order ID: {}", order.getId());
-
-                    // Log chi tiết về các entities
-                    log.debug("Order vehicle: {}", order.getVehicle());
-                    if (order.getVehicle() != null) {
-                        log.debug("Vehicle product: {}", order.getVehicle().getProduct());
-                        if (order.getVehicle().getProduct() != null) {
-                            log.debug("Product brand: {}", order.getVehicle().getProduct().getBrand());
-                        }
-                    }
-
-                    SalesOrderListResponse response = convertToListResponse(order);
-                    responseList.add(response);
-                    log.debug("Converted successfully");
-                } catch (Exception e) {
-                    log.error("Error converting order ID {}: {}", order.getId(), e.getMessage(), e);
-                    throw e; // Re-throw để thấy full stack trace
-                }
-            }
-
-            // Create Page
-            Page<SalesOrderListResponse> result = new PageImpl<>(responseList, pageable, total);
-            log.info("Returning page with {} elements", result.getContent().size());
-            return result;
+        // Get pageable
+        Pageable pageable = buildPageable(filterRequest);
+        log.info("Pageable: page={}, size={}, sort={}", pageable.getPageNumber(), pageable.getPageSize(), pageable.getSort());
+
+        // Bước 1: id của trang hiện tại (LIMIT/OFFSET + sort trong DB) và tổng số
+        Page<Long> idPage = salesOrderRepository.findOrderIdsWithFilters(
+                filterRequest.getCustomerId(),
+                filterRequest.getSalesPersonId(),
+                filterRequest.getVehicleId(),
+                filterRequest.getStatus(),
+                filterRequest.getFromDate(),
+                filterRequest.getToDate(),
+                pageable
+        );
+        log.info("Total orders found: {}", idPage.getTotalElements());
+
+        // Bước 2: JOIN FETCH chỉ cho các id của trang
+        return new PageImpl<>(loadListResponses(idPage.getContent()), pageable, idPage.getTotalElements());
+    }
 
-        } catch (Exception e) {
-            log.error("Error in getAllOrders: {}", e.getMessage(), e);
-            throw e;
-        }
+    @Override
+    public CursorPageResponse<SalesOrderListResponse> getOrdersByCursor(SalesOrderFilterRequest filterRequest) {
+        log.info("Getting orders by cursor with filters: {}", filterRequest);
+
+        KeysetPagination<SalesOrder> keyset = buildKeyset(filterRequest);
+        int limit = KeysetPagination.limit(filterRequest.getSize());
+
+        // Seek theo (cột sắp xếp, id) thay cho OFFSET, lấy dư 1 dòng thay cho COUNT; chỉ đọc bảng sales_order
+        Specification<SalesOrder> spec = buildSpecification(filterRequest).and(keyset.after(filterRequest.getCursor()));
+        List<SalesOrder> orders = salesOrderRepository.findBy(spec, query -> query
+                .sortBy(keyset.sort())
+                .limit(limit + 1)
+                .all());
+
+        // JOIN FETCH vehicle/product/brand/customer/salesPerson cho các id của trang như getAllOrders
+        return keyset.toResponse(orders, limit, page -> loadListResponses(page.stream()
+                .map(SalesOrder::getId)
+                .collect(Collectors.toList())));
     }
 
     @Override
@@ -174,15 +161,14 @@ public class SalesOrderServiceImpl implements SalesOrderService {
 
         String vehicleId = request.getVehicleId();
 
-        // Validate vehicle
-        Vehicle vehicle = vehicleRepository.findById(vehicleId)
-                .orElseThrow(() -> new ResourceNotFoundException("Vehicle not found"));
-
         // Check if vehicle is already sold
         if (salesOrderRepository.existsByVehicleIdAndSold(vehicleId)) {
             throw new IllegalStateException("Vehicle is already sold");
         }
 
+        // Giành xe (AVAILABLE -> RESERVED) bằng UPDATE có điều kiện; lỗi phía sau thì rollback trả lại xe
+        Vehicle vehicle = claimVehicle(vehicleId);
+
         // Validate customer
         Customer customer = customerRepository.findById(request.getCustomerId())
                 .orElseThrow(() -> new ResourceNotFoundException("Customer not found"));
@@ -206,6 +192,7 @@ public class SalesOrderServiceImpl implements SalesOrderService {
                 .build();
 
         SalesOrder savedOrder = salesOrderRepository.save(order);
+        salesRollupService.recordOrder(savedOrder);
 
         // Add promotions if provided
         if (request.getPromotionIds() != null && !request.getPromotionIds().isEmpty()) {
@@ -224,14 +211,21 @@ public class SalesOrderServiceImpl implements SalesOrderService {
         SalesOrder order = salesOrderRepository.findById(orderId)
                 .orElseThrow(() -> new ResourceNotFoundException("Order not found"));
 
+        // Đổi sang xe khác: giành xe mới như khi tạo đơn, trả xe cũ về AVAILABLE
+        Vehicle previousVehicle = order.getVehicle();
+        boolean vehicleChanged = previousVehicle == null || !previousVehicle.getId().equals(request.getVehicleId());
+        Vehicle vehicle = vehicleChanged ?
+                claimVehicle(request.getVehicleId()) :
+                previousVehicle;
+
         // Validate entities
-        Vehicle vehicle = vehicleRepository.findById(request.getVehicleId())
-                .orElseThrow(() -> new ResourceNotFoundException("Vehicle not found"));
         Customer customer = customerRepository.findById(request.getCustomerId())
                 .orElseThrow(() -> new ResourceNotFoundException("Customer not found"));
         User salesPerson = userRepository.findById(request.getSalesPersonId())
                 .orElseThrow(() -> new ResourceNotFoundException("Sales person not found"));
 
+        salesRollupService.retractOrder(order);
+
         // Update order
         order.setOrderDate(request.getOrderDate());
         order.setBasePrice(request.getBasePrice());
@@ -244,14 +238,26 @@ public class SalesOrderServiceImpl implements SalesOrderService {
         order.setCustomer(customer);
         order.setSalesPerson(salesPerson);
 
+        if (vehicleChanged) {
+            releaseVehicle(previousVehicle);
+        }
+
         SalesOrder updated = salesOrderRepository.save(order);
+        salesRollupService.recordOrder(updated);
         log.info("Order updated: {}", orderId);
         return convertToDetailResponse(updated);
     }
 
     @Override
-    @Transactional
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public void cancelOrder(Long orderId) {
+        withOptimisticRetry("cancel order " + orderId, () -> {
+            doCancelOrder(orderId);
+            return null;
+        });
+    }
+
+    private void doCancelOrder(Long orderId) {
         log.info("Cancelling order: {}", orderId);
 
         SalesOrder order = salesOrderRepository.findById(orderId)
@@ -261,8 +267,11 @@ public class SalesOrderServiceImpl implements SalesOrderService {
             throw new IllegalStateException("Cannot cancel order with status: " + order.getStatus());
         }
 
+        salesRollupService.retractOrder(order);
         order.setStatus("CANCELLED");
+        releaseVehicle(order.getVehicle());
         salesOrderRepository.save(order);
+        salesRollupService.recordOrder(order);
         log.info("Order cancelled: {}", orderId);
     }
 
@@ -276,6 +285,8 @@ public class SalesOrderServiceImpl implements SalesOrderService {
                 .orElseThrow(() -> new ResourceNotFoundException("Sales order not found"));
 
         // 2. Sử dụng phương thức delete chuẩn của JpaRepository
+        salesRollupService.retractOrder(orderToDelete);
+        releaseVehicle(orderToDelete.getVehicle());
         salesOrderRepository.delete(orderToDelete);
 
         // Nếu bạn muốn xóa nhanh hơn mà không tải toàn bộ Entity (nhưng vẫn cần logic cascade):
@@ -293,8 +304,10 @@ public class SalesOrderServiceImpl implements SalesOrderService {
         SalesOrder order = salesOrderRepository.findById(orderId)
                 .orElseThrow(() -> new ResourceNotFoundException("Order not found"));
 
+        salesRollupService.retractOrder(order);
         order.setStatus(status);
         SalesOrder updated = salesOrderRepository.save(order);
+        salesRollupService.recordOrder(updated);
 
         log.info("Order status updated");
         return convertToDetailResponse(updated);
@@ -310,8 +323,13 @@ public class SalesOrderServiceImpl implements SalesOrderService {
     }
 
     @Override
-    @Transactional
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public SalesOrderDetailResponse assignVehicle(Long orderId, AssignVehicleRequest request) {
+        return withOptimisticRetry("assign vehicle to order " + orderId,
+                () -> doAssignVehicle(orderId, request));
+    }
+
+    private SalesOrderDetailResponse doAssignVehicle(Long orderId, AssignVehicleRequest request) {
         log.info("Assigning vehicle {} to order {}", request.getVehicleId(), orderId);
 
         // 1. Find order
@@ -333,23 +351,15 @@ public class SalesOrderServiceImpl implements SalesOrderService {
             );
         }
 
-        // 4. Find vehicle
-        Vehicle vehicle = vehicleRepository.findById(request.getVehicleId())
-                .orElseThrow(() -> new ResourceNotFoundException("Xe không tồn tại với VIN: " + request.getVehicleId()));
-
-        // 5. Validate vehicle status
-        if (!"AVAILABLE".equals(vehicle.getStatus())) {
-            throw new BadRequestException(
-                    "Xe không ở trạng thái AVAILABLE. Trạng thái hiện tại: " + vehicle.getStatus()
-            );
-        }
-
-        // 6. Check if vehicle is already sold
-        boolean isVehicleSold = salesOrderRepository.existsByVehicleIdAndSold(vehicle.getId());
+        // 4. Check if vehicle is already sold
+        boolean isVehicleSold = salesOrderRepository.existsByVehicleIdAndSold(request.getVehicleId());
         if (isVehicleSold) {
             throw new BadRequestException("Xe đã được bán trong đơn hàng khác");
         }
 
+        // 5-6. Giành xe bằng UPDATE có điều kiện (AVAILABLE -> RESERVED): hai người cùng gán một xe thì chỉ một người thắng
+        Vehicle vehicle = claimVehicle(request.getVehicleId());
+
         // 7. Validate vehicle product matches quotation (if exists)
         // Kiểm tra nếu order có từ quotation thì phải đúng model xe
         if (order.getQuotation() != null) {
@@ -366,15 +376,13 @@ public class SalesOrderServiceImpl implements SalesOrderService {
         }
 
         // 8. Assign vehicle to order
+        salesRollupService.retractOrder(order);
         order.setVehicle(vehicle);
         order.setStatus("CONFIRMED"); // Chuyển sang CONFIRMED khi đã có xe
 
-        // 9. Update vehicle status
-        vehicle.setStatus("RESERVED"); // Đánh dấu xe đã được đặt
-        vehicleRepository.save(vehicle);
-
-        // 10. Save order
+        // 9-10. Save order (xe đã RESERVED từ bước 5-6; @Version chặn hai lần gán cùng một đơn)
         SalesOrder savedOrder = salesOrderRepository.save(order);
+        salesRollupService.recordOrder(savedOrder);
 
         log.info("Vehicle {} assigned to order {}. Order status: {} -> CONFIRMED",
                 vehicle.getVin(), orderId, "PENDING");
@@ -384,8 +392,13 @@ public class SalesOrderServiceImpl implements SalesOrderService {
     }
 
     @Override
-    @Transactional
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public SalesOrderDetailResponse unassignVehicle(Long orderId) {
+        return withOptimisticRetry("unassign vehicle from order " + orderId,
+                () -> doUnassignVehicle(orderId));
+    }
+
+    private SalesOrderDetailResponse doUnassignVehicle(Long orderId) {
         log.info("Unassigning vehicle from order {}", orderId);
 
         // 1. Find order
@@ -408,15 +421,16 @@ public class SalesOrderServiceImpl implements SalesOrderService {
         Vehicle vehicle = order.getVehicle();
 
         // 5. Unassign vehicle
+        salesRollupService.retractOrder(order);
         order.setVehicle(null);
         order.setStatus("PENDING"); // Chuyển về PENDING
 
         // 6. Update vehicle status back to AVAILABLE
-        vehicle.setStatus("AVAILABLE");
-        vehicleRepository.save(vehicle);
+        releaseVehicle(vehicle);
 
         // 7. Save order
         SalesOrder savedOrder = salesOrderRepository.save(order);
+        salesRollupService.recordOrder(savedOrder);
 
         log.info("Vehicle {} unassigned from order {}. Order status: CONFIRMED -> PENDING",
                 vehicle.getVin(), orderId);
@@ -426,6 +440,60 @@ public class SalesOrderServiceImpl implements SalesOrderService {
 
     // Helper methods
 
+    /**
+     * Giành xe bằng một câu UPDATE có điều kiện thay cho đọc - kiểm tra - ghi
+     * Hai giao dịch cùng giành một xe: chỉ một câu UPDATE khớp dòng, giao dịch còn lại nhận lỗi ngay
+     */
+    private Vehicle claimVehicle(String vehicleId) {
+        int claimed = vehicleRepository.updateStatusIfCurrent(vehicleId, VEHICLE_AVAILABLE, VEHICLE_RESERVED);
+
+        Vehicle vehicle = vehicleRepository.findById(vehicleId)
+                .orElseThrow(() -> new ResourceNotFoundException("Xe không tồn tại với VIN: " + vehicleId));
+        if (claimed == 0) {
+            throw new BadRequestException(
+                    "Xe không ở trạng thái AVAILABLE. Trạng thái hiện tại: " + vehicle.getStatus()
+            );
+        }
+        // Entity có thể đã nằm trong persistence context từ trước UPDATE
+        vehicle.setStatus(VEHICLE_RESERVED);
+        return vehicle;
+    }
+
+    /**
+     * Trả xe đang giữ cho đơn về AVAILABLE (hủy gán / hủy đơn); xe đã bán hoặc trạng thái khác giữ nguyên
+     */
+    private void releaseVehicle(Vehicle vehicle) {
+        if (vehicle != null
+                && vehicleRepository.updateStatusIfCurrent(vehicle.getId(), VEHICLE_RESERVED, VEHICLE_AVAILABLE) > 0) {
+            vehicle.setStatus(VEHICLE_AVAILABLE);
+        }
+    }
+
+    /**
+     * Chạy work trong transaction mới; xung đột @Version (đơn vừa bị sửa bởi giao dịch khác)
+     * thì chạy lại từ đầu với dữ liệu mới, hết số lần thử -> 409
+     */
+    private <T> T withOptimisticRetry(String action, Supplier<T> work) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transaction.execute(status -> work.get());
+            } catch (OptimisticLockingFailureException e) {
+                if (attempt >= MAX_OPTIMISTIC_ATTEMPTS) {
+                    log.warn("Giving up {} after {} optimistic lock conflicts", action, attempt);
+                    throw new ConflictException("Đơn hàng vừa được cập nhật bởi giao dịch khác, vui lòng tải lại và thử lại");
+                }
+                log.info("Optimistic lock conflict on {} (attempt {}), retrying", action, attempt);
+                try {
+                    Thread.sleep(ThreadLocalRandom.current().nextLong(10, 50L * attempt));
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw new ConflictException("Đơn hàng vừa được cập nhật bởi giao dịch khác, vui lòng thử lại", e);
+                }
+            }
+        }
+    }
+
     private void addPromotionsToOrder(SalesOrder order, java.util.Set<Long> promotionIds) {
         for (Long promotionId : promotionIds) {
             Promotion promotion = promotionRepository.findById(promotionId)
@@ -678,6 +746,78 @@ public class SalesOrderServiceImpl implements SalesOrderService {
                 .reduce(BigDecimal.ZERO, BigDecimal::add);
     }
 
+    /**
+     * Tải graph hiển thị danh sách cho các id đã phân trang, giữ nguyên thứ tự ids
+     */
+    private List<SalesOrderListResponse> loadListResponses(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, SalesOrder> ordersById = salesOrderRepository.findAllWithListDetailsByIdIn(ids).stream()
+                .collect(Collectors.toMap(SalesOrder::getId, order -> order));
+
+        return ids.stream()
+                .map(ordersById::get)
+                .filter(Objects::nonNull)
+                .map(this::convertToListResponse)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Cùng điều kiện lọc với findOrderIdsWithFilters (dùng cho phân trang keyset)
+     */
+    private Specification<SalesOrder> buildSpecification(SalesOrderFilterRequest req) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+
+            if (req.getCustomerId() != null) {
+                predicates.add(cb.equal(root.get("customer").get("id"), req.getCustomerId()));
+            }
+            if (req.getSalesPersonId() != null) {
+                predicates.add(cb.equal(root.get("salesPerson").get("id"), req.getSalesPersonId()));
+            }
+            if (req.getVehicleId() != null) {
+                predicates.add(cb.equal(root.get("vehicle").get("id"), req.getVehicleId()));
+            }
+            if (req.getStatus() != null) {
+                predicates.add(cb.equal(root.get("status"), req.getStatus()));
+            }
+            if (req.getFromDate() != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("orderDate"), req.getFromDate()));
+            }
+            if (req.getToDate() != null) {
+                predicates.add(cb.lessThanOrEqualTo(root.get("orderDate"), req.getToDate()));
+            }
+
+            return cb.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+
+    private KeysetPagination<SalesOrder> buildKeyset(SalesOrderFilterRequest req) {
+        String sortBy = req.getSortBy() != null ? req.getSortBy() : "date_desc";
+
+        switch (sortBy) {
+            case "date_asc":
+                return new KeysetPagination<>(sortBy, "orderDate", Sort.Direction.ASC,
+                        SalesOrder::getOrderDate, SalesOrder::getId, LocalDate::parse);
+            case "price_asc":
+                return new KeysetPagination<>(sortBy, "totalPrice", Sort.Direction.ASC,
+                        SalesOrder::getTotalPrice, SalesOrder::getId, BigDecimal::new);
+            case "price_desc":
+                return new KeysetPagination<>(sortBy, "totalPrice", Sort.Direction.DESC,
+                        SalesOrder::getTotalPrice, SalesOrder::getId, BigDecimal::new);
+            case "status_asc":
+                return new KeysetPagination<>(sortBy, "status", Sort.Direction.ASC,
+                        SalesOrder::getStatus, SalesOrder::getId, value -> value);
+            case "status_desc":
+                return new KeysetPagination<>(sortBy, "status", Sort.Direction.DESC,
+                        SalesOrder::getStatus, SalesOrder::getId, value -> value);
+            default:
+                return new KeysetPagination<>("date_desc", "orderDate", Sort.Direction.DESC,
+                        SalesOrder::getOrderDate, SalesOrder::getId, LocalDate::parse);
+        }
+    }
+
     private Pageable buildPageable(SalesOrderFilterRequest req) {
         int page = req.getPage() != null ? req.getPage() : 0;
         int size = req.getSize() != null ? req.getSize() : 20;
@@ -697,6 +837,8 @@ public class SalesOrderServiceImpl implements SalesOrderService {
         } else {
             sort = Sort.by(Sort.Direction.DESC, "orderDate");
         }
+        // Thêm id để thứ tự ổn định giữa các trang khi trùng ngày/giá/trạng thái
+        sort = sort.and(Sort.by(Sort.Direction.DESC, "id"));
 
         return PageRequest.of(page, size, sort);
     }
@@ -0,0 +1,206 @@
+package com.evm.backend.service.impl;
+
+import com.evm.backend.entity.SalesOrder;
+import com.evm.backend.entity.Vehicle;
+import com.evm.backend.repository.SalesDailyRollupRepository;
+import com.evm.backend.repository.SalesMonthlyRollupRepository;
+import com.evm.backend.service.DashboardService;
+import com.evm.backend.service.DealerSnapshotService;
+import com.evm.backend.service.LeaderboardService;
+import com.evm.backend.service.SalesCubeService;
+import com.evm.backend.service.SalesRollupService;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+@Transactional
+public class SalesRollupServiceImpl implements SalesRollupService {
+
+    private static final Long UNASSIGNED = 0L;
+
+    private final SalesDailyRollupRepository rollupRepository;
+    private final SalesMonthlyRollupRepository monthlyRollupRepository;
+    private final DashboardService dashboardService;
+    private final DealerSnapshotService dealerSnapshotService;
+    private final LeaderboardService leaderboardService;
+    private final SalesCubeService salesCubeService;
+
+    @Override
+    public void recordOrder(SalesOrder order) {
+        // Cube giữ mọi trạng thái (kể cả CANCELLED), rollup chỉ tính đơn hợp lệ
+        salesCubeService.upsertOrder(order);
+        applyOrder(order, 1);
+    }
+
+    @Override
+    public void recordOrders(Collection<SalesOrder> orders) {
+        Map<DailyKey, Delta> dailyDeltas = new LinkedHashMap<>();
+        Map<MonthlyKey, Delta> monthlyDeltas = new LinkedHashMap<>();
+
+        for (SalesOrder order : orders) {
+            salesCubeService.upsertOrder(order);
+            if (!isCounted(order)) {
+                continue;
+            }
+
+            Vehicle vehicle = order.getVehicle();
+            Long dealerId = vehicle != null && vehicle.getDealer() != null ?
+                    vehicle.getDealer().getId() : UNASSIGNED;
+            Long productId = vehicle != null && vehicle.getProduct() != null ?
+                    vehicle.getProduct().getId() : UNASSIGNED;
+            Long salesPersonId = order.getSalesPerson() != null ?
+                    order.getSalesPerson().getId() : UNASSIGNED;
+
+            dailyDeltas.computeIfAbsent(new DailyKey(order.getOrderDate(), dealerId, productId, salesPersonId),
+                    key -> new Delta()).add(order);
+            monthlyDeltas.computeIfAbsent(new MonthlyKey(order.getOrderDate().withDayOfMonth(1), dealerId),
+                    key -> new Delta()).add(order);
+
+            leaderboardService.applyOrder(order, 1);
+        }
+
+        dailyDeltas.forEach((key, delta) -> rollupRepository.applyDelta(
+                key.salesDate, key.dealerId, key.productId, key.salesPersonId,
+                delta.orderCount, delta.revenue, delta.discount));
+
+        monthlyDeltas.forEach((key, delta) -> {
+            monthlyRollupRepository.applyDelta(
+                    key.salesMonth, key.dealerId, delta.orderCount, delta.revenue, delta.discount);
+            // Thay đổi muộn vào tháng đã đóng: bỏ snapshot để chốt lại
+            dealerSnapshotService.invalidate(key.dealerId, key.salesMonth);
+        });
+
+        if (!dailyDeltas.isEmpty()) {
+            dashboardService.invalidate();
+        }
+
+        log.debug("Sales rollup recorded {} orders into {} daily / {} monthly rows",
+                orders.size(), dailyDeltas.size(), monthlyDeltas.size());
+    }
+
+    @Override
+    public void retractOrder(SalesOrder order) {
+        salesCubeService.removeOrder(order);
+        applyOrder(order, -1);
+    }
+
+    @Override
+    public long rebuild() {
+        log.info("Rebuilding sales_daily_rollup and sales_monthly_rollup from sales_order");
+
+        int deleted = rollupRepository.deleteAllRows();
+        int inserted = rollupRepository.rebuildFromSalesOrders();
+
+        monthlyRollupRepository.deleteAllRows();
+        int monthlyInserted = monthlyRollupRepository.rebuildFromDailyRollup();
+
+        log.info("Sales rollup rebuilt: {} rows removed, {} daily rows, {} monthly rows",
+                deleted, inserted, monthlyInserted);
+
+        // Snapshot tháng đã đóng được chốt lại từ rollup mới
+        dealerSnapshotService.invalidateAll();
+        dealerSnapshotService.finalizeClosedMonths();
+
+        leaderboardService.reload();
+        dashboardService.invalidate();
+        return inserted;
+    }
+
+    // ===== HELPER METHODS =====
+
+    private void applyOrder(SalesOrder order, int sign) {
+        if (!isCounted(order)) {
+            return;
+        }
+
+        Vehicle vehicle = order.getVehicle();
+        Long dealerId = vehicle != null && vehicle.getDealer() != null ?
+                vehicle.getDealer().getId() : UNASSIGNED;
+        Long productId = vehicle != null && vehicle.getProduct() != null ?
+                vehicle.getProduct().getId() : UNASSIGNED;
+        Long salesPersonId = order.getSalesPerson() != null ?
+                order.getSalesPerson().getId() : UNASSIGNED;
+
+        BigDecimal revenue = order.getTotalPrice() != null ? order.getTotalPrice() : BigDecimal.ZERO;
+        BigDecimal discount = order.getDiscountAmount() != null ? order.getDiscountAmount() : BigDecimal.ZERO;
+        BigDecimal factor = BigDecimal.valueOf(sign);
+
+        LocalDate salesMonth = order.getOrderDate().withDayOfMonth(1);
+
+        rollupRepository.applyDelta(
+                order.getOrderDate(), dealerId, productId, salesPersonId,
+                sign, revenue.multiply(factor), discount.multiply(factor));
+        monthlyRollupRepository.applyDelta(
+                salesMonth, dealerId,
+                sign, revenue.multiply(factor), discount.multiply(factor));
+
+        if (sign < 0) {
+            rollupRepository.deleteIfEmpty(order.getOrderDate(), dealerId, productId, salesPersonId);
+            monthlyRollupRepository.deleteIfEmpty(salesMonth, dealerId);
+        }
+
+        // Thay đổi muộn vào tháng đã đóng: bỏ snapshot để chốt lại
+        dealerSnapshotService.invalidate(dealerId, salesMonth);
+
+        leaderboardService.applyOrder(order, sign);
+
+        dashboardService.invalidate();
+
+        log.debug("Sales rollup {} for order {} ({} / dealer {} / product {} / salesperson {})",
+                sign > 0 ? "recorded" : "retracted", order.getId(),
+                order.getOrderDate(), dealerId, productId, salesPersonId);
+    }
+
+    /**
+     * Tổng delta của nhiều order cùng khóa rollup
+     */
+    private static class Delta {
+        private long orderCount;
+        private BigDecimal revenue = BigDecimal.ZERO;
+        private BigDecimal discount = BigDecimal.ZERO;
+
+        private void add(SalesOrder order) {
+            orderCount++;
+            revenue = revenue.add(order.getTotalPrice() != null ? order.getTotalPrice() : BigDecimal.ZERO);
+            discount = discount.add(order.getDiscountAmount() != null ? order.getDiscountAmount() : BigDecimal.ZERO);
+        }
+    }
+
+    @EqualsAndHashCode
+    @AllArgsConstructor
+    private static class DailyKey {
+        private final LocalDate salesDate;
+        private final Long dealerId;
+        private final Long productId;
+        private final Long salesPersonId;
+    }
+
+    @EqualsAndHashCode
+    @AllArgsConstructor
+    private static class MonthlyKey {
+        private final LocalDate salesMonth;
+        private final Long dealerId;
+    }
+
+    /**
+     * Chỉ tính đơn hàng có ngày đặt và chưa bị hủy (giống điều kiện của báo cáo)
+     */
+    private boolean isCounted(SalesOrder order) {
+        return order != null
+                && order.getOrderDate() != null
+                && order.getStatus() != null
+                && !"CANCELLED".equals(order.getStatus());
+    }
+}
@@ -0,0 +1,281 @@
+package com.evm.backend.service.impl;
+
+import com.evm.backend.dto.request.StockAlertThresholdRequest;
+import com.evm.backend.dto.response.InventoryReportResponse;
+import com.evm.backend.dto.response.StockAlertThresholdResponse;
+import com.evm.backend.entity.Inventory;
+import com.evm.backend.entity.StockAlert;
+import com.evm.backend.entity.StockAlertThreshold;
+import com.evm.backend.exception.ResourceNotFoundException;
+import com.evm.backend.repository.InventoryReportRepository;
+import com.evm.backend.repository.StockAlertRepository;
+import com.evm.backend.repository.StockAlertThresholdRepository;
+import com.evm.backend.service.ReportCacheService;
+import com.evm.backend.service.StockAlertService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.stream.Collectors;
+
+@Service
+@Slf4j
+@Transactional
+public class StockAlertServiceImpl implements StockAlertService {
+
+    private static final String LOW_STOCK = StockAlert.LOW_STOCK;
+    private static final String OUT_OF_STOCK = StockAlert.OUT_OF_STOCK;
+    private static final Long BRAND_WAREHOUSE = 0L;
+
+    private final StockAlertRepository alertRepository;
+    private final StockAlertThresholdRepository thresholdRepository;
+    private final InventoryReportRepository inventoryRepository;
+    private final ReportCacheService reportCacheService;
+    private final int defaultLowStockLevel;
+
+    public StockAlertServiceImpl(
+            StockAlertRepository alertRepository,
+            StockAlertThresholdRepository thresholdRepository,
+            InventoryReportRepository inventoryRepository,
+            ReportCacheService reportCacheService,
+            @Value("${app.reports.alerts.default-low-stock-level:5}") int defaultLowStockLevel) {
+        this.alertRepository = alertRepository;
+        this.thresholdRepository = thresholdRepository;
+        this.inventoryRepository = inventoryRepository;
+        this.reportCacheService = reportCacheService;
+        this.defaultLowStockLevel = defaultLowStockLevel;
+    }
+
+    // =====================================================
+    // ĐÁNH GIÁ TĂNG DẦN
+    // =====================================================
+
+    @Override
+    public void evaluate(Inventory inventory) {
+        Long productId = inventory.getProduct().getId();
+        Long dealerId = dealerKey(inventory);
+        int lowStockLevel = resolveLevel(thresholdRepository.findApplicable(productId, dealerId), productId, dealerId);
+
+        Optional<StockAlert> existing = alertRepository.findByInventoryId(inventory.getId());
+        String alertType = alertType(inventory, lowStockLevel);
+
+        if (alertType == null) {
+            existing.ifPresent(alert -> {
+                alertRepository.delete(alert);
+                log.info("Stock alert cleared for inventory {}", inventory.getId());
+            });
+            return;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        StockAlert alert = existing.orElseGet(() -> StockAlert.builder()
+                .inventoryId(inventory.getId())
+                .raisedAt(now)
+                .build());
+
+        // Chuyển loại cảnh báo (LOW -> OUT): tính là cảnh báo mới
+        if (alert.getAlertType() != null && !alert.getAlertType().equals(alertType)) {
+            alert.setRaisedAt(now);
+        }
+        fill(alert, inventory, alertType, lowStockLevel, now);
+        alertRepository.save(alert);
+    }
+
+    @Override
+    public void remove(Long inventoryId) {
+        alertRepository.deleteByInventoryId(inventoryId);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<InventoryReportResponse.StockAlert> getActiveAlerts() {
+        return alertRepository.findAllActive().stream()
+                .map(this::toAlertResponse)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Map<Long, String> getAlertTypes(Collection<Long> inventoryIds) {
+        if (inventoryIds.isEmpty()) {
+            return Map.of();
+        }
+        Map<Long, String> alertTypes = new HashMap<>();
+        for (Object[] row : alertRepository.findAlertTypes(inventoryIds)) {
+            alertTypes.put((Long) row[0], (String) row[1]);
+        }
+        return alertTypes;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long countAlerts(String alertType) {
+        return alertRepository.countByAlertType(alertType);
+    }
+
+    @Override
+    public int rebuild() {
+        long start = System.nanoTime();
+        List<StockAlertThreshold> thresholds = thresholdRepository.findAll();
+        LocalDateTime now = LocalDateTime.now();
+
+        List<StockAlert> alerts = new ArrayList<>();
+        for (Inventory inventory : inventoryRepository.findAllWithProductAndDealer()) {
+            Long productId = inventory.getProduct().getId();
+            int lowStockLevel = resolveLevel(thresholds, productId, dealerKey(inventory));
+            String alertType = alertType(inventory, lowStockLevel);
+            if (alertType != null) {
+                StockAlert alert = StockAlert.builder()
+                        .inventoryId(inventory.getId())
+                        .raisedAt(now)
+                        .build();
+                fill(alert, inventory, alertType, lowStockLevel, now);
+                alerts.add(alert);
+            }
+        }
+
+        alertRepository.deleteAllRows();
+        alertRepository.saveAll(alerts);
+        afterCommit(reportCacheService::bumpDataVersion);
+
+        log.info("Stock alerts rebuilt: {} active alerts in {}ms",
+                alerts.size(), (System.nanoTime() - start) / 1_000_000);
+        return alerts.size();
+    }
+
+    // =====================================================
+    // NGƯỠNG CẢNH BÁO
+    // =====================================================
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<StockAlertThresholdResponse> getThresholds() {
+        return thresholdRepository.findAllByOrderByProductIdAscDealerIdAsc().stream()
+                .map(this::toThresholdResponse)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public StockAlertThresholdResponse saveThreshold(StockAlertThresholdRequest request) {
+        StockAlertThreshold threshold = thresholdRepository
+                .findByProductIdAndDealerId(request.getProductId(), request.getDealerId())
+                .orElseGet(() -> StockAlertThreshold.builder()
+                        .productId(request.getProductId())
+                        .dealerId(request.getDealerId())
+                        .build());
+        threshold.setLowStockLevel(request.getLowStockLevel());
+        threshold.setUpdatedAt(LocalDateTime.now());
+
+        StockAlertThreshold saved = thresholdRepository.save(threshold);
+        log.info("Stock alert threshold saved: product {} / dealer {} -> {}",
+                saved.getProductId(), saved.getDealerId(), saved.getLowStockLevel());
+
+        rebuild();
+        return toThresholdResponse(saved);
+    }
+
+    @Override
+    public void deleteThreshold(Long thresholdId) {
+        StockAlertThreshold threshold = thresholdRepository.findById(thresholdId)
+                .orElseThrow(() -> new ResourceNotFoundException("Stock alert threshold not found: " + thresholdId));
+
+        thresholdRepository.delete(threshold);
+        log.info("Stock alert threshold deleted: {}", thresholdId);
+
+        rebuild();
+    }
+
+    // ===== HELPER METHODS =====
+
+    /**
+     * OUT_OF_STOCK khi hết hàng, LOW_STOCK khi 0 < available < ngưỡng, null nếu bình thường
+     */
+    private String alertType(Inventory inventory, int lowStockLevel) {
+        int available = inventory.getAvailableQuantity() != null ? inventory.getAvailableQuantity() : 0;
+        if (available <= 0) {
+            return OUT_OF_STOCK;
+        }
+        return available < lowStockLevel ? LOW_STOCK : null;
+    }
+
+    /**
+     * Ngưỡng cụ thể nhất trong các ngưỡng khớp (sản phẩm + đại lý > sản phẩm > đại lý > mặc định)
+     */
+    private int resolveLevel(List<StockAlertThreshold> thresholds, Long productId, Long dealerId) {
+        StockAlertThreshold best = null;
+        int bestRank = -1;
+        for (StockAlertThreshold threshold : thresholds) {
+            boolean productMatches = threshold.getProductId() == null || threshold.getProductId().equals(productId);
+            boolean dealerMatches = threshold.getDealerId() == null || threshold.getDealerId().equals(dealerId);
+            if (!productMatches || !dealerMatches) {
+                continue;
+            }
+            int rank = (threshold.getProductId() != null ? 2 : 0) + (threshold.getDealerId() != null ? 1 : 0);
+            if (rank > bestRank) {
+                best = threshold;
+                bestRank = rank;
+            }
+        }
+        return best != null ? best.getLowStockLevel() : defaultLowStockLevel;
+    }
+
+    private void fill(StockAlert alert, Inventory inventory, String alertType,
+                      int lowStockLevel, LocalDateTime now) {
+        alert.setProductId(inventory.getProduct().getId());
+        alert.setProductName(inventory.getProduct().getProductName());
+        alert.setDealerId(inventory.getDealer() != null ? inventory.getDealer().getId() : null);
+        alert.setDealerName(inventory.getDealer() != null ? inventory.getDealer().getDealerName() : "Brand Warehouse");
+        alert.setAlertType(alertType);
+        alert.setCurrentQuantity(Math.max(0,
+                inventory.getAvailableQuantity() != null ? inventory.getAvailableQuantity() : 0));
+        alert.setMinStockLevel(lowStockLevel);
+        alert.setUpdatedAt(now);
+    }
+
+    private Long dealerKey(Inventory inventory) {
+        return inventory.getDealer() != null ? inventory.getDealer().getId() : BRAND_WAREHOUSE;
+    }
+
+    private InventoryReportResponse.StockAlert toAlertResponse(StockAlert alert) {
+        return InventoryReportResponse.StockAlert.builder()
+                .productId(alert.getProductId())
+                .productName(alert.getProductName())
+                .dealerId(alert.getDealerId())
+                .dealerName(alert.getDealerName())
+                .alertType(alert.getAlertType())
+                .currentQuantity(alert.getCurrentQuantity())
+                .minStockLevel(alert.getMinStockLevel())
+                .message(OUT_OF_STOCK.equals(alert.getAlertType()) ?
+                        "Hết hàng - Cần nhập hàng khẩn cấp" :
+                        "Số lượng tồn kho thấp, cần nhập thêm hàng")
+                .build();
+    }
+
+    private StockAlertThresholdResponse toThresholdResponse(StockAlertThreshold threshold) {
+        return StockAlertThresholdResponse.builder()
+                .id(threshold.getId())
+                .productId(threshold.getProductId())
+                .dealerId(threshold.getDealerId())
+                .lowStockLevel(threshold.getLowStockLevel())
+                .updatedAt(threshold.getUpdatedAt())
+                .build();
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
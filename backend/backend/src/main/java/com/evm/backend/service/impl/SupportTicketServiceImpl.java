@@ -2,6 +2,7 @@ package com.evm.backend.service.impl;
 
 import com.evm.backend.dto.request.SupportTicketFilterRequest;
 import com.evm.backend.dto.request.SupportTicketRequest;
+import com.evm.backend.dto.response.CursorPageResponse;
 import com.evm.backend.dto.response.SupportTicketDetailResponse;
 import com.evm.backend.dto.response.SupportTicketListResponse;
 import com.evm.backend.entity.*;
@@ -50,6 +51,26 @@ public class SupportTicketServiceImpl implements SupportTicketService {
         return tickets.map(this::convertToListResponse);
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPageResponse<SupportTicketListResponse> getTicketsByCursor(SupportTicketFilterRequest filterRequest) {
+        log.info("Getting tickets by cursor with filter: {}", filterRequest);
+
+        KeysetPagination<SupportTicket> keyset = buildKeyset(filterRequest);
+        int limit = KeysetPagination.limit(filterRequest.getSize());
+
+        // Seek theo (cột sắp xếp, id) thay cho OFFSET, lấy dư 1 dòng thay cho COUNT
+        Specification<SupportTicket> spec = buildSpecification(filterRequest).and(keyset.after(filterRequest.getCursor()));
+        List<SupportTicket> tickets = supportTicketRepository.findBy(spec, query -> query
+                .sortBy(keyset.sort())
+                .limit(limit + 1)
+                .all());
+
+        return keyset.toResponse(tickets, limit, page -> page.stream()
+                .map(this::convertToListResponse)
+                .collect(Collectors.toList()));
+    }
+
     @Override
     @Transactional(readOnly = true)
     public List<SupportTicketListResponse> getTicketsByCustomer(Long customerId) {
@@ -471,6 +492,28 @@ public class SupportTicketServiceImpl implements SupportTicketService {
         return PageRequest.of(page, size, sort);
     }
 
+    private KeysetPagination<SupportTicket> buildKeyset(SupportTicketFilterRequest filter) {
+        String sortBy = filter.getSortBy() != null ? filter.getSortBy() : "created_desc";
+
+        switch (sortBy) {
+            case "created_asc":
+                return new KeysetPagination<>(sortBy, "createdAt", Sort.Direction.ASC,
+                        SupportTicket::getCreatedAt, SupportTicket::getId, OffsetDateTime::parse);
+            case "title_asc":
+                return new KeysetPagination<>(sortBy, "title", Sort.Direction.ASC,
+                        SupportTicket::getTitle, SupportTicket::getId, value -> value);
+            case "title_desc":
+                return new KeysetPagination<>(sortBy, "title", Sort.Direction.DESC,
+                        SupportTicket::getTitle, SupportTicket::getId, value -> value);
+            case "priority_desc":
+                return new KeysetPagination<>(sortBy, "priority", Sort.Direction.DESC,
+                        SupportTicket::getPriority, SupportTicket::getId, value -> value);
+            default:
+                return new KeysetPagination<>("created_desc", "createdAt", Sort.Direction.DESC,
+                        SupportTicket::getCreatedAt, SupportTicket::getId, OffsetDateTime::parse);
+        }
+    }
+
     private SupportTicketListResponse convertToListResponse(SupportTicket t) {
         // Calculate days open
         Long daysOpen = null;
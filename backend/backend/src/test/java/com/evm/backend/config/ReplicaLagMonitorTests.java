@@ -0,0 +1,115 @@
+package com.evm.backend.config;
+
+import com.evm.backend.config.ReadReplicaConfiguration.ReplicaLagMonitor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLSyntaxErrorException;
+import java.sql.Statement;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Chuyển đọc về primary khi replica trễ / dừng replication / mất kết nối, và quay lại replica khi khỏe
+ * Replica giả lập bằng JDBC mock trả về kết quả SHOW REPLICA STATUS
+ */
+class ReplicaLagMonitorTests {
+
+    private static final long MAX_LAG_SECONDS = 30;
+
+    private ReplicaRoutingDataSource routing;
+    private Connection connection;
+    private Statement statement;
+    private ReplicaLagMonitor monitor;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        DataSource replica = mock(DataSource.class);
+        connection = mock(Connection.class);
+        statement = mock(Statement.class);
+        when(replica.getConnection()).thenReturn(connection);
+        when(connection.createStatement()).thenReturn(statement);
+
+        routing = new ReplicaRoutingDataSource();
+        monitor = new ReplicaLagMonitor(routing, replica, MAX_LAG_SECONDS);
+    }
+
+    @Test
+    void replicaWithinLagThresholdStaysAvailable() throws SQLException {
+        replicaStatus("SHOW REPLICA STATUS", "Seconds_Behind_Source", 5L);
+
+        monitor.check();
+
+        assertThat(routing.isReplicaAvailable()).isTrue();
+    }
+
+    @Test
+    void laggingReplicaFallsBackToPrimaryAndRecovers() throws SQLException {
+        replicaStatus("SHOW REPLICA STATUS", "Seconds_Behind_Source", MAX_LAG_SECONDS + 1);
+        monitor.check();
+        assertThat(routing.isReplicaAvailable()).isFalse();
+
+        replicaStatus("SHOW REPLICA STATUS", "Seconds_Behind_Source", MAX_LAG_SECONDS);
+        monitor.check();
+        assertThat(routing.isReplicaAvailable()).isTrue();
+    }
+
+    @Test
+    void stoppedReplicationFallsBackToPrimary() throws SQLException {
+        // Seconds_Behind_Source = NULL khi SQL thread / IO thread dừng
+        replicaStatus("SHOW REPLICA STATUS", "Seconds_Behind_Source", null);
+
+        monitor.check();
+
+        assertThat(routing.isReplicaAvailable()).isFalse();
+    }
+
+    @Test
+    void instanceThatIsNotAReplicaCountsAsNoLag() throws SQLException {
+        ResultSet empty = mock(ResultSet.class);
+        when(empty.next()).thenReturn(false);
+        when(statement.executeQuery("SHOW REPLICA STATUS")).thenReturn(empty);
+        routing.setReplicaAvailable(false);
+
+        monitor.check();
+
+        assertThat(routing.isReplicaAvailable()).isTrue();
+    }
+
+    @Test
+    void olderMySqlUsesSlaveStatus() throws SQLException {
+        when(statement.executeQuery("SHOW REPLICA STATUS"))
+                .thenThrow(new SQLSyntaxErrorException("You have an error in your SQL syntax", "42000", 1064));
+        replicaStatus("SHOW SLAVE STATUS", "Seconds_Behind_Master", MAX_LAG_SECONDS + 10);
+
+        monitor.check();
+
+        assertThat(routing.isReplicaAvailable()).isFalse();
+    }
+
+    @Test
+    void unreachableReplicaFallsBackToPrimary() throws SQLException {
+        when(statement.executeQuery(anyString())).thenThrow(new SQLException("Communications link failure", "08S01"));
+
+        monitor.check();
+
+        assertThat(routing.isReplicaAvailable()).isFalse();
+    }
+
+    // ===== HELPER METHODS =====
+
+    private void replicaStatus(String sql, String column, Long lagSeconds) throws SQLException {
+        ResultSet resultSet = mock(ResultSet.class);
+        when(resultSet.next()).thenReturn(true, false);
+        when(resultSet.getLong(column)).thenReturn(lagSeconds != null ? lagSeconds : 0L);
+        when(resultSet.wasNull()).thenReturn(lagSeconds == null);
+        when(statement.executeQuery(sql)).thenReturn(resultSet);
+    }
+}
@@ -0,0 +1,127 @@
+package com.evm.backend.config;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Routing primary / replica với hai CSDL H2 in-memory thay cho hai instance MySQL
+ * Mỗi CSDL có bảng marker ghi tên của nó, truy vấn marker cho biết connection đến từ pool nào
+ */
+class ReplicaRoutingDataSourceTests {
+
+    private ReplicaRoutingDataSource routing;
+    private JdbcTemplate jdbc;
+    private TransactionTemplate readOnlyTransaction;
+    private TransactionTemplate readWriteTransaction;
+
+    @BeforeEach
+    void setUp() {
+        DataSource primary = database("primary");
+        DataSource replica = database("replica");
+
+        routing = new ReplicaRoutingDataSource();
+        routing.setTargetDataSources(Map.of(
+                ReplicaRoutingDataSource.PRIMARY, primary,
+                ReplicaRoutingDataSource.REPLICA, replica));
+        routing.setDefaultTargetDataSource(primary);
+        routing.afterPropertiesSet();
+
+        // Giống ReadReplicaConfiguration.dataSource: connection lấy ở câu lệnh đầu tiên
+        DataSource dataSource = new LazyConnectionDataSourceProxy(routing);
+        jdbc = new JdbcTemplate(dataSource);
+
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+        readWriteTransaction = new TransactionTemplate(transactionManager);
+    }
+
+    @Test
+    void readOnlyTransactionReadsFromReplica() {
+        assertThat(readOnlyMarker()).isEqualTo("replica");
+    }
+
+    @Test
+    void readWriteTransactionUsesPrimary() {
+        assertThat(readWriteMarker()).isEqualTo("primary");
+    }
+
+    @Test
+    void statementsOutsideTransactionUsePrimary() {
+        assertThat(marker()).isEqualTo("primary");
+    }
+
+    @Test
+    void readOnlyTransactionFallsBackToPrimaryWhileReplicaUnavailable() {
+        routing.setReplicaAvailable(false);
+        assertThat(readOnlyMarker()).isEqualTo("primary");
+
+        routing.setReplicaAvailable(true);
+        assertThat(readOnlyMarker()).isEqualTo("replica");
+    }
+
+    @Test
+    void readOnlyTransactionPinnedToPrimaryReadsFromPrimary() {
+        assertThat(ReplicaRoutingDataSource.onPrimary(this::readOnlyMarker)).isEqualTo("primary");
+
+        // Ngoài onPrimary lại đọc từ replica
+        assertThat(readOnlyMarker()).isEqualTo("replica");
+    }
+
+    @Test
+    void nestedOnPrimaryKeepsPinUntilOutermostReturns() {
+        String marker = ReplicaRoutingDataSource.onPrimary(() -> {
+            ReplicaRoutingDataSource.onPrimary(this::readOnlyMarker);
+            return readOnlyMarker();
+        });
+
+        assertThat(marker).isEqualTo("primary");
+    }
+
+    @Test
+    void writesInsideReadWriteTransactionGoToPrimary() {
+        readWriteTransaction.executeWithoutResult(status ->
+                jdbc.update("INSERT INTO written (id) VALUES (1)"));
+
+        assertThat(jdbc.queryForObject("SELECT COUNT(*) FROM written", Integer.class)).isEqualTo(1);
+        Integer replicaRows = readOnlyTransaction.execute(status ->
+                jdbc.queryForObject("SELECT COUNT(*) FROM written", Integer.class));
+        assertThat(replicaRows).isZero();
+    }
+
+    // ===== HELPER METHODS =====
+
+    private String readOnlyMarker() {
+        return readOnlyTransaction.execute(status -> marker());
+    }
+
+    private String readWriteMarker() {
+        return readWriteTransaction.execute(status -> marker());
+    }
+
+    private String marker() {
+        return jdbc.queryForObject("SELECT name FROM marker", String.class);
+    }
+
+    private static DataSource database(String name) {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + name + "-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+
+        JdbcTemplate setup = new JdbcTemplate(dataSource);
+        setup.execute("CREATE TABLE marker (name VARCHAR(20))");
+        setup.update("INSERT INTO marker (name) VALUES (?)", name);
+        setup.execute("CREATE TABLE written (id INT)");
+        return dataSource;
+    }
+}
@@ -0,0 +1,226 @@
+package com.evm.backend.repository;
+
+import com.evm.backend.entity.Vehicle;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Stress test giành xe: nhiều thread cùng giành một nhóm nhỏ xe (tranh chấp cao) trên H2 chế độ MySQL
+ * - Giành từng xe như SalesOrderServiceImpl (UPDATE có điều kiện AVAILABLE -> RESERVED)
+ * - Giành theo lô như SalesOrderImportServiceImpl (SELECT ... FOR UPDATE + UPDATE có điều kiện)
+ * - Giữ xe một lúc rồi trả (RESERVED -> AVAILABLE) để xe được giành lại nhiều lần
+ * Mỗi lần giành thành công ghi người giữ; xe đã có người giữ mà vẫn giành được = giao cho hai người
+ * Kết quả (số lần giành / trả, thông lượng) ghi ra log
+ */
+@Slf4j
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:vehicle-claims;MODE=MySQL;LOCK_TIMEOUT=10000;NON_KEYWORDS=USER,VALUE;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.datasource.hikari.maximum-pool-size=20",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class VehicleClaimStressTests {
+
+    private static final String AVAILABLE = "AVAILABLE";
+    private static final String RESERVED = "RESERVED";
+
+    private static final int VEHICLES = 32;
+    private static final int THREADS = 16;
+    private static final int ATTEMPTS_PER_THREAD = 250;
+    private static final int BATCH_SIZE = 4;
+
+    @Autowired
+    private VehicleRepository vehicleRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transaction;
+
+    // Xe -> thread đang giữ
+    private final ConcurrentMap<String, Integer> holders = new ConcurrentHashMap<>();
+    private final AtomicInteger doubleAssignments = new AtomicInteger();
+    private final LongAdder claims = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder releases = new LongAdder();
+
+    @BeforeEach
+    void setUp() {
+        transaction = new TransactionTemplate(transactionManager);
+        vehicleRepository.deleteAll();
+        List<Vehicle> vehicles = new ArrayList<>(VEHICLES);
+        for (int i = 0; i < VEHICLES; i++) {
+            vehicles.add(Vehicle.builder()
+                    .id(vehicleId(i))
+                    .vin("VIN-" + i)
+                    .status(AVAILABLE)
+                    .build());
+        }
+        vehicleRepository.saveAll(vehicles);
+    }
+
+    @Test
+    void singleVehicleClaimsNeverAssignTheSameVehicleTwice() throws Exception {
+        runWorkers(this::claimOne);
+
+        assertNoDoubleAssignment();
+    }
+
+    @Test
+    void batchAndSingleClaimsNeverAssignTheSameVehicleTwice() throws Exception {
+        // Một nửa thread giành theo lô (import), một nửa giành từng xe (tạo đơn / gán xe)
+        runWorkers(worker -> {
+            if (worker % 2 == 0) {
+                claimBatch(worker);
+            } else {
+                claimOne(worker);
+            }
+        });
+
+        assertNoDoubleAssignment();
+    }
+
+    // ===== HELPER METHODS =====
+
+    private void runWorkers(Worker attempt) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>(THREADS);
+        try {
+            for (int t = 0; t < THREADS; t++) {
+                int worker = t;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < ATTEMPTS_PER_THREAD; i++) {
+                        attempt.run(worker);
+                    }
+                    return null;
+                }));
+            }
+
+            long startNanos = System.nanoTime();
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(2, TimeUnit.MINUTES);
+            }
+            long elapsedNanos = System.nanoTime() - startNanos;
+
+            long attempts = (long) THREADS * ATTEMPTS_PER_THREAD;
+            double seconds = elapsedNanos / 1_000_000_000.0;
+            log.info("Vehicle claim stress: {} threads, {} vehicles, {} attempts in {} ms -> {} attempts/s, "
+                            + "{} claims ({} claims/s), {} rejected, {} releases, {} double assignments",
+                    THREADS, VEHICLES, attempts, TimeUnit.NANOSECONDS.toMillis(elapsedNanos),
+                    Math.round(attempts / seconds), claims.sum(), Math.round(claims.sum() / seconds),
+                    rejected.sum(), releases.sum(), doubleAssignments.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Giành một xe ngẫu nhiên; giành được thì giữ, lần sau trả lại
+     */
+    private void claimOne(int worker) {
+        String vehicleId = vehicleId(ThreadLocalRandom.current().nextInt(VEHICLES));
+        Integer claimed = transaction.execute(status ->
+                vehicleRepository.updateStatusIfCurrent(vehicleId, AVAILABLE, RESERVED));
+        if (claimed != null && claimed == 1) {
+            hold(vehicleId, worker);
+            release(vehicleId, worker);
+        } else {
+            rejected.increment();
+        }
+    }
+
+    /**
+     * Giành một lô xe ngẫu nhiên như importBatch: khóa các xe AVAILABLE rồi đổi trạng thái cả lô
+     */
+    private void claimBatch(int worker) {
+        Set<String> wanted = new TreeSet<>();
+        while (wanted.size() < BATCH_SIZE) {
+            wanted.add(vehicleId(ThreadLocalRandom.current().nextInt(VEHICLES)));
+        }
+
+        List<String> claimedIds = transaction.execute(status -> {
+            List<String> locked = vehicleRepository.lockIdsByIdInAndStatus(wanted, AVAILABLE);
+            if (!locked.isEmpty()) {
+                int updated = vehicleRepository.updateStatusIfCurrent(locked, AVAILABLE, RESERVED);
+                assertThat(updated).as("xe đã khóa phải đổi được trạng thái").isEqualTo(locked.size());
+            }
+            return locked;
+        });
+
+        rejected.add(wanted.size() - claimedIds.size());
+        claimedIds.forEach(vehicleId -> hold(vehicleId, worker));
+        claimedIds.forEach(vehicleId -> release(vehicleId, worker));
+    }
+
+    private void hold(String vehicleId, int worker) {
+        claims.increment();
+        Integer previous = holders.putIfAbsent(vehicleId, worker);
+        if (previous != null) {
+            doubleAssignments.incrementAndGet();
+            log.error("Vehicle {} claimed by worker {} while held by worker {}", vehicleId, worker, previous);
+        }
+    }
+
+    /**
+     * Bỏ người giữ trước khi trả xe trong DB: sau commit thread khác có thể giành lại ngay
+     */
+    private void release(String vehicleId, int worker) {
+        holders.remove(vehicleId, worker);
+        Integer released = transaction.execute(status ->
+                vehicleRepository.updateStatusIfCurrent(vehicleId, RESERVED, AVAILABLE));
+        assertThat(released).as("xe đang giữ phải trả được").isEqualTo(1);
+        releases.increment();
+    }
+
+    private void assertNoDoubleAssignment() {
+        assertThat(doubleAssignments.get()).isZero();
+        assertThat(claims.sum()).isPositive();
+        assertThat(releases.sum()).isEqualTo(claims.sum());
+        assertThat(vehicleRepository.findAll())
+                .extracting(Vehicle::getStatus)
+                .containsOnly(AVAILABLE);
+    }
+
+    private static String vehicleId(int index) {
+        return "STRESS-" + index;
+    }
+
+    @FunctionalInterface
+    private interface Worker {
+        void run(int worker);
+    }
+}
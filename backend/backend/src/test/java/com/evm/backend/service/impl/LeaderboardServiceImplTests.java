@@ -0,0 +1,167 @@
+package com.evm.backend.service.impl;
+
+import com.evm.backend.dto.response.LeaderboardResponse;
+import com.evm.backend.entity.SalesOrder;
+import com.evm.backend.entity.User;
+import com.evm.backend.repository.SalesDailyRollupRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Nạp board từ rollup trong lúc đơn hàng đang commit: không bao giờ đếm trùng một đơn
+ * Transaction giả lập bằng TransactionSynchronization: beforeCommit cấp số thứ tự, afterCompletion áp delta
+ */
+class LeaderboardServiceImplTests {
+
+    private static final Long SALES_PERSON_ID = 7L;
+    private static final BigDecimal ORDER_REVENUE = new BigDecimal("1000");
+
+    private SalesDailyRollupRepository rollupRepository;
+    private LeaderboardServiceImpl service;
+
+    // Doanh thu / số đơn rollup trả về cho nhân viên SALES_PERSON_ID
+    private BigDecimal rollupRevenue = new BigDecimal("5000");
+    private long rollupCount = 5;
+
+    @BeforeEach
+    void setUp() {
+        rollupRepository = mock(SalesDailyRollupRepository.class);
+        service = new LeaderboardServiceImpl(rollupRepository);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void orderCommittingDuringEveryReadIsNotCountedTwice() {
+        // Đơn hàng đã ghi vào rollup nhưng transaction chưa xong suốt các lần đọc: lần nạp không bao giờ "yên"
+        List<TransactionSynchronization> order = new ArrayList<>();
+        AtomicInteger reads = new AtomicInteger();
+        when(rollupRepository.getTopSalesPersons(any(), any(), any())).thenAnswer(invocation -> {
+            if (reads.getAndIncrement() == 0) {
+                order.addAll(beginCommit());
+                rollupRevenue = rollupRevenue.add(ORDER_REVENUE);
+                rollupCount++;
+            }
+            return rollupRows();
+        });
+
+        LeaderboardResponse.Entry loaded = topSalesPerson();
+        assertThat(reads.get()).as("đọc lại khi có transaction đang commit").isGreaterThan(1);
+        assertThat(loaded.getRevenue()).isEqualByComparingTo("6000");
+
+        finishCommit(order);
+
+        LeaderboardResponse.Entry afterCommit = topSalesPerson();
+        assertThat(afterCommit.getRevenue()).isEqualByComparingTo("6000");
+        assertThat(afterCommit.getOrderCount()).isEqualTo(6);
+    }
+
+    @Test
+    void ordersCommittingDuringEveryReadAreNotReplayedOverTheLastRead() {
+        // Tải cao: mỗi lần đọc đều có một đơn commit xong giữa chừng và rollup đọc được đã chứa đơn đó
+        AtomicInteger reads = new AtomicInteger();
+        when(rollupRepository.getTopSalesPersons(any(), any(), any())).thenAnswer(invocation -> {
+            reads.incrementAndGet();
+            List<TransactionSynchronization> order = beginCommit();
+            rollupRevenue = rollupRevenue.add(ORDER_REVENUE);
+            rollupCount++;
+            finishCommit(order);
+            return rollupRows();
+        });
+
+        LeaderboardResponse.Entry loaded = topSalesPerson();
+
+        assertThat(reads.get()).isGreaterThan(1);
+        assertThat(loaded.getRevenue()).isEqualByComparingTo(rollupRevenue);
+        assertThat(loaded.getOrderCount()).isEqualTo(rollupCount);
+    }
+
+    @Test
+    void orderCommittedDuringFirstReadIsCountedOnce() {
+        AtomicInteger reads = new AtomicInteger();
+        when(rollupRepository.getTopSalesPersons(any(), any(), any())).thenAnswer(invocation -> {
+            if (reads.getAndIncrement() == 0) {
+                List<TransactionSynchronization> order = beginCommit();
+                rollupRevenue = rollupRevenue.add(ORDER_REVENUE);
+                rollupCount++;
+                finishCommit(order);
+            }
+            return rollupRows();
+        });
+
+        LeaderboardResponse.Entry loaded = topSalesPerson();
+
+        assertThat(reads.get()).isEqualTo(2);
+        assertThat(loaded.getRevenue()).isEqualByComparingTo("6000");
+        assertThat(loaded.getOrderCount()).isEqualTo(6);
+    }
+
+    @Test
+    void orderCommittedAfterLoadIsApplied() {
+        when(rollupRepository.getTopSalesPersons(any(), any(), any())).thenAnswer(invocation -> rollupRows());
+        topSalesPerson();
+
+        finishCommit(beginCommit());
+
+        LeaderboardResponse.Entry entry = topSalesPerson();
+        assertThat(entry.getRevenue()).isEqualByComparingTo("6000");
+        assertThat(entry.getOrderCount()).isEqualTo(6);
+    }
+
+    // ===== HELPER METHODS =====
+
+    private LeaderboardResponse.Entry topSalesPerson() {
+        List<LeaderboardResponse.Entry> entries = service.getLeaderboard("SALES_PERSONS", "TODAY", 10).getEntries();
+        assertThat(entries).hasSize(1);
+        return entries.get(0);
+    }
+
+    private List<Object[]> rollupRows() {
+        List<Object[]> rows = new ArrayList<>();
+        rows.add(new Object[]{SALES_PERSON_ID, "Sales", rollupRevenue, rollupCount});
+        return rows;
+    }
+
+    /**
+     * Tạo đơn hàng trong transaction giả lập và chạy tới beforeCommit (đã có số thứ tự, chưa xong)
+     */
+    private List<TransactionSynchronization> beginCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            service.applyOrder(SalesOrder.builder()
+                    .orderDate(LocalDate.now())
+                    .totalPrice(ORDER_REVENUE)
+                    .salesPerson(User.builder().id(SALES_PERSON_ID).fullName("Sales").build())
+                    .build(), 1);
+            List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+            synchronizations.forEach(synchronization -> synchronization.beforeCommit(false));
+            return synchronizations;
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private void finishCommit(List<TransactionSynchronization> synchronizations) {
+        synchronizations.forEach(synchronization ->
+                synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+    }
+}
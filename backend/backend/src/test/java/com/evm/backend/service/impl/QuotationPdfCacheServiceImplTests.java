@@ -0,0 +1,146 @@
+package com.evm.backend.service.impl;
+
+import com.evm.backend.entity.Quotation;
+import com.evm.backend.repository.QuotationRepository;
+import com.evm.backend.service.QuotationPdfCacheService.CachedPdf;
+import com.evm.backend.service.QuotationPdfCacheService.OpenedPdf;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Cache PDF báo giá khi file bị xóa song song (evict sau khi báo giá đổi, dọn bản cũ)
+ * Renderer giả lập: PDF = nội dung theo hash hiện tại của báo giá
+ */
+class QuotationPdfCacheServiceImplTests {
+
+    private static final Long QUOTATION_ID = 1L;
+
+    @TempDir
+    Path cacheDir;
+
+    private QuotationPdfRenderer renderer;
+    private QuotationPdfCacheServiceImpl service;
+    private String hash = "v1";
+
+    @BeforeEach
+    void setUp() throws IOException {
+        QuotationRepository quotationRepository = mock(QuotationRepository.class);
+        when(quotationRepository.findByIdWithDetails(QUOTATION_ID)).thenAnswer(invocation -> Optional.of(
+                Quotation.builder().id(QUOTATION_ID).quotationNumber("QT-1").build()));
+
+        renderer = mock(QuotationPdfRenderer.class);
+        when(renderer.contentHash(any())).thenAnswer(invocation -> hash);
+        doAnswer(invocation -> {
+            OutputStream out = invocation.getArgument(1);
+            out.write(content(hash));
+            return null;
+        }).when(renderer).render(any(Quotation.class), any(OutputStream.class));
+
+        service = new QuotationPdfCacheServiceImpl(quotationRepository, renderer,
+                mock(PlatformTransactionManager.class), cacheDir.toString(), 10);
+    }
+
+    @Test
+    void openedPdfIsReadFullyEvenIfEvictedWhileStreaming() throws IOException {
+        try (OpenedPdf pdf = service.openPdf(QUOTATION_ID)) {
+            service.evict(QUOTATION_ID);
+            assertThat(Files.exists(cacheDir.resolve("1"))).isFalse();
+
+            byte[] bytes = pdf.getInputStream().readAllBytes();
+            assertThat(bytes).isEqualTo(content("v1"));
+            assertThat(pdf.getSize()).isEqualTo(bytes.length);
+            assertThat(pdf.getEtag()).isEqualTo("\"v1\"");
+        }
+    }
+
+    @Test
+    void openPdfRendersAgainWhenFileIsEvictedBeforeOpen() throws IOException {
+        QuotationPdfCacheServiceImpl racing = spy(service);
+        AtomicBoolean evicted = new AtomicBoolean();
+        doAnswer(invocation -> {
+            CachedPdf pdf = (CachedPdf) invocation.callRealMethod();
+            if (evicted.compareAndSet(false, true)) {
+                racing.evict(QUOTATION_ID);
+            }
+            return pdf;
+        }).when(racing).getPdf(QUOTATION_ID);
+
+        try (OpenedPdf pdf = racing.openPdf(QUOTATION_ID)) {
+            assertThat(pdf.getInputStream().readAllBytes()).isEqualTo(content("v1"));
+        }
+        verify(racing, times(2)).getPdf(QUOTATION_ID);
+    }
+
+    @Test
+    void openPdfGivesUpWhenFileKeepsDisappearing() {
+        QuotationPdfCacheServiceImpl racing = spy(service);
+        doAnswer(invocation -> {
+            CachedPdf pdf = (CachedPdf) invocation.callRealMethod();
+            racing.evict(QUOTATION_ID);
+            return pdf;
+        }).when(racing).getPdf(QUOTATION_ID);
+
+        assertThatThrownBy(() -> racing.openPdf(QUOTATION_ID))
+                .isInstanceOf(UncheckedIOException.class);
+        verify(racing, times(2)).getPdf(QUOTATION_ID);
+    }
+
+    @Test
+    void newVersionDoesNotDeleteOldVersionUntilRetentionPurge() throws IOException {
+        Path oldVersion = service.getPdf(QUOTATION_ID).getFile();
+
+        hash = "v2";
+        Path newVersion = service.getPdf(QUOTATION_ID).getFile();
+
+        // Request tải bản cũ có thể vẫn đang mở file theo đường dẫn
+        assertThat(oldVersion).exists();
+        assertThat(newVersion).exists();
+
+        // Bản cũ chưa quá retention: giữ lại
+        assertThat(service.purgeStaleVersions()).isZero();
+
+        Files.setLastModifiedTime(oldVersion, FileTime.from(Instant.now().minus(Duration.ofHours(1))));
+        assertThat(service.purgeStaleVersions()).isEqualTo(1);
+        assertThat(oldVersion).doesNotExist();
+        assertThat(newVersion).exists();
+    }
+
+    @Test
+    void purgeKeepsNewestVersionEvenWhenOld() throws IOException {
+        Path only = service.getPdf(QUOTATION_ID).getFile();
+        Files.setLastModifiedTime(only, FileTime.from(Instant.now().minus(Duration.ofHours(1))));
+
+        assertThat(service.purgeStaleVersions()).isZero();
+        assertThat(only).exists();
+    }
+
+    // ===== HELPER METHODS =====
+
+    private static byte[] content(String hash) {
+        return ("%PDF quotation " + hash).getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,105 @@
+package com.evm.backend.service.impl;
+
+import com.evm.backend.entity.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark xuất PDF báo giá bằng QuotationPdfRenderer (font nạp một lần từ classpath)
+ * - render ra byte[] như API tải một báo giá, render thẳng ra stream như export ZIP
+ * - newRendererPerPdf: nạp lại font cho mỗi PDF như cách cũ, để so sánh
+ * Chạy: mvn -Pbenchmark test-compile exec:exec "-Dbenchmark=QuotationPdfRendererBenchmark -prof gc"
+ * (-prof gc: số byte cấp phát cho mỗi PDF, gc.alloc.rate.norm)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QuotationPdfRendererBenchmark {
+
+    @Param({"0", "5"})
+    private int promotionCount;
+
+    private QuotationPdfRenderer renderer;
+    private Quotation quotation;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        renderer = new QuotationPdfRenderer();
+        quotation = sampleQuotation(promotionCount);
+    }
+
+    @Benchmark
+    public byte[] renderToByteArray() {
+        return renderer.render(quotation);
+    }
+
+    @Benchmark
+    public void renderToStream() {
+        renderer.render(quotation, OutputStream.nullOutputStream());
+    }
+
+    @Benchmark
+    public byte[] newRendererPerPdf() {
+        return new QuotationPdfRenderer().render(quotation);
+    }
+
+    // ===== HELPER METHODS =====
+
+    private static Quotation sampleQuotation(int promotionCount) {
+        Quotation quotation = Quotation.builder()
+                .id(1L)
+                .quotationNumber("QT-2024-000123")
+                .quotationDate(LocalDate.of(2024, 5, 10))
+                .validUntil(LocalDate.of(2024, 6, 10))
+                .basePrice(new BigDecimal("1250000000"))
+                .vat(new BigDecimal("125000000"))
+                .registrationFee(new BigDecimal("25000000"))
+                .discountAmount(new BigDecimal("30000000"))
+                .totalPrice(new BigDecimal("1370000000"))
+                .status("SENT")
+                .notes("Khách hàng muốn nhận xe trong tháng 6, màu trắng ngọc trai.")
+                .termsAndConditions("Báo giá có hiệu lực 30 ngày kể từ ngày lập. Giá đã bao gồm VAT. "
+                        + "Thời gian giao xe dự kiến 2-4 tuần sau khi đặt cọc. "
+                        + "Chương trình khuyến mãi áp dụng theo quy định của hãng tại thời điểm ký hợp đồng.")
+                .product(Product.builder()
+                        .productName("VinFast VF 8 Plus")
+                        .version("2024 Eco")
+                        .build())
+                .customer(Customer.builder()
+                        .fullName("Nguyễn Thị Hồng Nhung")
+                        .phoneNumber("0901234567")
+                        .email("nhung.nguyen@example.com")
+                        .address("123 Đường Lê Lợi, Phường Bến Thành, Quận 1, TP. Hồ Chí Minh")
+                        .build())
+                .salesPerson(User.builder()
+                        .fullName("Trần Văn Đức")
+                        .build())
+                .dealer(Dealer.builder()
+                        .dealerName("Đại lý Sài Gòn Trung Tâm")
+                        .build())
+                .build();
+
+        Set<QuotationPromotion> promotions = new HashSet<>();
+        for (int i = 0; i < promotionCount; i++) {
+            promotions.add(QuotationPromotion.builder()
+                    .id((long) i + 1)
+                    .quotation(quotation)
+                    .promotion(Promotion.builder()
+                            .promotionName("Ưu đãi tháng " + (i + 1))
+                            .build())
+                    .appliedAmount(new BigDecimal("5000000"))
+                    .build());
+        }
+        quotation.setQuotationPromotions(promotions);
+        return quotation;
+    }
+}
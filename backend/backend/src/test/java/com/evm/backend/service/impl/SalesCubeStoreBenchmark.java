@@ -0,0 +1,128 @@
+package com.evm.backend.service.impl;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Benchmark scan của sales cube trên 10 triệu dòng (dữ liệu sinh ngẫu nhiên, seed cố định)
+ * - scan một thread và scan song song theo đoạn như SalesCubeServiceImpl.query
+ * - gom nhóm 1 chiều (đại lý), 2 chiều (đại lý x tháng), và lọc theo trạng thái + sản phẩm
+ * Chạy: mvn -Pbenchmark test-compile exec:exec -Dbenchmark=SalesCubeStoreBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class SalesCubeStoreBenchmark {
+
+    // Cùng kích thước đoạn với SalesCubeServiceImpl
+    private static final int CHUNK_SIZE = 1 << 16;
+
+    private static final String[] STATUSES = {"PENDING", "CONFIRMED", "COMPLETED", "CANCELLED"};
+
+    @Param("10000000")
+    private int rows;
+
+    @Param({"50"})
+    private int dealerCount;
+
+    @Param({"300"})
+    private int productCount;
+
+    private SalesCubeStore cube;
+    private int[] monthOfDay;
+    private SalesCubeStore.Filter allRows;
+    private SalesCubeStore.Filter completedSubset;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        int firstDay = (int) LocalDate.of(2023, 1, 1).toEpochDay();
+        int dayCount = 3 * 365;
+
+        cube = new SalesCubeStore();
+        for (int i = 0; i < rows; i++) {
+            // Đơn hàng tăng dần theo id và gần như tăng theo ngày
+            int day = firstDay + (int) ((long) i * dayCount / rows);
+            long revenueCents = 50_000_000_00L + random.nextInt(1_000_000) * 1_000L;
+            long discountCents = random.nextInt(10) == 0 ? random.nextInt(5_000_000) * 100L : 0L;
+            cube.upsert(i + 1L, day,
+                    1 + random.nextInt(dealerCount),
+                    1 + random.nextInt(productCount),
+                    1 + random.nextInt(2_000),
+                    STATUSES[random.nextInt(STATUSES.length)],
+                    revenueCents, discountCents);
+        }
+
+        monthOfDay = new int[cube.maxDay() - cube.minDay() + 1];
+        for (int i = 0; i < monthOfDay.length; i++) {
+            LocalDate date = LocalDate.ofEpochDay((long) cube.minDay() + i);
+            monthOfDay[i] = date.getYear() * 12 + date.getMonthValue() - 1;
+        }
+
+        allRows = new SalesCubeStore.Filter();
+
+        // COMPLETED, 1/3 số sản phẩm, năm cuối
+        completedSubset = new SalesCubeStore.Filter();
+        completedSubset.fromDay = cube.maxDay() - 365;
+        completedSubset.statusMask = new boolean[cube.statusCount()];
+        completedSubset.statusMask[cube.findStatusCode("COMPLETED")] = true;
+        completedSubset.productMask = new boolean[cube.productDictionary.size()];
+        for (int code = 0; code < completedSubset.productMask.length; code += 3) {
+            completedSubset.productMask[code] = true;
+        }
+    }
+
+    @Benchmark
+    public Map<Long, long[]> scanByDealerSingleThread() {
+        return cube.scan(0, cube.size(), allRows, new int[]{SalesCubeStore.DIM_DEALER}, monthOfDay);
+    }
+
+    @Benchmark
+    public Map<Long, long[]> scanByDealerParallel() {
+        return parallelScan(allRows, new int[]{SalesCubeStore.DIM_DEALER});
+    }
+
+    @Benchmark
+    public Map<Long, long[]> scanByDealerAndMonthParallel() {
+        return parallelScan(allRows, new int[]{SalesCubeStore.DIM_DEALER, SalesCubeStore.DIM_MONTH});
+    }
+
+    @Benchmark
+    public Map<Long, long[]> scanFilteredByProductParallel() {
+        return parallelScan(completedSubset, new int[]{SalesCubeStore.DIM_PRODUCT});
+    }
+
+    // ===== HELPER METHODS =====
+
+    private Map<Long, long[]> parallelScan(SalesCubeStore.Filter filter, int[] dimensions) {
+        int size = cube.size();
+        int chunks = (size + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        return IntStream.range(0, chunks)
+                .parallel()
+                .mapToObj(chunk -> cube.scan(chunk * CHUNK_SIZE,
+                        Math.min(size, (chunk + 1) * CHUNK_SIZE), filter, dimensions, monthOfDay))
+                .reduce(SalesCubeStoreBenchmark::merge)
+                .orElseGet(HashMap::new);
+    }
+
+    private static Map<Long, long[]> merge(Map<Long, long[]> left, Map<Long, long[]> right) {
+        Map<Long, long[]> target = left.size() >= right.size() ? left : right;
+        Map<Long, long[]> source = target == left ? right : left;
+        source.forEach((key, totals) -> target.merge(key, totals, (a, b) -> {
+            a[0] += b[0];
+            a[1] += b[1];
+            a[2] += b[2];
+            return a;
+        }));
+        return target;
+    }
+}
@@ -0,0 +1,343 @@
+package com.evm.backend.service.impl;
+
+import com.evm.backend.dto.request.AssignVehicleRequest;
+import com.evm.backend.dto.request.SalesOrderRequest;
+import com.evm.backend.entity.*;
+import com.evm.backend.exception.BadRequestException;
+import com.evm.backend.exception.ConflictException;
+import com.evm.backend.repository.*;
+import com.evm.backend.service.SalesRollupService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.function.IntFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * SalesOrderServiceImpl dưới tải đồng thời trên H2 chế độ MySQL (transaction thật, @Version thật)
+ * - Nhiều người cùng tạo đơn / gán cùng một xe: đúng một người giữ được xe
+ * - Nhiều người cùng gán xe / hủy cùng một đơn: xung đột @Version được thử lại, dữ liệu cuối nhất quán
+ * - Xung đột liên tục: hết số lần thử -> ConflictException
+ * SalesRollupService là mock; retractOrder giữ các thread lại cho đến khi tất cả đã đọc cùng một version của đơn
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:sales-order-concurrency;MODE=MySQL;LOCK_TIMEOUT=10000;NON_KEYWORDS=USER,VALUE;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.datasource.hikari.maximum-pool-size=20",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(SalesOrderServiceImpl.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class SalesOrderConcurrencyTests {
+
+    private static final int THREADS = 8;
+
+    @Autowired
+    private SalesOrderServiceImpl salesOrderService;
+
+    @Autowired
+    private SalesOrderRepository salesOrderRepository;
+
+    @Autowired
+    private VehicleRepository vehicleRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RoleRepository roleRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @MockitoBean
+    private SalesRollupService salesRollupService;
+
+    private Customer customer;
+    private User salesPerson;
+
+    @BeforeEach
+    void setUp() {
+        salesOrderRepository.deleteAllInBatch();
+        vehicleRepository.deleteAllInBatch();
+        customerRepository.deleteAllInBatch();
+        userRepository.deleteAllInBatch();
+        roleRepository.deleteAllInBatch();
+
+        Role role = roleRepository.save(Role.builder().roleName("DEALER_STAFF").build());
+        salesPerson = userRepository.save(User.builder()
+                .username("sales")
+                .passwordHash("x")
+                .fullName("Sales Person")
+                .role(role)
+                .build());
+        customer = customerRepository.save(Customer.builder().fullName("Customer").build());
+    }
+
+    @Test
+    void concurrentCreateOrdersForSameVehicleHaveExactlyOneWinner() throws Exception {
+        Vehicle vehicle = vehicle("CREATE-1", "AVAILABLE");
+
+        List<Throwable> outcomes = runConcurrently(THREADS, worker -> () ->
+                salesOrderService.createOrder(orderRequest(vehicle.getId())));
+
+        assertThat(successes(outcomes)).isEqualTo(1);
+        assertThat(failures(outcomes)).allSatisfy(failure -> assertThat(failure)
+                .isInstanceOf(BadRequestException.class)
+                .hasMessageContaining("AVAILABLE"));
+        assertThat(salesOrderRepository.count()).isEqualTo(1);
+        assertThat(vehicleStatus(vehicle.getId())).isEqualTo("RESERVED");
+    }
+
+    @Test
+    void concurrentAssignOfSameVehicleToDifferentOrdersHasExactlyOneWinner() throws Exception {
+        Vehicle vehicle = vehicle("ASSIGN-1", "AVAILABLE");
+        List<Long> orderIds = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            orderIds.add(pendingOrder().getId());
+        }
+
+        List<Throwable> outcomes = runConcurrently(THREADS, worker -> () ->
+                salesOrderService.assignVehicle(orderIds.get(worker), assignRequest(vehicle.getId())));
+
+        assertThat(successes(outcomes)).isEqualTo(1);
+        assertThat(failures(outcomes)).allSatisfy(failure -> assertThat(failure)
+                .isInstanceOf(BadRequestException.class)
+                .hasMessageContaining("AVAILABLE"));
+        assertThat(salesOrderRepository.findAll())
+                .filteredOn(order -> order.getVehicle() != null)
+                .hasSize(1);
+        assertThat(vehicleStatus(vehicle.getId())).isEqualTo("RESERVED");
+    }
+
+    @Test
+    void concurrentAssignsToSameOrderAreRetriedAndOnlyOneVehicleStaysReserved() throws Exception {
+        Long orderId = pendingOrder().getId();
+        List<String> vehicleIds = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            vehicleIds.add(vehicle("ORDER-ASSIGN-" + i, "AVAILABLE").getId());
+        }
+        holdUntilAllHaveReadTheOrder(THREADS);
+
+        List<Throwable> outcomes = runConcurrently(THREADS, worker -> () ->
+                salesOrderService.assignVehicle(orderId, assignRequest(vehicleIds.get(worker))));
+
+        // Mọi thread đã đọc đơn ở trạng thái PENDING: lỗi "chỉ PENDING" chỉ có thể đến từ lần thử lại
+        assertThat(successes(outcomes)).isEqualTo(1);
+        assertThat(failures(outcomes)).allSatisfy(failure -> assertThat(failure)
+                .isInstanceOf(BadRequestException.class)
+                .hasMessageContaining("PENDING"));
+
+        SalesOrder order = salesOrderRepository.findByIdWithDetails(orderId).orElseThrow();
+        assertThat(order.getStatus()).isEqualTo("CONFIRMED");
+        // Giao dịch thua rollback cả lần giành xe: chỉ xe của đơn còn RESERVED
+        for (String vehicleId : vehicleIds) {
+            assertThat(vehicleStatus(vehicleId))
+                    .isEqualTo(vehicleId.equals(order.getVehicle().getId()) ? "RESERVED" : "AVAILABLE");
+        }
+    }
+
+    @Test
+    void concurrentCancelsOfSameOrderAreRetriedAndCancelOnce() throws Exception {
+        Vehicle vehicle = vehicle("CANCEL-1", "RESERVED");
+        Long orderId = confirmedOrder(vehicle).getId();
+        holdUntilAllHaveReadTheOrder(THREADS);
+
+        List<Throwable> outcomes = runConcurrently(THREADS, worker -> () -> {
+            salesOrderService.cancelOrder(orderId);
+            return null;
+        });
+
+        assertThat(successes(outcomes)).isEqualTo(1);
+        assertThat(failures(outcomes)).allSatisfy(failure -> assertThat(failure)
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("CANCELLED"));
+        assertThat(salesOrderRepository.findById(orderId).orElseThrow().getStatus()).isEqualTo("CANCELLED");
+        assertThat(vehicleStatus(vehicle.getId())).isEqualTo("AVAILABLE");
+    }
+
+    @Test
+    void concurrentAssignAndCancelOnSameOrderLeaveConsistentState() throws Exception {
+        Long orderId = pendingOrder().getId();
+        List<String> vehicleIds = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            vehicleIds.add(vehicle("MIXED-" + i, "AVAILABLE").getId());
+        }
+        holdUntilAllHaveReadTheOrder(THREADS);
+
+        List<Throwable> outcomes = runConcurrently(THREADS, worker -> () -> {
+            if (worker % 2 == 0) {
+                return salesOrderService.assignVehicle(orderId, assignRequest(vehicleIds.get(worker)));
+            }
+            salesOrderService.cancelOrder(orderId);
+            return null;
+        });
+
+        assertThat(successes(outcomes)).isPositive();
+        assertThat(failures(outcomes)).allSatisfy(failure -> assertThat(failure)
+                .isInstanceOfAny(BadRequestException.class, IllegalStateException.class, ConflictException.class));
+
+        // Không xe nào RESERVED mà không thuộc đơn
+        SalesOrder order = salesOrderRepository.findByIdWithDetails(orderId).orElseThrow();
+        String orderVehicle = order.getVehicle() != null && !"CANCELLED".equals(order.getStatus()) ?
+                order.getVehicle().getId() : null;
+        for (String vehicleId : vehicleIds) {
+            assertThat(vehicleStatus(vehicleId))
+                    .as("vehicle %s, order %s", vehicleId, order.getStatus())
+                    .isEqualTo(vehicleId.equals(orderVehicle) ? "RESERVED" : "AVAILABLE");
+        }
+    }
+
+    @Test
+    void persistentVersionConflictsEndInConflictExceptionAfterRetries() {
+        Vehicle vehicle = vehicle("CONFLICT-1", "RESERVED");
+        Long orderId = confirmedOrder(vehicle).getId();
+
+        // Mỗi lần thử: giao dịch khác sửa đơn sau khi lần thử đã đọc -> commit luôn lỗi @Version
+        TransactionTemplate otherTransaction = new TransactionTemplate(transactionManager);
+        otherTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        doAnswer(invocation -> otherTransaction.execute(status -> jdbcTemplate.update(
+                "UPDATE sales_order SET version = version + 1 WHERE order_id = ?", orderId)))
+                .when(salesRollupService).retractOrder(any());
+
+        assertThatThrownBy(() -> salesOrderService.cancelOrder(orderId))
+                .isInstanceOf(ConflictException.class);
+
+        verify(salesRollupService, times(3)).retractOrder(any());
+        assertThat(salesOrderRepository.findById(orderId).orElseThrow().getStatus()).isEqualTo("CONFIRMED");
+        assertThat(vehicleStatus(vehicle.getId())).isEqualTo("RESERVED");
+    }
+
+    // ===== HELPER METHODS =====
+
+    /**
+     * retractOrder (sau khi đã đọc đơn, trước commit) chờ đủ parties thread: tất cả cùng sửa một version của đơn
+     * Lần thử lại không chờ nữa
+     */
+    private void holdUntilAllHaveReadTheOrder(int parties) {
+        CountDownLatch arrived = new CountDownLatch(parties);
+        doAnswer(invocation -> {
+            arrived.countDown();
+            arrived.await(10, TimeUnit.SECONDS);
+            return null;
+        }).when(salesRollupService).retractOrder(any());
+    }
+
+    /**
+     * Chạy các thread cùng lúc; kết quả mỗi thread: null nếu thành công, ngược lại là exception
+     */
+    private List<Throwable> runConcurrently(int threads, IntFunction<Callable<?>> work) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>(threads);
+        try {
+            for (int t = 0; t < threads; t++) {
+                Callable<?> task = work.apply(t);
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return task.call();
+                }));
+            }
+            start.countDown();
+
+            List<Throwable> outcomes = new ArrayList<>(threads);
+            for (Future<?> future : futures) {
+                try {
+                    future.get(1, TimeUnit.MINUTES);
+                    outcomes.add(null);
+                } catch (ExecutionException e) {
+                    outcomes.add(e.getCause());
+                }
+            }
+            return outcomes;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static long successes(List<Throwable> outcomes) {
+        return outcomes.stream().filter(outcome -> outcome == null).count();
+    }
+
+    private static List<Throwable> failures(List<Throwable> outcomes) {
+        return outcomes.stream().filter(outcome -> outcome != null).toList();
+    }
+
+    private Vehicle vehicle(String id, String status) {
+        return vehicleRepository.save(Vehicle.builder().id(id).vin("VIN-" + id).status(status).build());
+    }
+
+    private SalesOrder pendingOrder() {
+        return salesOrderRepository.save(order("PENDING", null));
+    }
+
+    private SalesOrder confirmedOrder(Vehicle vehicle) {
+        return salesOrderRepository.save(order("CONFIRMED", vehicle));
+    }
+
+    private SalesOrder order(String status, Vehicle vehicle) {
+        return SalesOrder.builder()
+                .orderDate(LocalDate.now())
+                .basePrice(new BigDecimal("1000000000"))
+                .vat(new BigDecimal("100000000"))
+                .registrationFee(BigDecimal.ZERO)
+                .discountAmount(BigDecimal.ZERO)
+                .totalPrice(new BigDecimal("1100000000"))
+                .status(status)
+                .vehicle(vehicle)
+                .customer(customer)
+                .salesPerson(salesPerson)
+                .build();
+    }
+
+    private SalesOrderRequest orderRequest(String vehicleId) {
+        return SalesOrderRequest.builder()
+                .orderDate(LocalDate.now())
+                .basePrice(new BigDecimal("1000000000"))
+                .vat(new BigDecimal("100000000"))
+                .totalPrice(new BigDecimal("1100000000"))
+                .vehicleId(vehicleId)
+                .customerId(customer.getId())
+                .salesPersonId(salesPerson.getId())
+                .build();
+    }
+
+    private static AssignVehicleRequest assignRequest(String vehicleId) {
+        return AssignVehicleRequest.builder().vehicleId(vehicleId).build();
+    }
+
+    private String vehicleStatus(String vehicleId) {
+        return vehicleRepository.findById(vehicleId).orElseThrow().getStatus();
+    }
+}